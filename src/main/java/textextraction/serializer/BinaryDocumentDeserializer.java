@@ -0,0 +1,277 @@
+package textextraction.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+import textextraction.common.models.Shape;
+import textextraction.serializer.binary.BinaryLayout;
+import textextraction.serializer.binary.CharacterView;
+import textextraction.serializer.binary.ColorView;
+import textextraction.serializer.binary.FigureView;
+import textextraction.serializer.binary.FontView;
+import textextraction.serializer.binary.MappedDocument;
+import textextraction.serializer.binary.PageView;
+import textextraction.serializer.binary.PositionView;
+import textextraction.serializer.binary.ShapeView;
+import textextraction.serializer.exception.DeserializerException;
+
+/**
+ * A deserializer to read a document serialized in binary format (by
+ * {@link BinaryDocumentSerializer}) back into a {@link Document}.
+ *
+ * <p>
+ * The elements are read via the views of a {@link MappedDocument}. As in the textual formats,
+ * only the characters, figures and shapes (and the fonts, colors and pages they refer to) are
+ * materialized.
+ *
+ * @author Claudius Korzen
+ */
+public class BinaryDocumentDeserializer {
+  /**
+   * The fonts, per index in the fonts section.
+   */
+  protected Font[] fonts;
+
+  /**
+   * The colors, per index in the colors section.
+   */
+  protected Color[] colors;
+
+  /**
+   * The pages read so far, per page number.
+   */
+  protected Map<Integer, Page> pages;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new deserializer that reads a document serialized in binary format.
+   */
+  public BinaryDocumentDeserializer() {
+    this.pages = new TreeMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Reads a document serialized in binary format from the given stream.
+   *
+   * @param in The stream to read from.
+   *
+   * @return The deserialized document.
+   *
+   * @throws DeserializerException If something went wrong on deserializing the document.
+   */
+  public Document deserialize(InputStream in) throws DeserializerException {
+    if (in == null) {
+      return null;
+    }
+
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] chunk = new byte[8192];
+      int numRead;
+      while ((numRead = in.read(chunk)) >= 0) {
+        bytes.write(chunk, 0, numRead);
+      }
+      return deserialize(ByteBuffer.wrap(bytes.toByteArray()), -1);
+    } catch (IOException e) {
+      throw new DeserializerException("Couldn't deserialize the document.", e);
+    }
+  }
+
+  /**
+   * Reads the elements of the given page (or of all pages) from the binary serialization contained
+   * in the given buffer.
+   *
+   * @param buffer     The buffer that contains the serialization.
+   * @param pageNumber The number of the page to read, or -1 to read all pages.
+   *
+   * @return The deserialized document.
+   *
+   * @throws DeserializerException If something went wrong on deserializing the document.
+   */
+  public Document deserialize(ByteBuffer buffer, int pageNumber) throws DeserializerException {
+    try {
+      MappedDocument mapped = new MappedDocument(buffer);
+
+      deserializeFonts(mapped);
+      deserializeColors(mapped);
+
+      PageView pageView = mapped.pages();
+      if (pageNumber < 0) {
+        for (int i = 0; i < pageView.size(); i++) {
+          pageView.moveTo(i);
+          deserializePage(mapped, pageView);
+        }
+      } else if (mapped.findPage(pageView, pageNumber)) {
+        deserializePage(mapped, pageView);
+      }
+    } catch (IOException | RuntimeException e) {
+      // Record references that point outside the buffer or to missing records surface as
+      // runtime exceptions (for example, IndexOutOfBoundsException).
+      throw new DeserializerException("Couldn't deserialize the document.", e);
+    }
+
+    // Add the pages in the order of their page numbers.
+    Document doc = new Document();
+    for (Page page : this.pages.values()) {
+      doc.addPage(page);
+    }
+    return doc;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes the current page of the given view, including its characters, figures and
+   * shapes.
+   *
+   * @param mapped   The serialization.
+   * @param pageView The view, moved to the page to deserialize.
+   */
+  protected void deserializePage(MappedDocument mapped, PageView pageView) {
+    Page page = getPage(pageView.getPageNumber());
+    page.setWidth(pageView.getWidth());
+    page.setHeight(pageView.getHeight());
+
+    CharacterView charView = mapped.characters();
+    int first = pageView.getFirstElement(ElementClass.CHARACTERS);
+    int num = pageView.getNumElements(ElementClass.CHARACTERS);
+    for (int i = first; i < first + num; i++) {
+      charView.moveTo(i);
+      Character character = new Character();
+      Position position = deserializePosition(charView);
+      character.setPosition(position);
+      int font = charView.getFontIndex();
+      if (font != BinaryLayout.NONE) {
+        character.setFontFace(new FontFace(this.fonts[font], charView.getFontSize()));
+      }
+      int color = charView.getColorIndex();
+      if (color != BinaryLayout.NONE) {
+        character.setColor(this.colors[color]);
+      }
+      character.setText(charView.getText());
+      if (position != null) {
+        position.getPage().addCharacter(character);
+      }
+    }
+
+    FigureView figureView = mapped.figures();
+    first = pageView.getFirstElement(ElementClass.FIGURES);
+    num = pageView.getNumElements(ElementClass.FIGURES);
+    for (int i = first; i < first + num; i++) {
+      figureView.moveTo(i);
+      Figure figure = new Figure();
+      Position position = deserializePosition(figureView);
+      figure.setPosition(position);
+      if (position != null) {
+        position.getPage().addFigure(figure);
+      }
+    }
+
+    ShapeView shapeView = mapped.shapes();
+    first = pageView.getFirstElement(ElementClass.SHAPES);
+    num = pageView.getNumElements(ElementClass.SHAPES);
+    for (int i = first; i < first + num; i++) {
+      shapeView.moveTo(i);
+      Shape shape = new Shape();
+      Position position = deserializePosition(shapeView);
+      shape.setPosition(position);
+      int color = shapeView.getColorIndex();
+      if (color != BinaryLayout.NONE) {
+        shape.setColor(this.colors[color]);
+      }
+      if (position != null) {
+        position.getPage().addShape(shape);
+      }
+    }
+  }
+
+  /**
+   * Deserializes the position of the current record of the given view.
+   *
+   * @param view The view.
+   *
+   * @return The deserialized position, or null if the record has no position.
+   */
+  protected Position deserializePosition(PositionView view) {
+    int pageNumber = view.getPageNumber();
+    if (pageNumber <= 0) {
+      return null;
+    }
+    Rectangle rect = new Rectangle(view.getMinX(), view.getMinY(), view.getMaxX(),
+            view.getMaxY());
+    return new Position(getPage(pageNumber), rect);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes all fonts of the given serialization.
+   *
+   * @param mapped The serialization.
+   */
+  protected void deserializeFonts(MappedDocument mapped) {
+    FontView view = mapped.fonts();
+    this.fonts = new Font[view.size()];
+    for (int i = 0; i < view.size(); i++) {
+      view.moveTo(i);
+      Font font = new Font();
+      font.setId(view.getId());
+      font.setName(view.getName());
+      font.setIsBold(view.isBold());
+      font.setIsItalic(view.isItalic());
+      this.fonts[i] = font;
+    }
+  }
+
+  /**
+   * Deserializes all colors of the given serialization.
+   *
+   * @param mapped The serialization.
+   */
+  protected void deserializeColors(MappedDocument mapped) {
+    ColorView view = mapped.colors();
+    this.colors = new Color[view.size()];
+    for (int i = 0; i < view.size(); i++) {
+      view.moveTo(i);
+      Color color = new Color();
+      color.setId(view.getId());
+      color.setRgb(new int[] { view.getRed(), view.getGreen(), view.getBlue() });
+      this.colors[i] = color;
+    }
+  }
+
+  /**
+   * Returns the page with the given number, creating it on the first reference.
+   *
+   * @param pageNumber The number of the page.
+   *
+   * @return The page with the given number.
+   */
+  protected Page getPage(int pageNumber) {
+    Page page = this.pages.get(pageNumber);
+    if (page == null) {
+      page = new Page();
+      page.setPageNumber(pageNumber);
+      this.pages.put(pageNumber, page);
+    }
+    return page;
+  }
+}
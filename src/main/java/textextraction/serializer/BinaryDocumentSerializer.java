@@ -0,0 +1,796 @@
+package textextraction.serializer;
+
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
+import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
+import static textextraction.serializer.DocumentSerializerConstants.FIGURES;
+import static textextraction.serializer.DocumentSerializerConstants.FONTS;
+import static textextraction.serializer.DocumentSerializerConstants.PAGES;
+import static textextraction.serializer.DocumentSerializerConstants.PARAGRAPHS;
+import static textextraction.serializer.DocumentSerializerConstants.POSITIONS;
+import static textextraction.serializer.DocumentSerializerConstants.SHAPES;
+import static textextraction.serializer.DocumentSerializerConstants.STRINGS;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_BLOCKS;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_LINES;
+import static textextraction.serializer.DocumentSerializerConstants.WORDS;
+import static textextraction.serializer.binary.BinaryLayout.NONE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
+import textextraction.serializer.binary.BinaryLayout;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.jfr.SectionSerializationEvent;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A serializer to serialize a document in binary format, as described in {@link BinaryLayout}.
+ *
+ * <p>
+ * In contrast to the textual formats, the elements are stored in fixed-size records, so that a
+ * serialization can be queried in place (for example, memory-mapped by
+ * {@link textextraction.serializer.binary.MappedDocument}) without materializing the elements.
+ * The records always contain all fields of an element; the field projection of the options is not
+ * applied. The element filter of the options is applied as in the textual formats. The elements
+ * are written as events of a {@link DocumentTraversal}, so that the serializer can share a
+ * traversal with the serializers of other formats.
+ *
+ * @author Claudius Korzen
+ */
+public class BinaryDocumentSerializer implements DocumentEventHandler {
+  /**
+   * The encoding of the strings.
+   */
+  protected static final Charset ENCODING = Charset.forName(DEFAULT_ENCODING);
+
+  /**
+   * The names of the sections in the {@link SerializationIndex}, per section kind.
+   */
+  protected static final String[] SECTION_NAMES = { FONTS, COLORS, PAGES, POSITIONS, CHARACTERS,
+      WORDS, TEXT_LINES, TEXT_BLOCKS, PARAGRAPHS, FIGURES, SHAPES, STRINGS };
+
+  // ==============================================================================================
+
+  /**
+   * The options that control the serialization.
+   */
+  protected SerializationOptions options;
+
+  /**
+   * The filter that restricts the serialization to a range of pages and/or a region of the pages.
+   */
+  protected ElementFilter filter;
+
+  /**
+   * The traversal that emits the elements to serialize.
+   */
+  protected DocumentTraversal traversal;
+
+  /**
+   * The stream to which the serialization is written.
+   */
+  protected OutputStream out;
+
+  /**
+   * The index of the byte ranges of the sections and pages of the serialization.
+   */
+  protected SerializationIndex index;
+
+  /**
+   * The index of each serialized font in the fonts section.
+   */
+  protected Map<Font, Integer> fontIndices;
+
+  /**
+   * The index of each serialized color in the colors section.
+   */
+  protected Map<Color, Integer> colorIndices;
+
+  /**
+   * The index of each serialized string in the strings section.
+   */
+  protected Map<String, Integer> stringIndices;
+
+  /**
+   * The serialized strings, in the order of their indices.
+   */
+  protected List<String> strings;
+
+  /**
+   * The serialized records, per section kind.
+   */
+  protected ByteArrayOutputStream[] sections;
+
+  /**
+   * The streams to write the records to, per section kind.
+   */
+  protected DataOutputStream[] records;
+
+  /**
+   * The number of records written, per section kind.
+   */
+  protected int[] counts;
+
+  /**
+   * The index of the first element and the number of elements per page-based section (in the
+   * order of {@link BinaryLayout#PAGE_SECTIONS}), per page.
+   */
+  protected Map<Page, int[]> pageEntries;
+
+  /**
+   * The section kind of the section currently written.
+   */
+  protected int section;
+
+  /**
+   * The position of the entry of the section currently written in a page record, or
+   * {@link BinaryLayout#NONE} if the elements of the section are not page-based.
+   */
+  protected int pageSlot;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new serializer that serializes a document in binary format.
+   */
+  public BinaryDocumentSerializer() {
+    this(new SerializationOptions());
+  }
+
+  /**
+   * Creates a new serializer that serializes a document in binary format.
+   *
+   * @param options The options that control the serialization.
+   */
+  public BinaryDocumentSerializer(SerializationOptions options) {
+    this.options = options;
+    this.filter = options.getElementFilter();
+    this.pageEntries = new IdentityHashMap<>();
+    this.fontIndices = new LinkedHashMap<>();
+    this.colorIndices = new LinkedHashMap<>();
+    this.stringIndices = new HashMap<>();
+    this.strings = new ArrayList<>();
+    this.sections = new ByteArrayOutputStream[BinaryLayout.NUM_SECTIONS];
+    this.records = new DataOutputStream[BinaryLayout.NUM_SECTIONS];
+    this.counts = new int[BinaryLayout.NUM_SECTIONS];
+    for (int i = 0; i < BinaryLayout.NUM_SECTIONS; i++) {
+      this.sections[i] = new ByteArrayOutputStream();
+      this.records[i] = new DataOutputStream(this.sections[i]);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the elements with the given types of the given document in binary format.
+   *
+   * @param doc     The document to serialize.
+   * @param clazzes The types of elements to serialize from the document.
+   *
+   * @return The serialization as a byte array.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public byte[] serialize(Document doc, Collection<ElementClass> clazzes)
+          throws SerializerException {
+    if (doc == null) {
+      return null;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serialize(doc, clazzes, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in binary format and writes
+   * the serialization to the given stream.
+   *
+   * @param doc     The document to serialize.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param out     The stream to write the serialization to.
+   *
+   * @return The index of the byte ranges of the sections and pages in the serialization.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(Document doc, Collection<ElementClass> clazzes,
+          OutputStream out) throws SerializerException {
+    open(out);
+    try {
+      new DocumentTraversal(this.options).addHandler(this, clazzes).traverse(doc);
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't serialize the document.", e);
+    }
+
+    return this.index;
+  }
+
+  /**
+   * Prepares this serializer to write a serialization to the given stream.
+   *
+   * @param out The stream to write the serialization to.
+   */
+  protected void open(OutputStream out) {
+    this.out = out;
+    this.index = new SerializationIndex(SerializationFormat.BINARY);
+  }
+
+  /**
+   * Returns the index of the byte ranges of the sections and pages of the serialization, complete
+   * after the serialization was written.
+   *
+   * @return The index.
+   */
+  public SerializationIndex getIndex() {
+    return this.index;
+  }
+
+  @Override
+  public long getNumBytes() {
+    // The records are buffered per section until the end of the document.
+    long numBytes = 0;
+    for (ByteArrayOutputStream section : this.sections) {
+      numBytes += section.size();
+    }
+    return numBytes;
+  }
+
+  /**
+   * Begins the flight recorder event of the given section, if the event is recorded.
+   *
+   * @param name The name of the section.
+   *
+   * @return The event, or null if the event isn't recorded.
+   */
+  protected SectionSerializationEvent beginSectionEvent(String name) {
+    if (!SectionSerializationEvent.isRecording()) {
+      return null;
+    }
+    return new SectionSerializationEvent(SerializationFormat.BINARY.name(), name, getNumBytes());
+  }
+
+  /**
+   * Finishes the given flight recorder event of the given section.
+   *
+   * @param event   The event, or null if the event isn't recorded.
+   * @param section The section, as defined in {@link BinaryLayout}.
+   */
+  protected void finishSectionEvent(SectionSerializationEvent event, int section) {
+    if (event != null) {
+      event.finish(this.counts[section], getNumBytes());
+    }
+  }
+
+  @Override
+  public SerializationFormat getFormat() {
+    return SerializationFormat.BINARY;
+  }
+
+  // ==============================================================================================
+  // Methods to handle the events of the traversal.
+
+  @Override
+  public void startDocument(DocumentTraversal traversal) {
+    this.traversal = traversal;
+  }
+
+  @Override
+  public void startSection(ElementClass clazz) {
+    this.section = BinaryLayout.getSection(clazz);
+    this.pageSlot = BinaryLayout.getPageSlot(clazz);
+  }
+
+  @Override
+  public void startPage(Page page) {
+    if (this.pageSlot == NONE) {
+      return;
+    }
+    int[] entries = this.pageEntries.get(page);
+    if (entries == null) {
+      entries = new int[2 * BinaryLayout.PAGE_SECTIONS.length];
+      this.pageEntries.put(page, entries);
+    }
+    entries[2 * this.pageSlot] = this.counts[this.section];
+  }
+
+  @Override
+  public void character(Character character) throws IOException {
+    serializeCharacter(character);
+  }
+
+  @Override
+  public void word(Word word) throws IOException {
+    serializeWord(this.traversal.getDocument(), word);
+  }
+
+  @Override
+  public void textLine(TextLine line) throws IOException {
+    serializeTextLine(this.traversal.getDocument(), line);
+  }
+
+  @Override
+  public void textBlock(TextBlock block) throws IOException {
+    serializeTextBlock(this.traversal.getDocument(), block);
+  }
+
+  @Override
+  public void paragraph(Paragraph paragraph) throws IOException {
+    serializeParagraph(this.traversal.getDocument(), paragraph);
+  }
+
+  @Override
+  public void figure(Figure figure) throws IOException {
+    serializeFigure(figure);
+  }
+
+  @Override
+  public void shape(Shape shape) throws IOException {
+    serializeShape(shape);
+  }
+
+  @Override
+  public void endPage(Page page) {
+    if (this.pageSlot == NONE) {
+      return;
+    }
+    int[] entries = this.pageEntries.get(page);
+    entries[2 * this.pageSlot + 1] = this.counts[this.section] - entries[2 * this.pageSlot];
+  }
+
+  @Override
+  public void endDocument() throws IOException {
+    Document doc = this.traversal.getDocument();
+    if (doc != null) {
+      SectionSerializationEvent event = beginSectionEvent(PAGES);
+      serializePages(doc.getPages());
+      finishSectionEvent(event, BinaryLayout.PAGES);
+    }
+    SectionSerializationEvent event = beginSectionEvent(FONTS);
+    serializeFonts();
+    finishSectionEvent(event, BinaryLayout.FONTS);
+    event = beginSectionEvent(COLORS);
+    serializeColors();
+    finishSectionEvent(event, BinaryLayout.COLORS);
+    serializeStrings();
+
+    write(this.out, this.index);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the records of the given pages that are accepted by the element filter, each with
+   * the index of the first element and the number of elements of the page per page-based section.
+   *
+   * @param pages The pages to serialize.
+   *
+   * @throws IOException If writing a record failed.
+   */
+  protected void serializePages(List<Page> pages) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.PAGES];
+    for (Page page : pages) {
+      if (page == null || !this.filter.accept(page)) {
+        continue;
+      }
+      int[] entries = this.pageEntries.get(page);
+      record.writeInt(page.getPageNumber());
+      record.writeFloat(page.getWidth());
+      record.writeFloat(page.getHeight());
+      for (int i = 0; i < 2 * BinaryLayout.PAGE_SECTIONS.length; i++) {
+        record.writeInt(entries != null ? entries[i] : 0);
+      }
+      this.counts[BinaryLayout.PAGES]++;
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given character.
+   *
+   * @param character The character to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeCharacter(Character character) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.CHARACTERS];
+    serializePosition(record, character.getPosition());
+
+    FontFace fontFace = character.getFontFace();
+    Font font = fontFace != null ? fontFace.getFont() : null;
+    if (font != null && font.getId() != null && fontFace.getFontSize() > 0) {
+      record.writeInt(getFontIndex(font));
+      record.writeFloat(fontFace.getFontSize());
+    } else {
+      record.writeInt(NONE);
+      record.writeFloat(0);
+    }
+
+    record.writeInt(getColorIndex(character.getColor()));
+    record.writeInt(getStringIndex(character.getText()));
+    this.counts[BinaryLayout.CHARACTERS]++;
+  }
+
+  /**
+   * Serializes the given word.
+   *
+   * @param doc  The document to which the word belongs.
+   * @param word The word to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeWord(Document doc, Word word) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.WORDS];
+    serializePositions(record, word.getPositions());
+    serializeCharacterRange(record, doc, word.getCharacters());
+    this.counts[BinaryLayout.WORDS]++;
+  }
+
+  /**
+   * Serializes the given text line.
+   *
+   * @param doc  The document to which the text line belongs.
+   * @param line The text line to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeTextLine(Document doc, TextLine line) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.TEXT_LINES];
+    serializePosition(record, line.getPosition());
+    serializeCharacterRange(record, doc, line.getCharacters());
+    this.counts[BinaryLayout.TEXT_LINES]++;
+  }
+
+  /**
+   * Serializes the given text block.
+   *
+   * @param doc   The document to which the text block belongs.
+   * @param block The text block to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeTextBlock(Document doc, TextBlock block) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.TEXT_BLOCKS];
+    serializePosition(record, block.getPosition());
+    record.writeInt(getStringIndex(block.getRole() != null ? block.getRole().toString() : null));
+    serializeCharacterRange(record, doc, block.getCharacters());
+    this.counts[BinaryLayout.TEXT_BLOCKS]++;
+  }
+
+  /**
+   * Serializes the given paragraph.
+   *
+   * @param doc       The document to which the paragraph belongs.
+   * @param paragraph The paragraph to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeParagraph(Document doc, Paragraph paragraph) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.PARAGRAPHS];
+    serializePositions(record, paragraph.getPositions());
+    String role = paragraph.getRole() != null ? paragraph.getRole().toString() : null;
+    record.writeInt(getStringIndex(role));
+
+    // Reference the characters from the first character of the first word to the last character
+    // of the last word, clipped to the serialized characters.
+    List<Character> characters = new ArrayList<>(2);
+    Character first = this.traversal.getFirstIndexedCharacter(paragraph.getWords());
+    Character last = this.traversal.getLastIndexedCharacter(paragraph.getWords());
+    if (first != null && last != null) {
+      characters.add(first);
+      characters.add(last);
+    }
+    serializeCharacterRange(record, doc, characters);
+    this.counts[BinaryLayout.PARAGRAPHS]++;
+  }
+
+  /**
+   * Serializes the given figure.
+   *
+   * @param figure The figure to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeFigure(Figure figure) throws IOException {
+    serializePosition(this.records[BinaryLayout.FIGURES], figure.getPosition());
+    this.counts[BinaryLayout.FIGURES]++;
+  }
+
+  /**
+   * Serializes the given shape.
+   *
+   * @param shape The shape to serialize.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeShape(Shape shape) throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.SHAPES];
+    serializePosition(record, shape.getPosition());
+    record.writeInt(getColorIndex(shape.getColor()));
+    this.counts[BinaryLayout.SHAPES]++;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Writes the given position to the given record.
+   *
+   * @param record   The record to write to.
+   * @param position The position to write.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializePosition(DataOutputStream record, Position position)
+          throws IOException {
+    Page page = position != null ? position.getPage() : null;
+    Rectangle rect = position != null ? position.getRectangle() : null;
+    if (page == null || rect == null) {
+      record.writeInt(0);
+      record.writeFloat(0);
+      record.writeFloat(0);
+      record.writeFloat(0);
+      record.writeFloat(0);
+      return;
+    }
+    record.writeInt(page.getPageNumber());
+    record.writeFloat(rect.getMinX());
+    record.writeFloat(rect.getMinY());
+    record.writeFloat(rect.getMaxX());
+    record.writeFloat(rect.getMaxY());
+  }
+
+  /**
+   * Writes the given positions to the positions section and references them (by the index of the
+   * first position and the number of positions) in the given record.
+   *
+   * @param record    The record to write the reference to.
+   * @param positions The positions to write.
+   *
+   * @throws IOException If writing the records failed.
+   */
+  protected void serializePositions(DataOutputStream record, List<Position> positions)
+          throws IOException {
+    int first = this.counts[BinaryLayout.POSITIONS];
+    if (positions != null) {
+      for (Position position : positions) {
+        serializePosition(this.records[BinaryLayout.POSITIONS], position);
+        this.counts[BinaryLayout.POSITIONS]++;
+      }
+    }
+    record.writeInt(first);
+    record.writeInt(this.counts[BinaryLayout.POSITIONS] - first);
+  }
+
+  /**
+   * Writes the index range of the given characters in the serialized characters to the given
+   * record, given by the index of the first character (inclusive) and the index of the last
+   * character + 1 (exclusive).
+   *
+   * @param record     The record to write to.
+   * @param doc        The document to which the characters belong.
+   * @param characters The characters to reference, in reading order.
+   *
+   * @throws IOException If writing the record failed.
+   */
+  protected void serializeCharacterRange(DataOutputStream record, Document doc,
+          List<Character> characters) throws IOException {
+    int from = -1;
+    int to = -1;
+    if (characters != null && !characters.isEmpty()) {
+      from = this.traversal.getCharacterIndex(this, characters.get(0));
+      to = this.traversal.getCharacterIndex(this, characters.get(characters.size() - 1));
+    }
+    if (from < 0 || to < 0) {
+      record.writeInt(NONE);
+      record.writeInt(NONE);
+      return;
+    }
+    record.writeInt(from);
+    record.writeInt(to + 1);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the fonts referenced by the serialized elements.
+   *
+   * @throws IOException If writing a record failed.
+   */
+  protected void serializeFonts() throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.FONTS];
+    for (Font font : this.fontIndices.keySet()) {
+      record.writeInt(getStringIndex(font.getId()));
+      record.writeInt(getStringIndex(font.getName()));
+      record.writeInt((font.isBold() ? 1 : 0) | (font.isItalic() ? 2 : 0));
+      this.counts[BinaryLayout.FONTS]++;
+    }
+  }
+
+  /**
+   * Serializes the colors referenced by the serialized elements.
+   *
+   * @throws IOException If writing a record failed.
+   */
+  protected void serializeColors() throws IOException {
+    DataOutputStream record = this.records[BinaryLayout.COLORS];
+    for (Color color : this.colorIndices.keySet()) {
+      int[] rgb = color.getRgb();
+      boolean isRgb = rgb != null && rgb.length == 3;
+      record.writeInt(getStringIndex(color.getId()));
+      record.writeInt(isRgb ? rgb[0] : 0);
+      record.writeInt(isRgb ? rgb[1] : 0);
+      record.writeInt(isRgb ? rgb[2] : 0);
+      this.counts[BinaryLayout.COLORS]++;
+    }
+  }
+
+  /**
+   * Serializes the strings referenced by the serialized records.
+   *
+   * @throws IOException If writing the section failed.
+   */
+  protected void serializeStrings() throws IOException {
+    List<byte[]> encoded = new ArrayList<>(this.strings.size());
+    DataOutputStream section = this.records[BinaryLayout.STRINGS];
+    int offset = 0;
+    section.writeInt(offset);
+    for (String string : this.strings) {
+      byte[] bytes = string.getBytes(ENCODING);
+      encoded.add(bytes);
+      offset += bytes.length;
+      section.writeInt(offset);
+    }
+    for (byte[] bytes : encoded) {
+      section.write(bytes);
+    }
+    this.counts[BinaryLayout.STRINGS] = this.strings.size();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the index of the given font in the fonts section, registering the font on the first
+   * reference.
+   *
+   * @param font The font.
+   *
+   * @return The index of the font.
+   */
+  protected int getFontIndex(Font font) {
+    Integer index = this.fontIndices.get(font);
+    if (index == null) {
+      index = this.fontIndices.size();
+      this.fontIndices.put(font, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index of the given color in the colors section, registering the color on the
+   * first reference.
+   *
+   * @param color The color.
+   *
+   * @return The index of the color, or {@link BinaryLayout#NONE} if the color has no id.
+   */
+  protected int getColorIndex(Color color) {
+    if (color == null || color.getId() == null) {
+      return NONE;
+    }
+    Integer index = this.colorIndices.get(color);
+    if (index == null) {
+      index = this.colorIndices.size();
+      this.colorIndices.put(color, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns the index of the given string in the strings section, registering the string on the
+   * first reference.
+   *
+   * @param string The string.
+   *
+   * @return The index of the string, or {@link BinaryLayout#NONE} if the string is null.
+   */
+  protected int getStringIndex(String string) {
+    if (string == null) {
+      return NONE;
+    }
+    Integer index = this.stringIndices.get(string);
+    if (index == null) {
+      index = this.strings.size();
+      this.strings.add(string);
+      this.stringIndices.put(string, index);
+    }
+    return index;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Writes the header, the directory and the sections to the given stream and records the byte
+   * ranges of the sections and pages in the given index.
+   *
+   * @param out   The stream to write to.
+   * @param index The index to record the byte ranges in.
+   *
+   * @throws IOException If writing to the stream failed.
+   */
+  protected void write(OutputStream out, SerializationIndex index) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(BinaryLayout.MAGIC);
+    data.writeInt(BinaryLayout.VERSION);
+    data.writeInt(BinaryLayout.NUM_SECTIONS);
+
+    // Write the directory.
+    long offset = BinaryLayout.HEADER_SIZE
+            + BinaryLayout.NUM_SECTIONS * BinaryLayout.DIRECTORY_ENTRY_SIZE;
+    long[] offsets = new long[BinaryLayout.NUM_SECTIONS];
+    for (int i = 0; i < BinaryLayout.NUM_SECTIONS; i++) {
+      offsets[i] = offset;
+      data.writeInt(i);
+      data.writeInt(this.counts[i]);
+      data.writeLong(offset);
+      index.setSectionRange(SECTION_NAMES[i], offset, this.sections[i].size());
+      offset += this.sections[i].size();
+    }
+
+    // Write the sections.
+    for (int i = 0; i < BinaryLayout.NUM_SECTIONS; i++) {
+      this.sections[i].writeTo(data);
+    }
+    data.flush();
+
+    // Record the byte ranges of the elements of each page, as given by the page records.
+    byte[] pages = this.sections[BinaryLayout.PAGES].toByteArray();
+    ByteBuffer buffer = ByteBuffer.wrap(pages);
+    for (int p = 0; p < this.counts[BinaryLayout.PAGES]; p++) {
+      int pageOffset = p * BinaryLayout.PAGE_SIZE;
+      int pageNumber = buffer.getInt(pageOffset);
+      index.setPageRange(PAGES, pageNumber, offsets[BinaryLayout.PAGES] + pageOffset,
+              BinaryLayout.PAGE_SIZE);
+      for (int i = 0; i < BinaryLayout.PAGE_SECTIONS.length; i++) {
+        int section = BinaryLayout.getSection(BinaryLayout.PAGE_SECTIONS[i]);
+        int first = buffer.getInt(pageOffset + BinaryLayout.PAGE_SECTIONS_OFFSET + i * 8);
+        int count = buffer.getInt(pageOffset + BinaryLayout.PAGE_SECTIONS_OFFSET + i * 8 + 4);
+        if (count > 0) {
+          int size = BinaryLayout.getRecordSize(section);
+          index.setPageRange(SECTION_NAMES[section], pageNumber,
+                  offsets[section] + (long) first * size, (long) count * size);
+        }
+      }
+    }
+  }
+}
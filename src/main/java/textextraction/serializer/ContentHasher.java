@@ -0,0 +1,567 @@
+package textextraction.serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+import textextraction.common.models.SemanticRole;
+import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
+import textextraction.serializer.model.ElementField;
+import textextraction.serializer.model.FieldProjection;
+import textextraction.serializer.model.SerializationIndex;
+
+/**
+ * Computes the content hashes of a serialization while it is written: a hash per page and a hash
+ * of the whole document.
+ *
+ * <p>
+ * The hash of a page is computed over a normalized form of the serialized elements of the page
+ * (the fields included by the {@link FieldProjection}), in all sections: the positions are hashed
+ * without the page number (only relative to the hashed page, for positions on other pages), the
+ * references to characters are hashed relative to the first serialized character of the page, and
+ * fonts and colors are hashed by their content (the name and the styles of a font, the RGB values
+ * of a color) instead of their ids. So the hash of a page doesn't depend on the number of the page,
+ * on the pages before it, on the ids of its fonts and colors or on the format (JSON or XML): two
+ * pages serialized with the same options have the same hash if and only if (up to collisions) they
+ * have the same content, even if they belong to different documents. The hashes are computed per
+ * section and page first (and recorded in the index, so that a fragment copied from a previous
+ * serialization can contribute its recorded hash, see {@link FragmentHandler}); the hash of a page
+ * is the hash of its section hashes.
+ *
+ * <p>
+ * The hash of the document is computed over all bytes written until
+ * {@link #finish(SerializationIndex)} is called, so it depends on the format and the options.
+ *
+ * <p>
+ * The hashes are SHA-256 digests, encoded as lowercase hex strings.
+ *
+ * @author Claudius Korzen
+ */
+public class ContentHasher {
+  /**
+   * The algorithm of the hashes.
+   */
+  protected static final String ALGORITHM = "SHA-256";
+
+  /**
+   * The hex digits.
+   */
+  protected static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * The tags that precede the hashed elements and fields.
+   */
+  protected static final byte CHARACTER = 1;
+  protected static final byte WORD = 2;
+  protected static final byte TEXT_LINE = 3;
+  protected static final byte TEXT_BLOCK = 4;
+  protected static final byte FIGURE = 5;
+  protected static final byte SHAPE = 6;
+  protected static final byte POSITION = 16;
+  protected static final byte FONT = 17;
+  protected static final byte COLOR = 18;
+  protected static final byte TEXT = 19;
+  protected static final byte ROLE = 20;
+  protected static final byte CHARACTERS = 21;
+
+  /**
+   * The projection that defines which fields of the elements are hashed.
+   */
+  protected FieldProjection projection;
+
+  /**
+   * The digest of the whole document.
+   */
+  protected MessageDigest documentDigest;
+
+  /**
+   * The digest of the current page in the current section.
+   */
+  protected MessageDigest pageDigest;
+
+  /**
+   * The buffer to encode numbers to be hashed.
+   */
+  protected byte[] buffer;
+
+  /**
+   * The hashes of the pages per section, per page number and section name (in the order of the
+   * sections). A hash is null if it is unknown.
+   */
+  protected Map<Integer, Map<String, String>> sectionHashes;
+
+  /**
+   * The traversal that resolves the indices of the characters.
+   */
+  protected DocumentTraversal traversal;
+
+  /**
+   * The handler that writes the hashed elements.
+   */
+  protected DocumentEventHandler handler;
+
+  /**
+   * The name of the current section.
+   */
+  protected String section;
+
+  /**
+   * The current page.
+   */
+  protected Page page;
+
+  /**
+   * The number of the current page.
+   */
+  protected int pageNumber;
+
+  /**
+   * The index of the first serialized character of the current page, or -1 if it wasn't computed
+   * yet.
+   */
+  protected int characterOffset;
+
+  /**
+   * Whether a page was started and not ended yet.
+   */
+  protected boolean isPageStarted;
+
+  /**
+   * Whether the elements of the current page were copied from a previous serialization.
+   */
+  protected boolean isCopied;
+
+  /**
+   * The hash of the copied elements of the current page, or null if it is unknown.
+   */
+  protected String copiedHash;
+
+  /**
+   * Whether the hashes were computed already.
+   */
+  protected boolean isFinished;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new hasher.
+   *
+   * @param projection The projection that defines which fields of the elements are hashed.
+   */
+  public ContentHasher(FieldProjection projection) {
+    this.projection = projection;
+    this.documentDigest = newDigest();
+    this.pageDigest = newDigest();
+    this.buffer = new byte[4];
+    this.sectionHashes = new TreeMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Starts the elements of the given page in the given section.
+   *
+   * @param traversal The traversal that resolves the indices of the characters, or null if no
+   *                  elements refer to characters.
+   * @param handler   The handler that writes the hashed elements.
+   * @param section   The name of the section.
+   * @param page      The page.
+   */
+  public void startPage(DocumentTraversal traversal, DocumentEventHandler handler, String section,
+          Page page) {
+    if (this.isFinished) {
+      return;
+    }
+    this.traversal = traversal;
+    this.handler = handler;
+    this.section = section;
+    this.page = page;
+    this.pageNumber = page.getPageNumber();
+    this.characterOffset = -1;
+    this.isPageStarted = true;
+    this.isCopied = false;
+    this.copiedHash = null;
+    this.pageDigest.reset();
+  }
+
+  /**
+   * Marks the elements of the current page as copied from a previous serialization.
+   *
+   * @param hash The hash of the copied elements, as recorded in the index of the previous
+   *             serialization, or null if it is unknown (the hash of the page is unknown then).
+   */
+  public void fragment(String hash) {
+    this.isCopied = true;
+    this.copiedHash = hash;
+  }
+
+  /**
+   * Ends the elements of the current page in the current section.
+   */
+  public void endPage() {
+    if (this.isFinished || !this.isPageStarted) {
+      return;
+    }
+    this.isPageStarted = false;
+    String hash = this.isCopied ? this.copiedHash : toHex(this.pageDigest.digest());
+    Map<String, String> hashes = this.sectionHashes.get(this.pageNumber);
+    if (hashes == null) {
+      hashes = new LinkedHashMap<>();
+      this.sectionHashes.put(this.pageNumber, hashes);
+    }
+    hashes.put(this.section, hash);
+  }
+
+  /**
+   * Adds the given written bytes to the hash of the document.
+   *
+   * @param bytes  The bytes.
+   * @param offset The offset of the first byte to add.
+   * @param length The number of bytes to add.
+   */
+  public void update(byte[] bytes, int offset, int length) {
+    if (this.isFinished) {
+      return;
+    }
+    this.documentDigest.update(bytes, offset, length);
+  }
+
+  // ==============================================================================================
+  // Methods to hash the elements of the current page.
+
+  /**
+   * Adds the given character to the hash of the current page.
+   *
+   * @param character The character.
+   */
+  public void character(Character character) {
+    if (!isHashing() || character == null) {
+      return;
+    }
+    this.pageDigest.update(CHARACTER);
+    if (includes(ElementClass.CHARACTERS, ElementField.POSITION)) {
+      updatePosition(character.getPosition());
+    }
+    if (includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      FontFace fontFace = character.getFontFace();
+      Font font = fontFace != null ? fontFace.getFont() : null;
+      if (font != null && font.getId() != null && fontFace.getFontSize() > 0) {
+        this.pageDigest.update(FONT);
+        updateString(font.getName());
+        this.pageDigest.update((byte) ((font.isBold() ? 1 : 0) | (font.isItalic() ? 2 : 0)));
+        updateFloat(fontFace.getFontSize());
+      }
+    }
+    if (includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      updateColor(character.getColor());
+    }
+    if (includes(ElementClass.CHARACTERS, ElementField.TEXT) && character.getText() != null) {
+      this.pageDigest.update(TEXT);
+      updateString(character.getText());
+    }
+  }
+
+  /**
+   * Adds the given word to the hash of the current page.
+   *
+   * @param word The word.
+   */
+  public void word(Word word) {
+    if (!isHashing() || word == null) {
+      return;
+    }
+    this.pageDigest.update(WORD);
+    if (includes(ElementClass.WORDS, ElementField.POSITION) && word.getPositions() != null) {
+      for (Position position : word.getPositions()) {
+        updatePosition(position);
+      }
+    }
+    if (includes(ElementClass.WORDS, ElementField.CHARACTERS)) {
+      updateCharacterRange(word.getCharacters());
+    }
+  }
+
+  /**
+   * Adds the given text line to the hash of the current page.
+   *
+   * @param line The text line.
+   */
+  public void textLine(TextLine line) {
+    if (!isHashing() || line == null) {
+      return;
+    }
+    this.pageDigest.update(TEXT_LINE);
+    if (includes(ElementClass.TEXT_LINES, ElementField.POSITION)) {
+      updatePosition(line.getPosition());
+    }
+    if (includes(ElementClass.TEXT_LINES, ElementField.CHARACTERS)) {
+      updateCharacterRange(line.getCharacters());
+    }
+  }
+
+  /**
+   * Adds the given text block to the hash of the current page.
+   *
+   * @param block The text block.
+   */
+  public void textBlock(TextBlock block) {
+    if (!isHashing() || block == null) {
+      return;
+    }
+    this.pageDigest.update(TEXT_BLOCK);
+    if (includes(ElementClass.TEXT_BLOCKS, ElementField.POSITION)) {
+      updatePosition(block.getPosition());
+    }
+    SemanticRole role = block.getRole();
+    if (includes(ElementClass.TEXT_BLOCKS, ElementField.ROLE) && role != null) {
+      this.pageDigest.update(ROLE);
+      updateString(role.toString());
+    }
+    if (includes(ElementClass.TEXT_BLOCKS, ElementField.CHARACTERS)) {
+      updateCharacterRange(block.getCharacters());
+    }
+  }
+
+  /**
+   * Adds the given figure to the hash of the current page.
+   *
+   * @param figure The figure.
+   */
+  public void figure(Figure figure) {
+    if (!isHashing() || figure == null) {
+      return;
+    }
+    this.pageDigest.update(FIGURE);
+    if (includes(ElementClass.FIGURES, ElementField.POSITION)) {
+      updatePosition(figure.getPosition());
+    }
+  }
+
+  /**
+   * Adds the given shape to the hash of the current page.
+   *
+   * @param shape The shape.
+   */
+  public void shape(Shape shape) {
+    if (!isHashing() || shape == null) {
+      return;
+    }
+    this.pageDigest.update(SHAPE);
+    if (includes(ElementClass.SHAPES, ElementField.POSITION)) {
+      updatePosition(shape.getPosition());
+    }
+    if (includes(ElementClass.SHAPES, ElementField.COLOR)) {
+      updateColor(shape.getColor());
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Computes the hashes of the document and of the pages and records them in the given index.
+   * Bytes written afterwards (for example, the embedded hashes) are not added to the hashes.
+   *
+   * @param index The index to record the hashes in.
+   */
+  public void finish(SerializationIndex index) {
+    if (this.isFinished) {
+      return;
+    }
+    this.isFinished = true;
+    MessageDigest digest = this.pageDigest;
+    for (Map.Entry<Integer, Map<String, String>> entry : this.sectionHashes.entrySet()) {
+      int pageNumber = entry.getKey();
+      boolean isKnown = true;
+      digest.reset();
+      for (Map.Entry<String, String> sectionEntry : entry.getValue().entrySet()) {
+        String hash = sectionEntry.getValue();
+        if (hash == null) {
+          isKnown = false;
+          continue;
+        }
+        index.setPageHash(sectionEntry.getKey(), pageNumber, hash);
+        digest.update(sectionEntry.getKey().getBytes(StandardCharsets.UTF_8));
+        digest.update(hash.getBytes(StandardCharsets.US_ASCII));
+      }
+      if (isKnown) {
+        index.setPageHash(pageNumber, toHex(digest.digest()));
+      }
+    }
+    index.setDocumentHash(toHex(this.documentDigest.digest()));
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns whether the elements of the current page are to be hashed.
+   *
+   * @return True if the elements are to be hashed, false otherwise.
+   */
+  protected boolean isHashing() {
+    return !this.isFinished && this.isPageStarted && !this.isCopied;
+  }
+
+  /**
+   * Returns whether the given field of the given element class is hashed.
+   *
+   * @param clazz The element class.
+   * @param field The field.
+   *
+   * @return True if the field is hashed, false otherwise.
+   */
+  protected boolean includes(ElementClass clazz, ElementField field) {
+    return this.projection == null || this.projection.includes(clazz, field);
+  }
+
+  /**
+   * Adds the given position to the hash of the current page, with the number of its page relative
+   * to the current page.
+   *
+   * @param position The position.
+   */
+  protected void updatePosition(Position position) {
+    Page page = position != null ? position.getPage() : null;
+    Rectangle rect = position != null ? position.getRectangle() : null;
+    if (page == null || page.getPageNumber() <= 0 || rect == null) {
+      return;
+    }
+    this.pageDigest.update(POSITION);
+    updateInt(page.getPageNumber() - this.pageNumber);
+    updateFloat(rect.getMinX());
+    updateFloat(rect.getMinY());
+    updateFloat(rect.getMaxX());
+    updateFloat(rect.getMaxY());
+  }
+
+  /**
+   * Adds the given color to the hash of the current page, by its RGB values.
+   *
+   * @param color The color.
+   */
+  protected void updateColor(Color color) {
+    if (color == null || color.getId() == null) {
+      return;
+    }
+    this.pageDigest.update(COLOR);
+    int[] rgb = color.getRgb();
+    if (rgb != null) {
+      for (int value : rgb) {
+        updateInt(value);
+      }
+    }
+  }
+
+  /**
+   * Adds the index range of the given characters to the hash of the current page, relative to the
+   * first serialized character of the page.
+   *
+   * @param characters The characters.
+   */
+  protected void updateCharacterRange(List<Character> characters) {
+    if (characters == null || characters.isEmpty() || this.traversal == null) {
+      return;
+    }
+    int from = this.traversal.getCharacterIndex(this.handler, characters.get(0));
+    int to = this.traversal.getCharacterIndex(this.handler, characters.get(characters.size() - 1));
+    if (from < 0 || to < 0) {
+      return;
+    }
+    if (this.characterOffset < 0) {
+      this.characterOffset = this.traversal.getCharacterOffset(this.page);
+      if (this.characterOffset < 0) {
+        return;
+      }
+    }
+    this.pageDigest.update(CHARACTERS);
+    updateInt(from - this.characterOffset);
+    updateInt(to + 1 - this.characterOffset);
+  }
+
+  /**
+   * Adds the given string to the hash of the current page.
+   *
+   * @param string The string.
+   */
+  protected void updateString(String string) {
+    if (string == null) {
+      updateInt(-1);
+      return;
+    }
+    updateInt(string.length());
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      this.buffer[0] = (byte) (c >>> 8);
+      this.buffer[1] = (byte) c;
+      this.pageDigest.update(this.buffer, 0, 2);
+    }
+  }
+
+  /**
+   * Adds the given float to the hash of the current page.
+   *
+   * @param value The float.
+   */
+  protected void updateFloat(float value) {
+    updateInt(Float.floatToIntBits(value));
+  }
+
+  /**
+   * Adds the given int to the hash of the current page.
+   *
+   * @param value The int.
+   */
+  protected void updateInt(int value) {
+    this.buffer[0] = (byte) (value >>> 24);
+    this.buffer[1] = (byte) (value >>> 16);
+    this.buffer[2] = (byte) (value >>> 8);
+    this.buffer[3] = (byte) value;
+    this.pageDigest.update(this.buffer, 0, 4);
+  }
+
+  /**
+   * Creates a new digest.
+   *
+   * @return The digest.
+   */
+  protected static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      // Every implementation of the Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Encodes the given bytes as a lowercase hex string.
+   *
+   * @param bytes The bytes.
+   *
+   * @return The hex string.
+   */
+  protected static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+      chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+}
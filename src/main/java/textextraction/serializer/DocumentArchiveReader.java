@@ -0,0 +1,197 @@
+package textextraction.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import textextraction.common.models.Document;
+import textextraction.serializer.exception.DeserializerException;
+import textextraction.serializer.model.ArchiveDirectory;
+import textextraction.serializer.model.ArchiveEntry;
+
+/**
+ * A reader of a document archive written by {@link DocumentArchiveWriter}. On opening, only the
+ * trailer and the central directory of the archive are read; each document is read on demand by a
+ * single positional read of its byte range, and its checksum is verified.
+ *
+ * <p>
+ * The reader is thread-safe: several documents can be read concurrently from the same archive.
+ *
+ * @author Claudius Korzen
+ */
+public class DocumentArchiveReader implements Closeable {
+  /**
+   * The channel to read the archive from.
+   */
+  protected FileChannel channel;
+
+  /**
+   * The directory of the archive.
+   */
+  protected ArchiveDirectory directory;
+
+  /**
+   * The deserializer that deserializes the documents.
+   */
+  protected DocumentDeserializer deserializer;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new reader that reads the archive from the given channel.
+   *
+   * @param channel The channel to read the archive from.
+   *
+   * @throws IOException If reading the directory failed or the channel doesn't contain an archive.
+   */
+  public DocumentArchiveReader(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.deserializer = new DocumentDeserializer();
+
+    long size = channel.size();
+    int headerLength = DocumentArchiveWriter.HEADER_LENGTH;
+    int trailerLength = DocumentArchiveWriter.TRAILER_LENGTH;
+    if (size < headerLength + trailerLength) {
+      throw new IOException("The channel doesn't contain an archive.");
+    }
+
+    ByteBuffer header = read(0, headerLength);
+    if (header.getInt() != DocumentArchiveWriter.MAGIC) {
+      throw new IOException("The channel doesn't contain an archive.");
+    }
+    int version = header.get();
+    if (version < 1 || version > DocumentArchiveWriter.VERSION) {
+      throw new IOException("Unsupported version of the archive: " + version);
+    }
+
+    ByteBuffer trailer = read(size - trailerLength, trailerLength);
+    long directoryOffset = trailer.getLong();
+    if (trailer.getInt() != DocumentArchiveWriter.MAGIC) {
+      throw new IOException("The archive is incomplete (it has no trailer).");
+    }
+    if (directoryOffset < headerLength || directoryOffset > size - trailerLength) {
+      throw new IOException("The archive is corrupt (invalid offset of the directory).");
+    }
+
+    ByteBuffer directory = read(directoryOffset, size - trailerLength - directoryOffset);
+    this.directory = ArchiveDirectory.read(new ByteArrayInputStream(directory.array()));
+  }
+
+  /**
+   * Opens the archive stored in the given file.
+   *
+   * @param path The path to the file.
+   *
+   * @return A reader of the archive.
+   *
+   * @throws IOException If opening the file or reading the directory failed.
+   */
+  public static DocumentArchiveReader open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new DocumentArchiveReader(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the directory of the archive.
+   *
+   * @return The directory.
+   */
+  public ArchiveDirectory getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Reads the serialization of the document with the given id and verifies its checksum.
+   *
+   * @param id The id of the document.
+   *
+   * @return The serialization, or null if the archive doesn't contain a document with the id.
+   *
+   * @throws IOException If reading the serialization failed or its checksum doesn't match.
+   */
+  public byte[] readSerialization(String id) throws IOException {
+    ArchiveEntry entry = this.directory.getEntry(id);
+    if (entry == null) {
+      return null;
+    }
+
+    byte[] serialization = read(entry.getOffset(), entry.getLength()).array();
+    CRC32C checksum = new CRC32C();
+    checksum.update(serialization, 0, serialization.length);
+    if (checksum.getValue() != entry.getChecksum()) {
+      throw new IOException("The serialization of document '" + id + "' is corrupt (checksum "
+              + "mismatch).");
+    }
+    return serialization;
+  }
+
+  /**
+   * Reads and deserializes the document with the given id.
+   *
+   * @param id The id of the document.
+   *
+   * @return The document, or null if the archive doesn't contain a document with the id.
+   *
+   * @throws DeserializerException If reading or deserializing the document failed.
+   */
+  public Document readDocument(String id) throws DeserializerException {
+    ArchiveEntry entry = this.directory.getEntry(id);
+    if (entry == null) {
+      return null;
+    }
+
+    byte[] serialization;
+    try {
+      serialization = readSerialization(id);
+    } catch (IOException e) {
+      throw new DeserializerException("Couldn't read document '" + id + "'.", e);
+    }
+    return this.deserializer.deserialize(serialization, entry.getFormat());
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Reads the given byte range of the archive.
+   *
+   * @param offset The offset of the range.
+   * @param length The length of the range.
+   *
+   * @return A buffer with the bytes of the range, positioned at its start.
+   *
+   * @throws IOException If reading from the channel failed.
+   */
+  protected ByteBuffer read(long offset, long length) throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("The byte range is too large to be read at once: " + length);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) length);
+    while (buffer.hasRemaining()) {
+      int numBytes = this.channel.read(buffer, offset + buffer.position());
+      if (numBytes < 0) {
+        throw new EOFException("Unexpected end of the archive.");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
@@ -0,0 +1,311 @@
+package textextraction.serializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.zip.CRC32C;
+
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.ArchiveDirectory;
+import textextraction.serializer.model.ArchiveEntry;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A writer of a document archive: a single file that contains the serializations of many
+ * documents, appended one after the other, followed by a central directory that maps the id of
+ * each document to the offset, length, format and CRC-32C checksum of its serialization. A reader
+ * (see {@link DocumentArchiveReader}) locates the directory by the fixed-size trailer at the end
+ * of the archive and can read any single document without scanning the archive.
+ *
+ * <p>
+ * The layout of an archive is as follows:
+ *
+ * <pre>
+ * header:      magic ("SARC", 4 bytes), version (1 byte)
+ * documents:   the serializations, one after the other
+ * directory:   see {@link ArchiveDirectory#write(OutputStream)}
+ * trailer:     offset of the directory (8 bytes), magic ("SARC", 4 bytes)
+ * </pre>
+ *
+ * <p>
+ * The documents are serialized by a {@link DocumentSerializer} directly into the archive; each
+ * document may be serialized in another format. If a serialization fails, its bytes written so far
+ * remain in the archive, but no entry is added to the directory. The archive is only readable
+ * after {@link #finish()} (or {@link #close()}) was called.
+ *
+ * @author Claudius Korzen
+ */
+public class DocumentArchiveWriter implements Closeable {
+  /**
+   * The magic number that identifies an archive ("SARC").
+   */
+  protected static final int MAGIC = 0x53415243;
+
+  /**
+   * The version of the layout of an archive.
+   */
+  protected static final int VERSION = 1;
+
+  /**
+   * The number of bytes of the header.
+   */
+  protected static final int HEADER_LENGTH = 5;
+
+  /**
+   * The number of bytes of the trailer.
+   */
+  protected static final int TRAILER_LENGTH = 12;
+
+  /**
+   * The stream to which the archive is written.
+   */
+  protected OutputStream out;
+
+  /**
+   * The serializer that serializes the documents.
+   */
+  protected DocumentSerializer serializer;
+
+  /**
+   * The directory of the documents written so far.
+   */
+  protected ArchiveDirectory directory;
+
+  /**
+   * The number of bytes written to the output stream so far.
+   */
+  protected long offset;
+
+  /**
+   * Whether the directory was written.
+   */
+  protected boolean isFinished;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new writer that writes an archive to the given stream.
+   *
+   * @param out The stream to write the archive to.
+   *
+   * @throws IOException If writing the header of the archive failed.
+   */
+  public DocumentArchiveWriter(OutputStream out) throws IOException {
+    this(out, new DocumentSerializer());
+  }
+
+  /**
+   * Creates a new writer that writes an archive to the given stream and serializes the documents
+   * with the given serializer.
+   *
+   * @param out        The stream to write the archive to.
+   * @param serializer The serializer that serializes the documents.
+   *
+   * @throws IOException If writing the header of the archive failed.
+   */
+  public DocumentArchiveWriter(OutputStream out, DocumentSerializer serializer)
+          throws IOException {
+    this.out = out;
+    this.serializer = serializer;
+    this.directory = new ArchiveDirectory();
+    write(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).put((byte) VERSION).array());
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the elements with the given types of the given document in the given format and
+   * appends the serialization to the archive.
+   *
+   * @param id      The id of the document, unique within the archive.
+   * @param doc     The document to serialize.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param options The options that control the serialization.
+   *
+   * @return The entry of the document in the directory of the archive.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public ArchiveEntry addDocument(String id, Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options)
+          throws SerializerException {
+    checkId(id);
+
+    EntryOutputStream entryOut = new EntryOutputStream();
+    this.serializer.serialize(doc, format, clazzes, options, entryOut);
+    return addEntry(id, format, entryOut);
+  }
+
+  /**
+   * Appends the given (already serialized) serialization to the archive.
+   *
+   * @param id            The id of the document, unique within the archive.
+   * @param serialization The serialization of the document.
+   * @param format        The format of the serialization.
+   *
+   * @return The entry of the document in the directory of the archive.
+   *
+   * @throws IOException If writing the serialization failed.
+   */
+  public ArchiveEntry addSerialization(String id, byte[] serialization,
+          SerializationFormat format) throws IOException {
+    checkId(id);
+
+    EntryOutputStream entryOut = new EntryOutputStream();
+    entryOut.write(serialization);
+    return addEntry(id, format, entryOut);
+  }
+
+  /**
+   * Returns the directory of the documents written so far.
+   *
+   * @return The directory.
+   */
+  public ArchiveDirectory getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Writes the directory and the trailer of the archive. No documents can be added afterwards.
+   *
+   * @throws IOException If writing the directory failed.
+   */
+  public void finish() throws IOException {
+    if (this.isFinished) {
+      return;
+    }
+    this.isFinished = true;
+
+    long directoryOffset = this.offset;
+    EntryOutputStream directoryOut = new EntryOutputStream();
+    this.directory.write(directoryOut);
+    write(ByteBuffer.allocate(TRAILER_LENGTH).putLong(directoryOffset).putInt(MAGIC).array());
+    this.out.flush();
+  }
+
+  /**
+   * Finishes the archive (see {@link #finish()}) and closes the output stream.
+   *
+   * @throws IOException If writing the directory or closing the stream failed.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      this.out.close();
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Checks that a document with the given id can be added to the archive.
+   *
+   * @param id The id of the document.
+   */
+  protected void checkId(String id) {
+    if (this.isFinished) {
+      throw new IllegalStateException("The archive was finished already.");
+    }
+    if (id == null) {
+      throw new IllegalArgumentException("The id of a document must not be null.");
+    }
+    if (this.directory.containsEntry(id)) {
+      throw new IllegalArgumentException("The archive already contains a document with id '"
+              + id + "'.");
+    }
+  }
+
+  /**
+   * Adds the entry of the serialization written to the given stream to the directory.
+   *
+   * @param id     The id of the document.
+   * @param format The format of the serialization.
+   * @param out    The stream the serialization was written to.
+   *
+   * @return The entry.
+   */
+  protected ArchiveEntry addEntry(String id, SerializationFormat format, EntryOutputStream out) {
+    ArchiveEntry entry = new ArchiveEntry(id, format, out.offset, out.length,
+            out.checksum.getValue());
+    this.directory.addEntry(entry);
+    return entry;
+  }
+
+  /**
+   * Writes the given bytes to the archive.
+   *
+   * @param bytes The bytes to write.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void write(byte[] bytes) throws IOException {
+    this.out.write(bytes);
+    this.offset += bytes.length;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * A stream that appends a serialization to the archive and computes its length and checksum.
+   * Closing the stream doesn't close the archive.
+   */
+  protected class EntryOutputStream extends OutputStream {
+    /**
+     * The offset of the serialization in the archive.
+     */
+    protected final long offset;
+
+    /**
+     * The number of bytes written so far.
+     */
+    protected long length;
+
+    /**
+     * The checksum of the bytes written so far.
+     */
+    protected final CRC32C checksum;
+
+    /**
+     * Creates a new stream that appends to the archive at its current offset.
+     */
+    protected EntryOutputStream() {
+      this.offset = DocumentArchiveWriter.this.offset;
+      this.checksum = new CRC32C();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      DocumentArchiveWriter.this.out.write(b);
+      this.checksum.update(b);
+      this.length++;
+      DocumentArchiveWriter.this.offset++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+      DocumentArchiveWriter.this.out.write(bytes, off, len);
+      this.checksum.update(bytes, off, len);
+      this.length += len;
+      DocumentArchiveWriter.this.offset += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      DocumentArchiveWriter.this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
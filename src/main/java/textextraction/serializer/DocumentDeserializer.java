@@ -0,0 +1,173 @@
+package textextraction.serializer;
+
+import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
+import static textextraction.serializer.DocumentSerializerConstants.DOCUMENT;
+import static textextraction.serializer.DocumentSerializerConstants.FONTS;
+import static textextraction.serializer.DocumentSerializerConstants.SCHEMA;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import textextraction.common.models.Document;
+import textextraction.serializer.exception.DeserializerException;
+import textextraction.serializer.model.ByteRange;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+
+/**
+ * A deserializer to read a document serialized by {@link DocumentSerializer} back into a
+ * {@link Document}.
+ *
+ * @author Claudius Korzen
+ */
+public class DocumentDeserializer {
+  /**
+   * Deserializes the given serialization in the given format.
+   * 
+   * @param bytes  The serialization to deserialize.
+   * @param format The format of the serialization.
+   * 
+   * @return The deserialized document.
+   * 
+   * @throws DeserializerException If something went wrong on deserializing the document.
+   */
+  public Document deserialize(byte[] bytes, SerializationFormat format)
+          throws DeserializerException {
+    if (bytes == null) {
+      return null;
+    }
+    return deserialize(new ByteArrayInputStream(bytes), format);
+  }
+
+  /**
+   * Deserializes the serialization in the given format read from the given stream.
+   * 
+   * @param in     The stream to read the serialization from.
+   * @param format The format of the serialization.
+   * 
+   * @return The deserialized document.
+   * 
+   * @throws DeserializerException If something went wrong on deserializing the document.
+   */
+  public Document deserialize(InputStream in, SerializationFormat format)
+          throws DeserializerException {
+    switch (format) {
+      case TEXT:
+        throw new DeserializerException("A serialization in plain text can't be deserialized.");
+      case XML:
+        return new XmlDocumentDeserializer().deserialize(in);
+      case BINARY:
+        return new BinaryDocumentDeserializer().deserialize(in);
+      case JSON:
+      default:
+        return new JsonDocumentDeserializer().deserialize(in);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes the elements of a single page from the given serialization, without scanning the
+   * whole serialization. Only the byte ranges of the elements of the page (as recorded in the
+   * given index) and the fonts and colors are read from the serialization.
+   * 
+   * @param channel    The channel to read the serialization from.
+   * @param index      The index of the serialization, as returned by the serializer.
+   * @param pageNumber The number of the page to deserialize.
+   * 
+   * @return A document that contains the elements of the given page.
+   * 
+   * @throws DeserializerException If something went wrong on deserializing the page.
+   */
+  public Document deserializePage(FileChannel channel, SerializationIndex index, int pageNumber)
+          throws DeserializerException {
+    SerializationFormat format = index.getFormat();
+    if (format == SerializationFormat.TEXT) {
+      throw new DeserializerException("A serialization in plain text can't be deserialized.");
+    }
+    if (format == SerializationFormat.BINARY) {
+      // The page records of a binary serialization refer to the elements of the page directly.
+      try {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return new BinaryDocumentDeserializer().deserialize(buffer, pageNumber);
+      } catch (IOException e) {
+        throw new DeserializerException("Couldn't read page " + pageNumber + ".", e);
+      }
+    }
+
+    Charset encoding = Charset.forName(DEFAULT_ENCODING);
+    boolean isJson = format != SerializationFormat.XML;
+
+    // Assemble a serialization that consists of the page slices of each section, plus the fonts
+    // and colors, which are referenced by the elements, and the schema header of the compact
+    // schema, which defines the fields of the elements.
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      out.write((isJson ? "{" : "<" + DOCUMENT + ">").getBytes(encoding));
+      boolean isFirstSection = true;
+      for (Map.Entry<String, ByteRange> entry : index.getSectionRanges().entrySet()) {
+        String section = entry.getKey();
+        Map<Integer, ByteRange> pageRanges = index.getPageRanges(section);
+        boolean isDictionary = FONTS.equals(section) || COLORS.equals(section)
+                || SCHEMA.equals(section);
+        if (pageRanges.isEmpty() && !isDictionary) {
+          continue;
+        }
+
+        if (isJson && !isFirstSection) {
+          out.write(",".getBytes(encoding));
+        }
+        isFirstSection = false;
+
+        if (isDictionary) {
+          out.write(read(channel, entry.getValue()));
+          continue;
+        }
+
+        String start = isJson ? "\"" + section + "\": [" : "<" + section + ">";
+        String end = isJson ? "]" : "</" + section + ">";
+        out.write(start.getBytes(encoding));
+        ByteRange pageRange = pageRanges.get(pageNumber);
+        if (pageRange != null) {
+          out.write(read(channel, pageRange));
+        }
+        out.write(end.getBytes(encoding));
+      }
+      out.write((isJson ? "}" : "</" + DOCUMENT + ">").getBytes(encoding));
+    } catch (IOException e) {
+      throw new DeserializerException("Couldn't read page " + pageNumber + ".", e);
+    }
+
+    return deserialize(out.toByteArray(), format);
+  }
+
+  /**
+   * Reads the given byte range from the given channel.
+   * 
+   * @param channel The channel to read from.
+   * @param range   The byte range to read.
+   * 
+   * @return The bytes in the given range.
+   * 
+   * @throws IOException If reading from the channel failed.
+   */
+  protected byte[] read(FileChannel channel, ByteRange range) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) range.getLength());
+    long position = range.getOffset();
+    while (buffer.hasRemaining()) {
+      int numRead = channel.read(buffer, position);
+      if (numRead < 0) {
+        throw new IOException("Unexpected end of the serialization at offset " + position + ".");
+      }
+      position += numRead;
+    }
+    return buffer.array();
+  }
+}
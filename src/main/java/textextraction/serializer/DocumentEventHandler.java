@@ -0,0 +1,170 @@
+package textextraction.serializer;
+
+import java.io.IOException;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
+import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
+import textextraction.serializer.model.SerializationFormat;
+
+/**
+ * A handler of the events emitted by a {@link DocumentTraversal}, typically a writer of a
+ * serialization format.
+ *
+ * <p>
+ * The events are emitted in the following order: {@link #startDocument(DocumentTraversal)}, then
+ * per element type a section, consisting of {@link #startSection(ElementClass)}, the element
+ * events and {@link #endSection(ElementClass)}, and finally {@link #endDocument()}. The element
+ * events of the page-based element types are grouped per page, by {@link #startPage(Page)} and
+ * {@link #endPage(Page)}; the paragraphs are not grouped. Only the elements accepted by the
+ * element filter of the traversal are emitted. All methods do nothing by default. Handlers that
+ * can also copy fragments of a previous serialization implement {@link FragmentHandler}.
+ *
+ * @author Claudius Korzen
+ */
+public interface DocumentEventHandler {
+  /**
+   * Handles the start of the traversal of a document.
+   *
+   * @param traversal The traversal, which provides the document and the shared state (for
+   *                  example, the indices of the characters and the used fonts and colors).
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void startDocument(DocumentTraversal traversal) throws IOException {}
+
+  /**
+   * Handles the start of the section of the elements of the given type.
+   *
+   * @param clazz The type of the elements of the section.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void startSection(ElementClass clazz) throws IOException {}
+
+  /**
+   * Handles the start of the elements of the given page in the current section.
+   *
+   * @param page The page.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void startPage(Page page) throws IOException {}
+
+  /**
+   * Handles the given character.
+   *
+   * @param character The character.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void character(Character character) throws IOException {}
+
+  /**
+   * Handles the given word.
+   *
+   * @param word The word.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void word(Word word) throws IOException {}
+
+  /**
+   * Handles the given text line.
+   *
+   * @param line The text line.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void textLine(TextLine line) throws IOException {}
+
+  /**
+   * Handles the given text block.
+   *
+   * @param block The text block.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void textBlock(TextBlock block) throws IOException {}
+
+  /**
+   * Handles the given paragraph.
+   *
+   * @param paragraph The paragraph.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void paragraph(Paragraph paragraph) throws IOException {}
+
+  /**
+   * Handles the given figure.
+   *
+   * @param figure The figure.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void figure(Figure figure) throws IOException {}
+
+  /**
+   * Handles the given shape.
+   *
+   * @param shape The shape.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void shape(Shape shape) throws IOException {}
+
+  /**
+   * Handles the end of the elements of the given page in the current section.
+   *
+   * @param page The page.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void endPage(Page page) throws IOException {}
+
+  /**
+   * Handles the end of the section of the elements of the given type.
+   *
+   * @param clazz The type of the elements of the section.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void endSection(ElementClass clazz) throws IOException {}
+
+  /**
+   * Handles the end of the traversal of a document.
+   *
+   * @throws IOException If writing the event failed.
+   */
+  default void endDocument() throws IOException {}
+
+  // ==============================================================================================
+
+  /**
+   * Returns the number of bytes of the serialization generated so far by this handler, including
+   * the bytes buffered but not yet written. Used to enforce the maximum output size of a
+   * serialization (see {@link SerializationGuard}).
+   *
+   * @return The number of bytes generated so far.
+   */
+  default long getNumBytes() {
+    return 0;
+  }
+
+  /**
+   * Returns the format of the serialization generated by this handler. Reported in the flight
+   * recorder events of the traversal (see {@link textextraction.serializer.jfr}).
+   *
+   * @return The format, or null if the handler doesn't generate a serialization.
+   */
+  default SerializationFormat getFormat() {
+    return null;
+  }
+}
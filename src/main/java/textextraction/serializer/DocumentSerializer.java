@@ -1,11 +1,27 @@
 package textextraction.serializer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
 
 import textextraction.common.models.Document;
 import textextraction.common.models.ElementClass;
+import textextraction.serializer.buffer.BufferPool;
+import textextraction.serializer.buffer.ChunkedByteBuffer;
+import textextraction.serializer.buffer.SizePredictor;
+import textextraction.serializer.exception.SerializationAbortedException;
 import textextraction.serializer.exception.SerializerException;
 import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+import textextraction.serializer.model.SerializationTarget;
 
 /**
  * A serializer to serialize a document.
@@ -13,6 +29,39 @@ import textextraction.serializer.model.SerializationFormat;
  * @author Claudius Korzen
  */
 public class DocumentSerializer {
+  /**
+   * The pool of the chunks in which the serializations are collected.
+   */
+  protected BufferPool pool;
+
+  /**
+   * The predictor of the sizes of the serializations.
+   */
+  protected SizePredictor predictor;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new serializer that uses the shared buffer pool and size predictor.
+   */
+  public DocumentSerializer() {
+    this(BufferPool.getShared(), SizePredictor.getShared());
+  }
+
+  /**
+   * Creates a new serializer that uses the given buffer pool and size predictor.
+   * 
+   * @param pool      The pool of the chunks in which the serializations are collected.
+   * @param predictor The predictor of the sizes of the serializations.
+   */
+  public DocumentSerializer(BufferPool pool, SizePredictor predictor) {
+    this.pool = pool;
+    this.predictor = predictor;
+  }
+
+  // ==============================================================================================
+
   /**
    * Serializes *all* elements of the given document in the given format.
    * 
@@ -40,12 +89,220 @@ public class DocumentSerializer {
    */
   public byte[] serialize(Document doc, SerializationFormat format,
           Collection<ElementClass> clazzes) throws SerializerException {
+    return serialize(doc, format, clazzes, new SerializationOptions());
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in the given format,
+   * controlled by the given options (for example, to serialize only selected fields of the
+   * elements). In format {@link SerializationFormat#TEXT}, only the plain text of the characters
+   * is serialized, regardless of the given types.
+   * 
+   * <p>
+   * If the options define a deadline, a cancellation token or a maximum output size, the
+   * serialization is aborted with a {@link SerializationAbortedException} as soon as the deadline
+   * passed, the token was cancelled or the serialization grew beyond the maximum size. The limits
+   * are checked before each page and every few elements.
+   * 
+   * @param doc     The document to serialize.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param options The options that control the serialization.
+   * 
+   * @return The serialization as a byte array.
+   * 
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   * @throws SerializerException           If something went wrong on serializing the document.
+   */
+  public byte[] serialize(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options)
+          throws SerializerException {
+    if (doc == null) {
+      return null;
+    }
+
+    // Collect the serialization in pooled chunks, reserved up front according to the predicted
+    // size, so that the serialization is copied only once, into the resulting array.
+    long numElements = this.predictor.countElements(doc, format, clazzes,
+            options.getElementFilter());
+    ChunkedByteBuffer buffer = this.pool.newBuffer();
+    try {
+      long predictedSize = (long) (numElements * this.predictor.getBytesPerElement(format));
+      buffer.reserve(Math.min(predictedSize, options.getMaxOutputSize()));
+      serialize(doc, format, clazzes, options, buffer);
+      this.predictor.record(format, numElements, buffer.size());
+      return buffer.toByteArray();
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in the given format and
+   * writes the serialization to the given stream. Returns an index of the byte ranges of the
+   * sections and of the elements of each page in the serialization, which can be stored as a
+   * sidecar (see {@link SerializationIndex#write(OutputStream)}) and be used to read single pages
+   * without scanning the whole serialization (see
+   * {@link DocumentDeserializer#deserializePage(java.nio.channels.FileChannel, SerializationIndex,
+   * int)}).
+   * 
+   * @param doc     The document to serialize.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param options The options that control the serialization.
+   * @param out     The stream to write the serialization to.
+   * 
+   * @return The index of the byte ranges of the sections and pages in the serialization.
+   * 
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options, OutputStream out)
+          throws SerializerException {
     switch (format) {
+      case TEXT:
+        return new TextDocumentSerializer(options).serialize(doc, out);
       case XML:
-        return new XmlDocumentSerializer().serialize(doc, clazzes);
+        return new XmlDocumentSerializer(options).serialize(doc, clazzes, out);
+      case BINARY:
+        return new BinaryDocumentSerializer(options).serialize(doc, clazzes, out);
       case JSON:
       default:
-        return new JsonDocumentSerializer().serialize(doc, clazzes);
+        return new JsonDocumentSerializer(options).serialize(doc, clazzes, out);
+    }
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in the formats of the given
+   * targets at once and writes each serialization to the stream of its target. The document is
+   * traversed only once; each element accepted by the element filter is passed to the serializers
+   * of all targets, and the state needed by all serializers (the indices of the characters and the
+   * used fonts and colors) is computed only once. The serializations are identical to the ones
+   * written by {@link #serialize(Document, SerializationFormat, Collection, SerializationOptions,
+   * OutputStream)}, except that the string, font and color records of the binary format may be
+   * stored in a different order.
+   * 
+   * <p>
+   * The serializations are written together, element by element, by a single traversal on the
+   * calling thread: if writing to one of the streams fails, the serialization is aborted for all
+   * targets.
+   * 
+   * @param doc     The document to serialize.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param options The options that control the serialization.
+   * @param targets The formats and streams to write the serializations to.
+   * 
+   * @return The indices of the byte ranges of the sections and pages in the serializations, in the
+   *         order of the targets.
+   * 
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public List<SerializationIndex> serialize(Document doc, Collection<ElementClass> clazzes,
+          SerializationOptions options, List<SerializationTarget> targets)
+          throws SerializerException {
+    DocumentTraversal traversal = new DocumentTraversal(options);
+    List<Supplier<SerializationIndex>> indices = new ArrayList<>();
+
+    for (SerializationTarget target : targets) {
+      indices.add(register(traversal, target.getFormat(), clazzes, options,
+              target.getOutputStream()));
     }
+
+    try {
+      traversal.traverse(doc);
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't serialize the document.", e);
+    }
+
+    List<SerializationIndex> result = new ArrayList<>(indices.size());
+    for (Supplier<SerializationIndex> index : indices) {
+      result.add(index.get());
+    }
+    return result;
+  }
+
+  /**
+   * Returns a publisher that serializes the elements with the given types of the given document in
+   * the given format on demand: the document is traversed page by page, and only as far as needed
+   * to satisfy the demand signaled by the subscriber (see {@link SerializationPublisher}). The
+   * serialization is generated on the thread that requests more data.
+   *
+   * @param doc     The document to serialize.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param options The options that control the serialization.
+   *
+   * @return The publisher of the serialization.
+   */
+  public Flow.Publisher<ByteBuffer> publish(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options) {
+    return publish(doc, format, clazzes, options, Runnable::run);
+  }
+
+  /**
+   * Returns a publisher that serializes the elements with the given types of the given document in
+   * the given format on demand, on the given executor (see {@link SerializationPublisher}).
+   *
+   * @param doc      The document to serialize.
+   * @param format   The format of the serialization.
+   * @param clazzes  The types of elements to serialize from the document.
+   * @param options  The options that control the serialization.
+   * @param executor The executor on which the serialization is generated.
+   *
+   * @return The publisher of the serialization.
+   */
+  public Flow.Publisher<ByteBuffer> publish(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options, Executor executor) {
+    return new SerializationPublisher(this, doc, format, clazzes, options, executor);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Creates a serializer for the given format that writes to the given stream and registers it as
+   * a handler of the given traversal.
+   *
+   * @param traversal The traversal to register the serializer with.
+   * @param format    The format of the serialization.
+   * @param clazzes   The types of elements to serialize from the document.
+   * @param options   The options that control the serialization.
+   * @param out       The stream to write the serialization to.
+   *
+   * @return A supplier of the index of the serialization, to query after the traversal.
+   */
+  Supplier<SerializationIndex> register(DocumentTraversal traversal, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options, OutputStream out) {
+    switch (format) {
+      case TEXT:
+        TextDocumentSerializer text = new TextDocumentSerializer(options);
+        text.open(out);
+        traversal.addHandler(text, Collections.singletonList(ElementClass.CHARACTERS));
+        return text::getIndex;
+      case XML:
+        XmlDocumentSerializer xml = new XmlDocumentSerializer(options);
+        xml.open(out);
+        traversal.addHandler(xml, clazzes);
+        return xml::getIndex;
+      case BINARY:
+        BinaryDocumentSerializer binary = new BinaryDocumentSerializer(options);
+        binary.open(out);
+        traversal.addHandler(binary, clazzes);
+        return binary::getIndex;
+      case JSON:
+      default:
+        JsonDocumentSerializer json = new JsonDocumentSerializer(options);
+        json.open(out);
+        traversal.addHandler(json, clazzes);
+        return json::getIndex;
+    }
+  }
+
+  /**
+   * Returns the pool of the chunks in which the serializations are collected.
+   *
+   * @return The pool.
+   */
+  public BufferPool getBufferPool() {
+    return this.pool;
   }
 }
@@ -1,5 +1,7 @@
 package textextraction.serializer;
 
+import textextraction.common.models.ElementClass;
+
 /**
  * Collection of some constants needed for serialization.
  * 
@@ -21,8 +23,12 @@ public class DocumentSerializerConstants {
   static final String COLOR = "color";
   /** The constant 'COLORS'. */
   static final String COLORS = "colors";
+  /** The constant 'COLUMNS' (the number of columns of a grid of tiles). */
+  static final String COLUMNS = "columns";
   /** The constant 'DOCUMENT'. */
   static final String DOCUMENT = "document";
+  /** The constant 'ELEMENTS' (the indices of the elements in a tile). */
+  static final String ELEMENTS = "elements";
   /** The constant 'FIGURE'. */
   static final String FIGURE = "figure";
   /** The constant 'FIGURES'. */
@@ -33,8 +39,12 @@ public class DocumentSerializerConstants {
   static final String FONTS = "fonts";
   /** The constant 'FONTSIZE'. */
   static final String FONTSIZE = "font-size";
+  /** The constant 'FROM' (the first index of a range, inclusive). */
+  static final String FROM = "from";
   /** The constant 'G' (The green part of an RGB value). */
   static final String G = "g";
+  /** The constant 'HASH' (a content hash). */
+  static final String HASH = "hash";
   /** The constant 'HEIGHT'. */
   static final String HEIGHT = "height";
   /** The constant 'ID'. */
@@ -71,20 +81,98 @@ public class DocumentSerializerConstants {
   static final String R = "r";
   /** The constant 'ROLE'. */
   static final String ROLE = "role";
+  /** The constant 'ROWS' (the number of rows of a grid of tiles). */
+  static final String ROWS = "rows";
+  /** The constant 'SCHEMA' (the field names of the records in the compact schema). */
+  static final String SCHEMA = "schema";
   /** The constant 'SHAPE'. */
   static final String SHAPE = "shape";
   /** The constant 'SHAPES'. */
   static final String SHAPES = "shapes";
+  /** The constant 'STRINGS'. */
+  static final String STRINGS = "strings";
+  /** The constant 'STYLE' (a run of characters with the same font face and color). */
+  static final String STYLE = "style";
   /** The constant 'TEXT'. */
   static final String TEXT = "text";
   /** The constant 'TEXT_BLOCK'. */
   static final String TEXT_BLOCK = "block";
+  /** The constant 'TEXT_BLOCKS'. */
+  static final String TEXT_BLOCKS = "blocks";
   /** The constant 'TEXT_LINE'. */
   static final String TEXT_LINE = "textline";
+  /** The constant 'TEXT_LINES'. */
+  static final String TEXT_LINES = "textlines";
+  /** The constant 'TILE'. */
+  static final String TILE = "tile";
+  /** The constant 'TILES' (the spatial index of the elements of a page). */
+  static final String TILES = "tiles";
+  /** The constant 'TILE_SIZE' (the width and height of a tile). */
+  static final String TILE_SIZE = "tile-size";
+  /** The constant 'TO' (the last index of a range, exclusive). */
+  static final String TO = "to";
   /** The constant 'WIDTH'. */
   static final String WIDTH = "width";
   /** The constant 'WORD'. */
   static final String WORD = "word";
   /** The constant 'WORDS'. */
   static final String WORDS = "words";
+
+  // ==============================================================================================
+
+  /**
+   * Returns the name of the section of the elements of the given type.
+   * 
+   * @param clazz The type of the elements.
+   * 
+   * @return The name of the section, or null if there is no section for the type.
+   */
+  static String getSectionName(ElementClass clazz) {
+    switch (clazz) {
+      case CHARACTERS:
+        return CHARACTERS;
+      case WORDS:
+        return WORDS;
+      case TEXT_LINES:
+        return TEXT_LINES;
+      case TEXT_BLOCKS:
+        return TEXT_BLOCKS;
+      case PARAGRAPHS:
+        return PARAGRAPHS;
+      case FIGURES:
+        return FIGURES;
+      case SHAPES:
+        return SHAPES;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the name of a single element of the given type.
+   * 
+   * @param clazz The type of the element.
+   * 
+   * @return The name of the element, or null if there is no section for the type.
+   */
+  static String getElementName(ElementClass clazz) {
+    switch (clazz) {
+      case CHARACTERS:
+        return CHARACTER;
+      case WORDS:
+        return WORD;
+      case TEXT_LINES:
+        return TEXT_LINE;
+      case TEXT_BLOCKS:
+        return TEXT_BLOCK;
+      case PARAGRAPHS:
+        return PARAGRAPH;
+      case FIGURES:
+        return FIGURE;
+      case SHAPES:
+        return SHAPE;
+      default:
+        return null;
+    }
+  }
 }
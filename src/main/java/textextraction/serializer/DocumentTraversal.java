@@ -0,0 +1,1058 @@
+package textextraction.serializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
+import textextraction.common.models.Position;
+import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
+import textextraction.serializer.exception.SerializationAbortedException;
+import textextraction.serializer.jfr.DocumentSerializationEvent;
+import textextraction.serializer.jfr.PageSerializationEvent;
+import textextraction.serializer.jfr.SectionSerializationEvent;
+import textextraction.serializer.model.ElementField;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.FieldProjection;
+import textextraction.serializer.model.SerializationOptions;
+import textextraction.serializer.model.TileIndex;
+
+/**
+ * A single traversal of a document that emits the elements accepted by the element filter as
+ * events to one or more {@link DocumentEventHandler}s, so that a document can be serialized in
+ * several formats at once.
+ *
+ * <p>
+ * Each handler is registered with the types of elements it is interested in; the sections of the
+ * other types are not emitted to the handler. The state needed by all handlers is computed once,
+ * during or on demand of the traversal: the index of each character in the serialized characters
+ * and the fonts and colors used by the serialized elements.
+ *
+ * <p>
+ * A traversal can be run at once (see {@link #traverse(Document)}) or step by step (see
+ * {@link #start(Document)} and {@link #step()}), for example to generate a serialization on
+ * demand. Each step emits the elements of a single page of the current section (or of a batch of
+ * paragraphs), so that the traversal can be suspended and resumed at page granularity.
+ *
+ * <p>
+ * If a Java Flight Recorder recording is running, the traversal records the serialization of the
+ * document, of each section and of each page as events (see {@link textextraction.serializer.jfr}),
+ * with the formats of the handlers, the numbers of elements and the numbers of bytes written. If
+ * the events are disabled, the traversal doesn't create them.
+ *
+ * @author Claudius Korzen
+ */
+public class DocumentTraversal {
+  /**
+   * The maximum number of paragraphs to emit per step.
+   */
+  protected static final int PARAGRAPHS_PER_STEP = 256;
+
+  /**
+   * The projection that defines the fields to serialize per element class.
+   */
+  protected FieldProjection projection;
+
+  /**
+   * The filter that restricts the traversal to a range of pages and/or a region of the pages.
+   */
+  protected ElementFilter filter;
+
+  /**
+   * The guard that enforces the deadline, the cancellation token and the maximum output size.
+   */
+  protected SerializationGuard guard;
+
+  /**
+   * The handlers of the events.
+   */
+  protected List<DocumentEventHandler> handlers;
+
+  /**
+   * The types of elements per handler, in the order of the handlers.
+   */
+  protected List<Collection<ElementClass>> handlerClazzes;
+
+  /**
+   * The document currently traversed.
+   */
+  protected Document doc;
+
+  /**
+   * The index of the first serialized character of each page in the serialized characters.
+   * Computed lazily.
+   */
+  protected Map<Page, Integer> characterOffsets;
+
+  /**
+   * The index of each serialized character among the serialized characters of its page, per page.
+   * Computed lazily per page.
+   */
+  protected Map<Page, Map<Character, Integer>> pageCharacterIndices;
+
+  /**
+   * The fonts of the traversed characters.
+   */
+  protected Set<Font> characterFonts;
+
+  /**
+   * The colors of the traversed characters.
+   */
+  protected Set<Color> characterColors;
+
+  /**
+   * The colors of the traversed shapes.
+   */
+  protected Set<Color> shapeColors;
+
+  /**
+   * The ids of the fonts referenced by the traversed elements of the current page.
+   */
+  protected Set<String> pageFontIds;
+
+  /**
+   * The ids of the colors referenced by the traversed elements of the current page.
+   */
+  protected Set<String> pageColorIds;
+
+  /**
+   * The font of the previously traversed character, to skip the collection of the font for runs
+   * of characters with the same font.
+   */
+  protected Font previousFont;
+
+  /**
+   * The color of the previously traversed character, to skip the collection of the color for runs
+   * of characters with the same color.
+   */
+  protected Color previousColor;
+
+  /**
+   * Whether the used fonts and colors are collected in a pre-pass before the start of the
+   * document is emitted.
+   */
+  protected boolean isCollectingDictionariesFirst;
+
+  /**
+   * The width and height of the tiles of the spatial index per page, or 0 if no index is built.
+   */
+  protected float tileSize;
+
+  /**
+   * The spatial indices of the elements per page.
+   */
+  protected Map<Page, TileIndex> tileIndices;
+
+  /**
+   * The number of elements emitted in the current section so far.
+   */
+  protected int numSectionElements;
+
+  /**
+   * The number of elements of the current page emitted in the current section so far.
+   */
+  protected int numPageElements;
+
+  /**
+   * The number of elements emitted in all finished sections.
+   */
+  protected long numElements;
+
+  // ==============================================================================================
+  // The flight recorder events.
+
+  /**
+   * The formats of the handlers, separated by commas. Computed lazily.
+   */
+  protected String formatNames;
+
+  /**
+   * The event of the serialization of the document, or null if the event isn't recorded.
+   */
+  protected DocumentSerializationEvent documentEvent;
+
+  /**
+   * The event of the serialization of the current section, or null if the event isn't recorded.
+   */
+  protected SectionSerializationEvent sectionEvent;
+
+  // ==============================================================================================
+  // The state of a step-by-step traversal.
+
+  /**
+   * Whether the traversal was started.
+   */
+  protected boolean isStarted;
+
+  /**
+   * Whether the traversal is finished.
+   */
+  protected boolean isFinished;
+
+  /**
+   * The types of elements to traverse, in the order of the sections.
+   */
+  protected List<ElementClass> clazzes;
+
+  /**
+   * The index of the type of the elements of the current section in {@link #clazzes}.
+   */
+  protected int clazzIndex;
+
+  /**
+   * The handlers of the events of the current section.
+   */
+  protected List<DocumentEventHandler> sectionHandlers;
+
+  /**
+   * The index of the next page (or, in the section of the paragraphs, of the next paragraph) to
+   * traverse in the current section.
+   */
+  protected int elementIndex;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new traversal.
+   *
+   * @param options The options that control the serialization.
+   */
+  public DocumentTraversal(SerializationOptions options) {
+    this.projection = options.getFieldProjection();
+    this.filter = options.getElementFilter();
+    this.guard = new SerializationGuard(options, this::getNumBytes);
+    this.handlers = new ArrayList<>();
+    this.handlerClazzes = new ArrayList<>();
+    this.characterFonts = new HashSet<>();
+    this.characterColors = new HashSet<>();
+    this.shapeColors = new HashSet<>();
+    this.pageFontIds = new HashSet<>();
+    this.pageColorIds = new HashSet<>();
+    this.pageCharacterIndices = new IdentityHashMap<>();
+    this.isCollectingDictionariesFirst = options.isWritingDictionariesFirst();
+    this.tileSize = options.getTileSize();
+    this.tileIndices = new IdentityHashMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Registers the given handler for the events of the elements of the given types.
+   *
+   * @param handler The handler.
+   * @param clazzes The types of elements to emit to the handler.
+   *
+   * @return This traversal (for chaining calls).
+   */
+  public DocumentTraversal addHandler(DocumentEventHandler handler,
+          Collection<ElementClass> clazzes) {
+    this.handlers.add(handler);
+    this.handlerClazzes.add(clazzes);
+    return this;
+  }
+
+  /**
+   * Traverses the given document and emits the events to the registered handlers. The sections
+   * are emitted in the order in which the types were first given on registering the handlers.
+   *
+   * @param doc The document to traverse.
+   *
+   * @throws IOException                   If a handler failed to write an event.
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   */
+  public void traverse(Document doc) throws IOException, SerializationAbortedException {
+    start(doc);
+    while (step()) {
+      // Nothing to do, the events are emitted by step().
+    }
+  }
+
+  /**
+   * Starts a step-by-step traversal of the given document and emits the start of the document to
+   * the registered handlers. The remaining events are emitted by the subsequent calls of
+   * {@link #step()}. A traversal can be started again, for another document, after it finished.
+   *
+   * @param doc The document to traverse.
+   *
+   * @throws IOException If a handler failed to write an event.
+   */
+  public void start(Document doc) throws IOException {
+    this.doc = doc;
+    this.isStarted = true;
+    this.isFinished = false;
+    this.clazzIndex = 0;
+    this.elementIndex = 0;
+    this.sectionHandlers = null;
+
+    Set<ElementClass> clazzes = new LinkedHashSet<>();
+    if (doc != null) {
+      for (Collection<ElementClass> handlerClazzes : this.handlerClazzes) {
+        clazzes.addAll(handlerClazzes);
+      }
+    }
+    this.clazzes = new ArrayList<>(clazzes);
+    this.numElements = 0;
+    this.formatNames = null;
+
+    // Reset the state collected from a previously traversed document.
+    this.characterOffsets = null;
+    this.pageCharacterIndices.clear();
+    this.characterFonts.clear();
+    this.characterColors.clear();
+    this.shapeColors.clear();
+    this.previousFont = null;
+    this.previousColor = null;
+    this.tileIndices.clear();
+
+    this.documentEvent = null;
+    if (DocumentSerializationEvent.isRecording()) {
+      int numPages = doc != null ? doc.getPages().size() : 0;
+      this.documentEvent = new DocumentSerializationEvent(getFormatNames(), numPages);
+    }
+
+    if (this.isCollectingDictionariesFirst && doc != null) {
+      collectDictionaries(doc);
+    }
+
+    for (DocumentEventHandler handler : this.handlers) {
+      handler.startDocument(this);
+    }
+  }
+
+  /**
+   * Performs the next step of a traversal started by {@link #start(Document)}: emits the elements
+   * of the next page of the current section (or the next batch of paragraphs), including the
+   * start and end of the section if applicable. The last step emits the end of the document.
+   *
+   * @return True if there are further steps, false if the traversal is finished.
+   *
+   * @throws IOException                   If a handler failed to write an event.
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   */
+  public boolean step() throws IOException, SerializationAbortedException {
+    if (!this.isStarted) {
+      throw new IllegalStateException("The traversal wasn't started.");
+    }
+    if (this.isFinished) {
+      return false;
+    }
+
+    // Emit the end of the document if all sections were traversed.
+    if (this.clazzIndex >= this.clazzes.size()) {
+      for (DocumentEventHandler handler : this.handlers) {
+        handler.endDocument();
+      }
+      if (this.documentEvent != null) {
+        this.documentEvent.finish(this.numElements, getNumBytes());
+        this.documentEvent = null;
+      }
+      this.isFinished = true;
+      return false;
+    }
+
+    // Start the next section if necessary.
+    ElementClass clazz = this.clazzes.get(this.clazzIndex);
+    if (this.sectionHandlers == null) {
+      this.sectionHandlers = new ArrayList<>();
+      for (int i = 0; i < this.handlers.size(); i++) {
+        if (this.handlerClazzes.get(i).contains(clazz)) {
+          this.sectionHandlers.add(this.handlers.get(i));
+        }
+      }
+      if (SectionSerializationEvent.isRecording()) {
+        String section = DocumentSerializerConstants.getSectionName(clazz);
+        this.sectionEvent = new SectionSerializationEvent(getFormatNames(), section,
+                getNumBytes());
+      }
+      for (DocumentEventHandler handler : this.sectionHandlers) {
+        handler.startSection(clazz);
+      }
+      this.elementIndex = 0;
+      this.numSectionElements = 0;
+    }
+
+    boolean isSectionFinished;
+    if (clazz == ElementClass.PARAGRAPHS) {
+      isSectionFinished = stepParagraphs();
+    } else {
+      isSectionFinished = stepPage(clazz);
+    }
+
+    // End the section if all of its elements were traversed.
+    if (isSectionFinished) {
+      for (DocumentEventHandler handler : this.sectionHandlers) {
+        handler.endSection(clazz);
+      }
+      if (this.sectionEvent != null) {
+        this.sectionEvent.finish(this.numSectionElements, getNumBytes());
+        this.sectionEvent = null;
+      }
+      this.numElements += this.numSectionElements;
+      this.sectionHandlers = null;
+      this.clazzIndex++;
+    }
+    return true;
+  }
+
+  /**
+   * Emits the next batch of paragraphs of the current section.
+   *
+   * @return True if all paragraphs were emitted, false otherwise.
+   *
+   * @throws IOException                   If a handler failed to write an event.
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   */
+  protected boolean stepParagraphs() throws IOException, SerializationAbortedException {
+    List<Paragraph> paragraphs = this.doc.getParagraphs();
+    int end = Math.min(this.elementIndex + PARAGRAPHS_PER_STEP, paragraphs.size());
+    this.guard.checkPage(ElementClass.PARAGRAPHS, -1);
+    for (; this.elementIndex < end; this.elementIndex++) {
+      Paragraph paragraph = paragraphs.get(this.elementIndex);
+      if (paragraph == null || !this.filter.accept(paragraph.getPositions())) {
+        continue;
+      }
+      this.guard.checkElement();
+      this.numSectionElements++;
+      for (DocumentEventHandler handler : this.sectionHandlers) {
+        handler.paragraph(paragraph);
+      }
+    }
+    return this.elementIndex >= paragraphs.size();
+  }
+
+  /**
+   * Emits the elements of the given type of the next page accepted by the element filter.
+   *
+   * @param clazz The type of the elements of the current section.
+   *
+   * @return True if there are no further pages to traverse in the current section, false
+   *         otherwise.
+   *
+   * @throws IOException                   If a handler failed to write an event.
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   */
+  protected boolean stepPage(ElementClass clazz)
+          throws IOException, SerializationAbortedException {
+    List<Page> pages = this.doc.getPages();
+    while (this.elementIndex < pages.size()) {
+      Page page = pages.get(this.elementIndex++);
+      if (page == null || !this.filter.accept(page)) {
+        continue;
+      }
+      this.guard.checkPage(clazz, page.getPageNumber());
+      this.numPageElements = 0;
+      // Collect the fonts and colors of each page completely, regardless of the previous page.
+      this.pageFontIds.clear();
+      this.pageColorIds.clear();
+      this.previousFont = null;
+      this.previousColor = null;
+      PageSerializationEvent pageEvent = null;
+      if (PageSerializationEvent.isRecording()) {
+        String section = DocumentSerializerConstants.getSectionName(clazz);
+        pageEvent = new PageSerializationEvent(getFormatNames(), section, page.getPageNumber(),
+                getNumBytes());
+      }
+      for (DocumentEventHandler handler : this.sectionHandlers) {
+        handler.startPage(page);
+      }
+      traverse(page, clazz, this.sectionHandlers);
+      for (DocumentEventHandler handler : this.sectionHandlers) {
+        handler.endPage(page);
+      }
+      if (pageEvent != null) {
+        pageEvent.finish(this.numPageElements, getNumBytes());
+      }
+      return this.elementIndex >= pages.size();
+    }
+    return true;
+  }
+
+  /**
+   * Traverses the elements of the given type of the given page and emits the events to the given
+   * handlers.
+   *
+   * @param page     The page to traverse.
+   * @param clazz    The type of the elements to traverse.
+   * @param handlers The handlers.
+   *
+   * @throws IOException If a handler failed to write an event.
+   */
+  protected void traverse(Page page, ElementClass clazz, List<DocumentEventHandler> handlers)
+          throws IOException, SerializationAbortedException {
+    switch (clazz) {
+      case CHARACTERS:
+        for (Character character : page.getCharacters()) {
+          if (character == null || !this.filter.accept(character.getPosition())) {
+            continue;
+          }
+          countElement(page, clazz, character.getPosition());
+          collectFontAndColor(character);
+          for (DocumentEventHandler handler : handlers) {
+            handler.character(character);
+          }
+        }
+        break;
+      case WORDS:
+        for (Word word : page.getWords()) {
+          if (word == null || !this.filter.accept(word.getPositions())) {
+            continue;
+          }
+          countElement(page, clazz, word.getPositions());
+          for (DocumentEventHandler handler : handlers) {
+            handler.word(word);
+          }
+        }
+        break;
+      case TEXT_LINES:
+        for (TextLine line : page.getTextLines()) {
+          if (line == null || !this.filter.accept(line.getPosition())) {
+            continue;
+          }
+          countElement(page, clazz, line.getPosition());
+          for (DocumentEventHandler handler : handlers) {
+            handler.textLine(line);
+          }
+        }
+        break;
+      case TEXT_BLOCKS:
+        for (TextBlock block : page.getTextBlocks()) {
+          if (block == null || !this.filter.accept(block.getPosition())) {
+            continue;
+          }
+          countElement(page, clazz, block.getPosition());
+          for (DocumentEventHandler handler : handlers) {
+            handler.textBlock(block);
+          }
+        }
+        break;
+      case FIGURES:
+        for (Figure figure : page.getFigures()) {
+          if (figure == null || !this.filter.accept(figure.getPosition())) {
+            continue;
+          }
+          countElement(page, clazz, figure.getPosition());
+          for (DocumentEventHandler handler : handlers) {
+            handler.figure(figure);
+          }
+        }
+        break;
+      case SHAPES:
+        for (Shape shape : page.getShapes()) {
+          if (shape == null || !this.filter.accept(shape.getPosition())) {
+            continue;
+          }
+          countElement(page, clazz, shape.getPosition());
+          collectColor(shape);
+          for (DocumentEventHandler handler : handlers) {
+            handler.shape(shape);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Counts the current element of the given page, checks the limits of the serialization and adds
+   * the element to the spatial index of the page, if an index is built.
+   *
+   * @param page     The page.
+   * @param clazz    The type of the element.
+   * @param position The position of the element.
+   *
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   */
+  protected void countElement(Page page, ElementClass clazz, Position position)
+          throws SerializationAbortedException {
+    this.guard.checkElement();
+    this.numPageElements++;
+    int elementIndex = this.numSectionElements++;
+    if (this.tileSize > 0 && position != null) {
+      getTileIndex(page, true).add(clazz, elementIndex, position.getRectangle());
+    }
+  }
+
+  /**
+   * Counts the current element of the given page, which may span several pages, checks the limits
+   * of the serialization and adds the element to the spatial index of the page, if an index is
+   * built. Only the positions on the given page are indexed.
+   *
+   * @param page      The page.
+   * @param clazz     The type of the element.
+   * @param positions The positions of the element.
+   *
+   * @throws SerializationAbortedException If a limit of the serialization was exceeded.
+   */
+  protected void countElement(Page page, ElementClass clazz, List<Position> positions)
+          throws SerializationAbortedException {
+    this.guard.checkElement();
+    this.numPageElements++;
+    int elementIndex = this.numSectionElements++;
+    if (this.tileSize <= 0 || positions == null) {
+      return;
+    }
+    TileIndex tiles = getTileIndex(page, true);
+    for (Position position : positions) {
+      if (position != null && (position.getPage() == null || position.getPage() == page)) {
+        tiles.add(clazz, elementIndex, position.getRectangle());
+      }
+    }
+  }
+
+  /**
+   * Returns the spatial index of the given page.
+   *
+   * @param page     The page.
+   * @param isCreate Whether to create the index if it doesn't exist yet.
+   *
+   * @return The index, or null if it doesn't exist and isn't to be created.
+   */
+  protected TileIndex getTileIndex(Page page, boolean isCreate) {
+    TileIndex tiles = this.tileIndices.get(page);
+    if (tiles == null && isCreate) {
+      tiles = new TileIndex(this.tileSize, page.getWidth(), page.getHeight());
+      this.tileIndices.put(page, tiles);
+    }
+    return tiles;
+  }
+
+  /**
+   * Collects the fonts and colors used by the characters and shapes of the given document that
+   * are accepted by the element filter, before any element is emitted, so that
+   * {@link #getUsedFonts(DocumentEventHandler)} and {@link #getUsedColors(DocumentEventHandler)}
+   * are complete already on {@link DocumentEventHandler#startDocument(DocumentTraversal)}. The
+   * pre-pass only visits the types of elements that are emitted to any handler. During the
+   * traversal, the fonts and colors are still collected, to record them per page (see
+   * {@link #getPageFontIds()}).
+   *
+   * @param doc The document.
+   */
+  protected void collectDictionaries(Document doc) {
+    for (Page page : doc.getPages()) {
+      if (page != null && this.filter.accept(page)) {
+        collectDictionaries(page);
+      }
+    }
+  }
+
+  /**
+   * Collects the fonts and colors used by the characters and shapes of the given page that are
+   * accepted by the element filter (see {@link #collectDictionaries(Document)}).
+   *
+   * @param page The page.
+   */
+  protected void collectDictionaries(Page page) {
+    if (this.clazzes.contains(ElementClass.CHARACTERS)) {
+      for (Character character : page.getCharacters()) {
+        if (character != null && this.filter.accept(character.getPosition())) {
+          collectFontAndColor(character);
+        }
+      }
+    }
+    if (this.clazzes.contains(ElementClass.SHAPES)) {
+      for (Shape shape : page.getShapes()) {
+        if (shape != null && this.filter.accept(shape.getPosition())) {
+          collectColor(shape);
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the font and the color of the given character, if they are to be serialized.
+   *
+   * @param character The character.
+   */
+  protected void collectFontAndColor(Character character) {
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      FontFace fontFace = character.getFontFace();
+      if (fontFace != null) {
+        Font font = fontFace.getFont();
+        if (font != this.previousFont && font != null && font.getId() != null
+                && fontFace.getFontSize() > 0) {
+          this.characterFonts.add(font);
+          this.pageFontIds.add(font.getId());
+          this.previousFont = font;
+        }
+      }
+    }
+
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      Color color = character.getColor();
+      if (color != this.previousColor && color != null && color.getId() != null) {
+        this.characterColors.add(color);
+        this.pageColorIds.add(color.getId());
+        this.previousColor = color;
+      }
+    }
+  }
+
+  /**
+   * Collects the color of the given shape, if it is to be serialized.
+   *
+   * @param shape The shape.
+   */
+  protected void collectColor(Shape shape) {
+    Color color = shape.getColor();
+    if (color != null && color.getId() != null
+            && this.projection.includes(ElementClass.SHAPES, ElementField.COLOR)) {
+      this.shapeColors.add(color);
+      this.pageColorIds.add(color.getId());
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the document currently traversed.
+   *
+   * @return The document.
+   */
+  public Document getDocument() {
+    return this.doc;
+  }
+
+  /**
+   * Returns the projection that defines the fields to serialize per element class.
+   *
+   * @return The projection.
+   */
+  public FieldProjection getFieldProjection() {
+    return this.projection;
+  }
+
+  /**
+   * Returns the filter that restricts the traversal.
+   *
+   * @return The filter.
+   */
+  public ElementFilter getElementFilter() {
+    return this.filter;
+  }
+
+  /**
+   * Returns the number of bytes of the serializations generated so far by all handlers.
+   *
+   * @return The number of bytes generated so far.
+   */
+  public long getNumBytes() {
+    long numBytes = 0;
+    for (DocumentEventHandler handler : this.handlers) {
+      numBytes += handler.getNumBytes();
+    }
+    return numBytes;
+  }
+
+  /**
+   * Returns the formats of the registered handlers, separated by commas, as reported in the
+   * flight recorder events.
+   *
+   * @return The formats of the handlers.
+   */
+  protected String getFormatNames() {
+    if (this.formatNames == null) {
+      StringJoiner formatNames = new StringJoiner(",");
+      for (DocumentEventHandler handler : this.handlers) {
+        if (handler.getFormat() != null) {
+          formatNames.add(handler.getFormat().name());
+        }
+      }
+      this.formatNames = formatNames.toString();
+    }
+    return this.formatNames;
+  }
+
+  /**
+   * Returns the spatial index of the elements of the given page, built if a tile size was set in
+   * the options (see {@link SerializationOptions#setTileSize(float)}). The index is complete when
+   * all sections were traversed.
+   *
+   * @param page The page.
+   *
+   * @return The index, or null if no index is built or the page has no indexed elements.
+   */
+  public TileIndex getTileIndex(Page page) {
+    return getTileIndex(page, false);
+  }
+
+  /**
+   * Returns the number of elements of the current page emitted in the current section so far.
+   * Complete on {@link DocumentEventHandler#endPage(Page)}.
+   *
+   * @return The number of elements.
+   */
+  public int getNumPageElements() {
+    return this.numPageElements;
+  }
+
+  /**
+   * Returns the index of the given character in the serialized characters, used by words, text
+   * lines, text blocks and paragraphs to refer to their characters: the index of the first
+   * serialized character of the page of the character (see {@link #getCharacterOffset(Page)}) plus
+   * the index of the character among the serialized characters of the page. The indices of the
+   * characters of a page are computed on the first reference to a character of the page and shared
+   * by all handlers. Characters rejected by the element filter are not serialized and hence have no
+   * index, as well as all characters if the characters aren't traversed at all.
+   *
+   * @param character The character.
+   *
+   * @return The index of the character, or -1 if the character isn't serialized.
+   */
+  public int getCharacterIndex(Character character) {
+    if (this.clazzes == null || !this.clazzes.contains(ElementClass.CHARACTERS)) {
+      return -1;
+    }
+    Position position = character != null ? character.getPosition() : null;
+    Page page = position != null ? position.getPage() : null;
+    int offset = page != null ? getCharacterOffset(page) : -1;
+    if (offset < 0) {
+      return -1;
+    }
+    Integer index = getPageCharacterIndices(page).get(character);
+    return index != null ? offset + index : -1;
+  }
+
+  /**
+   * Returns the index of the given character in the characters serialized by the given handler
+   * (see {@link #getCharacterIndex(Character)}). A handler that isn't registered for the characters
+   * doesn't serialize any characters, so its elements must not refer to characters.
+   *
+   * @param handler   The handler.
+   * @param character The character.
+   *
+   * @return The index of the character, or -1 if the character isn't serialized by the handler.
+   */
+  public int getCharacterIndex(DocumentEventHandler handler, Character character) {
+    return isEmitting(handler, ElementClass.CHARACTERS) ? getCharacterIndex(character) : -1;
+  }
+
+  /**
+   * Returns the index of the first serialized character of the given page in the serialized
+   * characters, that is, the number of serialized characters of the pages before. The offsets of
+   * all pages are computed on the first call, from the numbers of serialized characters per page
+   * (see {@link #countCharacters(Page)}).
+   *
+   * @param page The page.
+   *
+   * @return The index of the first serialized character of the page, or -1 if the page isn't
+   *         serialized.
+   */
+  public int getCharacterOffset(Page page) {
+    if (this.characterOffsets == null) {
+      this.characterOffsets = new IdentityHashMap<>();
+      if (this.doc != null) {
+        int offset = 0;
+        for (Page p : this.doc.getPages()) {
+          if (p == null || !this.filter.accept(p)) {
+            continue;
+          }
+          this.characterOffsets.put(p, offset);
+          offset += countCharacters(p);
+        }
+      }
+    }
+    Integer offset = this.characterOffsets.get(page);
+    return offset != null ? offset : -1;
+  }
+
+  /**
+   * Counts the characters of the given page accepted by the element filter.
+   *
+   * @param page The page.
+   *
+   * @return The number of characters.
+   */
+  protected int countCharacters(Page page) {
+    if (!this.filter.accept(page)) {
+      return 0;
+    }
+    return getPageCharacterIndices(page).size();
+  }
+
+  /**
+   * Returns the index of each character of the given page accepted by the element filter among
+   * the accepted characters of the page. Computed on the first call per page.
+   *
+   * @param page The page.
+   *
+   * @return A map of the characters to their indices within the page.
+   */
+  protected Map<Character, Integer> getPageCharacterIndices(Page page) {
+    Map<Character, Integer> indices = this.pageCharacterIndices.get(page);
+    if (indices == null) {
+      indices = new IdentityHashMap<>();
+      int index = 0;
+      for (Character character : page.getCharacters()) {
+        if (character != null && this.filter.accept(character.getPosition())) {
+          indices.put(character, index++);
+        }
+      }
+      this.pageCharacterIndices.put(page, indices);
+    }
+    return indices;
+  }
+
+  /**
+   * Returns the first character of the given words that has an index in the serialized characters.
+   * Used to clip the character range of a paragraph to the serialized characters, for example, to
+   * the pages of a part of a partitioned serialization if the paragraph spans several parts.
+   *
+   * @param words The words, in reading order.
+   *
+   * @return The first character with an index, or null if there is no such character.
+   */
+  public Character getFirstIndexedCharacter(List<Word> words) {
+    if (words == null) {
+      return null;
+    }
+    for (int i = 0; i < words.size(); i++) {
+      List<Character> characters = words.get(i) != null ? words.get(i).getCharacters() : null;
+      if (characters == null) {
+        continue;
+      }
+      for (int j = 0; j < characters.size(); j++) {
+        if (getCharacterIndex(characters.get(j)) >= 0) {
+          return characters.get(j);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the last character of the given words that has an index in the serialized characters
+   * (see {@link #getFirstIndexedCharacter(List)}).
+   *
+   * @param words The words, in reading order.
+   *
+   * @return The last character with an index, or null if there is no such character.
+   */
+  public Character getLastIndexedCharacter(List<Word> words) {
+    if (words == null) {
+      return null;
+    }
+    for (int i = words.size() - 1; i >= 0; i--) {
+      List<Character> characters = words.get(i) != null ? words.get(i).getCharacters() : null;
+      if (characters == null) {
+        continue;
+      }
+      for (int j = characters.size() - 1; j >= 0; j--) {
+        if (getCharacterIndex(characters.get(j)) >= 0) {
+          return characters.get(j);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the fonts used by the traversed elements of the types the given handler was
+   * registered for. Complete only after all sections were traversed, that is, on
+   * {@link DocumentEventHandler#endDocument()}, or already on
+   * {@link DocumentEventHandler#startDocument(DocumentTraversal)} if the fonts and colors are
+   * written first (see {@link SerializationOptions#setWritingDictionariesFirst(boolean)}).
+   *
+   * @param handler The handler.
+   *
+   * @return The used fonts.
+   */
+  public Set<Font> getUsedFonts(DocumentEventHandler handler) {
+    Collection<ElementClass> clazzes = getClazzes(handler);
+    if (clazzes.contains(ElementClass.CHARACTERS)) {
+      return Collections.unmodifiableSet(this.characterFonts);
+    }
+    return Collections.emptySet();
+  }
+
+  /**
+   * Returns the colors used by the traversed elements of the types the given handler was
+   * registered for. Complete only after all sections were traversed, that is, on
+   * {@link DocumentEventHandler#endDocument()}, or already on
+   * {@link DocumentEventHandler#startDocument(DocumentTraversal)} if the fonts and colors are
+   * written first (see {@link SerializationOptions#setWritingDictionariesFirst(boolean)}).
+   *
+   * @param handler The handler.
+   *
+   * @return The used colors.
+   */
+  public Set<Color> getUsedColors(DocumentEventHandler handler) {
+    Collection<ElementClass> clazzes = getClazzes(handler);
+    Set<Color> colors = new HashSet<>();
+    if (clazzes.contains(ElementClass.CHARACTERS)) {
+      colors.addAll(this.characterColors);
+    }
+    if (clazzes.contains(ElementClass.SHAPES)) {
+      colors.addAll(this.shapeColors);
+    }
+    return colors;
+  }
+
+  /**
+   * Returns the ids of the fonts referenced by the traversed elements of the current page in the
+   * current section. Complete on {@link DocumentEventHandler#endPage(Page)}.
+   *
+   * @return The ids of the fonts.
+   */
+  public Set<String> getPageFontIds() {
+    return Collections.unmodifiableSet(this.pageFontIds);
+  }
+
+  /**
+   * Returns the ids of the colors referenced by the traversed elements of the current page in the
+   * current section. Complete on {@link DocumentEventHandler#endPage(Page)}.
+   *
+   * @return The ids of the colors.
+   */
+  public Set<String> getPageColorIds() {
+    return Collections.unmodifiableSet(this.pageColorIds);
+  }
+
+  /**
+   * Returns true if the elements of the given type are emitted to the given handler.
+   *
+   * @param handler The handler.
+   * @param clazz   The type of the elements.
+   *
+   * @return True if the handler was registered for the elements of the type, false otherwise.
+   */
+  public boolean isEmitting(DocumentEventHandler handler, ElementClass clazz) {
+    return getClazzes(handler).contains(clazz);
+  }
+
+  /**
+   * Returns the types of elements the given handler was registered for.
+   *
+   * @param handler The handler.
+   *
+   * @return The types of elements, or an empty collection if the handler isn't registered.
+   */
+  protected Collection<ElementClass> getClazzes(DocumentEventHandler handler) {
+    for (int i = 0; i < this.handlers.size(); i++) {
+      if (this.handlers.get(i) == handler) {
+        return this.handlerClazzes.get(i);
+      }
+    }
+    return Collections.emptySet();
+  }
+}
@@ -0,0 +1,108 @@
+package textextraction.serializer;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * A cache of escaped (and, in JSON, quoted) strings for a single serialization, so that the ids
+ * of fonts and colors and the short texts of characters, which are repeated over and over in a
+ * serialization, are escaped only once.
+ *
+ * <p>
+ * The ids are cached per referenced object (a font or a color), by identity. The texts are cached
+ * per string, but only texts of at most {@link #MAX_TEXT_LENGTH} characters and only up to
+ * {@link #MAX_TEXTS} different texts, so that the cache stays small even for documents with a
+ * large alphabet; longer or further texts are escaped on each call.
+ *
+ * @author Claudius Korzen
+ */
+public class EscapedTextCache {
+  /**
+   * The maximum length of a text to cache.
+   */
+  protected static final int MAX_TEXT_LENGTH = 4;
+
+  /**
+   * The maximum number of texts to cache.
+   */
+  protected static final int MAX_TEXTS = 4096;
+
+  /**
+   * The function that escapes a string.
+   */
+  protected UnaryOperator<String> escaper;
+
+  /**
+   * The escaped ids, per referenced object.
+   */
+  protected Map<Object, String> ids;
+
+  /**
+   * The escaped texts, per text.
+   */
+  protected Map<String, String> texts;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new, empty cache.
+   *
+   * @param escaper The function that escapes a string.
+   */
+  public EscapedTextCache(UnaryOperator<String> escaper) {
+    this.escaper = escaper;
+    this.ids = new IdentityHashMap<>();
+    this.texts = new HashMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the escaped id of the given object (for example, a font or a color).
+   *
+   * @param object The object.
+   * @param id     The id of the object.
+   *
+   * @return The escaped id.
+   */
+  public String escapeId(Object object, String id) {
+    String escaped = this.ids.get(object);
+    if (escaped == null) {
+      escaped = this.escaper.apply(id);
+      this.ids.put(object, escaped);
+    }
+    return escaped;
+  }
+
+  /**
+   * Returns the given text in escaped form.
+   *
+   * @param text The text.
+   *
+   * @return The escaped text.
+   */
+  public String escapeText(String text) {
+    if (text.length() > MAX_TEXT_LENGTH) {
+      return this.escaper.apply(text);
+    }
+    String escaped = this.texts.get(text);
+    if (escaped == null) {
+      escaped = this.escaper.apply(text);
+      if (this.texts.size() < MAX_TEXTS) {
+        this.texts.put(text, escaped);
+      }
+    }
+    return escaped;
+  }
+
+  /**
+   * Removes all entries from this cache.
+   */
+  public void clear() {
+    this.ids.clear();
+    this.texts.clear();
+  }
+}
@@ -0,0 +1,28 @@
+package textextraction.serializer;
+
+import java.io.IOException;
+
+import textextraction.serializer.model.ByteRange;
+
+/**
+ * A {@link DocumentEventHandler} that can copy fragments of a previous serialization instead of
+ * serializing the elements of a page again, as used by {@link IncrementalDocumentSerializer}.
+ * Implemented by the writers of the JSON and XML formats.
+ *
+ * @author Claudius Korzen
+ */
+public interface FragmentHandler extends DocumentEventHandler {
+  /**
+   * Handles a fragment of a previous serialization that replaces the elements of the current page
+   * in the current section. The fragment is the serialization of the elements of the page, as
+   * recorded by the page range in the index of the previous serialization.
+   *
+   * @param serialization The previous serialization.
+   * @param range         The byte range of the fragment in the previous serialization.
+   * @param hash          The content hash of the fragment, as recorded in the index of the
+   *                      previous serialization, or null if it is unknown.
+   *
+   * @throws IOException If writing the fragment failed.
+   */
+  void fragment(byte[] serialization, ByteRange range, String hash) throws IOException;
+}
@@ -0,0 +1,487 @@
+package textextraction.serializer;
+
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
+import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
+import static textextraction.serializer.DocumentSerializerConstants.DOCUMENT;
+import static textextraction.serializer.DocumentSerializerConstants.FONTS;
+import static textextraction.serializer.DocumentSerializerConstants.PAGES;
+import static textextraction.serializer.DocumentSerializerConstants.SCHEMA;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Font;
+import textextraction.common.models.Page;
+import textextraction.serializer.exception.DeserializerException;
+import textextraction.serializer.exception.SerializationAbortedException;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.ByteRange;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A serializer that re-serializes a document of which only some pages were changed since it was
+ * serialized before, by patching the previous serialization: the elements of the changed pages
+ * are serialized again, while the elements of the unchanged pages are copied as they are from
+ * the previous serialization, by the byte ranges recorded in its index.
+ *
+ * <p>
+ * The pages are matched with the pages of the previous serialization by their position in the
+ * document. A page removed from or inserted into the document shifts the positions of the pages
+ * after it, and can't be told apart from a changed page by the page numbers alone, so if the
+ * document has not the same page numbers (in the same order) as the previous serialization, the
+ * document is serialized again completely.
+ *
+ * <p>
+ * The words, text lines and text blocks refer to their characters by the indices of the
+ * characters in the serialization. If a changed page has now more or less characters than before
+ * (according to the numbers of elements per page recorded in the index), the indices of the
+ * characters of all following pages are shifted, so the words, text lines and text blocks of the
+ * following pages are serialized again as well. The fonts, colors and pages sections are
+ * recomputed from the fonts and colors used on all pages.
+ *
+ * <p>
+ * The paragraphs are not grouped by pages and may refer to the characters of any page, so they
+ * can't be patched page by page. If the paragraphs are serialized, the document is serialized
+ * again completely.
+ *
+ * <p>
+ * The elements of the unchanged pages are not visited: their numbers and the ids of the fonts and
+ * colors they reference are taken from the index of the previous serialization, the indices of
+ * the characters are derived from the numbers of characters per page, and the fonts and colors
+ * referenced only by unchanged pages are read from the fonts and colors sections of the previous
+ * serialization. The elements of the unchanged pages are visited (but not encoded) only if a
+ * spatial index is built.
+ *
+ * <p>
+ * The previous serialization must have been written in format JSON or XML, with the same types of
+ * elements and the same options. In the other formats, or if a handler registered with the
+ * traversal can't copy fragments (see {@link FragmentHandler}), the document is serialized again
+ * completely.
+ *
+ * @author Claudius Korzen
+ */
+public class IncrementalDocumentSerializer {
+  /**
+   * The serializer that creates the serializers of the formats.
+   */
+  protected DocumentSerializer serializer;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new incremental serializer.
+   */
+  public IncrementalDocumentSerializer() {
+    this(new DocumentSerializer());
+  }
+
+  /**
+   * Creates a new incremental serializer that uses the given serializer.
+   *
+   * @param serializer The serializer that creates the serializers of the formats.
+   */
+  public IncrementalDocumentSerializer(DocumentSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Re-serializes the given document, of which the given pages were changed since the given
+   * previous serialization was written, and writes the new serialization to the given stream.
+   *
+   * @param doc           The document to serialize.
+   * @param changedPages  The pages that were changed since the previous serialization.
+   * @param previous      The previous serialization.
+   * @param previousIndex The index of the previous serialization.
+   * @param clazzes       The types of elements to serialize, as in the previous serialization.
+   * @param options       The options that control the serialization, as in the previous
+   *                      serialization.
+   * @param out           The stream to write the new serialization to.
+   *
+   * @return The index of the new serialization.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(Document doc, Collection<Page> changedPages,
+          byte[] previous, SerializationIndex previousIndex, Collection<ElementClass> clazzes,
+          SerializationOptions options, OutputStream out) throws SerializerException {
+    SerializationFormat format = previousIndex.getFormat();
+    if (format != SerializationFormat.JSON && format != SerializationFormat.XML) {
+      return this.serializer.serialize(doc, format, clazzes, options, out);
+    }
+
+    IncrementalTraversal traversal = new IncrementalTraversal(options, changedPages, previous,
+            previousIndex);
+    Supplier<SerializationIndex> index = this.serializer.register(traversal, format, clazzes,
+            options, out);
+    try {
+      traversal.traverse(doc);
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't serialize the document.", e);
+    }
+    return index.get();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * A traversal that emits the elements of the changed pages (and of the pages whose references
+   * to characters are outdated) and emits fragments of the previous serialization for all other
+   * pages.
+   */
+  protected static class IncrementalTraversal extends DocumentTraversal {
+    /**
+     * The pages that were changed since the previous serialization.
+     */
+    protected Set<Page> changedPages;
+
+    /**
+     * The previous serialization.
+     */
+    protected byte[] previous;
+
+    /**
+     * The index of the previous serialization.
+     */
+    protected SerializationIndex previousIndex;
+
+    /**
+     * Per page, whether the indices of its characters are the same as in the previous
+     * serialization.
+     */
+    protected Map<Page, Boolean> isCharacterIndexUnchanged;
+
+    /**
+     * Whether all registered handlers can copy fragments of the previous serialization. If not,
+     * the document is serialized again completely.
+     */
+    protected boolean isPatching;
+
+    /**
+     * The ids of the fonts referenced by the characters of the pages copied from the previous
+     * serialization.
+     */
+    protected Set<String> copiedFontIds;
+
+    /**
+     * The ids of the colors referenced by the characters of the pages copied from the previous
+     * serialization.
+     */
+    protected Set<String> copiedCharacterColorIds;
+
+    /**
+     * The ids of the colors referenced by the shapes of the pages copied from the previous
+     * serialization.
+     */
+    protected Set<String> copiedShapeColorIds;
+
+    /**
+     * The fonts of the previous serialization, per id.
+     */
+    protected Map<String, Font> previousFonts;
+
+    /**
+     * The colors of the previous serialization, per id.
+     */
+    protected Map<String, Color> previousColors;
+
+    /**
+     * Creates a new traversal.
+     *
+     * @param options       The options that control the serialization.
+     * @param changedPages  The pages that were changed since the previous serialization.
+     * @param previous      The previous serialization.
+     * @param previousIndex The index of the previous serialization.
+     */
+    protected IncrementalTraversal(SerializationOptions options, Collection<Page> changedPages,
+            byte[] previous, SerializationIndex previousIndex) {
+      super(options);
+      this.changedPages = Collections.newSetFromMap(new IdentityHashMap<>());
+      this.changedPages.addAll(changedPages);
+      this.previous = previous;
+      this.previousIndex = previousIndex;
+      this.isCharacterIndexUnchanged = new IdentityHashMap<>();
+      this.copiedFontIds = new HashSet<>();
+      this.copiedCharacterColorIds = new HashSet<>();
+      this.copiedShapeColorIds = new HashSet<>();
+      this.previousFonts = new HashMap<>();
+      this.previousColors = new HashMap<>();
+    }
+
+    @Override
+    public void start(Document doc) throws IOException {
+      this.isPatching = true;
+      for (DocumentEventHandler handler : this.handlers) {
+        this.isPatching &= handler instanceof FragmentHandler;
+        this.isPatching &= !isEmitting(handler, ElementClass.PARAGRAPHS);
+      }
+      this.isPatching &= doc != null && isNumberingUnchanged(doc);
+      this.copiedFontIds.clear();
+      this.copiedCharacterColorIds.clear();
+      this.copiedShapeColorIds.clear();
+      if (this.isPatching) {
+        this.isPatching = readPreviousDictionaries();
+      }
+      this.isCharacterIndexUnchanged.clear();
+
+      // Compute per page whether the characters of the changed pages before the page shift the
+      // indices of its characters.
+      if (this.isPatching) {
+        boolean isUnchanged = true;
+        for (Page page : doc.getPages()) {
+          if (page == null) {
+            continue;
+          }
+          this.isCharacterIndexUnchanged.put(page, isUnchanged);
+          if (isUnchanged && this.changedPages.contains(page)) {
+            int numCharacters = this.previousIndex.getPageCount(CHARACTERS, page.getPageNumber());
+            isUnchanged = numCharacters >= 0 && numCharacters == countCharacters(page);
+          }
+        }
+      }
+      super.start(doc);
+    }
+
+    @Override
+    protected void traverse(Page page, ElementClass clazz, List<DocumentEventHandler> handlers)
+            throws IOException, SerializationAbortedException {
+      if (!this.isPatching || !isReusable(page, clazz)) {
+        super.traverse(page, clazz, handlers);
+        return;
+      }
+
+      String section = DocumentSerializerConstants.getSectionName(clazz);
+      int numElements = this.previousIndex.getPageCount(section, page.getPageNumber());
+      if (numElements >= 0 && this.tileSize <= 0) {
+        // Take the number of elements and the referenced fonts and colors from the index of the
+        // previous serialization instead of visiting the elements.
+        this.numPageElements = numElements;
+        this.numSectionElements += numElements;
+        copyDictionaries(page, clazz);
+      } else {
+        // Visit the elements without emitting them, to count them, to collect fonts and colors
+        // and to index them spatially.
+        super.traverse(page, clazz, Collections.emptyList());
+      }
+
+      ByteRange range = this.previousIndex.getPageRange(section, page.getPageNumber());
+      if (range != null) {
+        String hash = this.previousIndex.getPageHash(section, page.getPageNumber());
+        for (DocumentEventHandler handler : handlers) {
+          ((FragmentHandler) handler).fragment(this.previous, range, hash);
+        }
+      }
+    }
+
+    @Override
+    protected void collectDictionaries(Page page) {
+      if (!this.isPatching || !isReusable(page, ElementClass.CHARACTERS)) {
+        super.collectDictionaries(page);
+        return;
+      }
+      if (this.clazzes.contains(ElementClass.CHARACTERS)) {
+        copyDictionaries(page, ElementClass.CHARACTERS);
+      }
+      if (this.clazzes.contains(ElementClass.SHAPES)) {
+        copyDictionaries(page, ElementClass.SHAPES);
+      }
+    }
+
+    @Override
+    protected int countCharacters(Page page) {
+      // The characters of the unchanged pages are counted by the index of the previous
+      // serialization.
+      if (this.isPatching && !this.changedPages.contains(page)) {
+        int numCharacters = this.previousIndex.getPageCount(CHARACTERS, page.getPageNumber());
+        if (numCharacters >= 0) {
+          return numCharacters;
+        }
+      }
+      return super.countCharacters(page);
+    }
+
+    @Override
+    public Set<Font> getUsedFonts(DocumentEventHandler handler) {
+      Set<Font> fonts = super.getUsedFonts(handler);
+      if (this.copiedFontIds.isEmpty() || !getClazzes(handler).contains(ElementClass.CHARACTERS)) {
+        return fonts;
+      }
+      Set<String> fontIds = new HashSet<>();
+      for (Font font : fonts) {
+        fontIds.add(font.getId());
+      }
+      Set<Font> result = new HashSet<>(fonts);
+      for (String fontId : this.copiedFontIds) {
+        Font font = this.previousFonts.get(fontId);
+        if (font != null && !fontIds.contains(fontId)) {
+          result.add(font);
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public Set<Color> getUsedColors(DocumentEventHandler handler) {
+      Set<Color> colors = super.getUsedColors(handler);
+      Collection<ElementClass> clazzes = getClazzes(handler);
+      Set<String> copiedColorIds = new HashSet<>();
+      if (clazzes.contains(ElementClass.CHARACTERS)) {
+        copiedColorIds.addAll(this.copiedCharacterColorIds);
+      }
+      if (clazzes.contains(ElementClass.SHAPES)) {
+        copiedColorIds.addAll(this.copiedShapeColorIds);
+      }
+      Set<String> colorIds = new HashSet<>();
+      for (Color color : colors) {
+        colorIds.add(color.getId());
+      }
+      for (String colorId : copiedColorIds) {
+        Color color = this.previousColors.get(colorId);
+        if (color != null && !colorIds.contains(colorId)) {
+          colors.add(color);
+        }
+      }
+      return colors;
+    }
+
+    /**
+     * Adds the ids of the fonts and colors referenced by the elements of the given type of the
+     * given page, as recorded in the index of the previous serialization, to the fonts and colors
+     * of the current page and of the copied pages.
+     *
+     * @param page  The page.
+     * @param clazz The type of the elements.
+     */
+    protected void copyDictionaries(Page page, ElementClass clazz) {
+      String section = DocumentSerializerConstants.getSectionName(clazz);
+      List<String> fontIds = this.previousIndex.getPageFonts(section, page.getPageNumber());
+      List<String> colorIds = this.previousIndex.getPageColors(section, page.getPageNumber());
+      this.pageFontIds.addAll(fontIds);
+      this.pageColorIds.addAll(colorIds);
+      if (clazz == ElementClass.CHARACTERS) {
+        this.copiedFontIds.addAll(fontIds);
+        this.copiedCharacterColorIds.addAll(colorIds);
+      } else if (clazz == ElementClass.SHAPES) {
+        this.copiedShapeColorIds.addAll(colorIds);
+      }
+    }
+
+    /**
+     * Checks if the given document has the same page numbers, in the same order, as the previous
+     * serialization, that is: if no pages were inserted into or removed from the document.
+     *
+     * @param doc The document.
+     *
+     * @return True if the numbering of the pages is unchanged, false otherwise.
+     */
+    protected boolean isNumberingUnchanged(Document doc) {
+      Iterator<Integer> previousPageNumbers =
+              this.previousIndex.getPageRanges(PAGES).keySet().iterator();
+      for (Page page : doc.getPages()) {
+        if (page == null) {
+          continue;
+        }
+        if (!previousPageNumbers.hasNext() || previousPageNumbers.next() != page.getPageNumber()) {
+          return false;
+        }
+      }
+      return !previousPageNumbers.hasNext();
+    }
+
+    /**
+     * Reads the fonts and colors of the previous serialization from its fonts and colors sections
+     * (and, in the compact schema, its schema header), without scanning the elements.
+     *
+     * @return True if the fonts and colors could be read, false otherwise.
+     */
+    protected boolean readPreviousDictionaries() {
+      this.previousFonts.clear();
+      this.previousColors.clear();
+
+      Charset encoding = Charset.forName(DEFAULT_ENCODING);
+      boolean isJson = this.previousIndex.getFormat() != SerializationFormat.XML;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] start = (isJson ? "{" : "<" + DOCUMENT + ">").getBytes(encoding);
+      out.write(start, 0, start.length);
+      boolean isFirstSection = true;
+      for (String section : new String[] { SCHEMA, FONTS, COLORS }) {
+        ByteRange range = this.previousIndex.getSectionRange(section);
+        if (range == null) {
+          continue;
+        }
+        if (range.getOffset() < 0 || range.getOffset() + range.getLength() > this.previous.length) {
+          return false;
+        }
+        if (isJson && !isFirstSection) {
+          out.write(',');
+        }
+        isFirstSection = false;
+        out.write(this.previous, (int) range.getOffset(), (int) range.getLength());
+      }
+      byte[] end = (isJson ? "}" : "</" + DOCUMENT + ">").getBytes(encoding);
+      out.write(end, 0, end.length);
+
+      try {
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        if (isJson) {
+          JsonDocumentDeserializer deserializer = new JsonDocumentDeserializer();
+          deserializer.deserialize(in);
+          this.previousFonts.putAll(deserializer.fonts);
+          this.previousColors.putAll(deserializer.colors);
+        } else {
+          XmlDocumentDeserializer deserializer = new XmlDocumentDeserializer();
+          deserializer.deserialize(in);
+          this.previousFonts.putAll(deserializer.fonts);
+          this.previousColors.putAll(deserializer.colors);
+        }
+      } catch (DeserializerException e) {
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Checks if the serialization of the elements of the given type of the given page can be
+     * copied from the previous serialization.
+     *
+     * @param page  The page.
+     * @param clazz The type of the elements.
+     *
+     * @return True if the serialization can be copied, false otherwise.
+     */
+    protected boolean isReusable(Page page, ElementClass clazz) {
+      if (this.changedPages.contains(page)) {
+        return false;
+      }
+      switch (clazz) {
+        case WORDS:
+        case TEXT_LINES:
+        case TEXT_BLOCKS:
+          return Boolean.TRUE.equals(this.isCharacterIndexUnchanged.get(page));
+        default:
+          return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,642 @@
+package textextraction.serializer;
+
+import static textextraction.serializer.DocumentSerializerConstants.B;
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTER;
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
+import static textextraction.serializer.DocumentSerializerConstants.COLOR;
+import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
+import static textextraction.serializer.DocumentSerializerConstants.FIGURE;
+import static textextraction.serializer.DocumentSerializerConstants.FIGURES;
+import static textextraction.serializer.DocumentSerializerConstants.FONT;
+import static textextraction.serializer.DocumentSerializerConstants.FONTS;
+import static textextraction.serializer.DocumentSerializerConstants.FONTSIZE;
+import static textextraction.serializer.DocumentSerializerConstants.FROM;
+import static textextraction.serializer.DocumentSerializerConstants.G;
+import static textextraction.serializer.DocumentSerializerConstants.HEIGHT;
+import static textextraction.serializer.DocumentSerializerConstants.ID;
+import static textextraction.serializer.DocumentSerializerConstants.IS_BOLD;
+import static textextraction.serializer.DocumentSerializerConstants.IS_ITALIC;
+import static textextraction.serializer.DocumentSerializerConstants.MAX_X;
+import static textextraction.serializer.DocumentSerializerConstants.MAX_Y;
+import static textextraction.serializer.DocumentSerializerConstants.MIN_X;
+import static textextraction.serializer.DocumentSerializerConstants.MIN_Y;
+import static textextraction.serializer.DocumentSerializerConstants.NAME;
+import static textextraction.serializer.DocumentSerializerConstants.PAGE;
+import static textextraction.serializer.DocumentSerializerConstants.PAGES;
+import static textextraction.serializer.DocumentSerializerConstants.POSITION;
+import static textextraction.serializer.DocumentSerializerConstants.R;
+import static textextraction.serializer.DocumentSerializerConstants.SCHEMA;
+import static textextraction.serializer.DocumentSerializerConstants.SHAPE;
+import static textextraction.serializer.DocumentSerializerConstants.SHAPES;
+import static textextraction.serializer.DocumentSerializerConstants.STYLE;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT;
+import static textextraction.serializer.DocumentSerializerConstants.TO;
+import static textextraction.serializer.DocumentSerializerConstants.WIDTH;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+import textextraction.common.models.Shape;
+import textextraction.serializer.exception.DeserializerException;
+
+/**
+ * A deserializer to read a document serialized in JSON format (by {@link JsonDocumentSerializer})
+ * back into a {@link Document}.
+ *
+ * <p>
+ * The input is read in a streaming fashion: the JSON structure is pulled token by token from the
+ * input and only a single element (a character, a figure, a shape, ...) is materialized as JSON
+ * object at a time. Font, color and page references are resolved via placeholder objects that are
+ * shared by all referencing elements and completed when the fonts, colors and pages sections are
+ * read. Sections without a counterpart in the document model (for example, words or paragraphs)
+ * are skipped. Style records in the characters section (see
+ * {@link textextraction.serializer.model.SerializationOptions#setEncodingStyleRuns(boolean)})
+ * define the font face and color of the following characters.
+ *
+ * <p>
+ * Both the default schema and the compact schema (see
+ * {@link textextraction.serializer.model.SerializationOptions#setUsingCompactSchema(boolean)})
+ * are read: the arrays of field values of the compact schema are converted, by the field names in
+ * the schema header, to the objects of the respective elements in the default schema (for
+ * example, the value of the field "minX" of a character to "position"/"minX"), so that the
+ * elements of both schemas are deserialized by the same methods.
+ *
+ * @author Claudius Korzen
+ */
+public class JsonDocumentDeserializer {
+  /**
+   * The keys of the fields in the objects of the default schema, per name of a field in the
+   * compact schema. Fields not contained in the map have the key of their name.
+   */
+  protected static final Map<String, String[]> FIELD_PATHS = new HashMap<>();
+
+  static {
+    FIELD_PATHS.put(PAGE, new String[] { POSITION, PAGE });
+    FIELD_PATHS.put(MIN_X, new String[] { POSITION, MIN_X });
+    FIELD_PATHS.put(MIN_Y, new String[] { POSITION, MIN_Y });
+    FIELD_PATHS.put(MAX_X, new String[] { POSITION, MAX_X });
+    FIELD_PATHS.put(MAX_Y, new String[] { POSITION, MAX_Y });
+    FIELD_PATHS.put(FONT, new String[] { FONT, ID });
+    FIELD_PATHS.put(FONTSIZE, new String[] { FONT, FONTSIZE });
+    FIELD_PATHS.put(COLOR, new String[] { COLOR, ID });
+    FIELD_PATHS.put(FROM, new String[] { CHARACTERS, FROM });
+    FIELD_PATHS.put(TO, new String[] { CHARACTERS, TO });
+  }
+
+  /**
+   * The fonts referenced by the elements read so far, per font id.
+   */
+  protected Map<String, Font> fonts;
+
+  /**
+   * The colors referenced by the elements read so far, per color id.
+   */
+  protected Map<String, Color> colors;
+
+  /**
+   * The pages referenced by the elements read so far, per page number.
+   */
+  protected Map<Integer, Page> pages;
+
+  /**
+   * The font of the current style run, or null if there is none.
+   */
+  protected Font styleFont;
+
+  /**
+   * The font size of the current style run.
+   */
+  protected float styleFontSize;
+
+  /**
+   * The color of the current style run, or null if there is none.
+   */
+  protected Color styleColor;
+
+  /**
+   * The names of the fields per type of records in the compact schema, as read from the schema
+   * header; empty if the serialization is in the default schema.
+   */
+  protected Map<String, List<String>> schema;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new deserializer that reads a document serialized in JSON format.
+   */
+  public JsonDocumentDeserializer() {
+    this.fonts = new HashMap<>();
+    this.colors = new HashMap<>();
+    this.pages = new TreeMap<>();
+    this.schema = new HashMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Reads a document serialized in JSON format from the given stream.
+   *
+   * @param in The stream to read from.
+   *
+   * @return The deserialized document.
+   *
+   * @throws DeserializerException If something went wrong on deserializing the document.
+   */
+  public Document deserialize(InputStream in) throws DeserializerException {
+    if (in == null) {
+      return null;
+    }
+
+    try {
+      JSONTokener tokener = new JSONTokener(new InputStreamReader(in, DEFAULT_ENCODING));
+
+      expect(tokener, '{');
+      char c = tokener.nextClean();
+      if (c != '}') {
+        tokener.back();
+        do {
+          String key = nextKey(tokener);
+          switch (key) {
+            case SCHEMA:
+              deserializeSchema(tokener.nextValue());
+              break;
+            case CHARACTERS:
+              readArray(tokener, CHARACTER, this::deserializeCharacter);
+              break;
+            case FIGURES:
+              readArray(tokener, FIGURE, this::deserializeFigure);
+              break;
+            case SHAPES:
+              readArray(tokener, SHAPE, this::deserializeShape);
+              break;
+            case FONTS:
+              readArray(tokener, this::deserializeFont);
+              break;
+            case COLORS:
+              readArray(tokener, this::deserializeColor);
+              break;
+            case PAGES:
+              readArray(tokener, this::deserializePage);
+              break;
+            default:
+              skipValue(tokener);
+              break;
+          }
+          c = tokener.nextClean();
+        } while (c == ',');
+        if (c != '}') {
+          throw tokener.syntaxError("Expected ',' or '}'");
+        }
+      }
+    } catch (JSONException | UnsupportedEncodingException e) {
+      throw new DeserializerException("Couldn't deserialize the document.", e);
+    }
+
+    // Add the pages in the order of their page numbers.
+    Document doc = new Document();
+    for (Page page : this.pages.values()) {
+      doc.addPage(page);
+    }
+    return doc;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes the given character and adds it to its page. If the given JSON object is a style
+   * record, the style of the following characters is deserialized instead.
+   *
+   * @param json The JSON object representing the character or the style record.
+   */
+  protected void deserializeCharacter(JSONObject json) {
+    JSONObject styleJson = json.optJSONObject(STYLE);
+    if (styleJson != null) {
+      deserializeStyle(styleJson);
+      return;
+    }
+    JSONArray styleValues = json.optJSONArray(STYLE);
+    if (styleValues != null) {
+      deserializeStyle(toObject(STYLE, styleValues));
+      return;
+    }
+
+    JSONObject charJson = json.optJSONObject(CHARACTER);
+    if (charJson == null) {
+      return;
+    }
+
+    Character character = new Character();
+
+    // Deserialize the position.
+    Position position = deserializePosition(charJson.optJSONObject(POSITION));
+    character.setPosition(position);
+
+    // Deserialize the font face (or take it from the current style run).
+    JSONObject fontJson = charJson.optJSONObject(FONT);
+    if (fontJson != null) {
+      String fontId = fontJson.optString(ID, null);
+      if (fontId != null) {
+        float size = fontJson.optFloat(FONTSIZE, 0);
+        character.setFontFace(new FontFace(getFont(fontId), size));
+      }
+    } else if (this.styleFont != null) {
+      character.setFontFace(new FontFace(this.styleFont, this.styleFontSize));
+    }
+
+    // Deserialize the color (or take it from the current style run).
+    JSONObject colorJson = charJson.optJSONObject(COLOR);
+    if (colorJson != null) {
+      String colorId = colorJson.optString(ID, null);
+      if (colorId != null) {
+        character.setColor(getColor(colorId));
+      }
+    } else if (this.styleColor != null) {
+      character.setColor(this.styleColor);
+    }
+
+    // Deserialize the text.
+    character.setText(charJson.optString(TEXT, null));
+
+    if (position != null) {
+      position.getPage().addCharacter(character);
+    }
+  }
+
+  /**
+   * Deserializes the given style record, which defines the font face and the color of the
+   * following characters.
+   *
+   * @param styleJson The JSON object representing the style.
+   */
+  protected void deserializeStyle(JSONObject styleJson) {
+    this.styleFont = null;
+    this.styleFontSize = 0;
+    this.styleColor = null;
+
+    JSONObject fontJson = styleJson.optJSONObject(FONT);
+    if (fontJson != null) {
+      String fontId = fontJson.optString(ID, null);
+      if (fontId != null) {
+        this.styleFont = getFont(fontId);
+        this.styleFontSize = fontJson.optFloat(FONTSIZE, 0);
+      }
+    }
+
+    JSONObject colorJson = styleJson.optJSONObject(COLOR);
+    if (colorJson != null) {
+      String colorId = colorJson.optString(ID, null);
+      if (colorId != null) {
+        this.styleColor = getColor(colorId);
+      }
+    }
+  }
+
+  /**
+   * Deserializes the given figure and adds it to its page.
+   *
+   * @param json The JSON object representing the figure.
+   */
+  protected void deserializeFigure(JSONObject json) {
+    JSONObject figureJson = json.optJSONObject(FIGURE);
+    if (figureJson == null) {
+      return;
+    }
+
+    Figure figure = new Figure();
+
+    // Deserialize the position.
+    Position position = deserializePosition(figureJson.optJSONObject(POSITION));
+    figure.setPosition(position);
+
+    if (position != null) {
+      position.getPage().addFigure(figure);
+    }
+  }
+
+  /**
+   * Deserializes the given shape and adds it to its page.
+   *
+   * @param json The JSON object representing the shape.
+   */
+  protected void deserializeShape(JSONObject json) {
+    JSONObject shapeJson = json.optJSONObject(SHAPE);
+    if (shapeJson == null) {
+      return;
+    }
+
+    Shape shape = new Shape();
+
+    // Deserialize the position.
+    Position position = deserializePosition(shapeJson.optJSONObject(POSITION));
+    shape.setPosition(position);
+
+    // Deserialize the color.
+    JSONObject colorJson = shapeJson.optJSONObject(COLOR);
+    if (colorJson != null) {
+      String colorId = colorJson.optString(ID, null);
+      if (colorId != null) {
+        shape.setColor(getColor(colorId));
+      }
+    }
+
+    if (position != null) {
+      position.getPage().addShape(shape);
+    }
+  }
+
+  /**
+   * Deserializes the given position.
+   *
+   * @param json The JSON object representing the position.
+   *
+   * @return The deserialized position, or null if the given object doesn't describe a position.
+   */
+  protected Position deserializePosition(JSONObject json) {
+    if (json == null || !json.has(PAGE)) {
+      return null;
+    }
+
+    Page page = getPage(json.getInt(PAGE));
+    Rectangle rect = new Rectangle(json.getFloat(MIN_X), json.getFloat(MIN_Y),
+            json.getFloat(MAX_X), json.getFloat(MAX_Y));
+    return new Position(page, rect);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes the given font and completes the font with the respective id.
+   *
+   * @param json The JSON object representing the font.
+   */
+  protected void deserializeFont(JSONObject json) {
+    String fontId = json.optString(ID, null);
+    if (fontId == null) {
+      return;
+    }
+
+    Font font = getFont(fontId);
+    font.setName(json.optString(NAME, null));
+    font.setIsBold(json.optBoolean(IS_BOLD));
+    font.setIsItalic(json.optBoolean(IS_ITALIC));
+  }
+
+  /**
+   * Deserializes the given color and completes the color with the respective id.
+   *
+   * @param json The JSON object representing the color.
+   */
+  protected void deserializeColor(JSONObject json) {
+    String colorId = json.optString(ID, null);
+    if (colorId == null) {
+      return;
+    }
+
+    Color color = getColor(colorId);
+    color.setRgb(new int[] { json.optInt(R), json.optInt(G), json.optInt(B) });
+  }
+
+  /**
+   * Deserializes the given page metadata and completes the page with the respective number.
+   *
+   * @param json The JSON object representing the page.
+   */
+  protected void deserializePage(JSONObject json) {
+    if (!json.has(ID)) {
+      return;
+    }
+
+    Page page = getPage(json.getInt(ID));
+    page.setWidth(json.optFloat(WIDTH, 0));
+    page.setHeight(json.optFloat(HEIGHT, 0));
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the font with the given id, creating a placeholder on the first reference.
+   *
+   * @param fontId The id of the font.
+   *
+   * @return The font with the given id.
+   */
+  protected Font getFont(String fontId) {
+    Font font = this.fonts.get(fontId);
+    if (font == null) {
+      font = new Font();
+      font.setId(fontId);
+      this.fonts.put(fontId, font);
+    }
+    return font;
+  }
+
+  /**
+   * Returns the color with the given id, creating a placeholder on the first reference.
+   *
+   * @param colorId The id of the color.
+   *
+   * @return The color with the given id.
+   */
+  protected Color getColor(String colorId) {
+    Color color = this.colors.get(colorId);
+    if (color == null) {
+      color = new Color();
+      color.setId(colorId);
+      this.colors.put(colorId, color);
+    }
+    return color;
+  }
+
+  /**
+   * Returns the page with the given number, creating a placeholder on the first reference.
+   *
+   * @param pageNumber The number of the page.
+   *
+   * @return The page with the given number.
+   */
+  protected Page getPage(int pageNumber) {
+    Page page = this.pages.get(pageNumber);
+    if (page == null) {
+      page = new Page();
+      page.setPageNumber(pageNumber);
+      this.pages.put(pageNumber, page);
+    }
+    return page;
+  }
+
+  // ==============================================================================================
+  // Methods to read the compact schema.
+
+  /**
+   * Deserializes the given schema header, which defines the names of the fields per type of
+   * records in the compact schema.
+   *
+   * @param value The value of the schema header.
+   */
+  protected void deserializeSchema(Object value) {
+    if (!(value instanceof JSONObject)) {
+      return;
+    }
+    JSONObject json = (JSONObject) value;
+    for (String record : json.keySet()) {
+      JSONArray names = json.optJSONArray(record);
+      if (names != null) {
+        List<String> fields = new ArrayList<>(names.length());
+        for (int i = 0; i < names.length(); i++) {
+          fields.add(names.getString(i));
+        }
+        this.schema.put(record, fields);
+      }
+    }
+  }
+
+  /**
+   * Converts the given array of field values of a record in the compact schema to the object of
+   * the record in the default schema, for example {@code [1, 10.0, ...]} to
+   * {@code {"position": {"page": 1, "minX": 10.0, ...}}}. Null values are omitted.
+   *
+   * @param record The type of the record.
+   * @param values The field values of the record.
+   *
+   * @return The object of the record (without the key of its type).
+   */
+  protected JSONObject toObject(String record, JSONArray values) {
+    JSONObject json = new JSONObject();
+    List<String> fields = this.schema.get(record);
+    if (fields == null) {
+      return json;
+    }
+
+    for (int i = 0; i < fields.size() && i < values.length(); i++) {
+      if (values.isNull(i)) {
+        continue;
+      }
+      String field = fields.get(i);
+      String[] path = FIELD_PATHS.get(field);
+      if (path == null) {
+        json.put(field, values.get(i));
+        continue;
+      }
+      JSONObject parent = json.optJSONObject(path[0]);
+      if (parent == null) {
+        parent = new JSONObject();
+        json.put(path[0], parent);
+      }
+      parent.put(path[1], values.get(i));
+    }
+    return json;
+  }
+
+  // ==============================================================================================
+  // Methods to pull the JSON structure from the tokener.
+
+  /**
+   * Reads the next key of an object, including the following ':'.
+   *
+   * @param tokener The tokener to read from.
+   *
+   * @return The key.
+   */
+  protected String nextKey(JSONTokener tokener) {
+    Object key = tokener.nextValue();
+    if (!(key instanceof String)) {
+      throw tokener.syntaxError("Expected a key");
+    }
+    expect(tokener, ':');
+    return (String) key;
+  }
+
+  /**
+   * Reads an array element by element and passes each element that is an object to the given
+   * consumer. Only one element is held in memory at a time.
+   *
+   * @param tokener  The tokener to read from.
+   * @param consumer The consumer of the elements.
+   */
+  protected void readArray(JSONTokener tokener, Consumer<JSONObject> consumer) {
+    readArray(tokener, null, consumer);
+  }
+
+  /**
+   * Reads an array element by element and passes each element that is an object to the given
+   * consumer. Elements that are arrays (records in the compact schema) are converted to the
+   * objects of the given type of records first (see {@link #toObject(String, JSONArray)}). Only
+   * one element is held in memory at a time.
+   *
+   * @param tokener  The tokener to read from.
+   * @param record   The type of the records in the array, or null if the array contains no
+   *                 records in the compact schema.
+   * @param consumer The consumer of the elements.
+   */
+  protected void readArray(JSONTokener tokener, String record, Consumer<JSONObject> consumer) {
+    expect(tokener, '[');
+    char c = tokener.nextClean();
+    if (c == ']') {
+      return;
+    }
+    tokener.back();
+    do {
+      Object value = tokener.nextValue();
+      if (value instanceof JSONObject) {
+        consumer.accept((JSONObject) value);
+      } else if (value instanceof JSONArray && record != null) {
+        consumer.accept(new JSONObject().put(record, toObject(record, (JSONArray) value)));
+      }
+      c = tokener.nextClean();
+    } while (c == ',');
+    if (c != ']') {
+      throw tokener.syntaxError("Expected ',' or ']'");
+    }
+  }
+
+  /**
+   * Skips the next value. Arrays are skipped element by element.
+   *
+   * @param tokener The tokener to read from.
+   */
+  protected void skipValue(JSONTokener tokener) {
+    char c = tokener.nextClean();
+    tokener.back();
+    if (c == '[') {
+      readArray(tokener, element -> { });
+    } else {
+      tokener.nextValue();
+    }
+  }
+
+  /**
+   * Reads the next non-whitespace character and checks that it is equal to the given character.
+   *
+   * @param tokener  The tokener to read from.
+   * @param expected The expected character.
+   */
+  protected void expect(JSONTokener tokener, char expected) {
+    char c = tokener.nextClean();
+    if (c != expected) {
+      throw tokener.syntaxError("Expected '" + expected + "'");
+    }
+  }
+}
@@ -5,13 +5,16 @@ import static textextraction.serializer.DocumentSerializerConstants.CHARACTER;
 import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
 import static textextraction.serializer.DocumentSerializerConstants.COLOR;
 import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.COLUMNS;
 import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
 import static textextraction.serializer.DocumentSerializerConstants.FIGURE;
 import static textextraction.serializer.DocumentSerializerConstants.FIGURES;
 import static textextraction.serializer.DocumentSerializerConstants.FONT;
 import static textextraction.serializer.DocumentSerializerConstants.FONTS;
 import static textextraction.serializer.DocumentSerializerConstants.FONTSIZE;
+import static textextraction.serializer.DocumentSerializerConstants.FROM;
 import static textextraction.serializer.DocumentSerializerConstants.G;
+import static textextraction.serializer.DocumentSerializerConstants.HASH;
 import static textextraction.serializer.DocumentSerializerConstants.HEIGHT;
 import static textextraction.serializer.DocumentSerializerConstants.ID;
 import static textextraction.serializer.DocumentSerializerConstants.IS_BOLD;
@@ -23,20 +26,41 @@ import static textextraction.serializer.DocumentSerializerConstants.MIN_Y;
 import static textextraction.serializer.DocumentSerializerConstants.NAME;
 import static textextraction.serializer.DocumentSerializerConstants.PAGE;
 import static textextraction.serializer.DocumentSerializerConstants.PAGES;
+import static textextraction.serializer.DocumentSerializerConstants.PARAGRAPH;
+import static textextraction.serializer.DocumentSerializerConstants.PARAGRAPHS;
 import static textextraction.serializer.DocumentSerializerConstants.POSITION;
+import static textextraction.serializer.DocumentSerializerConstants.POSITIONS;
 import static textextraction.serializer.DocumentSerializerConstants.R;
+import static textextraction.serializer.DocumentSerializerConstants.ROLE;
+import static textextraction.serializer.DocumentSerializerConstants.ROWS;
+import static textextraction.serializer.DocumentSerializerConstants.SCHEMA;
 import static textextraction.serializer.DocumentSerializerConstants.SHAPE;
 import static textextraction.serializer.DocumentSerializerConstants.SHAPES;
+import static textextraction.serializer.DocumentSerializerConstants.STYLE;
 import static textextraction.serializer.DocumentSerializerConstants.TEXT;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_BLOCK;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_BLOCKS;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_LINE;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_LINES;
+import static textextraction.serializer.DocumentSerializerConstants.TILES;
+import static textextraction.serializer.DocumentSerializerConstants.TILE_SIZE;
+import static textextraction.serializer.DocumentSerializerConstants.TO;
 import static textextraction.serializer.DocumentSerializerConstants.WIDTH;
-
-import java.io.UnsupportedEncodingException;
+import static textextraction.serializer.DocumentSerializerConstants.WORD;
+import static textextraction.serializer.DocumentSerializerConstants.WORDS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import textextraction.common.models.Character;
@@ -47,32 +71,239 @@ import textextraction.common.models.Figure;
 import textextraction.common.models.Font;
 import textextraction.common.models.FontFace;
 import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
 import textextraction.common.models.Position;
 import textextraction.common.models.Rectangle;
+import textextraction.common.models.SemanticRole;
 import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
 import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.jfr.SectionSerializationEvent;
+import textextraction.serializer.model.ByteRange;
+import textextraction.serializer.model.ElementField;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.FieldProjection;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+import textextraction.serializer.model.TileIndex;
 
 
 /**
  * A serializer to serialize a document in JSON format.
  *
+ * <p>
+ * The serialization is written incrementally to an output stream: the top-level sections are
+ * indented by {@link #INDENT_LENGTH}, each element of a section is written in compact form on a
+ * line of its own. While writing, the byte ranges of the sections and of the elements of each
+ * page are recorded in a {@link SerializationIndex}. The elements are written as events of a
+ * {@link DocumentTraversal}, so that the serializer can share a traversal with the serializers of
+ * other formats.
+ *
+ * <p>
+ * If style runs are enabled (see {@link SerializationOptions#setEncodingStyleRuns(boolean)}), the
+ * font faces and colors of the characters are written as style records into the characters
+ * section, one per run of characters with the same font face and color.
+ *
+ * <p>
+ * If the compact schema is enabled (see
+ * {@link SerializationOptions#setUsingCompactSchema(boolean)}), each element is written as an
+ * array of its field values in a fixed order, for example
+ * {@code [page, minX, minY, maxX, maxY, font, font-size, color, text]} for a character, with null
+ * for a missing value. The field names per type of elements are written once, in the schema
+ * header (the first key of the top-level object). Style records are written as
+ * {@code {"style": [...]}}, so that they can be told apart from the characters. The fonts, colors
+ * and pages are written as objects in both schemas.
+ *
+ * <p>
+ * If content hashes are enabled (see
+ * {@link SerializationOptions#setComputingContentHashes(boolean)}), the hashes of the pages and of
+ * the document are computed by a {@link ContentHasher} (the hashes of the pages from the
+ * serialized elements, the hash of the document from the written bytes) and recorded in the index,
+ * before the pages section is written. If they are embedded, the hash of each page is
+ * written into its record in the pages section and the hash of the document is written as the last
+ * key of the top-level object.
+ *
  * @author Claudius Korzen
  */
-public class JsonDocumentSerializer {
+public class JsonDocumentSerializer implements FragmentHandler {
   /**
    * The indentation length.
    */
   protected static final int INDENT_LENGTH = 2;
 
   /**
-   * The fonts of the document elements which were in fact serialized.
+   * The indentations of the most used levels, so that they are not built anew per element.
+   */
+  protected static final String[] INDENTS = new String[4];
+
+  static {
+    for (int level = 0; level < INDENTS.length; level++) {
+      INDENTS[level] = spaces(level * INDENT_LENGTH);
+    }
+  }
+
+  /**
+   * The line delimiter to use on separating the sections and the elements. It does not depend on
+   * the platform, so that the bytes, the hashes and the byte ranges of a serialization do not
+   * either.
+   */
+  protected static final String LINE_DELIMITER = "\n";
+
+  /**
+   * The encoding to use on writing the serialization.
+   */
+  protected static final Charset ENCODING = Charset.forName(DEFAULT_ENCODING);
+
+  /**
+   * The quoted keys of the JSON objects, per key. The keys are a small, fixed set of names, so
+   * they are quoted only once instead of per element.
+   */
+  protected static final Map<String, String> QUOTED_KEYS = new ConcurrentHashMap<>();
+
+  /**
+   * The starts of the JSON objects that wrap the elements, per key of the elements.
+   */
+  protected static final Map<String, String> ELEMENT_PREFIXES = new ConcurrentHashMap<>();
+
+  /**
+   * The initial length of the buffer to encode the written strings.
+   */
+  protected static final int BUFFER_LENGTH = 1024;
+
+  /**
+   * The order of the ids of the fonts and colors in the serialization.
+   */
+  protected static final Comparator<String> ID_ORDER =
+          Comparator.nullsLast(Comparator.naturalOrder());
+
+  // ==============================================================================================
+
+  /**
+   * The options that control the serialization.
+   */
+  protected SerializationOptions options;
+
+  /**
+   * The projection that defines the fields to serialize per element class.
+   */
+  protected FieldProjection projection;
+
+  /**
+   * The filter that restricts the serialization to a range of pages and/or a region of the pages.
+   */
+  protected ElementFilter filter;
+
+  /**
+   * Whether to encode the font faces and colors of the characters as style runs.
+   */
+  protected boolean isEncodingStyleRuns;
+
+  /**
+   * Whether to serialize the elements in the compact schema, as arrays of their field values.
+   */
+  protected boolean isUsingCompactSchema;
+
+  /**
+   * Whether to write the fonts and colors sections before the sections of the elements.
+   */
+  protected boolean isWritingDictionariesFirst;
+
+  /**
+   * The cache of the escaped font ids, color ids and character texts.
+   */
+  protected EscapedTextCache cache;
+
+  // ==============================================================================================
+  // The state of the output.
+
+  /**
+   * The traversal that emits the elements to serialize.
+   */
+  protected DocumentTraversal traversal;
+
+  /**
+   * The stream to which the serialization is written.
+   */
+  protected OutputStream out;
+
+  /**
+   * The number of bytes written to the output stream so far.
+   */
+  protected long offset;
+
+  /**
+   * The buffer to encode the written strings, reused for all writes.
+   */
+  protected byte[] buffer;
+
+  /**
+   * The builder of the fields of the element currently serialized, reused for all elements.
+   */
+  protected StringBuilder elementJson;
+
+  /**
+   * The builder of the fields of the position currently serialized, reused for all positions.
+   */
+  protected StringBuilder positionJson;
+
+  /**
+   * The index of the byte ranges of the sections and pages written so far.
+   */
+  protected SerializationIndex index;
+
+  /**
+   * The hasher that computes the content hashes, or null if no hashes are computed.
+   */
+  protected ContentHasher hasher;
+
+  /**
+   * Whether no section was written yet.
+   */
+  protected boolean isFirstSection;
+
+  /**
+   * The name of the section currently written.
+   */
+  protected String section;
+
+  /**
+   * The offset of the section currently written.
+   */
+  protected long sectionOffset;
+
+  /**
+   * Whether no element was written yet to the current section.
+   */
+  protected boolean isFirstElement;
+
+  /**
+   * The offset of the first element of the current page, or -1 if no element of the current page
+   * was written yet.
+   */
+  protected long pageOffset;
+
+  /**
+   * Whether a style record was written for the current page yet.
+   */
+  protected boolean isStyleStarted;
+
+  /**
+   * The font of the current style run.
    */
-  protected Set<Font> usedFonts;
+  protected Font styleFont;
 
   /**
-   * The colors of the document elements which were in fact serialized.
+   * The font size of the current style run.
    */
-  protected Set<Color> usedColors;
+  protected float styleFontSize;
+
+  /**
+   * The color of the current style run.
+   */
+  protected Color styleColor;
 
   // ==============================================================================================
   // Constructors.
@@ -81,20 +312,37 @@ public class JsonDocumentSerializer {
    * Creates a new serializer that serializes a document in JSON format.
    */
   public JsonDocumentSerializer() {
-    this.usedFonts = new HashSet<>();
-    this.usedColors = new HashSet<>();
+    this(new SerializationOptions());
+  }
+
+  /**
+   * Creates a new serializer that serializes a document in JSON format.
+   *
+   * @param options The options that control the serialization.
+   */
+  public JsonDocumentSerializer(SerializationOptions options) {
+    this.options = options;
+    this.projection = options.getFieldProjection();
+    this.filter = options.getElementFilter();
+    this.isEncodingStyleRuns = options.isEncodingStyleRuns();
+    this.isUsingCompactSchema = options.isUsingCompactSchema();
+    this.isWritingDictionariesFirst = options.isWritingDictionariesFirst();
+    this.cache = new EscapedTextCache(JSONObject::quote);
+    this.buffer = new byte[BUFFER_LENGTH];
+    this.elementJson = new StringBuilder();
+    this.positionJson = new StringBuilder();
   }
 
   // ==============================================================================================
 
   /**
    * Serializes the elements with the given types of the given document in JSON format.
-   * 
+   *
    * @param doc     The document to serialize.
    * @param clazzes The types of elements to serialize from the document.
-   * 
+   *
    * @return The serialization as a byte array.
-   * 
+   *
    * @throws SerializerException If something went wrong on serializing the document.
    */
   public byte[] serialize(Document doc, Collection<ElementClass> clazzes)
@@ -103,320 +351,725 @@ public class JsonDocumentSerializer {
       return null;
     }
 
-    // The JSON object to serialize the document.
-    JSONObject json = new JSONObject();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serialize(doc, clazzes, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in JSON format and writes
+   * the serialization to the given stream.
+   *
+   * @param doc     The document to serialize.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param out     The stream to write the serialization to.
+   *
+   * @return The index of the byte ranges of the sections and pages in the serialization.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(Document doc, Collection<ElementClass> clazzes,
+          OutputStream out) throws SerializerException {
+    open(out);
+    try {
+      new DocumentTraversal(this.options).addHandler(this, clazzes).traverse(doc);
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't serialize the document.", e);
+    }
+
+    return this.index;
+  }
 
-    // Serialize the elements.
-    serializeElements(doc, json, clazzes);
+  // ==============================================================================================
 
-    // Serialize the used fonts.
-    JSONArray fontsJson = serializeFonts(this.usedFonts);
-    if (fontsJson != null && fontsJson.length() > 0) {
-      json.put(FONTS, fontsJson);
+  /**
+   * Prepares this serializer to write a serialization to the given stream.
+   *
+   * @param out The stream to write the serialization to.
+   */
+  protected void open(OutputStream out) {
+    this.out = out;
+    this.offset = 0;
+    this.index = new SerializationIndex(SerializationFormat.JSON);
+    this.hasher = this.options.isComputingContentHashes()
+            ? new ContentHasher(this.projection) : null;
+    this.cache.clear();
+    this.isFirstSection = true;
+  }
+
+  /**
+   * Returns the index of the byte ranges of the sections and pages written so far.
+   *
+   * @return The index.
+   */
+  public SerializationIndex getIndex() {
+    return this.index;
+  }
+
+  @Override
+  public long getNumBytes() {
+    return this.offset;
+  }
+
+  @Override
+  public SerializationFormat getFormat() {
+    return SerializationFormat.JSON;
+  }
+
+  // ==============================================================================================
+  // Methods to handle the events of the traversal.
+
+  @Override
+  public void startDocument(DocumentTraversal traversal) throws IOException {
+    this.traversal = traversal;
+    // Start the JSON object.
+    write("{");
+    if (this.isUsingCompactSchema) {
+      writeSchema();
     }
+    if (this.isWritingDictionariesFirst && traversal.getDocument() != null) {
+      writeDictionaries();
+    }
+  }
 
-    // Serialize the used colors.
-    JSONArray colorsJson = serializeColors(this.usedColors);
-    if (colorsJson != null && colorsJson.length() > 0) {
-      json.put(COLORS, colorsJson);
+  @Override
+  public void startSection(ElementClass clazz) throws IOException {
+    startSection(DocumentSerializerConstants.getSectionName(clazz));
+  }
+
+  @Override
+  public void startPage(Page page) {
+    startPage();
+    this.isStyleStarted = false;
+    if (this.hasher != null) {
+      this.hasher.startPage(this.traversal, this, this.section, page);
     }
+  }
 
-    // Serialize the metadata of the pages.
-    JSONArray pagesJson = serializePages(doc.getPages());
-    if (pagesJson != null && pagesJson.length() > 0) {
-      json.put(PAGES, pagesJson);
+  @Override
+  public void character(Character character) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.character(character);
     }
+    if (this.isEncodingStyleRuns && isStyleChanged(character)) {
+      writeElement(serializeStyle(character));
+    }
+    writeElement(serializeCharacter(character));
+  }
 
-    try {
-      // Serialize the JSON object.
-      return json.toString(INDENT_LENGTH).getBytes(DEFAULT_ENCODING);
-    } catch (UnsupportedEncodingException e) {
-      throw new SerializerException("Couldn't serialize the document.", e);
+  @Override
+  public void word(Word word) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.word(word);
     }
+    writeElement(serializeWord(this.traversal.getDocument(), word));
   }
 
-  // ==============================================================================================
+  @Override
+  public void textLine(TextLine line) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.textLine(line);
+    }
+    writeElement(serializeTextLine(this.traversal.getDocument(), line));
+  }
 
-  /**
-   * Serializes the document elements of the given types and writes them to the given JSON object.
-   * 
-   * @param doc     The document to process.
-   * @param json    The JSON object to write the serialization to.
-   * @param clazzes The types of elements to serialize.
-   */
-  public void serializeElements(Document doc, JSONObject json, Collection<ElementClass> clazzes) {
-    for (ElementClass clazz : clazzes) {
-      switch (clazz) {
-        case CHARACTERS:
-          serializeCharacters(doc, json);
-          break;
-        case FIGURES:
-          serializeFigures(doc, json);
-          break;
-        case SHAPES:
-          serializeShapes(doc, json);
-          break;
-        default:
-          break;
-      }
+  @Override
+  public void textBlock(TextBlock block) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.textBlock(block);
     }
+    writeElement(serializeTextBlock(this.traversal.getDocument(), block));
   }
 
-  // ==============================================================================================
+  @Override
+  public void paragraph(Paragraph paragraph) throws IOException {
+    writeElement(serializeParagraph(this.traversal.getDocument(), paragraph));
+  }
 
-  /**
-   * Serializes the characters of the given document and writes them to the given JSON object.
-   * 
-   * @param doc  The document to process.
-   * @param json The JSON object to write the serialization to.
-   */
-  protected void serializeCharacters(Document doc, JSONObject json) {
-    JSONArray result = new JSONArray();
+  @Override
+  public void figure(Figure figure) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.figure(figure);
+    }
+    writeElement(serializeFigure(figure));
+  }
+
+  @Override
+  public void shape(Shape shape) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.shape(shape);
+    }
+    writeElement(serializeShape(shape));
+  }
 
+  @Override
+  public void endSection(ElementClass clazz) throws IOException {
+    endSection();
+  }
+
+  @Override
+  public void endDocument() throws IOException {
+    Document doc = this.traversal.getDocument();
     if (doc != null) {
-      for (Page page : doc.getPages()) {
-        for (Character character : page.getCharacters()) {
-          JSONObject characterJson = serializeCharacter(character);
-          if (characterJson != null) {
-            result.put(characterJson);
-          }
-        }
+      if (!this.isWritingDictionariesFirst) {
+        writeDictionaries();
       }
+
+      // Compute the content hashes, so that they can be embedded into the records of the pages.
+      if (this.hasher != null) {
+        this.hasher.finish(this.index);
+      }
+
+      // Serialize the metadata of the pages.
+      serializePages(doc.getPages());
+    }
+
+    // Serialize the content hash of the document.
+    String hash = this.index.getDocumentHash();
+    if (this.options.isEmbeddingContentHashes() && hash != null) {
+      write(this.isFirstSection ? LINE_DELIMITER : "," + LINE_DELIMITER);
+      write(indent(1) + quote(HASH) + ": " + quote(hash));
+      this.isFirstSection = false;
+    }
+
+    // End the JSON object.
+    write(LINE_DELIMITER + "}" + LINE_DELIMITER);
+    this.out.flush();
+  }
+
+  /**
+   * Writes the fonts and colors sections with the fonts and colors used by the serialized
+   * elements.
+   *
+   * @throws IOException If writing the sections failed.
+   */
+  protected void writeDictionaries() throws IOException {
+    // Serialize the used fonts.
+    List<String> fontsJson = serializeFonts(this.traversal.getUsedFonts(this));
+    if (fontsJson != null && !fontsJson.isEmpty()) {
+      writeSection(FONTS, fontsJson);
     }
 
-    json.put(CHARACTERS, result);
+    // Serialize the used colors.
+    List<String> colorsJson = serializeColors(this.traversal.getUsedColors(this));
+    if (colorsJson != null && !colorsJson.isEmpty()) {
+      writeSection(COLORS, colorsJson);
+    }
   }
 
+  // ==============================================================================================
+
   /**
    * Serializes the given character.
-   * 
+   *
    * @param character The character to serialize.
    *
-   * @return A JSON object representing the serialized character.
+   * @return A string representing the serialized character.
    */
-  protected JSONObject serializeCharacter(Character character) {
+  protected String serializeCharacter(Character character) {
     if (character == null) {
       return null;
     }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactCharacter(character);
+    }
 
-    JSONObject charJson = new JSONObject();
+    StringBuilder charJson = elementFields();
 
     // Serialize the position.
-    JSONObject serialized = serializePosition(character.getPosition());
-    if (serialized != null && serialized.length() > 0) {
-      charJson.put(POSITION, serialized);
-    }
-
-    // Serialize the font face.
-    FontFace fontFace = character.getFontFace();
-    if (fontFace != null) {
-      Font font = fontFace.getFont();
-      float size = fontFace.getFontSize();
-      if (font != null) {
-        String fontId = font.getId();
-        if (fontId != null && size > 0) {
-          JSONObject fontJson = new JSONObject();
-          fontJson.put(ID, fontId);
-          fontJson.put(FONTSIZE, size);
-          charJson.put(FONT, fontJson);
-          this.usedFonts.add(font);
-        }
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.POSITION)) {
+      String serialized = serializePosition(character.getPosition());
+      if (serialized != null) {
+        put(charJson, POSITION, serialized);
       }
     }
 
-    // Serialize the color.
-    Color color = character.getColor();
-    if (color != null) {
-      String colorId = color.getId();
-      if (colorId != null) {
-        JSONObject colorJson = new JSONObject();
-        colorJson.put(ID, colorId);
-        charJson.put(COLOR, colorJson);
-        this.usedColors.add(color);
-      }
+    // Serialize the font face and the color, unless they are encoded as style runs.
+    if (!this.isEncodingStyleRuns) {
+      putFontFaceAndColor(charJson, character);
     }
 
     // Serialize the text.
-    String text = character.getText();
-    if (text != null) {
-      charJson.put(TEXT, text);
-    }
-
-    JSONObject result = new JSONObject();
-    if (charJson != null && charJson.length() > 0) {
-      result.put(CHARACTER, charJson);
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.TEXT)) {
+      String text = character.getText();
+      if (text != null) {
+        put(charJson, TEXT, this.cache.escapeText(text));
+      }
     }
 
-    return result;
+    return element(CHARACTER, charJson);
   }
 
-  // ==============================================================================================
-
   /**
-   * Serializes the figures of the given document and writes them to the given JSON object.
-   * 
-   * @param doc  The document to process.
-   * @param json The JSON object to write the serialization to.
+   * Serializes the font face and the color of the given character, as far as they are included in
+   * the field projection, and appends them to the given fields of a JSON object.
+   *
+   * @param fields    The fields of the JSON object.
+   * @param character The character.
    */
-  protected void serializeFigures(Document doc, JSONObject json) {
-    JSONArray result = new JSONArray();
-
-    if (doc != null) {
-      for (Page page : doc.getPages()) {
-        for (Figure figure : page.getFigures()) {
-          JSONObject figureJson = serializeFigure(figure);
-          if (figureJson != null) {
-            result.put(figureJson);
+  protected void putFontFaceAndColor(StringBuilder fields, Character character) {
+    // Serialize the font face.
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      FontFace fontFace = character.getFontFace();
+      if (fontFace != null) {
+        Font font = fontFace.getFont();
+        float size = fontFace.getFontSize();
+        if (font != null) {
+          String fontId = font.getId();
+          if (fontId != null && size > 0) {
+            StringBuilder fontJson = new StringBuilder();
+            put(fontJson, ID, this.cache.escapeId(font, fontId));
+            put(fontJson, FONTSIZE, number(size));
+            put(fields, FONT, object(fontJson));
           }
         }
       }
     }
 
-    json.put(FIGURES, result);
+    // Serialize the color.
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      Color color = character.getColor();
+      if (color != null) {
+        String colorId = color.getId();
+        if (colorId != null) {
+          StringBuilder colorJson = new StringBuilder();
+          put(colorJson, ID, this.cache.escapeId(color, colorId));
+          put(fields, COLOR, object(colorJson));
+        }
+      }
+    }
   }
 
   /**
-   * Serializes the given figure.
-   * 
-   * @param character The figure to serialize.
+   * Checks if the (serialized) font face or color of the given character differ from the ones of
+   * the current style run (or if no style run was started on the current page yet) and, if so,
+   * starts a new style run with the font face and color of the character.
+   *
+   * @param character The character.
    *
-   * @return A JSON object representing the serialized figure.
+   * @return True if a new style run was started, false otherwise.
    */
-  protected JSONObject serializeFigure(Figure figure) {
-    if (figure == null) {
-      return null;
+  protected boolean isStyleChanged(Character character) {
+    // Consider only the fields that are in fact serialized.
+    FontFace fontFace = null;
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      fontFace = character.getFontFace();
     }
-
-    JSONObject figureJson = new JSONObject();
-
-    // Serialize the position.
-    JSONObject serialized = serializePosition(figure.getPosition());
-    if (serialized != null && serialized.length() > 0) {
-      figureJson.put(POSITION, serialized);
+    Color color = null;
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      color = character.getColor();
     }
+    Font font = fontFace != null ? fontFace.getFont() : null;
+    float fontSize = fontFace != null ? fontFace.getFontSize() : 0;
 
-    JSONObject result = new JSONObject();
-    if (figureJson != null && figureJson.length() > 0) {
-      result.put(FIGURE, figureJson);
+    if (this.isStyleStarted && font == this.styleFont && fontSize == this.styleFontSize
+            && color == this.styleColor) {
+      return false;
     }
 
-    return result;
+    this.isStyleStarted = true;
+    this.styleFont = font;
+    this.styleFontSize = fontSize;
+    this.styleColor = color;
+    return true;
   }
 
-  // ==============================================================================================
-
   /**
-   * Serializes the shapes of the given document and writes them to the given JSON object.
-   * 
-   * @param doc  The document to process.
-   * @param json The JSON object to write the serialization to.
+   * Serializes the style record of the style run started by the given character.
+   *
+   * @param character The first character of the style run.
+   *
+   * @return A string representing the serialized style record, or null if neither the font face
+   *         nor the color of the characters is serialized.
    */
-  protected void serializeShapes(Document doc, JSONObject json) {
-    JSONArray result = new JSONArray();
+  protected String serializeStyle(Character character) {
+    if (this.isUsingCompactSchema) {
+      return serializeCompactStyle(character);
+    }
 
-    if (doc != null) {
-      for (Page page : doc.getPages()) {
-        for (Shape shape : page.getShapes()) {
-          JSONObject shapeJson = serializeShape(shape);
-          if (shapeJson != null) {
-            result.put(shapeJson);
-          }
-        }
-      }
+    StringBuilder styleJson = elementFields();
+    putFontFaceAndColor(styleJson, character);
+    if (styleJson.length() == 0) {
+      return null;
     }
 
-    json.put(SHAPES, result);
+    return element(STYLE, styleJson);
   }
 
+  // ==============================================================================================
+
   /**
-   * Serializes the given shape.
-   * 
-   * @param shape The shape to serialize.
+   * Serializes the given word. The characters of the word are not serialized again, but are
+   * referenced by their index range in the serialized characters.
    *
-   * @return A JSON object representing the serialized shape.
+   * @param doc  The document to which the word belongs.
+   * @param word The word to serialize.
+   *
+   * @return A string representing the serialized word.
    */
-  protected JSONObject serializeShape(Shape shape) {
-    JSONObject shapeJson = new JSONObject();
+  protected String serializeWord(Document doc, Word word) {
+    if (word == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactWord(word);
+    }
 
-    if (shape != null) {
-      // Serialize the position.
-      JSONObject serialized = serializePosition(shape.getPosition());
-      if (serialized != null && serialized.length() > 0) {
-        shapeJson.put(POSITION, serialized);
-      }
+    StringBuilder wordJson = elementFields();
 
-      // Serialize the color.
-      Color color = shape.getColor();
-      if (color != null) {
-        String colorId = color.getId();
-        if (colorId != null) {
-          JSONObject colorJson = new JSONObject();
-          colorJson.put(ID, colorId);
-          shapeJson.put(COLOR, colorJson);
-          this.usedColors.add(color);
-        }
+    // Serialize the positions (a word can be hyphenated across two pages).
+    if (this.projection.includes(ElementClass.WORDS, ElementField.POSITION)) {
+      String positions = serializePositions(word.getPositions());
+      if (positions != null) {
+        put(wordJson, POSITIONS, positions);
       }
     }
 
-    JSONObject result = new JSONObject();
-    if (shapeJson != null && shapeJson.length() > 0) {
-      result.put(SHAPE, shapeJson);
+    // Serialize the references to the characters.
+    if (this.projection.includes(ElementClass.WORDS, ElementField.CHARACTERS)) {
+      String range = serializeCharacterRange(doc, word.getCharacters());
+      if (range != null) {
+        put(wordJson, CHARACTERS, range);
+      }
     }
 
-    return result;
+    return element(WORD, wordJson);
   }
 
   // ==============================================================================================
 
   /**
-   * Serializes the given position.
-   * 
-   * @param position The position to serialize.
-   * 
-   * @return A JSON object representing the serialized position.
+   * Serializes the given text line. The characters of the line are referenced by their index
+   * range in the serialized characters.
+   *
+   * @param doc  The document to which the text line belongs.
+   * @param line The text line to serialize.
+   *
+   * @return A string representing the serialized text line.
    */
-  protected JSONObject serializePosition(Position position) {
-    if (position == null) {
+  protected String serializeTextLine(Document doc, TextLine line) {
+    if (line == null) {
       return null;
     }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactTextLine(line);
+    }
 
-    JSONObject positionJson = new JSONObject();
+    StringBuilder lineJson = elementFields();
 
-    Page page = position.getPage();
-    int pageNumber = page.getPageNumber();
-    Rectangle rect = position.getRectangle();
+    // Serialize the position.
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.POSITION)) {
+      String serialized = serializePosition(line.getPosition());
+      if (serialized != null) {
+        put(lineJson, POSITION, serialized);
+      }
+    }
+
+    // Serialize the references to the characters.
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.CHARACTERS)) {
+      String range = serializeCharacterRange(doc, line.getCharacters());
+      if (range != null) {
+        put(lineJson, CHARACTERS, range);
+      }
+    }
+
+    return element(TEXT_LINE, lineJson);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given text block. The characters of the block are referenced by their index
+   * range in the serialized characters.
+   *
+   * @param doc   The document to which the text block belongs.
+   * @param block The text block to serialize.
+   *
+   * @return A string representing the serialized text block.
+   */
+  protected String serializeTextBlock(Document doc, TextBlock block) {
+    if (block == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactTextBlock(block);
+    }
+
+    StringBuilder blockJson = elementFields();
+
+    // Serialize the position.
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.POSITION)) {
+      String serialized = serializePosition(block.getPosition());
+      if (serialized != null) {
+        put(blockJson, POSITION, serialized);
+      }
+    }
+
+    // Serialize the semantic role.
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.ROLE)) {
+      SemanticRole role = block.getRole();
+      if (role != null) {
+        put(blockJson, ROLE, quote(role.toString()));
+      }
+    }
+
+    // Serialize the references to the characters.
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.CHARACTERS)) {
+      String range = serializeCharacterRange(doc, block.getCharacters());
+      if (range != null) {
+        put(blockJson, CHARACTERS, range);
+      }
+    }
+
+    return element(TEXT_BLOCK, blockJson);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given paragraph. The characters of the paragraph are referenced by their index
+   * range in the serialized characters.
+   *
+   * @param doc       The document to which the paragraph belongs.
+   * @param paragraph The paragraph to serialize.
+   *
+   * @return A string representing the serialized paragraph.
+   */
+  protected String serializeParagraph(Document doc, Paragraph paragraph) {
+    if (paragraph == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactParagraph(paragraph);
+    }
+
+    StringBuilder paragraphJson = elementFields();
+
+    // Serialize the positions (a paragraph can span several pages).
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.POSITION)) {
+      String positions = serializePositions(paragraph.getPositions());
+      if (positions != null) {
+        put(paragraphJson, POSITIONS, positions);
+      }
+    }
+
+    // Serialize the semantic role.
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.ROLE)) {
+      SemanticRole role = paragraph.getRole();
+      if (role != null) {
+        put(paragraphJson, ROLE, quote(role.toString()));
+      }
+    }
+
+    // Serialize the references to the characters, from the first character of the first word to
+    // the last character of the last word, clipped to the serialized characters.
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.CHARACTERS)) {
+      Character first = this.traversal.getFirstIndexedCharacter(paragraph.getWords());
+      Character last = this.traversal.getLastIndexedCharacter(paragraph.getWords());
+      if (first != null && last != null) {
+        String range = serializeCharacterRange(doc, first, last);
+        if (range != null) {
+          put(paragraphJson, CHARACTERS, range);
+        }
+      }
+    }
+
+    return element(PARAGRAPH, paragraphJson);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the index range of the given characters in the serialized characters.
+   *
+   * @param doc        The document to which the characters belong.
+   * @param characters The characters to reference, in reading order.
+   *
+   * @return A string representing the serialized range.
+   */
+  protected String serializeCharacterRange(Document doc, List<Character> characters) {
+    if (characters == null || characters.isEmpty()) {
+      return null;
+    }
+    Character first = characters.get(0);
+    Character last = characters.get(characters.size() - 1);
+    return serializeCharacterRange(doc, first, last);
+  }
+
+  /**
+   * Serializes the index range spanned by the given first and last character in the serialized
+   * characters. The range is given by the index of the first character (inclusive) and the index
+   * of the last character + 1 (exclusive).
+   *
+   * @param doc   The document to which the characters belong.
+   * @param first The first character of the range.
+   * @param last  The last character of the range.
+   *
+   * @return A string representing the serialized range.
+   */
+  protected String serializeCharacterRange(Document doc, Character first, Character last) {
+    int from = this.traversal.getCharacterIndex(this, first);
+    int to = this.traversal.getCharacterIndex(this, last);
+    if (from < 0 || to < 0) {
+      return null;
+    }
+
+    StringBuilder rangeJson = new StringBuilder();
+    put(rangeJson, FROM, String.valueOf(from));
+    put(rangeJson, TO, String.valueOf(to + 1));
+    return object(rangeJson);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given figure.
+   *
+   * @param figure The figure to serialize.
+   *
+   * @return A string representing the serialized figure.
+   */
+  protected String serializeFigure(Figure figure) {
+    if (figure == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactFigure(figure);
+    }
+
+    StringBuilder figureJson = elementFields();
+
+    // Serialize the position.
+    if (this.projection.includes(ElementClass.FIGURES, ElementField.POSITION)) {
+      String serialized = serializePosition(figure.getPosition());
+      if (serialized != null) {
+        put(figureJson, POSITION, serialized);
+      }
+    }
+
+    return element(FIGURE, figureJson);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given shape.
+   *
+   * @param shape The shape to serialize.
+   *
+   * @return A string representing the serialized shape.
+   */
+  protected String serializeShape(Shape shape) {
+    if (this.isUsingCompactSchema && shape != null) {
+      return serializeCompactShape(shape);
+    }
+
+    StringBuilder shapeJson = elementFields();
+
+    if (shape != null) {
+      // Serialize the position.
+      if (this.projection.includes(ElementClass.SHAPES, ElementField.POSITION)) {
+        String serialized = serializePosition(shape.getPosition());
+        if (serialized != null) {
+          put(shapeJson, POSITION, serialized);
+        }
+      }
+
+      // Serialize the color.
+      if (this.projection.includes(ElementClass.SHAPES, ElementField.COLOR)) {
+        Color color = shape.getColor();
+        if (color != null) {
+          String colorId = color.getId();
+          if (colorId != null) {
+            StringBuilder colorJson = new StringBuilder();
+            put(colorJson, ID, this.cache.escapeId(color, colorId));
+            put(shapeJson, COLOR, object(colorJson));
+          }
+        }
+      }
+    }
+
+    return element(SHAPE, shapeJson);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given position.
+   *
+   * @param position The position to serialize.
+   *
+   * @return A string representing the serialized position, or null if the position is not
+   *         serializable.
+   */
+  protected String serializePosition(Position position) {
+    if (position == null) {
+      return null;
+    }
 
-    if (pageNumber > 0 && rect != null) {
-      positionJson.put(PAGE, pageNumber);
+    Page page = position.getPage();
+    int pageNumber = page.getPageNumber();
+    Rectangle rect = position.getRectangle();
 
-      // If we pass primitive floats here, the values would be casted to
-      // double values (yielding in inaccurate numbers). So transform the
-      // values to Float objects.
-      positionJson.put(MIN_X, Float.valueOf(rect.getMinX()));
-      positionJson.put(MIN_Y, Float.valueOf(rect.getMinY()));
-      positionJson.put(MAX_X, Float.valueOf(rect.getMaxX()));
-      positionJson.put(MAX_Y, Float.valueOf(rect.getMaxY()));
+    if (pageNumber <= 0 || rect == null) {
+      return null;
     }
 
-    return positionJson;
+    StringBuilder positionJson = this.positionJson;
+    positionJson.setLength(0);
+    put(positionJson, PAGE, String.valueOf(pageNumber));
+    put(positionJson, MIN_X, number(rect.getMinX()));
+    put(positionJson, MIN_Y, number(rect.getMinY()));
+    put(positionJson, MAX_X, number(rect.getMaxX()));
+    put(positionJson, MAX_Y, number(rect.getMaxY()));
+    return object(positionJson);
+  }
+
+  /**
+   * Serializes the given positions.
+   *
+   * @param positions The positions to serialize.
+   *
+   * @return A string representing the serialized positions, or null if there are no positions.
+   */
+  protected String serializePositions(List<Position> positions) {
+    if (positions == null || positions.isEmpty()) {
+      return null;
+    }
+
+    StringBuilder result = new StringBuilder();
+    for (Position position : positions) {
+      String positionJson = serializePosition(position);
+      if (positionJson != null) {
+        if (result.length() > 0) {
+          result.append(", ");
+        }
+        result.append(positionJson);
+      }
+    }
+
+    return "[" + result + "]";
   }
 
   // ==============================================================================================
 
   /**
-   * Serializes the given fonts.
-   * 
+   * Serializes the given fonts, ordered by their ids (so that the serialization and its content
+   * hashes don't depend on the iteration order of the set).
+   *
    * @param fonts The fonts to serialize.
-   * 
-   * @return A JSON array representing the serialized fonts.
+   *
+   * @return A list of strings representing the serialized fonts.
    */
-  protected JSONArray serializeFonts(Set<Font> fonts) {
-    JSONArray result = new JSONArray();
+  protected List<String> serializeFonts(Set<Font> fonts) {
+    List<String> result = new ArrayList<>();
     if (fonts != null) {
-      for (Font font : fonts) {
-        JSONObject fontJson = serializeFont(font);
-        if (fontJson != null && fontJson.length() > 0) {
-          result.put(fontJson);
+      List<Font> sortedFonts = new ArrayList<>(fonts);
+      sortedFonts.sort(Comparator.nullsLast(Comparator.comparing(Font::getId, ID_ORDER)));
+      for (Font font : sortedFonts) {
+        String fontJson = serializeFont(font);
+        if (fontJson != null) {
+          result.add(fontJson);
         }
       }
     }
@@ -425,52 +1078,58 @@ public class JsonDocumentSerializer {
 
   /**
    * Serializes the given font.
-   * 
+   *
    * @param font The font to serialize.
-   * 
-   * @return A JSON object representing the serialized font.
-   */
-  protected JSONObject serializeFont(Font font) {
-    JSONObject fontJson = new JSONObject();
-    if (font != null) {
-      String fontId = font.getId();
-      if (fontId != null) {
-        fontJson.put(ID, fontId);
-      }
+   *
+   * @return A string representing the serialized font.
+   */
+  protected String serializeFont(Font font) {
+    if (font == null) {
+      return null;
+    }
 
-      String name = font.getName();
-      if (name != null) {
-        fontJson.put(NAME, name);
-      }
+    StringBuilder fontJson = new StringBuilder();
 
-      boolean isBold = font.isBold();
-      fontJson.put(IS_BOLD, isBold);
+    String fontId = font.getId();
+    if (fontId != null) {
+      put(fontJson, ID, quote(fontId));
+    }
 
-      boolean isItalic = font.isItalic();
-      fontJson.put(IS_ITALIC, isItalic);
+    String name = font.getName();
+    if (name != null) {
+      put(fontJson, NAME, quote(name));
     }
-    return fontJson;
+
+    boolean isBold = font.isBold();
+    put(fontJson, IS_BOLD, String.valueOf(isBold));
+
+    boolean isItalic = font.isItalic();
+    put(fontJson, IS_ITALIC, String.valueOf(isItalic));
+
+    return object(fontJson);
   }
 
   // ==============================================================================================
   // Methods to serialize colors.
 
   /**
-   * Serializes the given colors.
-   * 
+   * Serializes the given colors, ordered by their ids.
+   *
    * @param colors The colors to serialize.
-   * 
-   * @return A JSON array representing the serialized fonts.
+   *
+   * @return A list of strings representing the serialized colors.
    */
-  protected JSONArray serializeColors(Set<Color> colors) {
-    JSONArray result = new JSONArray();
+  protected List<String> serializeColors(Set<Color> colors) {
+    List<String> result = new ArrayList<>();
 
     if (colors != null) {
-      for (Color color : colors) {
+      List<Color> sortedColors = new ArrayList<>(colors);
+      sortedColors.sort(Comparator.nullsLast(Comparator.comparing(Color::getId, ID_ORDER)));
+      for (Color color : sortedColors) {
         if (color != null) {
-          JSONObject colorJson = serializeColor(color);
-          if (colorJson != null && colorJson.length() > 0) {
-            result.put(colorJson);
+          String colorJson = serializeColor(color);
+          if (colorJson != null) {
+            result.add(colorJson);
           }
         }
       }
@@ -480,68 +1139,854 @@ public class JsonDocumentSerializer {
 
   /**
    * Serializes the given color.
-   * 
+   *
    * @param color The color to serialize.
-   * 
-   * @return A JSON object representing the serialized color.
-   */
-  protected JSONObject serializeColor(Color color) {
-    JSONObject colorJson = new JSONObject();
-    if (color != null) {
-      String colorId = color.getId();
-      int[] rgb = color.getRgb();
-
-      if (colorId != null && rgb != null && rgb.length == 3) {
-        colorJson.put(ID, colorId);
-        colorJson.put(R, rgb[0]);
-        colorJson.put(G, rgb[1]);
-        colorJson.put(B, rgb[2]);
-      }
+   *
+   * @return A string representing the serialized color, or null if the color is not serializable.
+   */
+  protected String serializeColor(Color color) {
+    if (color == null) {
+      return null;
+    }
+
+    String colorId = color.getId();
+    int[] rgb = color.getRgb();
+    if (colorId == null || rgb == null || rgb.length != 3) {
+      return null;
     }
-    return colorJson;
+
+    StringBuilder colorJson = new StringBuilder();
+    put(colorJson, ID, quote(colorId));
+    put(colorJson, R, String.valueOf(rgb[0]));
+    put(colorJson, G, String.valueOf(rgb[1]));
+    put(colorJson, B, String.valueOf(rgb[2]));
+    return object(colorJson);
   }
 
   // ==============================================================================================
   // Methods to serialize the metadata of pages.
 
   /**
-   * Serializes the given pages.
-   * 
+   * Serializes the given pages that are accepted by the element filter and writes them to the
+   * output. The section is omitted if no page is accepted.
+   *
    * @param pages The pages to serialize.
-   * 
-   * @return A JSON array representing the serialized pages.
-   */
-  protected JSONArray serializePages(List<Page> pages) {
-    JSONArray result = new JSONArray();
-
-    if (pages != null) {
-      for (Page page : pages) {
-        if (page != null) {
-          JSONObject pageJson = serializePage(page);
-          if (pageJson != null && pageJson.length() > 0) {
-            result.put(pageJson);
-          }
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void serializePages(List<Page> pages) throws IOException {
+    if (pages == null) {
+      return;
+    }
+
+    SectionSerializationEvent event = null;
+    if (SectionSerializationEvent.isRecording()) {
+      event = new SectionSerializationEvent(SerializationFormat.JSON.name(), PAGES, this.offset);
+    }
+
+    boolean isStarted = false;
+    int numPages = 0;
+    for (Page page : pages) {
+      if (page == null || !this.filter.accept(page)) {
+        continue;
+      }
+      String pageJson = serializePage(page);
+      if (pageJson != null) {
+        if (!isStarted) {
+          startSection(PAGES);
+          isStarted = true;
         }
+        startPage();
+        writeElement(pageJson);
+        endPage(page, 1);
+        numPages++;
       }
     }
-
-    return result;
+    if (isStarted) {
+      endSection();
+    }
+    if (event != null) {
+      event.finish(numPages, this.offset);
+    }
   }
 
   /**
    * Serializes the given page.
-   * 
+   *
    * @param page The page to serialize.
-   * 
-   * @return A JSON object representing the serialized page.
+   *
+   * @return A string representing the serialized page.
+   */
+  protected String serializePage(Page page) {
+    if (page == null) {
+      return null;
+    }
+
+    StringBuilder pageJson = new StringBuilder();
+    put(pageJson, ID, String.valueOf(page.getPageNumber()));
+    put(pageJson, WIDTH, number(page.getWidth()));
+    put(pageJson, HEIGHT, number(page.getHeight()));
+    TileIndex tiles = this.traversal != null ? this.traversal.getTileIndex(page) : null;
+    if (tiles != null) {
+      put(pageJson, TILES, serializeTileIndex(tiles));
+    }
+    String hash = this.index != null ? this.index.getPageHash(page.getPageNumber()) : null;
+    if (this.options.isEmbeddingContentHashes() && hash != null) {
+      put(pageJson, HASH, quote(hash));
+    }
+    return object(pageJson);
+  }
+
+  /**
+   * Serializes the given spatial index of a page: the size of the tiles, the number of columns
+   * and rows of the grid, and per serialized type of elements an object that maps the numbers of
+   * the non-empty tiles to the indices of the elements in the section of the type.
+   *
+   * @param tiles The index to serialize.
+   *
+   * @return A string representing the serialized index.
+   */
+  protected String serializeTileIndex(TileIndex tiles) {
+    Collection<ElementClass> clazzes = this.traversal.getClazzes(this);
+
+    StringBuilder tilesJson = new StringBuilder();
+    put(tilesJson, TILE_SIZE, number(tiles.getTileSize()));
+    put(tilesJson, COLUMNS, String.valueOf(tiles.getNumColumns()));
+    put(tilesJson, ROWS, String.valueOf(tiles.getNumRows()));
+    for (ElementClass clazz : tiles.getElementClasses()) {
+      if (!clazzes.contains(clazz)) {
+        continue;
+      }
+      StringBuilder clazzJson = new StringBuilder();
+      for (Map.Entry<Integer, List<Integer>> tile : tiles.getTiles(clazz).entrySet()) {
+        put(clazzJson, String.valueOf(tile.getKey()), tile.getValue().toString());
+      }
+      put(tilesJson, DocumentSerializerConstants.getSectionName(clazz), object(clazzJson));
+    }
+    return object(tilesJson);
+  }
+
+  // ==============================================================================================
+  // Methods to serialize the elements in the compact schema.
+
+  /**
+   * Writes the schema header: per serialized type of elements (and for the style records, if
+   * style runs are enabled), the names of the fields in the order of their values in the arrays.
+   * The byte range of the header is recorded in the index as section {@code "schema"}.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void writeSchema() throws IOException {
+    Collection<ElementClass> clazzes = this.traversal.getClazzes(this);
+
+    StringBuilder schemaJson = new StringBuilder();
+    for (ElementClass clazz : ElementClass.values()) {
+      String name = DocumentSerializerConstants.getElementName(clazz);
+      if (name != null && clazzes.contains(clazz)) {
+        put(schemaJson, name, names(getCompactFields(clazz)));
+      }
+    }
+    if (this.isEncodingStyleRuns && clazzes.contains(ElementClass.CHARACTERS)) {
+      List<String> fields = new ArrayList<>();
+      addFontFaceAndColorFields(fields);
+      put(schemaJson, STYLE, names(fields));
+    }
+
+    write(LINE_DELIMITER);
+    this.isFirstSection = false;
+    long schemaOffset = this.offset;
+    write(indent(1) + quote(SCHEMA) + ": " + object(schemaJson));
+    this.index.setSectionRange(SCHEMA, schemaOffset, this.offset - schemaOffset);
+  }
+
+  /**
+   * Returns the names of the fields of the elements of the given type in the compact schema, in
+   * the order of their values. The fields depend on the field projection.
+   *
+   * @param clazz The type of the elements.
+   *
+   * @return The names of the fields.
+   */
+  protected List<String> getCompactFields(ElementClass clazz) {
+    List<String> fields = new ArrayList<>();
+    switch (clazz) {
+      case CHARACTERS:
+        if (this.projection.includes(clazz, ElementField.POSITION)) {
+          addPositionFields(fields);
+        }
+        if (!this.isEncodingStyleRuns) {
+          addFontFaceAndColorFields(fields);
+        }
+        if (this.projection.includes(clazz, ElementField.TEXT)) {
+          fields.add(TEXT);
+        }
+        break;
+      case WORDS:
+      case PARAGRAPHS:
+        if (this.projection.includes(clazz, ElementField.POSITION)) {
+          fields.add(POSITIONS);
+        }
+        if (clazz == ElementClass.PARAGRAPHS
+                && this.projection.includes(clazz, ElementField.ROLE)) {
+          fields.add(ROLE);
+        }
+        if (this.projection.includes(clazz, ElementField.CHARACTERS)) {
+          fields.add(FROM);
+          fields.add(TO);
+        }
+        break;
+      case TEXT_LINES:
+      case TEXT_BLOCKS:
+        if (this.projection.includes(clazz, ElementField.POSITION)) {
+          addPositionFields(fields);
+        }
+        if (clazz == ElementClass.TEXT_BLOCKS
+                && this.projection.includes(clazz, ElementField.ROLE)) {
+          fields.add(ROLE);
+        }
+        if (this.projection.includes(clazz, ElementField.CHARACTERS)) {
+          fields.add(FROM);
+          fields.add(TO);
+        }
+        break;
+      case FIGURES:
+      case SHAPES:
+        if (this.projection.includes(clazz, ElementField.POSITION)) {
+          addPositionFields(fields);
+        }
+        if (clazz == ElementClass.SHAPES && this.projection.includes(clazz, ElementField.COLOR)) {
+          fields.add(COLOR);
+        }
+        break;
+      default:
+        break;
+    }
+    return fields;
+  }
+
+  /**
+   * Adds the names of the fields of a position (the page and the bounding box) to the given list.
+   *
+   * @param fields The list of the names of fields.
+   */
+  protected static void addPositionFields(List<String> fields) {
+    fields.add(PAGE);
+    fields.add(MIN_X);
+    fields.add(MIN_Y);
+    fields.add(MAX_X);
+    fields.add(MAX_Y);
+  }
+
+  /**
+   * Adds the names of the fields of the font face and the color of a character, as far as they
+   * are included in the field projection, to the given list.
+   *
+   * @param fields The list of the names of fields.
+   */
+  protected void addFontFaceAndColorFields(List<String> fields) {
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      fields.add(FONT);
+      fields.add(FONTSIZE);
+    }
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      fields.add(COLOR);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given character in the compact schema.
+   *
+   * @param character The character to serialize.
+   *
+   * @return A string representing the serialized character.
+   */
+  protected String serializeCompactCharacter(Character character) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.POSITION)) {
+      addPosition(values, character.getPosition());
+    }
+    if (!this.isEncodingStyleRuns) {
+      addFontFaceAndColor(values, character);
+    }
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.TEXT)) {
+      String text = character.getText();
+      add(values, text != null ? this.cache.escapeText(text) : null);
+    }
+    return array(values);
+  }
+
+  /**
+   * Serializes the style record of the style run started by the given character in the compact
+   * schema.
+   *
+   * @param character The first character of the style run.
+   *
+   * @return A string representing the serialized style record, or null if neither the font face
+   *         nor the color of the characters is serialized.
+   */
+  protected String serializeCompactStyle(Character character) {
+    StringBuilder values = new StringBuilder();
+    addFontFaceAndColor(values, character);
+    if (values.length() == 0) {
+      return null;
+    }
+
+    StringBuilder result = new StringBuilder();
+    put(result, STYLE, array(values));
+    return object(result);
+  }
+
+  /**
+   * Serializes the given word in the compact schema.
+   *
+   * @param word The word to serialize.
+   *
+   * @return A string representing the serialized word.
+   */
+  protected String serializeCompactWord(Word word) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.WORDS, ElementField.POSITION)) {
+      addPositions(values, word.getPositions());
+    }
+    if (this.projection.includes(ElementClass.WORDS, ElementField.CHARACTERS)) {
+      addCharacterRange(values, word.getCharacters());
+    }
+    return array(values);
+  }
+
+  /**
+   * Serializes the given text line in the compact schema.
+   *
+   * @param line The text line to serialize.
+   *
+   * @return A string representing the serialized text line.
+   */
+  protected String serializeCompactTextLine(TextLine line) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.POSITION)) {
+      addPosition(values, line.getPosition());
+    }
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.CHARACTERS)) {
+      addCharacterRange(values, line.getCharacters());
+    }
+    return array(values);
+  }
+
+  /**
+   * Serializes the given text block in the compact schema.
+   *
+   * @param block The text block to serialize.
+   *
+   * @return A string representing the serialized text block.
+   */
+  protected String serializeCompactTextBlock(TextBlock block) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.POSITION)) {
+      addPosition(values, block.getPosition());
+    }
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.ROLE)) {
+      SemanticRole role = block.getRole();
+      add(values, role != null ? quote(role.toString()) : null);
+    }
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.CHARACTERS)) {
+      addCharacterRange(values, block.getCharacters());
+    }
+    return array(values);
+  }
+
+  /**
+   * Serializes the given paragraph in the compact schema. The characters are referenced from the
+   * first character of the first word to the last character of the last word.
+   *
+   * @param paragraph The paragraph to serialize.
+   *
+   * @return A string representing the serialized paragraph.
+   */
+  protected String serializeCompactParagraph(Paragraph paragraph) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.POSITION)) {
+      addPositions(values, paragraph.getPositions());
+    }
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.ROLE)) {
+      SemanticRole role = paragraph.getRole();
+      add(values, role != null ? quote(role.toString()) : null);
+    }
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.CHARACTERS)) {
+      Character first = this.traversal.getFirstIndexedCharacter(paragraph.getWords());
+      Character last = this.traversal.getLastIndexedCharacter(paragraph.getWords());
+      addCharacterRange(values, first, last);
+    }
+    return array(values);
+  }
+
+  /**
+   * Serializes the given figure in the compact schema.
+   *
+   * @param figure The figure to serialize.
+   *
+   * @return A string representing the serialized figure.
+   */
+  protected String serializeCompactFigure(Figure figure) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.FIGURES, ElementField.POSITION)) {
+      addPosition(values, figure.getPosition());
+    }
+    return array(values);
+  }
+
+  /**
+   * Serializes the given shape in the compact schema.
+   *
+   * @param shape The shape to serialize.
+   *
+   * @return A string representing the serialized shape.
+   */
+  protected String serializeCompactShape(Shape shape) {
+    StringBuilder values = new StringBuilder();
+    if (this.projection.includes(ElementClass.SHAPES, ElementField.POSITION)) {
+      addPosition(values, shape.getPosition());
+    }
+    if (this.projection.includes(ElementClass.SHAPES, ElementField.COLOR)) {
+      Color color = shape.getColor();
+      String colorId = color != null ? color.getId() : null;
+      add(values, colorId != null ? this.cache.escapeId(color, colorId) : null);
+    }
+    return array(values);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Adds the values of the given position (the page and the bounding box) to the given values of
+   * a JSON array, or nulls if the position is not serializable.
+   *
+   * @param values   The values of the JSON array.
+   * @param position The position.
+   */
+  protected void addPosition(StringBuilder values, Position position) {
+    Rectangle rect = position != null ? position.getRectangle() : null;
+    int pageNumber = position != null ? position.getPage().getPageNumber() : 0;
+    if (pageNumber <= 0 || rect == null) {
+      for (int i = 0; i < 5; i++) {
+        add(values, null);
+      }
+      return;
+    }
+    add(values, String.valueOf(pageNumber));
+    add(values, number(rect.getMinX()));
+    add(values, number(rect.getMinY()));
+    add(values, number(rect.getMaxX()));
+    add(values, number(rect.getMaxY()));
+  }
+
+  /**
+   * Adds the given positions, as an array of arrays of the values of each position, to the given
+   * values of a JSON array, or null if there are no positions.
+   *
+   * @param values    The values of the JSON array.
+   * @param positions The positions.
+   */
+  protected void addPositions(StringBuilder values, List<Position> positions) {
+    StringBuilder positionsJson = new StringBuilder();
+    if (positions != null) {
+      for (Position position : positions) {
+        StringBuilder positionJson = new StringBuilder();
+        addPosition(positionJson, position);
+        add(positionsJson, array(positionJson));
+      }
+    }
+    add(values, positionsJson.length() > 0 ? array(positionsJson) : null);
+  }
+
+  /**
+   * Adds the id and size of the font and the id of the color of the given character, as far as
+   * they are included in the field projection, to the given values of a JSON array.
+   *
+   * @param values    The values of the JSON array.
+   * @param character The character.
+   */
+  protected void addFontFaceAndColor(StringBuilder values, Character character) {
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      FontFace fontFace = character.getFontFace();
+      Font font = fontFace != null ? fontFace.getFont() : null;
+      if (font != null && font.getId() != null && fontFace.getFontSize() > 0) {
+        add(values, this.cache.escapeId(font, font.getId()));
+        add(values, number(fontFace.getFontSize()));
+      } else {
+        add(values, null);
+        add(values, null);
+      }
+    }
+
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      Color color = character.getColor();
+      String colorId = color != null ? color.getId() : null;
+      add(values, colorId != null ? this.cache.escapeId(color, colorId) : null);
+    }
+  }
+
+  /**
+   * Adds the index range of the given characters in the serialized characters to the given values
+   * of a JSON array.
+   *
+   * @param values     The values of the JSON array.
+   * @param characters The characters to reference, in reading order.
+   */
+  protected void addCharacterRange(StringBuilder values, List<Character> characters) {
+    if (characters == null || characters.isEmpty()) {
+      addCharacterRange(values, null, null);
+      return;
+    }
+    addCharacterRange(values, characters.get(0), characters.get(characters.size() - 1));
+  }
+
+  /**
+   * Adds the index range spanned by the given first and last character in the serialized
+   * characters to the given values of a JSON array: the index of the first character (inclusive)
+   * and the index of the last character + 1 (exclusive), or nulls if the range is unknown.
+   *
+   * @param values The values of the JSON array.
+   * @param first  The first character of the range.
+   * @param last   The last character of the range.
+   */
+  protected void addCharacterRange(StringBuilder values, Character first, Character last) {
+    int from = this.traversal.getCharacterIndex(this, first);
+    int to = this.traversal.getCharacterIndex(this, last);
+    if (from < 0 || to < 0) {
+      add(values, null);
+      add(values, null);
+      return;
+    }
+    add(values, String.valueOf(from));
+    add(values, String.valueOf(to + 1));
+  }
+
+  // ==============================================================================================
+  // Methods to write the serialization to the output.
+
+  /**
+   * Starts a new section (a key with an array value) of the top-level JSON object.
+   *
+   * @param name The name of the section.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void startSection(String name) throws IOException {
+    write(this.isFirstSection ? LINE_DELIMITER : "," + LINE_DELIMITER);
+    this.isFirstSection = false;
+    this.section = name;
+    this.sectionOffset = this.offset;
+    this.isFirstElement = true;
+    this.pageOffset = -1;
+    write(indent(1) + quote(name) + ": [");
+  }
+
+  /**
+   * Writes the given element to the current section.
+   *
+   * @param element The serialized element.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void writeElement(String element) throws IOException {
+    if (element == null) {
+      return;
+    }
+    write(this.isFirstElement ? LINE_DELIMITER : "," + LINE_DELIMITER);
+    write(indent(2));
+    this.isFirstElement = false;
+    if (this.pageOffset < 0) {
+      this.pageOffset = this.offset;
+    }
+    write(element);
+  }
+
+  /**
+   * Ends the current section.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void endSection() throws IOException {
+    if (!this.isFirstElement) {
+      write(LINE_DELIMITER + indent(1));
+    }
+    write("]");
+    this.index.setSectionRange(this.section, this.sectionOffset, this.offset - this.sectionOffset);
+  }
+
+  /**
+   * Writes a complete section with the given elements.
+   *
+   * @param name     The name of the section.
+   * @param elements The serialized elements.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void writeSection(String name, List<String> elements) throws IOException {
+    SectionSerializationEvent event = null;
+    if (SectionSerializationEvent.isRecording()) {
+      event = new SectionSerializationEvent(SerializationFormat.JSON.name(), name, this.offset);
+    }
+    startSection(name);
+    for (String element : elements) {
+      writeElement(element);
+    }
+    endSection();
+    if (event != null) {
+      event.finish(elements.size(), this.offset);
+    }
+  }
+
+  /**
+   * Marks the start of the elements of a page in the current section.
+   */
+  protected void startPage() {
+    this.pageOffset = -1;
+  }
+
+  @Override
+  public void endPage(Page page) {
+    this.index.setPageFonts(this.section, page.getPageNumber(), this.traversal.getPageFontIds());
+    this.index.setPageColors(this.section, page.getPageNumber(), this.traversal.getPageColorIds());
+    endPage(page, this.traversal.getNumPageElements());
+  }
+
+  /**
+   * Marks the end of the elements of the given page in the current section and records the byte
+   * range and the number of the elements in the index.
+   *
+   * @param page        The page.
+   * @param numElements The number of elements of the page.
+   */
+  protected void endPage(Page page, int numElements) {
+    if (this.pageOffset >= 0) {
+      long length = this.offset - this.pageOffset;
+      this.index.setPageRange(this.section, page.getPageNumber(), this.pageOffset, length);
+    }
+    this.index.setPageCount(this.section, page.getPageNumber(), numElements);
+    this.pageOffset = -1;
+    if (this.hasher != null) {
+      this.hasher.endPage();
+    }
+  }
+
+  @Override
+  public void fragment(byte[] serialization, ByteRange range, String hash)
+          throws IOException {
+    if (this.hasher != null) {
+      this.hasher.fragment(hash);
+    }
+    write(this.isFirstElement ? LINE_DELIMITER : "," + LINE_DELIMITER);
+    write(indent(2));
+    this.isFirstElement = false;
+    this.pageOffset = this.offset;
+    write(serialization, (int) range.getOffset(), (int) range.getLength());
+  }
+
+  /**
+   * Writes the given string to the output.
+   *
+   * @param string The string to write.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void write(String string) throws IOException {
+    int length = string.length();
+    if (this.buffer.length < length) {
+      this.buffer = new byte[Math.max(length, 2 * this.buffer.length)];
+    }
+    // Encode the string into the reused buffer as long as it consists of ASCII characters, which
+    // are encoded as single bytes in UTF-8. Only other strings are encoded into new arrays.
+    for (int i = 0; i < length; i++) {
+      char c = string.charAt(i);
+      if (c >= 0x80) {
+        byte[] bytes = string.getBytes(ENCODING);
+        write(bytes, 0, bytes.length);
+        return;
+      }
+      this.buffer[i] = (byte) c;
+    }
+    write(this.buffer, 0, length);
+  }
+
+  /**
+   * Writes the given bytes to the output and adds them to the content hashes, if any.
+   *
+   * @param bytes  The bytes to write.
+   * @param offset The offset of the first byte to write.
+   * @param length The number of bytes to write.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void write(byte[] bytes, int offset, int length) throws IOException {
+    this.out.write(bytes, offset, length);
+    if (this.hasher != null) {
+      this.hasher.update(bytes, offset, length);
+    }
+    this.offset += length;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the (emptied) builder of the fields of the element to serialize next. The builder is
+   * reused for all elements, so that it grows only until it fits the largest element.
+   *
+   * @return The builder.
+   */
+  protected StringBuilder elementFields() {
+    this.elementJson.setLength(0);
+    return this.elementJson;
+  }
+
+  /**
+   * Wraps the given fields of an element in a JSON object with the given key, which is wrapped in
+   * a JSON object itself (for example, {"character": {...}}), or returns an empty JSON object if
+   * there are no fields. The fields are wrapped in place, so that the element is copied only once,
+   * into the returned string.
+   *
+   * @param key    The key.
+   * @param fields The fields of the element.
+   *
+   * @return The JSON object.
+   */
+  protected static String element(String key, StringBuilder fields) {
+    if (fields.length() == 0) {
+      return "{}";
+    }
+    String prefix = ELEMENT_PREFIXES.computeIfAbsent(key, k -> "{" + quote(k) + ": {");
+    return fields.insert(0, prefix).append("}}").toString();
+  }
+
+  /**
+   * Appends the given key with the given (already serialized) value to the given fields of a JSON
+   * object.
+   *
+   * @param fields The fields of the JSON object.
+   * @param key    The key.
+   * @param value  The serialized value.
+   */
+  protected static void put(StringBuilder fields, String key, String value) {
+    if (fields.length() > 0) {
+      fields.append(", ");
+    }
+    fields.append(QUOTED_KEYS.computeIfAbsent(key, JSONObject::quote)).append(": ").append(value);
+  }
+
+  /**
+   * Appends the given (already serialized) value, or null, to the given values of a JSON array.
+   *
+   * @param values The values of the JSON array.
+   * @param value  The serialized value, or null.
+   */
+  protected static void add(StringBuilder values, String value) {
+    if (values.length() > 0) {
+      values.append(',');
+    }
+    values.append(value != null ? value : "null");
+  }
+
+  /**
+   * Wraps the given values in a JSON array. The values are wrapped in place, so that the array
+   * is copied only once, into the returned string.
+   *
+   * @param values The values of the JSON array.
+   *
+   * @return The JSON array.
+   */
+  protected static String array(StringBuilder values) {
+    return values.insert(0, '[').append(']').toString();
+  }
+
+  /**
+   * Serializes the given names as a JSON array of strings.
+   *
+   * @param names The names.
+   *
+   * @return The JSON array.
+   */
+  protected static String names(List<String> names) {
+    StringBuilder values = new StringBuilder();
+    for (String name : names) {
+      add(values, quote(name));
+    }
+    return array(values);
+  }
+
+  /**
+   * Wraps the given fields in a JSON object. The fields are wrapped in place, so that the object
+   * is copied only once, into the returned string.
+   *
+   * @param fields The fields of the JSON object.
+   *
+   * @return The JSON object.
+   */
+  protected static String object(StringBuilder fields) {
+    return fields.insert(0, '{').append('}').toString();
+  }
+
+  /**
+   * Transforms the given string to a quoted and escaped JSON string.
+   *
+   * @param string The string to transform.
+   *
+   * @return The JSON string.
+   */
+  protected static String quote(String string) {
+    return JSONObject.quote(string);
+  }
+
+  /**
+   * Transforms the given float to a JSON number. The float is not widened to a double, as this
+   * would yield inaccurate numbers.
+   *
+   * @param number The float to transform.
+   *
+   * @return The JSON number.
+   */
+  protected static String number(float number) {
+    // Write the numbers as JSONObject does (integral numbers without a fraction, all others in
+    // their shortest representation), but without boxing them and trimming their strings.
+    if (number == (int) number && Math.abs(number) < 1e7f
+            && (number != 0 || Float.floatToRawIntBits(number) == 0)) {
+      return Integer.toString((int) number);
+    }
+    if (number != (int) number && Float.isFinite(number)) {
+      return Float.toString(number);
+    }
+    // Leave the large integral numbers (written with an exponent), negative zero, NaN and the
+    // infinities to JSONObject.
+    return JSONObject.numberToString(Float.valueOf(number));
+  }
+
+  /**
+   * Returns the indentation for the given indentation level.
+   *
+   * @param level The indentation level.
+   *
+   * @return The indentation.
+   */
+  protected static String indent(int level) {
+    if (level < INDENTS.length) {
+      return INDENTS[level];
+    }
+    return spaces(level * INDENT_LENGTH);
+  }
+
+  /**
+   * Returns a string consisting of the given number of spaces.
+   *
+   * @param num The number of spaces.
+   *
+   * @return The string.
    */
-  protected JSONObject serializePage(Page page) {
-    JSONObject pageJson = new JSONObject();
-    if (page != null) {
-      pageJson.put(ID, page.getPageNumber());
-      pageJson.put(WIDTH, page.getWidth());
-      pageJson.put(HEIGHT, page.getHeight());
+  protected static String spaces(int num) {
+    StringBuilder sb = new StringBuilder(num);
+    for (int i = 0; i < num; i++) {
+      sb.append(' ');
     }
-    return pageJson;
+    return sb.toString();
   }
 }
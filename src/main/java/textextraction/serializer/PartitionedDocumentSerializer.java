@@ -0,0 +1,223 @@
+package textextraction.serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Page;
+import textextraction.serializer.buffer.BufferPool;
+import textextraction.serializer.buffer.ChunkedByteBuffer;
+import textextraction.serializer.buffer.SizePredictor;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationManifest;
+import textextraction.serializer.model.SerializationOptions;
+import textextraction.serializer.model.SerializationPart;
+
+/**
+ * A serializer that splits the serialization of a large document at page boundaries into several
+ * parts of a bounded size. Each part is a complete serialization of a range of pages, with its own
+ * fonts, colors and pages sections, so that the parts can be processed independently and in
+ * parallel; within a part, the elements refer to the characters by their indices in the part.
+ * Paragraphs spanning the pages of two parts are contained in both parts; in each part, the range
+ * of their characters is clipped to the characters of the part.
+ *
+ * <p>
+ * The pages are grouped into parts by the sizes predicted by a {@link SizePredictor}. Each part
+ * is serialized into a buffer first; if it turns out to be larger than the maximum part size, its
+ * pages are split into two halves, which are serialized again. A single page whose serialization
+ * exceeds the maximum part size forms a part of its own, exceeding the maximum part size.
+ *
+ * @author Claudius Korzen
+ */
+public class PartitionedDocumentSerializer {
+  /**
+   * The share of the maximum part size to fill according to the predicted sizes, leaving room for
+   * prediction errors.
+   */
+  protected static final double TARGET_FILL = 0.9;
+
+  /**
+   * The serializer to serialize the parts.
+   */
+  protected DocumentSerializer serializer;
+
+  /**
+   * The pool of the chunks in which the parts are collected.
+   */
+  protected BufferPool pool;
+
+  /**
+   * The predictor of the sizes of the pages.
+   */
+  protected SizePredictor predictor;
+
+  /**
+   * The maximum number of bytes per part.
+   */
+  protected long maxPartSize;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new serializer that uses the shared buffer pool and size predictor.
+   *
+   * @param maxPartSize The maximum number of bytes per part.
+   */
+  public PartitionedDocumentSerializer(long maxPartSize) {
+    this(maxPartSize, BufferPool.getShared(), SizePredictor.getShared());
+  }
+
+  /**
+   * Creates a new serializer that uses the given buffer pool and size predictor.
+   *
+   * @param maxPartSize The maximum number of bytes per part.
+   * @param pool        The pool of the chunks in which the parts are collected.
+   * @param predictor   The predictor of the sizes of the pages.
+   */
+  public PartitionedDocumentSerializer(long maxPartSize, BufferPool pool,
+          SizePredictor predictor) {
+    if (maxPartSize <= 0) {
+      throw new IllegalArgumentException("Invalid maximum part size: " + maxPartSize);
+    }
+    this.maxPartSize = maxPartSize;
+    this.pool = pool;
+    this.predictor = predictor;
+    this.serializer = new DocumentSerializer(pool, predictor);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the elements with the given types of the given document in the given format, split
+   * into parts of at most the maximum part size, and writes the parts to the given sink.
+   *
+   * @param doc     The document to serialize.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param options The options that control the serialization. The parts are restricted to the
+   *                pages accepted by the element filter of the options.
+   * @param sink    The sink to write the parts to.
+   *
+   * @return The manifest that lists the written parts.
+   *
+   * @throws SerializerException If something went wrong on serializing the document or on writing
+   *                             a part.
+   */
+  public SerializationManifest serialize(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options,
+          SerializationPartSink sink) throws SerializerException {
+    SerializationManifest manifest = new SerializationManifest(format, this.maxPartSize);
+    if (doc == null) {
+      return manifest;
+    }
+
+    // Group the pages into parts by their predicted sizes.
+    ElementFilter filter = options.getElementFilter();
+    double bytesPerElement = this.predictor.getBytesPerElement(format);
+    long targetSize = (long) (this.maxPartSize * TARGET_FILL);
+    Deque<List<Page>> groups = new ArrayDeque<>();
+    List<Page> group = new ArrayList<>();
+    long groupSize = 0;
+    for (Page page : doc.getPages()) {
+      if (page == null || !filter.accept(page)) {
+        continue;
+      }
+      long pageSize = (long) (this.predictor.countElements(page, format, clazzes)
+              * bytesPerElement);
+      if (!group.isEmpty() && groupSize + pageSize > targetSize) {
+        groups.addLast(group);
+        group = new ArrayList<>();
+        groupSize = 0;
+      }
+      group.add(page);
+      groupSize += pageSize;
+    }
+    if (!group.isEmpty()) {
+      groups.addLast(group);
+    }
+
+    // Serialize the parts, splitting parts that turn out to be too large.
+    ChunkedByteBuffer buffer = this.pool.newBuffer();
+    try {
+      while (!groups.isEmpty()) {
+        List<Page> pages = groups.removeFirst();
+        Page first = pages.get(0);
+        Page last = pages.get(pages.size() - 1);
+
+        buffer.reset();
+        SerializationOptions partOptions = new SerializationOptions(options);
+        partOptions.setElementFilter(getPartFilter(filter, first, last));
+        if (options.getMaxOutputSize() < Long.MAX_VALUE) {
+          // The maximum output size applies to all parts together.
+          partOptions.setMaxOutputSize(
+                  Math.max(1, options.getMaxOutputSize() - manifest.getTotalSize()));
+        }
+        this.serializer.serialize(doc, format, clazzes, partOptions, buffer);
+
+        if (buffer.size() > this.maxPartSize && pages.size() > 1) {
+          int middle = pages.size() / 2;
+          groups.addFirst(new ArrayList<>(pages.subList(middle, pages.size())));
+          groups.addFirst(new ArrayList<>(pages.subList(0, middle)));
+          continue;
+        }
+
+        long numElements = 0;
+        for (Page page : pages) {
+          numElements += this.predictor.countElements(page, format, clazzes);
+        }
+        this.predictor.record(format, numElements, buffer.size());
+
+        SerializationPart part = new SerializationPart(manifest.getParts().size() + 1,
+                first.getPageNumber(), last.getPageNumber(), buffer.size());
+        writePart(sink, part, buffer);
+        manifest.addPart(part);
+      }
+    } finally {
+      buffer.release();
+    }
+
+    return manifest;
+  }
+
+  /**
+   * Returns the filter that restricts the given filter to the pages from the given first to the
+   * given last page.
+   *
+   * @param filter The filter to restrict.
+   * @param first  The first page of the part.
+   * @param last   The last page of the part.
+   *
+   * @return The filter of the part.
+   */
+  protected ElementFilter getPartFilter(ElementFilter filter, Page first, Page last) {
+    return new ElementFilter(first.getPageNumber(), last.getPageNumber(),
+            filter.getRegionFilter());
+  }
+
+  /**
+   * Writes the given part from the given buffer to the given sink.
+   *
+   * @param sink   The sink to write the part to.
+   * @param part   The part.
+   * @param buffer The buffer that contains the serialization of the part.
+   *
+   * @throws SerializerException If writing the part failed.
+   */
+  protected void writePart(SerializationPartSink sink, SerializationPart part,
+          ChunkedByteBuffer buffer) throws SerializerException {
+    try (OutputStream out = sink.openPart(part)) {
+      buffer.writeTo(out);
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't write the part " + part.getNumber() + ".", e);
+    }
+  }
+}
@@ -0,0 +1,548 @@
+package textextraction.serializer;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
+import textextraction.common.models.Shape;
+import textextraction.serializer.buffer.CountingOutputStream;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.CostEstimate;
+import textextraction.serializer.model.ElementField;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.FieldProjection;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * Predicts the cost of a serialization (the number of bytes and the CPU time) before running it,
+ * for example to schedule serializations or to admit them by cost.
+ *
+ * <p>
+ * The cost is predicted per format by a linear model over the cost drivers of the serialization:
+ * the numbers of pages and of serialized elements per type, which are counted in O(pages) from the
+ * sizes of the element lists of the pages accepted by the element filter, and the numbers of fonts
+ * and colors, which are estimated from a sample of {@link #SAMPLES_PER_PAGE} characters and shapes
+ * per page. The models start with coefficients measured on a reference document (with the default
+ * options) and are calibrated by the costs of actual serializations (see
+ * {@link #record(CostEstimate, long, long)} and {@link #serialize(DocumentSerializer, Document,
+ * SerializationFormat, Collection, SerializationOptions, OutputStream)}): the coefficients are
+ * fitted by least squares, regularized towards the initial coefficients and with exponentially
+ * decaying weights of older observations, so that they adapt to the documents, the options and
+ * the machine currently used. Since the options are not part of the models, an estimator should be
+ * calibrated per set of options. An estimator is thread-safe and meant to be shared.
+ *
+ * @author Claudius Korzen
+ */
+public class SerializationCostEstimator {
+  /**
+   * The number of characters and of shapes per page sampled to estimate the number of fonts and
+   * colors.
+   */
+  protected static final int SAMPLES_PER_PAGE = 8;
+
+  /**
+   * The factor by which the weights of the observations decay per new observation.
+   */
+  protected static final double DECAY = 0.99;
+
+  /**
+   * The weight of the initial coefficients, in number of (average) observations.
+   */
+  protected static final double PRIOR_WEIGHT = 1;
+
+  /**
+   * The regularization of the coefficients without any observation, to keep the equations
+   * solvable.
+   */
+  protected static final double EPSILON = 1e-9;
+
+  /**
+   * The estimator shared by default.
+   */
+  protected static final SerializationCostEstimator SHARED = new SerializationCostEstimator();
+
+  // ==============================================================================================
+  // The cost drivers (the features of the models).
+
+  /**
+   * The feature of the fixed cost per serialization.
+   */
+  protected static final int CONSTANT = 0;
+
+  /**
+   * The feature of the number of pages.
+   */
+  protected static final int PAGES = 1;
+
+  /**
+   * The feature of the number of fonts.
+   */
+  protected static final int FONTS = 2;
+
+  /**
+   * The feature of the number of colors.
+   */
+  protected static final int COLORS = 3;
+
+  /**
+   * The index of the first feature of the numbers of elements, in the order of
+   * {@link #ELEMENT_CLASSES}.
+   */
+  protected static final int ELEMENTS = 4;
+
+  /**
+   * The types of elements, in the order of their features.
+   */
+  protected static final ElementClass[] ELEMENT_CLASSES = { ElementClass.CHARACTERS,
+      ElementClass.WORDS, ElementClass.TEXT_LINES, ElementClass.TEXT_BLOCKS,
+      ElementClass.PARAGRAPHS, ElementClass.FIGURES, ElementClass.SHAPES };
+
+  /**
+   * The number of features.
+   */
+  protected static final int NUM_FEATURES = ELEMENTS + ELEMENT_CLASSES.length;
+
+  /**
+   * The bean to measure the CPU time of the current thread.
+   */
+  protected ThreadMXBean threadBean;
+
+  /**
+   * The models of the number of bytes, per format.
+   */
+  protected Map<SerializationFormat, LinearModel> bytesModels;
+
+  /**
+   * The models of the CPU time, per format.
+   */
+  protected Map<SerializationFormat, LinearModel> cpuTimeModels;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new estimator, initialized with the coefficients measured on a reference document.
+   */
+  public SerializationCostEstimator() {
+    this.threadBean = ManagementFactory.getThreadMXBean();
+    this.bytesModels = new EnumMap<>(SerializationFormat.class);
+    this.cpuTimeModels = new EnumMap<>(SerializationFormat.class);
+
+    // The coefficients per feature: constant, pages, fonts, colors, characters, words, text
+    // lines, text blocks, paragraphs, figures, shapes.
+    this.bytesModels.put(SerializationFormat.JSON, new LinearModel(
+            30, 120, 110, 90, 175, 150, 200, 200, 250, 95, 120));
+    this.bytesModels.put(SerializationFormat.XML, new LinearModel(
+            60, 250, 230, 200, 350, 300, 400, 400, 450, 195, 245));
+    this.bytesModels.put(SerializationFormat.BINARY, new LinearModel(
+            210, 40, 20, 16, 36, 24, 28, 28, 32, 23, 27));
+    this.bytesModels.put(SerializationFormat.TEXT, new LinearModel(
+            0, 2, 0, 0, 1, 0, 0, 0, 0, 0, 0));
+
+    this.cpuTimeModels.put(SerializationFormat.JSON, new LinearModel(
+            35000, 3000, 2000, 1500, 4300, 3000, 3000, 3000, 4000, 1500, 1800));
+    this.cpuTimeModels.put(SerializationFormat.XML, new LinearModel(
+            35000, 3000, 2500, 2000, 2300, 2500, 2500, 2500, 3000, 1500, 2000));
+    this.cpuTimeModels.put(SerializationFormat.BINARY, new LinearModel(
+            24000, 1000, 1000, 500, 430, 450, 450, 450, 500, 250, 300));
+    this.cpuTimeModels.put(SerializationFormat.TEXT, new LinearModel(
+            5600, 500, 0, 0, 41, 0, 0, 0, 0, 0, 0));
+  }
+
+  /**
+   * Returns the estimator shared by default.
+   *
+   * @return The shared estimator.
+   */
+  public static SerializationCostEstimator getShared() {
+    return SHARED;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Predicts the cost of serializing the elements with the given types of the given document in
+   * the given format, in O(pages).
+   *
+   * @param doc     The document.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of the elements to serialize.
+   * @param options The options that control the serialization.
+   *
+   * @return The estimate of the cost.
+   */
+  public CostEstimate estimate(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options) {
+    CostEstimate estimate = countCostDrivers(doc, format, clazzes, options);
+    double[] features = getFeatures(estimate);
+    synchronized (this) {
+      estimate.setNumBytes(Math.round(this.bytesModels.get(format).predict(features)));
+      estimate.setCpuTime(Math.round(this.cpuTimeModels.get(format).predict(features)));
+    }
+    return estimate;
+  }
+
+  /**
+   * Records the actual cost of a serialization, to calibrate later predictions.
+   *
+   * @param estimate The estimate of the serialization, as returned by
+   *                 {@link #estimate(Document, SerializationFormat, Collection,
+   *                 SerializationOptions)}.
+   * @param numBytes The actual number of bytes of the serialization.
+   * @param cpuTime  The actual CPU time of the serialization in nanoseconds, or a negative value
+   *                 if it wasn't measured.
+   */
+  public synchronized void record(CostEstimate estimate, long numBytes, long cpuTime) {
+    double[] features = getFeatures(estimate);
+    if (numBytes >= 0) {
+      this.bytesModels.get(estimate.getFormat()).record(features, numBytes);
+    }
+    if (cpuTime >= 0) {
+      this.cpuTimeModels.get(estimate.getFormat()).record(features, cpuTime);
+    }
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in the given format with
+   * the given serializer, measures the number of bytes and the CPU time of the current thread and
+   * records them to calibrate later predictions.
+   *
+   * @param serializer The serializer.
+   * @param doc        The document to serialize.
+   * @param format     The format of the serialization.
+   * @param clazzes    The types of elements to serialize from the document.
+   * @param options    The options that control the serialization.
+   * @param out        The stream to write the serialization to.
+   *
+   * @return The index of the byte ranges of the sections and pages in the serialization.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(DocumentSerializer serializer, Document doc,
+          SerializationFormat format, Collection<ElementClass> clazzes,
+          SerializationOptions options, OutputStream out) throws SerializerException {
+    CostEstimate estimate = countCostDrivers(doc, format, clazzes, options);
+    CountingOutputStream counter = new CountingOutputStream(out);
+    boolean isMeasuringCpuTime = this.threadBean.isCurrentThreadCpuTimeSupported();
+    long start = isMeasuringCpuTime ? this.threadBean.getCurrentThreadCpuTime() : -1;
+    SerializationIndex index = serializer.serialize(doc, format, clazzes, options, counter);
+    long cpuTime = start >= 0 ? this.threadBean.getCurrentThreadCpuTime() - start : -1;
+    record(estimate, counter.getNumBytes(), cpuTime);
+    return index;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Counts the cost drivers of serializing the elements with the given types of the given
+   * document in the given format: the numbers of pages and elements on the pages accepted by the
+   * element filter (in format {@link SerializationFormat#TEXT}, only the characters), the number of
+   * paragraphs accepted by the element filter and the
+   * numbers of distinct fonts and colors in a sample of the characters and shapes of each page.
+   *
+   * @param doc     The document.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of the elements to serialize.
+   * @param options The options that control the serialization.
+   *
+   * @return An estimate with the cost drivers, but without a prediction.
+   */
+  protected CostEstimate countCostDrivers(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, SerializationOptions options) {
+    Map<ElementClass, Long> numElements = new EnumMap<>(ElementClass.class);
+    if (doc == null) {
+      return new CostEstimate(format, 0, numElements, 0, 0);
+    }
+
+    boolean isText = format == SerializationFormat.TEXT;
+    FieldProjection projection = options.getFieldProjection();
+    ElementFilter filter = options.getElementFilter();
+    boolean isCountingFonts = !isText && clazzes.contains(ElementClass.CHARACTERS)
+            && projection.includes(ElementClass.CHARACTERS, ElementField.FONT);
+    boolean isCountingCharacterColors = !isText && clazzes.contains(ElementClass.CHARACTERS)
+            && projection.includes(ElementClass.CHARACTERS, ElementField.COLOR);
+    boolean isCountingShapeColors = !isText && clazzes.contains(ElementClass.SHAPES)
+            && projection.includes(ElementClass.SHAPES, ElementField.COLOR);
+    Set<Font> fonts = new HashSet<>();
+    Set<Color> colors = new HashSet<>();
+
+    long numPages = 0;
+    for (Page page : doc.getPages()) {
+      if (page == null || !filter.accept(page)) {
+        continue;
+      }
+      numPages++;
+      if (isText) {
+        add(numElements, ElementClass.CHARACTERS, page.getCharacters());
+        continue;
+      }
+      for (ElementClass clazz : clazzes) {
+        switch (clazz) {
+          case CHARACTERS:
+            add(numElements, clazz, page.getCharacters());
+            break;
+          case WORDS:
+            add(numElements, clazz, page.getWords());
+            break;
+          case TEXT_LINES:
+            add(numElements, clazz, page.getTextLines());
+            break;
+          case TEXT_BLOCKS:
+            add(numElements, clazz, page.getTextBlocks());
+            break;
+          case FIGURES:
+            add(numElements, clazz, page.getFigures());
+            break;
+          case SHAPES:
+            add(numElements, clazz, page.getShapes());
+            break;
+          default:
+            break;
+        }
+      }
+
+      if (isCountingFonts || isCountingCharacterColors) {
+        List<Character> characters = page.getCharacters();
+        for (int i : getSampleIndices(characters)) {
+          Character character = characters.get(i);
+          if (character == null) {
+            continue;
+          }
+          FontFace fontFace = character.getFontFace();
+          if (isCountingFonts && fontFace != null && fontFace.getFont() != null
+                  && fontFace.getFont().getId() != null && fontFace.getFontSize() > 0) {
+            fonts.add(fontFace.getFont());
+          }
+          Color color = character.getColor();
+          if (isCountingCharacterColors && color != null && color.getId() != null) {
+            colors.add(color);
+          }
+        }
+      }
+      if (isCountingShapeColors) {
+        List<Shape> shapes = page.getShapes();
+        for (int i : getSampleIndices(shapes)) {
+          Shape shape = shapes.get(i);
+          if (shape != null && shape.getColor() != null && shape.getColor().getId() != null) {
+            colors.add(shape.getColor());
+          }
+        }
+      }
+    }
+    if (!isText && clazzes.contains(ElementClass.PARAGRAPHS) && doc.getParagraphs() != null) {
+      long numParagraphs = 0;
+      for (Paragraph paragraph : doc.getParagraphs()) {
+        if (paragraph != null && filter.accept(paragraph.getPositions())) {
+          numParagraphs++;
+        }
+      }
+      numElements.merge(ElementClass.PARAGRAPHS, numParagraphs, Long::sum);
+    }
+    return new CostEstimate(format, numPages, numElements, fonts.size(), colors.size());
+  }
+
+  /**
+   * Returns the features of the models for the cost drivers of the given estimate.
+   *
+   * @param estimate The estimate.
+   *
+   * @return The features.
+   */
+  protected static double[] getFeatures(CostEstimate estimate) {
+    double[] features = new double[NUM_FEATURES];
+    features[CONSTANT] = 1;
+    features[PAGES] = estimate.getNumPages();
+    features[FONTS] = estimate.getNumFonts();
+    features[COLORS] = estimate.getNumColors();
+    for (int i = 0; i < ELEMENT_CLASSES.length; i++) {
+      features[ELEMENTS + i] = estimate.getNumElements(ELEMENT_CLASSES[i]);
+    }
+    return features;
+  }
+
+  /**
+   * Returns the indices of up to {@link #SAMPLES_PER_PAGE} elements of the given list, evenly
+   * spaced over the list.
+   *
+   * @param list The list.
+   *
+   * @return The indices of the sampled elements.
+   */
+  protected static int[] getSampleIndices(List<?> list) {
+    int size = list != null ? list.size() : 0;
+    int numSamples = Math.min(size, SAMPLES_PER_PAGE);
+    int[] indices = new int[numSamples];
+    for (int i = 0; i < numSamples; i++) {
+      indices[i] = (int) ((long) i * size / numSamples);
+    }
+    return indices;
+  }
+
+  /**
+   * Adds the size of the given list to the number of elements of the given type.
+   *
+   * @param numElements The number of elements per type.
+   * @param clazz       The type of the elements.
+   * @param list        The list.
+   */
+  protected static void add(Map<ElementClass, Long> numElements, ElementClass clazz,
+          List<?> list) {
+    if (list != null) {
+      numElements.merge(clazz, (long) list.size(), Long::sum);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * A linear model of a cost, fitted by least squares to the observed costs, with exponentially
+   * decaying weights of older observations and regularized towards initial coefficients. Only the
+   * sufficient statistics of the observations are stored, so an observation costs
+   * O(features^2), and the coefficients are solved in O(features^3) on the first prediction after
+   * an observation.
+   */
+  protected static class LinearModel {
+    /**
+     * The initial coefficients.
+     */
+    protected double[] prior;
+
+    /**
+     * The weighted sum of the outer products of the features of the observations.
+     */
+    protected double[][] xx;
+
+    /**
+     * The weighted sum of the features of the observations, multiplied by the observed costs.
+     */
+    protected double[] xy;
+
+    /**
+     * The sum of the weights of the observations.
+     */
+    protected double weight;
+
+    /**
+     * The fitted coefficients, or null if they must be solved again.
+     */
+    protected double[] coefficients;
+
+    /**
+     * Creates a new model with the given initial coefficients.
+     *
+     * @param prior The initial coefficients, one per feature.
+     */
+    protected LinearModel(double... prior) {
+      this.prior = prior;
+      this.xx = new double[prior.length][prior.length];
+      this.xy = new double[prior.length];
+      this.coefficients = prior.clone();
+    }
+
+    /**
+     * Predicts the cost for the given features.
+     *
+     * @param features The features.
+     *
+     * @return The predicted cost.
+     */
+    protected double predict(double[] features) {
+      if (this.coefficients == null) {
+        this.coefficients = solve();
+      }
+      double cost = 0;
+      for (int i = 0; i < features.length; i++) {
+        cost += this.coefficients[i] * features[i];
+      }
+      return cost;
+    }
+
+    /**
+     * Records the observed cost for the given features.
+     *
+     * @param features The features.
+     * @param cost     The observed cost.
+     */
+    protected void record(double[] features, double cost) {
+      for (int i = 0; i < features.length; i++) {
+        for (int j = 0; j < features.length; j++) {
+          this.xx[i][j] = DECAY * this.xx[i][j] + features[i] * features[j];
+        }
+        this.xy[i] = DECAY * this.xy[i] + features[i] * cost;
+      }
+      this.weight = DECAY * this.weight + 1;
+      this.coefficients = null;
+    }
+
+    /**
+     * Solves the regularized normal equations (XX + L) c = XY + L p for the coefficients c, where
+     * L weights the initial coefficients p like {@link #PRIOR_WEIGHT} average observations. The
+     * coefficients of features that were never observed stay at their initial values. Negative
+     * coefficients are clamped to 0.
+     *
+     * @return The coefficients.
+     */
+    protected double[] solve() {
+      int n = this.prior.length;
+      double[][] a = new double[n][n + 1];
+      for (int i = 0; i < n; i++) {
+        double lambda = EPSILON;
+        if (this.weight > 0) {
+          lambda += PRIOR_WEIGHT * this.xx[i][i] / this.weight;
+        }
+        System.arraycopy(this.xx[i], 0, a[i], 0, n);
+        a[i][i] += lambda;
+        a[i][n] = this.xy[i] + lambda * this.prior[i];
+      }
+
+      // Gaussian elimination with partial pivoting.
+      for (int col = 0; col < n; col++) {
+        int pivot = col;
+        for (int row = col + 1; row < n; row++) {
+          if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+            pivot = row;
+          }
+        }
+        double[] tmp = a[col];
+        a[col] = a[pivot];
+        a[pivot] = tmp;
+        for (int row = col + 1; row < n; row++) {
+          double factor = a[row][col] / a[col][col];
+          for (int k = col; k <= n; k++) {
+            a[row][k] -= factor * a[col][k];
+          }
+        }
+      }
+      double[] coefficients = new double[n];
+      for (int row = n - 1; row >= 0; row--) {
+        double sum = a[row][n];
+        for (int k = row + 1; k < n; k++) {
+          sum -= a[row][k] * coefficients[k];
+        }
+        coefficients[row] = sum / a[row][row];
+      }
+      for (int i = 0; i < n; i++) {
+        if (!(coefficients[i] >= 0)) {
+          coefficients[i] = 0;
+        }
+      }
+      return coefficients;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package textextraction.serializer;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+import textextraction.common.models.ElementClass;
+import textextraction.serializer.exception.SerializationAbortedException;
+import textextraction.serializer.exception.SerializationAbortedException.Reason;
+import textextraction.serializer.model.CancellationToken;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * Enforces the deadline, the cancellation token and the maximum output size of a serialization
+ * (see {@link SerializationOptions}).
+ *
+ * <p>
+ * The limits are checked before each page and every {@link #ELEMENTS_PER_CHECK} elements, so that
+ * the checks are cheap, but a serialization is aborted shortly after exceeding a limit, even on
+ * pages with many elements. If no limit is set, a check costs a single comparison.
+ *
+ * @author Claudius Korzen
+ */
+public class SerializationGuard {
+  /**
+   * The number of elements between two checks of the limits.
+   */
+  protected static final int ELEMENTS_PER_CHECK = 256;
+
+  /**
+   * The point in time by which the serialization must be finished, in milliseconds since the
+   * epoch, or {@link Long#MAX_VALUE} if there is no deadline.
+   */
+  protected long deadline;
+
+  /**
+   * The token by which the serialization can be cancelled, or null if there is none.
+   */
+  protected CancellationToken cancellationToken;
+
+  /**
+   * The maximum number of bytes of the serialization.
+   */
+  protected long maxOutputSize;
+
+  /**
+   * The supplier of the number of bytes generated so far.
+   */
+  protected LongSupplier numBytes;
+
+  /**
+   * Whether any limit is set.
+   */
+  protected boolean isLimited;
+
+  // ==============================================================================================
+  // The progress of the serialization.
+
+  /**
+   * The type of the elements of the current section, or null if no section was started yet.
+   */
+  protected ElementClass clazz;
+
+  /**
+   * The number of the current page, or -1 if there is none.
+   */
+  protected int pageNumber = -1;
+
+  /**
+   * The number of elements serialized so far.
+   */
+  protected long numElements;
+
+  /**
+   * The number of elements left until the next check of the limits.
+   */
+  protected int numElementsUntilCheck = ELEMENTS_PER_CHECK;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new guard that enforces the limits of the given options.
+   *
+   * @param options  The options that define the limits.
+   * @param numBytes The supplier of the number of bytes generated so far.
+   */
+  public SerializationGuard(SerializationOptions options, LongSupplier numBytes) {
+    Instant deadline = options.getDeadline();
+    this.deadline = deadline != null ? deadline.toEpochMilli() : Long.MAX_VALUE;
+    this.cancellationToken = options.getCancellationToken();
+    this.maxOutputSize = options.getMaxOutputSize();
+    this.numBytes = numBytes;
+    this.isLimited = deadline != null || this.cancellationToken != null
+            || this.maxOutputSize < Long.MAX_VALUE;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Checks the limits before serializing the elements of the given type of the given page.
+   *
+   * @param clazz      The type of the elements to serialize.
+   * @param pageNumber The number of the page, or -1 if the elements aren't page-based.
+   *
+   * @throws SerializationAbortedException If a limit was exceeded.
+   */
+  public void checkPage(ElementClass clazz, int pageNumber) throws SerializationAbortedException {
+    this.clazz = clazz;
+    this.pageNumber = pageNumber;
+    if (this.isLimited) {
+      check();
+    }
+  }
+
+  /**
+   * Counts a serialized element and checks the limits if {@link #ELEMENTS_PER_CHECK} elements were
+   * serialized since the last check.
+   *
+   * @throws SerializationAbortedException If a limit was exceeded.
+   */
+  public void checkElement() throws SerializationAbortedException {
+    this.numElements++;
+    if (--this.numElementsUntilCheck > 0) {
+      return;
+    }
+    this.numElementsUntilCheck = ELEMENTS_PER_CHECK;
+    if (this.isLimited) {
+      check();
+    }
+  }
+
+  /**
+   * Checks the limits.
+   *
+   * @throws SerializationAbortedException If a limit was exceeded.
+   */
+  public void check() throws SerializationAbortedException {
+    if (this.cancellationToken != null && this.cancellationToken.isCancelled()) {
+      throw abort(Reason.CANCELLED);
+    }
+    if (this.deadline < Long.MAX_VALUE && System.currentTimeMillis() >= this.deadline) {
+      throw abort(Reason.DEADLINE_EXCEEDED);
+    }
+    if (this.maxOutputSize < Long.MAX_VALUE && this.numBytes.getAsLong() > this.maxOutputSize) {
+      throw abort(Reason.OUTPUT_SIZE_EXCEEDED);
+    }
+  }
+
+  /**
+   * Creates the exception to abort the serialization for the given reason.
+   *
+   * @param reason The reason.
+   *
+   * @return The exception, reporting the progress of the serialization.
+   */
+  protected SerializationAbortedException abort(Reason reason) {
+    return new SerializationAbortedException(reason, this.clazz, this.pageNumber,
+            this.numElements, this.numBytes.getAsLong());
+  }
+}
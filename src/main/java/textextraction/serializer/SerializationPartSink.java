@@ -0,0 +1,25 @@
+package textextraction.serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import textextraction.serializer.model.SerializationPart;
+
+/**
+ * A sink for the parts of a serialization that is split into several parts, for example a
+ * directory or an object store.
+ *
+ * @author Claudius Korzen
+ */
+public interface SerializationPartSink {
+  /**
+   * Opens a stream to write the given part to. The stream is closed after the part was written.
+   *
+   * @param part The part to write.
+   *
+   * @return The stream to write the part to.
+   *
+   * @throws IOException If the stream couldn't be opened.
+   */
+  OutputStream openPart(SerializationPart part) throws IOException;
+}
@@ -0,0 +1,297 @@
+package textextraction.serializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.serializer.buffer.ChunkedByteBuffer;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A publisher that serializes a document on demand and publishes the serialization as a sequence
+ * of byte buffers.
+ *
+ * <p>
+ * The publisher is cold: each subscriber gets its own serialization, generated by its own
+ * {@link DocumentTraversal}. The traversal is advanced page by page (see
+ * {@link DocumentTraversal#step()}), and only while the subscriber has signaled demand: each
+ * requested buffer is filled by traversing pages until at least {@link #CHUNK_SIZE} bytes were
+ * written or the document was traversed completely. Thus, at most about one chunk (plus the
+ * serialization of one page) is buffered per subscriber. When the subscription is cancelled, the
+ * traversal is stopped before the next page.
+ *
+ * <p>
+ * The serializations of the formats XML, JSON and TEXT are published progressively. The binary
+ * format stores the records of each type in a separate section and writes the sections only at the
+ * end of the document, so its serialization is published at once on the last step.
+ *
+ * @author Claudius Korzen
+ */
+public class SerializationPublisher implements Flow.Publisher<ByteBuffer> {
+  /**
+   * The number of bytes to collect per published buffer.
+   */
+  protected static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The serializer that creates the serializers of the formats.
+   */
+  protected DocumentSerializer serializer;
+
+  /**
+   * The document to serialize.
+   */
+  protected Document doc;
+
+  /**
+   * The format of the serialization.
+   */
+  protected SerializationFormat format;
+
+  /**
+   * The types of elements to serialize from the document.
+   */
+  protected Collection<ElementClass> clazzes;
+
+  /**
+   * The options that control the serialization.
+   */
+  protected SerializationOptions options;
+
+  /**
+   * The executor on which the serialization is generated.
+   */
+  protected Executor executor;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new publisher.
+   *
+   * @param serializer The serializer that creates the serializers of the formats.
+   * @param doc        The document to serialize.
+   * @param format     The format of the serialization.
+   * @param clazzes    The types of elements to serialize from the document.
+   * @param options    The options that control the serialization.
+   * @param executor   The executor on which the serialization is generated.
+   */
+  public SerializationPublisher(DocumentSerializer serializer, Document doc,
+          SerializationFormat format, Collection<ElementClass> clazzes,
+          SerializationOptions options, Executor executor) {
+    this.serializer = serializer;
+    this.doc = doc;
+    this.format = format;
+    this.clazzes = clazzes;
+    this.options = options;
+    this.executor = executor;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("The subscriber is null.");
+    }
+    subscriber.onSubscribe(new SerializationSubscription(subscriber));
+  }
+
+  // ==============================================================================================
+
+  /**
+   * The subscription of a single subscriber, generating the serialization on demand.
+   *
+   * <p>
+   * The requests of the subscriber are collected in a demand counter and served by a drain loop,
+   * which runs on the executor of the publisher. The loop is run by at most one thread at a time,
+   * so the traversal is never advanced concurrently, even if the subscriber requests more data
+   * from within {@link Flow.Subscriber#onNext(Object)} or from several threads.
+   */
+  protected class SerializationSubscription implements Flow.Subscription {
+    /**
+     * The subscriber.
+     */
+    protected Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    /**
+     * The number of buffers requested by the subscriber and not yet published.
+     */
+    protected AtomicLong demand = new AtomicLong();
+
+    /**
+     * The number of pending runs of the drain loop; the loop is only started by the request that
+     * increments this number from zero.
+     */
+    protected AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Whether the subscription was cancelled.
+     */
+    protected volatile boolean isCancelled;
+
+    /**
+     * The error to signal to the subscriber, or null if there is none.
+     */
+    protected volatile Throwable error;
+
+    /**
+     * Whether the subscription was terminated, by completion or by an error.
+     */
+    protected boolean isTerminated;
+
+    /**
+     * The traversal that generates the serialization, or null if not started yet.
+     */
+    protected DocumentTraversal traversal;
+
+    /**
+     * The buffer in which the serialization of the current chunk is collected.
+     */
+    protected ChunkedByteBuffer buffer;
+
+    /**
+     * Whether the traversal is finished.
+     */
+    protected boolean isFinished;
+
+    /**
+     * Creates a new subscription.
+     *
+     * @param subscriber The subscriber.
+     */
+    protected SerializationSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        // Rule 3.9 of the Reactive Streams specification.
+        this.error = new IllegalArgumentException("The number of requested buffers must be "
+                + "positive.");
+        this.isCancelled = true;
+        drain();
+        return;
+      }
+      // Add the demand, capped at Long.MAX_VALUE (meaning an unbounded demand).
+      this.demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      this.isCancelled = true;
+      drain();
+    }
+
+    // ============================================================================================
+
+    /**
+     * Runs the drain loop on the executor, unless it is already running.
+     */
+    protected void drain() {
+      if (this.wip.getAndIncrement() == 0) {
+        executor.execute(this::drainLoop);
+      }
+    }
+
+    /**
+     * Publishes chunks of the serialization while the subscriber has signaled demand and the
+     * subscription was neither cancelled nor terminated.
+     */
+    protected void drainLoop() {
+      int missed = 1;
+      do {
+        if (this.error != null && !this.isTerminated) {
+          terminate();
+          this.subscriber.onError(this.error);
+        }
+
+        while (!this.isTerminated && !this.isCancelled && this.demand.get() > 0) {
+          ByteBuffer chunk;
+          try {
+            chunk = nextChunk();
+          } catch (IOException | RuntimeException e) {
+            // Terminate on any failure of the serialization, so that the loop is left and the
+            // subscription doesn't hang.
+            terminate();
+            this.subscriber.onError(new SerializerException("Couldn't serialize the document.", e));
+            break;
+          } catch (SerializerException e) {
+            terminate();
+            this.subscriber.onError(e);
+            break;
+          }
+          if (chunk != null) {
+            this.demand.decrementAndGet();
+            this.subscriber.onNext(chunk);
+          }
+          if (this.isFinished && !this.isCancelled && !this.isTerminated) {
+            terminate();
+            this.subscriber.onComplete();
+          }
+        }
+
+        if (this.isCancelled && !this.isTerminated) {
+          terminate();
+        }
+
+        missed = this.wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    /**
+     * Advances the traversal until at least {@link #CHUNK_SIZE} bytes were written or the
+     * traversal is finished, and returns the written bytes.
+     *
+     * @return The written bytes, or null if no bytes were written.
+     *
+     * @throws IOException         If writing the serialization failed.
+     * @throws SerializerException If a limit of the serialization was exceeded.
+     */
+    protected ByteBuffer nextChunk() throws IOException, SerializerException {
+      if (this.traversal == null) {
+        this.buffer = serializer.getBufferPool().newBuffer();
+        this.traversal = new DocumentTraversal(options);
+        serializer.register(this.traversal, format, clazzes, options, this.buffer);
+        if (doc == null) {
+          this.isFinished = true;
+          return null;
+        }
+        this.traversal.start(doc);
+      }
+
+      while (!this.isFinished && !this.isCancelled && this.buffer.size() < CHUNK_SIZE) {
+        this.isFinished = !this.traversal.step();
+      }
+
+      if (this.buffer.size() == 0) {
+        return null;
+      }
+      ByteBuffer chunk = ByteBuffer.wrap(this.buffer.toByteArray());
+      this.buffer.reset();
+      return chunk;
+    }
+
+    /**
+     * Marks this subscription as terminated and releases the resources of the traversal.
+     */
+    protected void terminate() {
+      this.isTerminated = true;
+      this.traversal = null;
+      if (this.buffer != null) {
+        this.buffer.release();
+        this.buffer = null;
+      }
+    }
+  }
+}
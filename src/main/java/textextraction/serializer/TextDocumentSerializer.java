@@ -0,0 +1,329 @@
+package textextraction.serializer;
+
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
+import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Page;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.jfr.DocumentSerializationEvent;
+import textextraction.serializer.jfr.PageSerializationEvent;
+import textextraction.serializer.model.ElementField;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.FieldProjection;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A serializer to serialize the plain text of a document: the texts of the characters, page by
+ * page, with a configurable separator between the pages (see
+ * {@link SerializationOptions#setPageSeparator(String)}).
+ *
+ * <p>
+ * This is the fastest path through the serialization: the positions, fonts and colors of the
+ * characters are not serialized and no fonts or colors are collected. The element filter is only
+ * evaluated per character if it doesn't accept all elements anyway. When sharing a
+ * {@link DocumentTraversal} with the serializers of other formats, the serializer handles the
+ * events of the characters and ignores all other events.
+ *
+ * <p>
+ * If content hashes are enabled (see
+ * {@link SerializationOptions#setComputingContentHashes(boolean)}), the hash of each page is
+ * computed over the texts of its characters (see {@link ContentHasher}) and the hash of the
+ * document over the whole serialization. The hashes
+ * are only recorded in the index; they are never embedded in the plain text.
+ *
+ * @author Claudius Korzen
+ */
+public class TextDocumentSerializer implements DocumentEventHandler {
+  /**
+   * The encoding to use on writing the serialization.
+   */
+  protected static final Charset ENCODING = Charset.forName(DEFAULT_ENCODING);
+
+  /**
+   * The fields that are serialized (and hashed): the texts of the characters.
+   */
+  protected static final FieldProjection TEXT_PROJECTION =
+          new FieldProjection().setFields(ElementClass.CHARACTERS, ElementField.TEXT);
+
+  /**
+   * The filter that restricts the serialization to a range of pages and/or a region of the pages.
+   */
+  protected ElementFilter filter;
+
+  /**
+   * The separator to write between the pages.
+   */
+  protected String pageSeparator;
+
+  /**
+   * The guard that enforces the deadline, the cancellation token and the maximum output size.
+   */
+  protected SerializationGuard guard;
+
+  /**
+   * Whether to compute content hashes of the pages and of the document.
+   */
+  protected boolean isComputingContentHashes;
+
+  // ==============================================================================================
+  // The state of the output.
+
+  /**
+   * The stream to which the serialization is written.
+   */
+  protected OutputStream out;
+
+  /**
+   * The number of bytes written to the output stream so far.
+   */
+  protected long offset;
+
+  /**
+   * The index of the byte ranges of the text of each page written so far.
+   */
+  protected SerializationIndex index;
+
+  /**
+   * Whether no page was written yet.
+   */
+  protected boolean isFirstPage;
+
+  /**
+   * The text of the page currently written.
+   */
+  protected StringBuilder text;
+
+  /**
+   * The hasher that computes the content hashes, or null if no hashes are computed.
+   */
+  protected ContentHasher hasher;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new serializer that serializes the plain text of a document.
+   */
+  public TextDocumentSerializer() {
+    this(new SerializationOptions());
+  }
+
+  /**
+   * Creates a new serializer that serializes the plain text of a document.
+   *
+   * @param options The options that control the serialization.
+   */
+  public TextDocumentSerializer(SerializationOptions options) {
+    this.filter = options.getElementFilter();
+    this.pageSeparator = options.getPageSeparator();
+    this.guard = new SerializationGuard(options, this::getNumBytes);
+    this.isComputingContentHashes = options.isComputingContentHashes();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the plain text of the given document.
+   *
+   * @param doc The document to serialize.
+   *
+   * @return The serialization as a byte array.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public byte[] serialize(Document doc) throws SerializerException {
+    if (doc == null) {
+      return null;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serialize(doc, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Serializes the plain text of the given document and writes it to the given stream.
+   *
+   * @param doc The document to serialize.
+   * @param out The stream to write the serialization to.
+   *
+   * @return The index of the byte ranges of the text of each page in the serialization.
+   *
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(Document doc, OutputStream out)
+          throws SerializerException {
+    open(out);
+    if (doc == null) {
+      return this.index;
+    }
+
+    boolean isAcceptingAll = this.filter.isAcceptingAll();
+
+    DocumentSerializationEvent documentEvent = null;
+    if (DocumentSerializationEvent.isRecording()) {
+      documentEvent = new DocumentSerializationEvent(SerializationFormat.TEXT.name(),
+              doc.getPages().size());
+    }
+
+    try {
+      long numCharacters = 0;
+      for (Page page : doc.getPages()) {
+        if (page == null || !this.filter.accept(page)) {
+          continue;
+        }
+        this.guard.checkPage(ElementClass.CHARACTERS, page.getPageNumber());
+        PageSerializationEvent pageEvent = null;
+        if (PageSerializationEvent.isRecording()) {
+          pageEvent = new PageSerializationEvent(SerializationFormat.TEXT.name(), TEXT,
+                  page.getPageNumber(), this.offset);
+        }
+        startPage(page);
+        int numPageCharacters = 0;
+
+        // Collect the texts of the characters of the page.
+        List<Character> characters = page.getCharacters();
+        for (int i = 0; i < characters.size(); i++) {
+          Character character = characters.get(i);
+          if (character == null) {
+            continue;
+          }
+          if (!isAcceptingAll && !this.filter.accept(character.getPosition())) {
+            continue;
+          }
+          this.guard.checkElement();
+          character(character);
+          numPageCharacters++;
+        }
+
+        endPage(page);
+        numCharacters += numPageCharacters;
+        if (pageEvent != null) {
+          pageEvent.finish(numPageCharacters, this.offset);
+        }
+      }
+      endDocument();
+      if (documentEvent != null) {
+        documentEvent.finish(numCharacters, this.offset);
+      }
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't serialize the document.", e);
+    }
+
+    return this.index;
+  }
+
+  /**
+   * Prepares this serializer to write a serialization to the given stream.
+   *
+   * @param out The stream to write the serialization to.
+   */
+  protected void open(OutputStream out) {
+    this.out = out;
+    this.offset = 0;
+    this.index = new SerializationIndex(SerializationFormat.TEXT);
+    this.isFirstPage = true;
+    this.text = new StringBuilder();
+    this.hasher = this.isComputingContentHashes ? new ContentHasher(TEXT_PROJECTION) : null;
+  }
+
+  /**
+   * Returns the index of the byte ranges of the text of each page written so far.
+   *
+   * @return The index.
+   */
+  public SerializationIndex getIndex() {
+    return this.index;
+  }
+
+  @Override
+  public long getNumBytes() {
+    // Approximate the size of the text of the current page by its number of chars.
+    return this.offset + this.text.length();
+  }
+
+  @Override
+  public SerializationFormat getFormat() {
+    return SerializationFormat.TEXT;
+  }
+
+  // ==============================================================================================
+  // Methods to handle the events of the traversal.
+
+  @Override
+  public void startPage(Page page) throws IOException {
+    // Write the separator between the previous and this page.
+    if (!this.isFirstPage) {
+      String separator = this.pageSeparator;
+      if (separator.contains(SerializationOptions.PAGE_NUMBER_PLACEHOLDER)) {
+        separator = separator.replace(SerializationOptions.PAGE_NUMBER_PLACEHOLDER,
+                String.valueOf(page.getPageNumber()));
+      }
+      write(separator.getBytes(ENCODING));
+    }
+    this.isFirstPage = false;
+    this.text.setLength(0);
+    if (this.hasher != null) {
+      this.hasher.startPage(null, this, CHARACTERS, page);
+    }
+  }
+
+  @Override
+  public void character(Character character) {
+    String charText = character.getText();
+    if (charText != null) {
+      this.text.append(charText);
+    }
+    if (this.hasher != null) {
+      this.hasher.character(character);
+    }
+  }
+
+  @Override
+  public void endPage(Page page) throws IOException {
+    byte[] bytes = this.text.toString().getBytes(ENCODING);
+    this.index.setPageRange(TEXT, page.getPageNumber(), this.offset, bytes.length);
+    if (this.hasher != null) {
+      this.hasher.update(bytes, 0, bytes.length);
+      this.hasher.endPage();
+    }
+    this.out.write(bytes);
+    this.offset += bytes.length;
+  }
+
+  @Override
+  public void endDocument() throws IOException {
+    this.index.setSectionRange(TEXT, 0, this.offset);
+    if (this.hasher != null) {
+      this.hasher.finish(this.index);
+    }
+    this.out.flush();
+  }
+
+  /**
+   * Writes the given bytes (that don't belong to the text of a page) to the output.
+   *
+   * @param bytes The bytes to write.
+   *
+   * @throws IOException If writing to the output failed.
+   */
+  protected void write(byte[] bytes) throws IOException {
+    this.out.write(bytes);
+    if (this.hasher != null) {
+      this.hasher.update(bytes, 0, bytes.length);
+    }
+    this.offset += bytes.length;
+  }
+}
@@ -0,0 +1,594 @@
+package textextraction.serializer;
+
+import static textextraction.serializer.DocumentSerializerConstants.B;
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTER;
+import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
+import static textextraction.serializer.DocumentSerializerConstants.COLOR;
+import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
+import static textextraction.serializer.DocumentSerializerConstants.FIGURE;
+import static textextraction.serializer.DocumentSerializerConstants.FIGURES;
+import static textextraction.serializer.DocumentSerializerConstants.FONT;
+import static textextraction.serializer.DocumentSerializerConstants.FONTS;
+import static textextraction.serializer.DocumentSerializerConstants.FONTSIZE;
+import static textextraction.serializer.DocumentSerializerConstants.FROM;
+import static textextraction.serializer.DocumentSerializerConstants.G;
+import static textextraction.serializer.DocumentSerializerConstants.HEIGHT;
+import static textextraction.serializer.DocumentSerializerConstants.ID;
+import static textextraction.serializer.DocumentSerializerConstants.IS_BOLD;
+import static textextraction.serializer.DocumentSerializerConstants.IS_ITALIC;
+import static textextraction.serializer.DocumentSerializerConstants.MAX_X;
+import static textextraction.serializer.DocumentSerializerConstants.MAX_Y;
+import static textextraction.serializer.DocumentSerializerConstants.MIN_X;
+import static textextraction.serializer.DocumentSerializerConstants.MIN_Y;
+import static textextraction.serializer.DocumentSerializerConstants.NAME;
+import static textextraction.serializer.DocumentSerializerConstants.PAGE;
+import static textextraction.serializer.DocumentSerializerConstants.PAGES;
+import static textextraction.serializer.DocumentSerializerConstants.POSITION;
+import static textextraction.serializer.DocumentSerializerConstants.R;
+import static textextraction.serializer.DocumentSerializerConstants.SHAPE;
+import static textextraction.serializer.DocumentSerializerConstants.SHAPES;
+import static textextraction.serializer.DocumentSerializerConstants.STYLE;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT;
+import static textextraction.serializer.DocumentSerializerConstants.TO;
+import static textextraction.serializer.DocumentSerializerConstants.WIDTH;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+import textextraction.common.models.Shape;
+import textextraction.serializer.exception.DeserializerException;
+
+/**
+ * A deserializer to read a document serialized in XML format (by {@link XmlDocumentSerializer})
+ * back into a {@link Document}.
+ *
+ * <p>
+ * The input is read with a StAX pull parser. Each element (a character, a figure, a shape, ...) is
+ * read into a small map of its field values, from which the model object is built; no more than
+ * one element is held in memory at a time. Font, color and page references are resolved via
+ * placeholder objects that are shared by all referencing elements and completed when the fonts,
+ * colors and pages sections are read. Sections without a counterpart in the document model (for
+ * example, words or paragraphs) are skipped. Style elements in the characters section (see
+ * {@link textextraction.serializer.model.SerializationOptions#setEncodingStyleRuns(boolean)})
+ * define the font face and color of the following characters.
+ *
+ * <p>
+ * Both the default schema and the compact schema (see
+ * {@link textextraction.serializer.model.SerializationOptions#setUsingCompactSchema(boolean)})
+ * are read: the attributes of an element are mapped to the paths of the respective leaf elements
+ * of the default schema (for example, the attribute "minX" of a character to "position/minX"), so
+ * that the elements of both schemas are deserialized from the same field values.
+ *
+ * @author Claudius Korzen
+ */
+public class XmlDocumentDeserializer {
+  /**
+   * The separator between the tag names of the path of a field.
+   */
+  protected static final String PATH_SEPARATOR = "/";
+
+  /**
+   * The paths of the fields in the default schema that are written as attributes of an element in
+   * the compact schema, per attribute name. Attributes not contained in the map have the path of
+   * their name.
+   */
+  protected static final Map<String, String> ATTRIBUTE_PATHS = new HashMap<>();
+
+  static {
+    ATTRIBUTE_PATHS.put(PAGE, path(POSITION, PAGE));
+    ATTRIBUTE_PATHS.put(MIN_X, path(POSITION, MIN_X));
+    ATTRIBUTE_PATHS.put(MIN_Y, path(POSITION, MIN_Y));
+    ATTRIBUTE_PATHS.put(MAX_X, path(POSITION, MAX_X));
+    ATTRIBUTE_PATHS.put(MAX_Y, path(POSITION, MAX_Y));
+    ATTRIBUTE_PATHS.put(FONT, path(FONT, ID));
+    ATTRIBUTE_PATHS.put(FONTSIZE, path(FONT, FONTSIZE));
+    ATTRIBUTE_PATHS.put(COLOR, path(COLOR, ID));
+    ATTRIBUTE_PATHS.put(FROM, path(CHARACTERS, FROM));
+    ATTRIBUTE_PATHS.put(TO, path(CHARACTERS, TO));
+  }
+
+  /**
+   * The fonts referenced by the elements read so far, per font id.
+   */
+  protected Map<String, Font> fonts;
+
+  /**
+   * The colors referenced by the elements read so far, per color id.
+   */
+  protected Map<String, Color> colors;
+
+  /**
+   * The pages referenced by the elements read so far, per page number.
+   */
+  protected Map<Integer, Page> pages;
+
+  /**
+   * The font of the current style run, or null if there is none.
+   */
+  protected Font styleFont;
+
+  /**
+   * The font size of the current style run.
+   */
+  protected float styleFontSize;
+
+  /**
+   * The color of the current style run, or null if there is none.
+   */
+  protected Color styleColor;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new deserializer that reads a document serialized in XML format.
+   */
+  public XmlDocumentDeserializer() {
+    this.fonts = new HashMap<>();
+    this.colors = new HashMap<>();
+    this.pages = new TreeMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Reads a document serialized in XML format from the given stream.
+   *
+   * @param in The stream to read from.
+   *
+   * @return The deserialized document.
+   *
+   * @throws DeserializerException If something went wrong on deserializing the document.
+   */
+  public Document deserialize(InputStream in) throws DeserializerException {
+    if (in == null) {
+      return null;
+    }
+
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+    XMLStreamReader reader = null;
+    try {
+      reader = factory.createXMLStreamReader(in, DEFAULT_ENCODING);
+
+      // The depth of the current tag; 1 for <document>, 2 for the sections.
+      int depth = 0;
+      // The name of the current section.
+      String section = null;
+
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          String name = reader.getLocalName();
+          if (depth == 2) {
+            section = name;
+          } else if (depth == 3) {
+            deserializeElement(section, name, readFields(reader));
+            // readFields() consumed the end tag of the element.
+            depth--;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+    } catch (XMLStreamException | RuntimeException e) {
+      throw new DeserializerException("Couldn't deserialize the document.", e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // Nothing to do.
+        }
+      }
+    }
+
+    // Add the pages in the order of their page numbers.
+    Document doc = new Document();
+    for (Page page : this.pages.values()) {
+      doc.addPage(page);
+    }
+    return doc;
+  }
+
+  /**
+   * Deserializes an element of the given section from the given field values.
+   *
+   * @param section The name of the section to which the element belongs.
+   * @param name    The tag name of the element.
+   * @param fields  The field values of the element, per path.
+   */
+  protected void deserializeElement(String section, String name, Map<String, String> fields) {
+    if (section == null) {
+      return;
+    }
+    switch (section) {
+      case CHARACTERS:
+        if (CHARACTER.equals(name)) {
+          deserializeCharacter(fields);
+        } else if (STYLE.equals(name)) {
+          deserializeStyle(fields);
+        }
+        break;
+      case FIGURES:
+        if (FIGURE.equals(name)) {
+          deserializeFigure(fields);
+        }
+        break;
+      case SHAPES:
+        if (SHAPE.equals(name)) {
+          deserializeShape(fields);
+        }
+        break;
+      case FONTS:
+        if (FONT.equals(name)) {
+          deserializeFont(fields);
+        }
+        break;
+      case COLORS:
+        if (COLOR.equals(name)) {
+          deserializeColor(fields);
+        }
+        break;
+      case PAGES:
+        if (PAGE.equals(name)) {
+          deserializePage(fields);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes a character from the given field values and adds it to its page.
+   *
+   * @param fields The field values of the character, per path.
+   */
+  protected void deserializeCharacter(Map<String, String> fields) {
+    Character character = new Character();
+
+    // Deserialize the position.
+    Position position = deserializePosition(fields, POSITION);
+    character.setPosition(position);
+
+    // Deserialize the font face (or take it from the current style run).
+    String fontId = fields.get(path(FONT, ID));
+    if (fontId != null) {
+      float size = toFloat(fields.get(path(FONT, FONTSIZE)));
+      character.setFontFace(new FontFace(getFont(fontId), size));
+    } else if (this.styleFont != null) {
+      character.setFontFace(new FontFace(this.styleFont, this.styleFontSize));
+    }
+
+    // Deserialize the color (or take it from the current style run).
+    String colorId = fields.get(path(COLOR, ID));
+    if (colorId != null) {
+      character.setColor(getColor(colorId));
+    } else if (this.styleColor != null) {
+      character.setColor(this.styleColor);
+    }
+
+    // Deserialize the text.
+    character.setText(fields.get(TEXT));
+
+    if (position != null) {
+      position.getPage().addCharacter(character);
+    }
+  }
+
+  /**
+   * Deserializes a style from the given field values, which defines the font face and the color of
+   * the following characters.
+   *
+   * @param fields The field values of the style, per path.
+   */
+  protected void deserializeStyle(Map<String, String> fields) {
+    this.styleFont = null;
+    this.styleFontSize = 0;
+    this.styleColor = null;
+
+    String fontId = fields.get(path(FONT, ID));
+    if (fontId != null) {
+      this.styleFont = getFont(fontId);
+      this.styleFontSize = toFloat(fields.get(path(FONT, FONTSIZE)));
+    }
+
+    String colorId = fields.get(path(COLOR, ID));
+    if (colorId != null) {
+      this.styleColor = getColor(colorId);
+    }
+  }
+
+  /**
+   * Deserializes a figure from the given field values and adds it to its page.
+   *
+   * @param fields The field values of the figure, per path.
+   */
+  protected void deserializeFigure(Map<String, String> fields) {
+    Figure figure = new Figure();
+
+    // Deserialize the position.
+    Position position = deserializePosition(fields, POSITION);
+    figure.setPosition(position);
+
+    if (position != null) {
+      position.getPage().addFigure(figure);
+    }
+  }
+
+  /**
+   * Deserializes a shape from the given field values and adds it to its page.
+   *
+   * @param fields The field values of the shape, per path.
+   */
+  protected void deserializeShape(Map<String, String> fields) {
+    Shape shape = new Shape();
+
+    // Deserialize the position.
+    Position position = deserializePosition(fields, POSITION);
+    shape.setPosition(position);
+
+    // Deserialize the color.
+    String colorId = fields.get(path(COLOR, ID));
+    if (colorId != null) {
+      shape.setColor(getColor(colorId));
+    }
+
+    if (position != null) {
+      position.getPage().addShape(shape);
+    }
+  }
+
+  /**
+   * Deserializes a position from the given field values.
+   *
+   * @param fields The field values of the element to which the position belongs, per path.
+   * @param prefix The path of the position within the element.
+   *
+   * @return The deserialized position, or null if there is no position.
+   */
+  protected Position deserializePosition(Map<String, String> fields, String prefix) {
+    String pageNumber = fields.get(path(prefix, PAGE));
+    if (pageNumber == null) {
+      return null;
+    }
+
+    Page page = getPage(Integer.parseInt(pageNumber));
+    Rectangle rect = new Rectangle(toFloat(fields.get(path(prefix, MIN_X))),
+            toFloat(fields.get(path(prefix, MIN_Y))), toFloat(fields.get(path(prefix, MAX_X))),
+            toFloat(fields.get(path(prefix, MAX_Y))));
+    return new Position(page, rect);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Deserializes a font from the given field values and completes the font with the respective id.
+   *
+   * @param fields The field values of the font, per path.
+   */
+  protected void deserializeFont(Map<String, String> fields) {
+    String fontId = fields.get(ID);
+    if (fontId == null) {
+      return;
+    }
+
+    Font font = getFont(fontId);
+    font.setName(fields.get(NAME));
+    font.setIsBold(Boolean.parseBoolean(fields.get(IS_BOLD)));
+    font.setIsItalic(Boolean.parseBoolean(fields.get(IS_ITALIC)));
+  }
+
+  /**
+   * Deserializes a color from the given field values and completes the color with the respective
+   * id.
+   *
+   * @param fields The field values of the color, per path.
+   */
+  protected void deserializeColor(Map<String, String> fields) {
+    String colorId = fields.get(ID);
+    if (colorId == null) {
+      return;
+    }
+
+    Color color = getColor(colorId);
+    color.setRgb(new int[] { toInt(fields.get(R)), toInt(fields.get(G)), toInt(fields.get(B)) });
+  }
+
+  /**
+   * Deserializes page metadata from the given field values and completes the page with the
+   * respective number.
+   *
+   * @param fields The field values of the page, per path.
+   */
+  protected void deserializePage(Map<String, String> fields) {
+    String pageNumber = fields.get(ID);
+    if (pageNumber == null) {
+      return;
+    }
+
+    Page page = getPage(Integer.parseInt(pageNumber));
+    page.setWidth(toFloat(fields.get(WIDTH)));
+    page.setHeight(toFloat(fields.get(HEIGHT)));
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the font with the given id, creating a placeholder on the first reference.
+   *
+   * @param fontId The id of the font.
+   *
+   * @return The font with the given id.
+   */
+  protected Font getFont(String fontId) {
+    Font font = this.fonts.get(fontId);
+    if (font == null) {
+      font = new Font();
+      font.setId(fontId);
+      this.fonts.put(fontId, font);
+    }
+    return font;
+  }
+
+  /**
+   * Returns the color with the given id, creating a placeholder on the first reference.
+   *
+   * @param colorId The id of the color.
+   *
+   * @return The color with the given id.
+   */
+  protected Color getColor(String colorId) {
+    Color color = this.colors.get(colorId);
+    if (color == null) {
+      color = new Color();
+      color.setId(colorId);
+      this.colors.put(colorId, color);
+    }
+    return color;
+  }
+
+  /**
+   * Returns the page with the given number, creating a placeholder on the first reference.
+   *
+   * @param pageNumber The number of the page.
+   *
+   * @return The page with the given number.
+   */
+  protected Page getPage(int pageNumber) {
+    Page page = this.pages.get(pageNumber);
+    if (page == null) {
+      page = new Page();
+      page.setPageNumber(pageNumber);
+      this.pages.put(pageNumber, page);
+    }
+    return page;
+  }
+
+  // ==============================================================================================
+  // Methods to pull the XML structure from the reader.
+
+  /**
+   * Reads the subtree of the current element into a map of the text of its leaf elements, keyed
+   * by their path relative to the current element (for example "position/minX"). The attributes
+   * of the element are added by their paths in {@link #ATTRIBUTE_PATHS}, the attributes of the
+   * descendants by the path of the descendant and the attribute name, and the content of an
+   * element without child elements (as a character in the compact schema) by the path "text".
+   * The reader must be positioned at the start tag of the element and is positioned at its end tag
+   * afterwards.
+   *
+   * @param reader The reader to read from.
+   *
+   * @return The text of the leaf elements, per path.
+   *
+   * @throws XMLStreamException If reading from the reader failed.
+   */
+  protected Map<String, String> readFields(XMLStreamReader reader) throws XMLStreamException {
+    Map<String, String> fields = new HashMap<>();
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      String name = reader.getAttributeLocalName(i);
+      fields.put(ATTRIBUTE_PATHS.getOrDefault(name, name), reader.getAttributeValue(i));
+    }
+
+    StringBuilder path = new StringBuilder();
+    StringBuilder text = new StringBuilder();
+    boolean isLeaf = true;
+    int depth = 1;
+
+    while (depth > 0 && reader.hasNext()) {
+      int event = reader.next();
+      switch (event) {
+        case XMLStreamConstants.START_ELEMENT:
+          if (depth > 1) {
+            path.append(PATH_SEPARATOR);
+          }
+          path.append(reader.getLocalName());
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            fields.put(path + PATH_SEPARATOR + reader.getAttributeLocalName(i),
+                    reader.getAttributeValue(i));
+          }
+          text.setLength(0);
+          isLeaf = true;
+          depth++;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+          text.append(reader.getText());
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          if (depth > 0) {
+            if (isLeaf) {
+              fields.put(path.toString(), text.toString());
+            }
+            int index = path.lastIndexOf(PATH_SEPARATOR);
+            path.setLength(index < 0 ? 0 : index);
+          } else if (isLeaf && text.length() > 0) {
+            fields.put(TEXT, text.toString());
+          }
+          isLeaf = false;
+          break;
+        default:
+          break;
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Joins the given tag names to a path.
+   *
+   * @param names The tag names.
+   *
+   * @return The path.
+   */
+  protected static String path(String... names) {
+    return String.join(PATH_SEPARATOR, names);
+  }
+
+  /**
+   * Parses the given string to a float.
+   *
+   * @param string The string to parse.
+   *
+   * @return The parsed float, or 0 if the string is null.
+   */
+  protected static float toFloat(String string) {
+    return string != null ? Float.parseFloat(string.trim()) : 0;
+  }
+
+  /**
+   * Parses the given string to an integer.
+   *
+   * @param string The string to parse.
+   *
+   * @return The parsed integer, or 0 if the string is null.
+   */
+  protected static int toInt(String string) {
+    return string != null ? Integer.parseInt(string.trim()) : 0;
+  }
+}
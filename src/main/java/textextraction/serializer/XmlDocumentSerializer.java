@@ -5,14 +5,18 @@ import static textextraction.serializer.DocumentSerializerConstants.CHARACTER;
 import static textextraction.serializer.DocumentSerializerConstants.CHARACTERS;
 import static textextraction.serializer.DocumentSerializerConstants.COLOR;
 import static textextraction.serializer.DocumentSerializerConstants.COLORS;
+import static textextraction.serializer.DocumentSerializerConstants.COLUMNS;
 import static textextraction.serializer.DocumentSerializerConstants.DEFAULT_ENCODING;
 import static textextraction.serializer.DocumentSerializerConstants.DOCUMENT;
+import static textextraction.serializer.DocumentSerializerConstants.ELEMENTS;
 import static textextraction.serializer.DocumentSerializerConstants.FIGURE;
 import static textextraction.serializer.DocumentSerializerConstants.FIGURES;
 import static textextraction.serializer.DocumentSerializerConstants.FONT;
 import static textextraction.serializer.DocumentSerializerConstants.FONTS;
 import static textextraction.serializer.DocumentSerializerConstants.FONTSIZE;
+import static textextraction.serializer.DocumentSerializerConstants.FROM;
 import static textextraction.serializer.DocumentSerializerConstants.G;
+import static textextraction.serializer.DocumentSerializerConstants.HASH;
 import static textextraction.serializer.DocumentSerializerConstants.HEIGHT;
 import static textextraction.serializer.DocumentSerializerConstants.ID;
 import static textextraction.serializer.DocumentSerializerConstants.IS_BOLD;
@@ -24,18 +28,38 @@ import static textextraction.serializer.DocumentSerializerConstants.MIN_Y;
 import static textextraction.serializer.DocumentSerializerConstants.NAME;
 import static textextraction.serializer.DocumentSerializerConstants.PAGE;
 import static textextraction.serializer.DocumentSerializerConstants.PAGES;
+import static textextraction.serializer.DocumentSerializerConstants.PARAGRAPH;
+import static textextraction.serializer.DocumentSerializerConstants.PARAGRAPHS;
 import static textextraction.serializer.DocumentSerializerConstants.POSITION;
+import static textextraction.serializer.DocumentSerializerConstants.POSITIONS;
 import static textextraction.serializer.DocumentSerializerConstants.R;
+import static textextraction.serializer.DocumentSerializerConstants.ROLE;
+import static textextraction.serializer.DocumentSerializerConstants.ROWS;
 import static textextraction.serializer.DocumentSerializerConstants.SHAPE;
 import static textextraction.serializer.DocumentSerializerConstants.SHAPES;
+import static textextraction.serializer.DocumentSerializerConstants.STYLE;
 import static textextraction.serializer.DocumentSerializerConstants.TEXT;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_BLOCK;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_BLOCKS;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_LINE;
+import static textextraction.serializer.DocumentSerializerConstants.TEXT_LINES;
+import static textextraction.serializer.DocumentSerializerConstants.TILE;
+import static textextraction.serializer.DocumentSerializerConstants.TILES;
+import static textextraction.serializer.DocumentSerializerConstants.TILE_SIZE;
+import static textextraction.serializer.DocumentSerializerConstants.TO;
 import static textextraction.serializer.DocumentSerializerConstants.WIDTH;
+import static textextraction.serializer.DocumentSerializerConstants.WORD;
+import static textextraction.serializer.DocumentSerializerConstants.WORDS;
 
-import java.io.UnsupportedEncodingException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -48,38 +72,195 @@ import textextraction.common.models.Figure;
 import textextraction.common.models.Font;
 import textextraction.common.models.FontFace;
 import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
 import textextraction.common.models.Position;
 import textextraction.common.models.Rectangle;
+import textextraction.common.models.SemanticRole;
 import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
 import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.jfr.SectionSerializationEvent;
+import textextraction.serializer.model.ByteRange;
+import textextraction.serializer.model.ElementField;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.FieldProjection;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationIndex;
+import textextraction.serializer.model.SerializationOptions;
+import textextraction.serializer.model.TileIndex;
 
 /**
  * An implementation of {@link XmlDocumentSerializer} that serializes a document in XML format.
  *
+ * <p>
+ * The serialization is written line by line to an output stream. While writing, the byte ranges
+ * of the sections and of the elements of each page are recorded in a {@link SerializationIndex}.
+ * The elements are written as events of a {@link DocumentTraversal}, so that the serializer can
+ * share a traversal with the serializers of other formats.
+ *
+ * <p>
+ * If style runs are enabled (see {@link SerializationOptions#setEncodingStyleRuns(boolean)}), the
+ * font faces and colors of the characters are written as style elements into the characters
+ * section, one per run of characters with the same font face and color.
+ *
+ * <p>
+ * If the compact schema is enabled (see
+ * {@link SerializationOptions#setUsingCompactSchema(boolean)}), the scalar fields of each element
+ * are written as attributes of the element (and the text of a character as its content), so that
+ * each element is written on a single line. Only the positions of words and paragraphs (which can
+ * have several positions) and the tile index of a page are written as child elements.
+ *
+ * <p>
+ * If content hashes are enabled (see
+ * {@link SerializationOptions#setComputingContentHashes(boolean)}), the hashes of the pages and of
+ * the document are computed by a {@link ContentHasher} (the hashes of the pages from the
+ * serialized elements, the hash of the document from the written bytes) and recorded in the index,
+ * before the pages section is written. If they are embedded, the hash of each page is
+ * written into its page element and the hash of the document is written as the last child of the
+ * document element.
+ *
  * @author Claudius Korzen
  */
-public class XmlDocumentSerializer {
+public class XmlDocumentSerializer implements FragmentHandler {
   /**
    * The indentation length.
    */
   protected static final int INDENT_LENGTH = 2;
 
+  /**
+   * The indentations of the first levels, built once instead of per line.
+   */
+  protected static final String[] INDENTS = new String[8];
+
+  static {
+    for (int level = 0; level < INDENTS.length; level++) {
+      INDENTS[level] = repeat(" ", level * INDENT_LENGTH);
+    }
+  }
+
   /**
    * The line delimiter to use on joining the individual lines.
    */
   protected static final String LINE_DELIMITER = System.lineSeparator();
 
+  /**
+   * The encoding to use on writing the serialization.
+   */
+  protected static final Charset ENCODING = Charset.forName(DEFAULT_ENCODING);
+
+  /**
+   * The order of the ids of the fonts and colors in the serialization.
+   */
+  protected static final Comparator<String> ID_ORDER =
+          Comparator.nullsLast(Comparator.naturalOrder());
+
+  /**
+   * The indentation level of the sections, which are nested in the document element.
+   */
+  protected static final int SECTION_LEVEL = 1;
+
+  // ==============================================================================================
+
+  /**
+   * The options that control the serialization.
+   */
+  protected SerializationOptions options;
+
+  /**
+   * The projection that defines the fields to serialize per element class.
+   */
+  protected FieldProjection projection;
+
+  /**
+   * The filter that restricts the serialization to a range of pages and/or a region of the pages.
+   */
+  protected ElementFilter filter;
+
+  /**
+   * Whether to encode the font faces and colors of the characters as style runs.
+   */
+  protected boolean isEncodingStyleRuns;
+
+  /**
+   * Whether to serialize the elements in the compact schema, with the scalar fields as attributes.
+   */
+  protected boolean isUsingCompactSchema;
+
+  /**
+   * Whether to write the fonts and colors sections before the sections of the elements.
+   */
+  protected boolean isWritingDictionariesFirst;
+
+  /**
+   * The cache of the escaped font ids, color ids and character texts.
+   */
+  protected EscapedTextCache cache;
+
   // ==============================================================================================
+  // The state of the output.
+
+  /**
+   * The traversal that emits the elements to serialize.
+   */
+  protected DocumentTraversal traversal;
+
+  /**
+   * The stream to which the serialization is written.
+   */
+  protected OutputStream out;
+
+  /**
+   * The number of bytes written to the output stream so far.
+   */
+  protected long offset;
+
+  /**
+   * The index of the byte ranges of the sections and pages written so far.
+   */
+  protected SerializationIndex index;
+
+  /**
+   * The hasher that computes the content hashes, or null if no hashes are computed.
+   */
+  protected ContentHasher hasher;
+
+  /**
+   * The name of the section currently written.
+   */
+  protected String section;
+
+  /**
+   * The offset of the section currently written.
+   */
+  protected long sectionOffset;
+
+  /**
+   * The offset of the first element of the current page, or -1 if no element of the current page
+   * was written yet.
+   */
+  protected long pageOffset;
+
+  /**
+   * Whether a style element was written for the current page yet.
+   */
+  protected boolean isStyleStarted;
+
+  /**
+   * The font of the current style run.
+   */
+  protected Font styleFont;
 
   /**
-   * The fonts of the document elements which were in fact serialized.
+   * The font size of the current style run.
    */
-  protected Set<Font> usedFonts;
+  protected float styleFontSize;
 
   /**
-   * The colors of the document elements which were in fact serialized.
+   * The color of the current style run.
    */
-  protected Set<Color> usedColors;
+  protected Color styleColor;
 
   // ==============================================================================================
   // Constructors.
@@ -88,8 +269,22 @@ public class XmlDocumentSerializer {
    * Creates a new serializer that serializes a document in XML format.
    */
   public XmlDocumentSerializer() {
-    this.usedFonts = new HashSet<>();
-    this.usedColors = new HashSet<>();
+    this(new SerializationOptions());
+  }
+
+  /**
+   * Creates a new serializer that serializes a document in XML format.
+   * 
+   * @param options The options that control the serialization.
+   */
+  public XmlDocumentSerializer(SerializationOptions options) {
+    this.options = options;
+    this.projection = options.getFieldProjection();
+    this.filter = options.getElementFilter();
+    this.isEncodingStyleRuns = options.isEncodingStyleRuns();
+    this.isUsingCompactSchema = options.isUsingCompactSchema();
+    this.isWritingDictionariesFirst = options.isWritingDictionariesFirst();
+    this.cache = new EscapedTextCache(StringEscapeUtils::escapeXml11);
   }
 
   // ==============================================================================================
@@ -110,115 +305,210 @@ public class XmlDocumentSerializer {
       return null;
     }
 
-    // The current indentation level.
-    int level = 0;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serialize(doc, clazzes, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Serializes the elements with the given types of the given document in XML format and writes
+   * the serialization to the given stream.
+   * 
+   * @param doc     The document to serialize.
+   * @param clazzes The types of elements to serialize from the document.
+   * @param out     The stream to write the serialization to.
+   * 
+   * @return The index of the byte ranges of the sections and pages in the serialization.
+   * 
+   * @throws SerializerException If something went wrong on serializing the document.
+   */
+  public SerializationIndex serialize(Document doc, Collection<ElementClass> clazzes,
+          OutputStream out) throws SerializerException {
+    open(out);
+    try {
+      new DocumentTraversal(this.options).addHandler(this, clazzes).traverse(doc);
+    } catch (IOException e) {
+      throw new SerializerException("Couldn't serialize the document.", e);
+    }
+
+    return this.index;
+  }
 
-    // The individual lines of the serialization.
-    List<String> resultLines = new ArrayList<>();
+  // ==============================================================================================
 
-    // Start the XML document.
-    resultLines.add(start(DOCUMENT, level));
+  /**
+   * Prepares this serializer to write a serialization to the given stream.
+   *
+   * @param out The stream to write the serialization to.
+   */
+  protected void open(OutputStream out) {
+    this.out = out;
+    this.offset = 0;
+    this.index = new SerializationIndex(SerializationFormat.XML);
+    this.hasher = this.options.isComputingContentHashes()
+            ? new ContentHasher(this.projection) : null;
+    this.cache.clear();
+  }
+
+  /**
+   * Returns the index of the byte ranges of the sections and pages written so far.
+   *
+   * @return The index.
+   */
+  public SerializationIndex getIndex() {
+    return this.index;
+  }
 
-    // Serialize the document elements.
-    List<String> elementsLines = serializeElements(level + 1, doc, clazzes);
-    if (elementsLines != null && !elementsLines.isEmpty()) {
-      resultLines.addAll(elementsLines);
+  @Override
+  public long getNumBytes() {
+    return this.offset;
+  }
+
+  @Override
+  public SerializationFormat getFormat() {
+    return SerializationFormat.XML;
+  }
+
+  // ==============================================================================================
+  // Methods to handle the events of the traversal.
+
+  @Override
+  public void startDocument(DocumentTraversal traversal) throws IOException {
+    this.traversal = traversal;
+    // Start the XML document.
+    writeLine(start(DOCUMENT, SECTION_LEVEL - 1));
+    if (this.isWritingDictionariesFirst && traversal.getDocument() != null) {
+      writeDictionaries();
     }
+  }
 
-    // Serialize the used fonts.
-    List<String> fontsLines = serializeFonts(level + 2, this.usedFonts);
-    if (fontsLines != null && !fontsLines.isEmpty()) {
-      resultLines.add(start(FONTS, level + 1));
-      resultLines.addAll(fontsLines);
-      resultLines.add(end(FONTS, level + 1));
+  @Override
+  public void startSection(ElementClass clazz) throws IOException {
+    startSection(DocumentSerializerConstants.getSectionName(clazz), SECTION_LEVEL);
+  }
+
+  @Override
+  public void startPage(Page page) {
+    startPage();
+    this.isStyleStarted = false;
+    if (this.hasher != null) {
+      this.hasher.startPage(this.traversal, this, this.section, page);
     }
+  }
 
-    // Serialize the used colors.
-    List<String> colorsLines = serializeColors(level + 2, this.usedColors);
-    if (colorsLines != null && !colorsLines.isEmpty()) {
-      resultLines.add(start(COLORS, level + 1));
-      resultLines.addAll(colorsLines);
-      resultLines.add(end(COLORS, level + 1));
+  @Override
+  public void character(Character character) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.character(character);
+    }
+    if (this.isEncodingStyleRuns && isStyleChanged(character)) {
+      writeElement(serializeStyle(SECTION_LEVEL + 1, character));
     }
+    writeElement(serializeCharacter(SECTION_LEVEL + 1, character));
+  }
 
-    // Serialize the metadata of the pages.
-    List<String> pagesLines = serializePages(level + 2, doc.getPages());
-    if (pagesLines != null && !pagesLines.isEmpty()) {
-      resultLines.add(start(PAGES, level + 1));
-      resultLines.addAll(pagesLines);
-      resultLines.add(end(PAGES, level + 1));
+  @Override
+  public void word(Word word) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.word(word);
     }
+    writeElement(serializeWord(SECTION_LEVEL + 1, this.traversal.getDocument(), word));
+  }
 
-    // End the XML document.
-    resultLines.add(end(DOCUMENT, level));
+  @Override
+  public void textLine(TextLine line) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.textLine(line);
+    }
+    writeElement(serializeTextLine(SECTION_LEVEL + 1, this.traversal.getDocument(), line));
+  }
 
-    try {
-      return String.join(LINE_DELIMITER, resultLines).getBytes(DEFAULT_ENCODING);
-    } catch (UnsupportedEncodingException e) {
-      throw new SerializerException("Couldn't serialize the document.", e);
+  @Override
+  public void textBlock(TextBlock block) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.textBlock(block);
     }
+    writeElement(serializeTextBlock(SECTION_LEVEL + 1, this.traversal.getDocument(), block));
   }
 
-  // ==============================================================================================
+  @Override
+  public void paragraph(Paragraph paragraph) throws IOException {
+    writeElement(serializeParagraph(SECTION_LEVEL + 1, this.traversal.getDocument(), paragraph));
+  }
 
-  /**
-   * Serializes the document elements of the given types.
-   * 
-   * @param doc     The document to process.
-   * @param clazzes The types of elements to serialize.
-   * 
-   * @return A list of text lines representing the serialized elements.
-   */
-  protected List<String> serializeElements(int level, Document doc,
-          Collection<ElementClass> clazzes) {
-    List<String> lines = new ArrayList<>();
-    for (ElementClass clazz : clazzes) {
-      switch (clazz) {
-        case CHARACTERS:
-          lines.addAll(serializeCharacters(level, doc));
-          break;
-        case FIGURES:
-          lines.addAll(serializeFigures(level, doc));
-          break;
-        case SHAPES:
-          lines.addAll(serializeShapes(level, doc));
-          break;
-        default:
-          break;
-      }
+  @Override
+  public void figure(Figure figure) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.figure(figure);
     }
-    return lines;
+    writeElement(serializeFigure(SECTION_LEVEL + 1, figure));
   }
 
-  // ==============================================================================================
+  @Override
+  public void shape(Shape shape) throws IOException {
+    if (this.hasher != null) {
+      this.hasher.shape(shape);
+    }
+    writeElement(serializeShape(SECTION_LEVEL + 1, shape));
+  }
 
-  /**
-   * Serializes the characters of the given document.
-   * 
-   * @param level The current indentation level.
-   * @param doc   The document to process.
-   * 
-   * @return A list of text lines representing the serialized characters.
-   */
-  protected List<String> serializeCharacters(int level, Document doc) {
-    List<String> result = new ArrayList<>();
+  @Override
+  public void endSection(ElementClass clazz) throws IOException {
+    endSection(DocumentSerializerConstants.getSectionName(clazz), SECTION_LEVEL);
+  }
 
+  @Override
+  public void endDocument() throws IOException {
+    Document doc = this.traversal.getDocument();
     if (doc != null) {
-      result.add(start(CHARACTERS, level));
-      for (Page page : doc.getPages()) {
-        for (Character character : page.getCharacters()) {
-          List<String> characterLines = serializeCharacter(level + 1, character);
-          if (characterLines != null) {
-            result.addAll(characterLines);
-          }
-        }
+      if (!this.isWritingDictionariesFirst) {
+        writeDictionaries();
+      }
+
+      // Compute the content hashes, so that they can be embedded into the elements of the pages.
+      if (this.hasher != null) {
+        this.hasher.finish(this.index);
       }
-      result.add(end(CHARACTERS, level));
+
+      // Serialize the metadata of the pages.
+      serializePages(SECTION_LEVEL, doc.getPages());
     }
 
-    return result;
+    // Serialize the content hash of the document.
+    String hash = this.index.getDocumentHash();
+    if (this.options.isEmbeddingContentHashes() && hash != null) {
+      writeLine(start(HASH, SECTION_LEVEL) + text(hash) + end(HASH));
+    }
+
+    // End the XML document.
+    write(end(DOCUMENT, SECTION_LEVEL - 1));
+    this.out.flush();
+  }
+
+  /**
+   * Writes the fonts and colors sections with the fonts and colors used by the serialized
+   * elements.
+   *
+   * @throws IOException If writing the sections failed.
+   */
+  protected void writeDictionaries() throws IOException {
+    // Serialize the used fonts.
+    Set<Font> fonts = this.traversal.getUsedFonts(this);
+    List<String> fontsLines = serializeFonts(SECTION_LEVEL + 1, fonts);
+    if (fontsLines != null && !fontsLines.isEmpty()) {
+      writeSection(FONTS, SECTION_LEVEL, fontsLines, fonts.size());
+    }
+
+    // Serialize the used colors.
+    Set<Color> colors = this.traversal.getUsedColors(this);
+    List<String> colorsLines = serializeColors(SECTION_LEVEL + 1, colors);
+    if (colorsLines != null && !colorsLines.isEmpty()) {
+      writeSection(COLORS, SECTION_LEVEL, colorsLines, colors.size());
+    }
   }
 
+  // ==============================================================================================
+
   /**
    * Serializes the given character.
    * 
@@ -231,386 +521,1409 @@ public class XmlDocumentSerializer {
     if (character == null) {
       return null;
     }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactCharacter(level, character);
+    }
 
     List<String> charLines = new ArrayList<>();
     // Serialize the position.
-    List<String> serialized = serializePosition(level + 1, character.getPosition());
-    if (serialized != null) {
-      charLines.addAll(serialized);
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.POSITION)) {
+      List<String> serialized = serializePosition(level + 1, character.getPosition());
+      if (serialized != null) {
+        charLines.addAll(serialized);
+      }
+    }
+
+    // Serialize the font face and the color, unless they are encoded as style runs.
+    if (!this.isEncodingStyleRuns) {
+      charLines.addAll(serializeFontFaceAndColor(level + 1, character));
+    }
+
+    // Serialize the text.
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.TEXT)) {
+      String text = character.getText();
+      if (text != null) {
+        charLines.add(start(TEXT, level + 1) + this.cache.escapeText(text) + end(TEXT));
+      }
     }
 
+    return element(CHARACTER, level, charLines);
+  }
+
+  /**
+   * Serializes the font face and the color of the given character, as far as they are included in
+   * the field projection.
+   *
+   * @param level     The current indentation level.
+   * @param character The character.
+   *
+   * @return A list of text lines representing the serialized font face and color.
+   */
+  protected List<String> serializeFontFaceAndColor(int level, Character character) {
+    List<String> lines = new ArrayList<>();
+
     // Serialize the font face.
-    FontFace fontFace = character.getFontFace();
-    if (fontFace != null) {
-      Font font = fontFace.getFont();
-      float size = fontFace.getFontSize();
-      if (font != null) {
-        String fontId = font.getId();
-        if (fontId != null && size > 0) {
-          charLines.add(start(FONT, level + 1));
-          charLines.add(start(ID, level + 2) + text(fontId) + end(ID));
-          charLines.add(start(FONTSIZE, level + 2) + text(size) + end(FONTSIZE));
-          charLines.add(end(FONT, level + 1));
-          this.usedFonts.add(font);
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      FontFace fontFace = character.getFontFace();
+      if (fontFace != null) {
+        Font font = fontFace.getFont();
+        float size = fontFace.getFontSize();
+        if (font != null) {
+          String fontId = font.getId();
+          if (fontId != null && size > 0) {
+            lines.add(start(FONT, level));
+            lines.add(start(ID, level + 1) + this.cache.escapeId(font, fontId) + end(ID));
+            lines.add(start(FONTSIZE, level + 1) + text(size) + end(FONTSIZE));
+            lines.add(end(FONT, level));
+          }
         }
       }
     }
 
     // Serialize the color.
-    Color color = character.getColor();
-    if (color != null) {
-      String colorId = color.getId();
-      if (colorId != null) {
-        charLines.add(start(COLOR, level + 1));
-        charLines.add(start(ID, level + 2) + text(colorId) + end(ID));
-        charLines.add(end(COLOR, level + 1));
-        this.usedColors.add(color);
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      Color color = character.getColor();
+      if (color != null) {
+        String colorId = color.getId();
+        if (colorId != null) {
+          lines.add(start(COLOR, level));
+          lines.add(start(ID, level + 1) + this.cache.escapeId(color, colorId) + end(ID));
+          lines.add(end(COLOR, level));
+        }
       }
     }
 
-    // Serialize the text.
-    String text = character.getText();
-    if (text != null) {
-      charLines.add(start(TEXT, level + 1) + text(text) + end(TEXT));
+    return lines;
+  }
+
+  /**
+   * Checks if the (serialized) font face or color of the given character differ from the ones of
+   * the current style run (or if no style run was started on the current page yet) and, if so,
+   * starts a new style run with the font face and color of the character.
+   *
+   * @param character The character.
+   *
+   * @return True if a new style run was started, false otherwise.
+   */
+  protected boolean isStyleChanged(Character character) {
+    // Consider only the fields that are in fact serialized.
+    FontFace fontFace = null;
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      fontFace = character.getFontFace();
+    }
+    Color color = null;
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      color = character.getColor();
     }
+    Font font = fontFace != null ? fontFace.getFont() : null;
+    float fontSize = fontFace != null ? fontFace.getFontSize() : 0;
 
-    List<String> result = new ArrayList<>();
-    if (charLines != null && !charLines.isEmpty()) {
-      result.add(start(CHARACTER, level));
-      result.addAll(charLines);
-      result.add(end(CHARACTER, level));
+    if (this.isStyleStarted && font == this.styleFont && fontSize == this.styleFontSize
+            && color == this.styleColor) {
+      return false;
+    }
+
+    this.isStyleStarted = true;
+    this.styleFont = font;
+    this.styleFontSize = fontSize;
+    this.styleColor = color;
+    return true;
+  }
+
+  /**
+   * Serializes the style element of the style run started by the given character.
+   *
+   * @param level     The current indentation level.
+   * @param character The first character of the style run.
+   *
+   * @return A list of text lines representing the serialized style element, or null if neither the
+   *         font face nor the color of the characters is serialized.
+   */
+  protected List<String> serializeStyle(int level, Character character) {
+    if (this.isUsingCompactSchema) {
+      return serializeCompactStyle(level, character);
+    }
+    List<String> styleLines = serializeFontFaceAndColor(level + 1, character);
+    if (styleLines.isEmpty()) {
+      return null;
     }
 
+    List<String> result = new ArrayList<>();
+    result.add(start(STYLE, level));
+    result.addAll(styleLines);
+    result.add(end(STYLE, level));
     return result;
   }
 
   // ==============================================================================================
 
   /**
-   * Serializes the figures of the given document.
+   * Serializes the given word. The characters of the word are not serialized again, but are
+   * referenced by their index range in the serialized characters.
    * 
    * @param level The current indentation level.
-   * @param doc   The document to process.
+   * @param doc   The document to which the word belongs.
+   * @param word  The word to serialize.
+   *
+   * @return A list of text lines representing the serialized word.
+   */
+  protected List<String> serializeWord(int level, Document doc, Word word) {
+    if (word == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactWord(level, doc, word);
+    }
+
+    List<String> wordLines = new ArrayList<>();
+
+    // Serialize the positions (a word can be hyphenated across two pages).
+    if (this.projection.includes(ElementClass.WORDS, ElementField.POSITION)) {
+      List<String> serialized = serializePositions(level + 1, word.getPositions());
+      if (serialized != null) {
+        wordLines.addAll(serialized);
+      }
+    }
+
+    // Serialize the references to the characters.
+    if (this.projection.includes(ElementClass.WORDS, ElementField.CHARACTERS)) {
+      List<String> serialized = serializeCharacterRange(level + 1, doc, word.getCharacters());
+      if (serialized != null) {
+        wordLines.addAll(serialized);
+      }
+    }
+
+    return element(WORD, level, wordLines);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given text line. The characters of the line are referenced by their index
+   * range in the serialized characters.
    * 
-   * @return A list of text lines representing the serialized figures.
+   * @param level The current indentation level.
+   * @param doc   The document to which the text line belongs.
+   * @param line  The text line to serialize.
+   *
+   * @return A list of text lines representing the serialized text line.
    */
-  protected List<String> serializeFigures(int level, Document doc) {
-    List<String> result = new ArrayList<>();
+  protected List<String> serializeTextLine(int level, Document doc, TextLine line) {
+    if (line == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactTextLine(level, doc, line);
+    }
 
-    if (doc != null) {
-      result.add(start(FIGURES, level));
-      for (Page page : doc.getPages()) {
-        for (Figure figure : page.getFigures()) {
-          List<String> figureLines = serializeFigure(level + 1, figure);
-          if (figureLines != null) {
-            result.addAll(figureLines);
-          }
-        }
+    List<String> lineLines = new ArrayList<>();
+
+    // Serialize the position.
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.POSITION)) {
+      List<String> serialized = serializePosition(level + 1, line.getPosition());
+      if (serialized != null) {
+        lineLines.addAll(serialized);
       }
-      result.add(end(FIGURES, level));
     }
 
-    return result;
+    // Serialize the references to the characters.
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.CHARACTERS)) {
+      List<String> serialized = serializeCharacterRange(level + 1, doc, line.getCharacters());
+      if (serialized != null) {
+        lineLines.addAll(serialized);
+      }
+    }
+
+    return element(TEXT_LINE, level, lineLines);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given text block. The characters of the block are referenced by their index
+   * range in the serialized characters.
+   * 
+   * @param level The current indentation level.
+   * @param doc   The document to which the text block belongs.
+   * @param block The text block to serialize.
+   *
+   * @return A list of text lines representing the serialized text block.
+   */
+  protected List<String> serializeTextBlock(int level, Document doc, TextBlock block) {
+    if (block == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactTextBlock(level, doc, block);
+    }
+
+    List<String> blockLines = new ArrayList<>();
+
+    // Serialize the position.
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.POSITION)) {
+      List<String> serialized = serializePosition(level + 1, block.getPosition());
+      if (serialized != null) {
+        blockLines.addAll(serialized);
+      }
+    }
+
+    // Serialize the semantic role.
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.ROLE)) {
+      SemanticRole role = block.getRole();
+      if (role != null) {
+        blockLines.add(start(ROLE, level + 1) + text(role) + end(ROLE));
+      }
+    }
+
+    // Serialize the references to the characters.
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.CHARACTERS)) {
+      List<String> serialized = serializeCharacterRange(level + 1, doc, block.getCharacters());
+      if (serialized != null) {
+        blockLines.addAll(serialized);
+      }
+    }
+
+    return element(TEXT_BLOCK, level, blockLines);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given paragraph. The characters of the paragraph are referenced by their index
+   * range in the serialized characters.
+   * 
+   * @param level     The current indentation level.
+   * @param doc       The document to which the paragraph belongs.
+   * @param paragraph The paragraph to serialize.
+   *
+   * @return A list of text lines representing the serialized paragraph.
+   */
+  protected List<String> serializeParagraph(int level, Document doc, Paragraph paragraph) {
+    if (paragraph == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactParagraph(level, doc, paragraph);
+    }
+
+    List<String> paragraphLines = new ArrayList<>();
+
+    // Serialize the positions (a paragraph can span several pages).
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.POSITION)) {
+      List<String> serialized = serializePositions(level + 1, paragraph.getPositions());
+      if (serialized != null) {
+        paragraphLines.addAll(serialized);
+      }
+    }
+
+    // Serialize the semantic role.
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.ROLE)) {
+      SemanticRole role = paragraph.getRole();
+      if (role != null) {
+        paragraphLines.add(start(ROLE, level + 1) + text(role) + end(ROLE));
+      }
+    }
+
+    // Serialize the references to the characters, from the first character of the first word to
+    // the last character of the last word, clipped to the serialized characters.
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.CHARACTERS)) {
+      Character first = this.traversal.getFirstIndexedCharacter(paragraph.getWords());
+      Character last = this.traversal.getLastIndexedCharacter(paragraph.getWords());
+      if (first != null && last != null) {
+        List<String> serialized = serializeCharacterRange(level + 1, doc, first, last);
+        if (serialized != null) {
+          paragraphLines.addAll(serialized);
+        }
+      }
+    }
+
+    return element(PARAGRAPH, level, paragraphLines);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the index range of the given characters in the serialized characters.
+   * 
+   * @param level      The current indentation level.
+   * @param doc        The document to which the characters belong.
+   * @param characters The characters to reference, in reading order.
+   * 
+   * @return A list of text lines representing the serialized range.
+   */
+  protected List<String> serializeCharacterRange(int level, Document doc,
+          List<Character> characters) {
+    if (characters == null || characters.isEmpty()) {
+      return null;
+    }
+    Character first = characters.get(0);
+    Character last = characters.get(characters.size() - 1);
+    return serializeCharacterRange(level, doc, first, last);
+  }
+
+  /**
+   * Serializes the index range spanned by the given first and last character in the serialized
+   * characters. The range is given by the index of the first character (inclusive) and the index
+   * of the last character + 1 (exclusive).
+   * 
+   * @param level The current indentation level.
+   * @param doc   The document to which the characters belong.
+   * @param first The first character of the range.
+   * @param last  The last character of the range.
+   * 
+   * @return A list of text lines representing the serialized range.
+   */
+  protected List<String> serializeCharacterRange(int level, Document doc, Character first,
+          Character last) {
+    int from = this.traversal.getCharacterIndex(this, first);
+    int to = this.traversal.getCharacterIndex(this, last);
+    if (from < 0 || to < 0) {
+      return null;
+    }
+
+    List<String> result = new ArrayList<>();
+    result.add(start(CHARACTERS, level));
+    result.add(start(FROM, level + 1) + text(from) + end(FROM));
+    result.add(start(TO, level + 1) + text(to + 1) + end(TO));
+    result.add(end(CHARACTERS, level));
+    return result;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given figure.
+   * 
+   * @param level  The current indentation level.
+   * @param figure The figure to serialize.
+   *
+   * @return A list of text lines representing the serialized figure.
+   */
+  protected List<String> serializeFigure(int level, Figure figure) {
+    if (figure == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactFigure(level, figure);
+    }
+
+    List<String> figureLines = new ArrayList<>();
+
+    // Serialize the position.
+    if (this.projection.includes(ElementClass.FIGURES, ElementField.POSITION)) {
+      List<String> serialized = serializePosition(level + 1, figure.getPosition());
+      if (serialized != null) {
+        figureLines.addAll(serialized);
+      }
+    }
+
+    return element(FIGURE, level, figureLines);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given shape.
+   * 
+   * @param level The current indentation level.
+   * @param shape The shape to serialize.
+   *
+   * @return A list of text lines representing the serialized shape.
+   */
+  protected List<String> serializeShape(int level, Shape shape) {
+    if (shape == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactShape(level, shape);
+    }
+
+    List<String> shapeLines = new ArrayList<>();
+
+    // Serialize the position of the shape, if there is any.
+    if (this.projection.includes(ElementClass.SHAPES, ElementField.POSITION)) {
+      List<String> serialized = serializePosition(level + 1, shape.getPosition());
+      if (serialized != null) {
+        shapeLines.addAll(serialized);
+      }
+    }
+
+    // Serialize the color of the shape, if there is any.
+    if (this.projection.includes(ElementClass.SHAPES, ElementField.COLOR)) {
+      Color color = shape.getColor();
+      if (color != null) {
+        String colorId = color.getId();
+        if (colorId != null) {
+          shapeLines.add(start(COLOR, level + 1));
+          shapeLines.add(start(ID, level + 2) + this.cache.escapeId(color, colorId) + end(ID));
+          shapeLines.add(end(COLOR, level + 1));
+        }
+      }
+    }
+    return element(SHAPE, level, shapeLines);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given position.
+   * 
+   * @param level    The current indentation level.
+   * @param position The position to serialize.
+   * 
+   * @return A list of text lines representing the serialized position.
+   */
+  protected List<String> serializePosition(int level, Position position) {
+    if (position == null) {
+      return null;
+    }
+
+    List<String> result = new ArrayList<>();
+
+    Page page = position.getPage();
+    int pageNumber = page.getPageNumber();
+    Rectangle rect = position.getRectangle();
+
+    if (pageNumber > 0 && rect != null) {
+      result.add(start(POSITION, level));
+      result.add(start(PAGE, level + 1) + text(pageNumber) + end(PAGE));
+      result.add(start(MIN_X, level + 1) + text(rect.getMinX()) + end(MIN_X));
+      result.add(start(MIN_Y, level + 1) + text(rect.getMinY()) + end(MIN_Y));
+      result.add(start(MAX_X, level + 1) + text(rect.getMaxX()) + end(MAX_X));
+      result.add(start(MAX_Y, level + 1) + text(rect.getMaxY()) + end(MAX_Y));
+      result.add(end(POSITION, level));
+    }
+
+    return result;
+  }
+
+  /**
+   * Serializes the given positions.
+   * 
+   * @param level     The current indentation level.
+   * @param positions The positions to serialize.
+   * 
+   * @return A list of text lines representing the serialized positions.
+   */
+  protected List<String> serializePositions(int level, List<Position> positions) {
+    if (positions == null || positions.isEmpty()) {
+      return null;
+    }
+
+    List<String> result = new ArrayList<>();
+    result.add(start(POSITIONS, level));
+    for (Position position : positions) {
+      List<String> positionLines = serializePosition(level + 1, position);
+      if (positionLines != null) {
+        result.addAll(positionLines);
+      }
+    }
+    result.add(end(POSITIONS, level));
+
+    return result;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Serializes the given fonts, ordered by their ids (so that the serialization and its content
+   * hashes don't depend on the iteration order of the set).
+   *
+   * @param level The current indentation level.
+   * @param fonts The fonts to serialize.
+   * 
+   * @return A list of text lines representing the serialized fonts.
+   */
+  protected List<String> serializeFonts(int level, Set<Font> fonts) {
+    List<String> result = new ArrayList<>();
+    if (fonts != null) {
+      List<Font> sortedFonts = new ArrayList<>(fonts);
+      sortedFonts.sort(Comparator.nullsLast(Comparator.comparing(Font::getId, ID_ORDER)));
+      for (Font font : sortedFonts) {
+        List<String> fontLines = serializeFont(level, font);
+        if (fontLines != null) {
+          result.addAll(fontLines);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Serializes the given font.
+   * 
+   * @param level The current indentation level.
+   * @param font  The font to serialize.
+   * 
+   * @return A list of strings representing the serialized font.
+   */
+  protected List<String> serializeFont(int level, Font font) {
+    if (font == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactFont(level, font);
+    }
+    List<String> result = new ArrayList<>();
+
+    result.add(start(FONT, level));
+
+    String fontId = font.getId();
+    if (fontId != null) {
+      result.add(start(ID, level + 1) + text(fontId) + end(ID));
+    }
+
+    String fontName = font.getName();
+    if (fontName != null) {
+      result.add(start(NAME, level + 1) + text(fontName) + end(NAME));
+    }
+
+    boolean isBold = font.isBold();
+    result.add(start(IS_BOLD, level + 1) + text(isBold) + end(IS_BOLD));
+
+    boolean isItalic = font.isItalic();
+    result.add(start(IS_ITALIC, level + 1) + text(isItalic) + end(IS_ITALIC));
+
+    result.add(end(FONT, level));
+
+    return result;
+  }
+
+  // ==============================================================================================
+  // Methods to serialize colors.
+
+  /**
+   * Serializes the given colors, ordered by their ids.
+   * 
+   * @param level  The current indentation level.
+   * @param colors The colors to serialize.
+   * 
+   * @return A list of text lines representing the serialized colors.
+   */
+  protected List<String> serializeColors(int level, Set<Color> colors) {
+    List<String> result = new ArrayList<>();
+
+    if (colors != null) {
+      List<Color> sortedColors = new ArrayList<>(colors);
+      sortedColors.sort(Comparator.nullsLast(Comparator.comparing(Color::getId, ID_ORDER)));
+      for (Color color : sortedColors) {
+        if (color != null) {
+          List<String> colorLines = serializeColor(level, color);
+          if (colorLines != null) {
+            result.addAll(colorLines);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Serializes the given color.
+   * 
+   * @param level The current indentation level.
+   * @param color The color to serialize.
+   * 
+   * @return A list of text lines representing the serialized color.
+   */
+  protected List<String> serializeColor(int level, Color color) {
+    if (color == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactColor(level, color);
+    }
+
+    List<String> result = new ArrayList<>();
+    int[] rgb = color.getRgb();
+
+    if (rgb != null && rgb.length == 3) {
+      result.add(start(COLOR, level));
+      result.add(start(ID, level + 1) + text(color.getId()) + end(ID));
+      result.add(start(R, level + 1) + text(rgb[0]) + end(R));
+      result.add(start(G, level + 1) + text(rgb[1]) + end(G));
+      result.add(start(B, level + 1) + text(rgb[2]) + end(B));
+      result.add(end(COLOR, level));
+    }
+    return result;
+  }
+
+  // ==============================================================================================
+  // Methods to serialize the page information.
+
+  /**
+   * Serializes the metadata of the given pages that are accepted by the element filter and writes
+   * them to the output. The section is omitted if no page is accepted.
+   * 
+   * @param level The current indentation level.
+   * @param pages The pages to serialize.
+   * 
+   * @throws IOException If writing to the output failed.
+   */
+  protected void serializePages(int level, List<Page> pages) throws IOException {
+    if (pages == null) {
+      return;
+    }
+
+    SectionSerializationEvent event = null;
+    if (SectionSerializationEvent.isRecording()) {
+      event = new SectionSerializationEvent(SerializationFormat.XML.name(), PAGES, this.offset);
+    }
+
+    boolean isStarted = false;
+    int numPages = 0;
+    for (Page page : pages) {
+      if (page == null || !this.filter.accept(page)) {
+        continue;
+      }
+      List<String> pageLines = serializePage(level + 1, page);
+      if (pageLines != null) {
+        if (!isStarted) {
+          startSection(PAGES, level);
+          isStarted = true;
+        }
+        startPage();
+        writeElement(pageLines);
+        endPage(page, 1);
+        numPages++;
+      }
+    }
+    if (isStarted) {
+      endSection(PAGES, level);
+    }
+    if (event != null) {
+      event.finish(numPages, this.offset);
+    }
+  }
+
+  /**
+   * Serializes the metadata of the given page.
+   * 
+   * @param level The current indentation level.
+   * @param page  The page to serialize.
+   * 
+   * @return A list of text lines representing the serialized page.
+   */
+  protected List<String> serializePage(int level, Page page) {
+    if (page == null) {
+      return null;
+    }
+    if (this.isUsingCompactSchema) {
+      return serializeCompactPage(level, page);
+    }
+
+    List<String> result = new ArrayList<>();
+    result.add(start(PAGE, level));
+    result.add(start(ID, level + 1) + text(page.getPageNumber()) + end(ID));
+    result.add(start(WIDTH, level + 1) + text(page.getWidth()) + end(WIDTH));
+    result.add(start(HEIGHT, level + 1) + text(page.getHeight()) + end(HEIGHT));
+    TileIndex tiles = this.traversal != null ? this.traversal.getTileIndex(page) : null;
+    if (tiles != null) {
+      result.addAll(serializeTileIndex(level + 1, tiles));
+    }
+    String hash = this.index != null ? this.index.getPageHash(page.getPageNumber()) : null;
+    if (this.options.isEmbeddingContentHashes() && hash != null) {
+      result.add(start(HASH, level + 1) + text(hash) + end(HASH));
+    }
+    result.add(end(PAGE, level));
+
+    return result;
+  }
+
+  /**
+   * Serializes the given spatial index of a page: the size of the tiles, the number of columns
+   * and rows of the grid, and per serialized type of elements the non-empty tiles, each with its
+   * number and the (space-separated) indices of the elements in the section of the type.
+   * 
+   * @param level The current indentation level.
+   * @param tiles The index to serialize.
+   * 
+   * @return A list of text lines representing the serialized index.
+   */
+  protected List<String> serializeTileIndex(int level, TileIndex tiles) {
+    Collection<ElementClass> clazzes = this.traversal.getClazzes(this);
+
+    List<String> result = new ArrayList<>();
+    result.add(start(TILES, level));
+    result.add(start(TILE_SIZE, level + 1) + text(tiles.getTileSize()) + end(TILE_SIZE));
+    result.add(start(COLUMNS, level + 1) + text(tiles.getNumColumns()) + end(COLUMNS));
+    result.add(start(ROWS, level + 1) + text(tiles.getNumRows()) + end(ROWS));
+    for (ElementClass clazz : tiles.getElementClasses()) {
+      if (!clazzes.contains(clazz)) {
+        continue;
+      }
+      String name = DocumentSerializerConstants.getSectionName(clazz);
+      result.add(start(name, level + 1));
+      for (Map.Entry<Integer, List<Integer>> tile : tiles.getTiles(clazz).entrySet()) {
+        StringBuilder elements = new StringBuilder();
+        for (Integer elementIndex : tile.getValue()) {
+          if (elements.length() > 0) {
+            elements.append(' ');
+          }
+          elements.append(elementIndex);
+        }
+        result.add(start(TILE, level + 2));
+        result.add(start(ID, level + 3) + text(tile.getKey()) + end(ID));
+        result.add(start(ELEMENTS, level + 3) + elements + end(ELEMENTS));
+        result.add(end(TILE, level + 2));
+      }
+      result.add(end(name, level + 1));
+    }
+    result.add(end(TILES, level));
+
+    return result;
+  }
+
+  // ==============================================================================================
+  // Methods to serialize the elements in the compact schema.
+
+  /**
+   * Serializes the given character in the compact schema, as a single line with the position, the
+   * font face and the color as attributes and the text as content.
+   *
+   * @param level     The current indentation level.
+   * @param character The character to serialize.
+   *
+   * @return A list with the line representing the serialized character.
+   */
+  protected List<String> serializeCompactCharacter(int level, Character character) {
+    StringBuilder sb = startCompact(CHARACTER, level);
+
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.POSITION)) {
+      appendPosition(sb, character.getPosition());
+    }
+
+    // Serialize the font face and the color, unless they are encoded as style runs.
+    if (!this.isEncodingStyleRuns) {
+      appendFontFaceAndColor(sb, character);
+    }
+
+    String text = null;
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.TEXT)) {
+      text = character.getText();
+    }
+    return endCompact(sb, CHARACTER, text != null ? this.cache.escapeText(text) : null);
+  }
+
+  /**
+   * Serializes the style element of the style run started by the given character in the compact
+   * schema, with the font face and the color as attributes.
+   *
+   * @param level     The current indentation level.
+   * @param character The first character of the style run.
+   *
+   * @return A list with the line representing the serialized style element, or null if neither
+   *         the font face nor the color of the characters is serialized.
+   */
+  protected List<String> serializeCompactStyle(int level, Character character) {
+    StringBuilder sb = startCompact(STYLE, level);
+    int length = sb.length();
+    appendFontFaceAndColor(sb, character);
+    if (sb.length() == length) {
+      return null;
+    }
+    return endCompact(sb, STYLE, null);
+  }
+
+  /**
+   * Serializes the given word in the compact schema, with the index range of its characters as
+   * attributes and its positions as child elements.
+   *
+   * @param level The current indentation level.
+   * @param doc   The document to which the word belongs.
+   * @param word  The word to serialize.
+   *
+   * @return A list of text lines representing the serialized word.
+   */
+  protected List<String> serializeCompactWord(int level, Document doc, Word word) {
+    StringBuilder sb = startCompact(WORD, level);
+    if (this.projection.includes(ElementClass.WORDS, ElementField.CHARACTERS)) {
+      appendCharacterRange(sb, word.getCharacters());
+    }
+
+    List<Position> positions = null;
+    if (this.projection.includes(ElementClass.WORDS, ElementField.POSITION)) {
+      positions = word.getPositions();
+    }
+    return endCompact(sb, WORD, level, positions);
+  }
+
+  /**
+   * Serializes the given text line in the compact schema, as a single line with the position and
+   * the index range of its characters as attributes.
+   *
+   * @param level The current indentation level.
+   * @param doc   The document to which the text line belongs.
+   * @param line  The text line to serialize.
+   *
+   * @return A list with the line representing the serialized text line.
+   */
+  protected List<String> serializeCompactTextLine(int level, Document doc, TextLine line) {
+    StringBuilder sb = startCompact(TEXT_LINE, level);
+    int length = sb.length();
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.POSITION)) {
+      appendPosition(sb, line.getPosition());
+    }
+    if (this.projection.includes(ElementClass.TEXT_LINES, ElementField.CHARACTERS)) {
+      appendCharacterRange(sb, line.getCharacters());
+    }
+    return sb.length() > length ? endCompact(sb, TEXT_LINE, null) : new ArrayList<>();
+  }
+
+  /**
+   * Serializes the given text block in the compact schema, as a single line with the position,
+   * the semantic role and the index range of its characters as attributes.
+   *
+   * @param level The current indentation level.
+   * @param doc   The document to which the text block belongs.
+   * @param block The text block to serialize.
+   *
+   * @return A list with the line representing the serialized text block.
+   */
+  protected List<String> serializeCompactTextBlock(int level, Document doc, TextBlock block) {
+    StringBuilder sb = startCompact(TEXT_BLOCK, level);
+    int length = sb.length();
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.POSITION)) {
+      appendPosition(sb, block.getPosition());
+    }
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.ROLE)) {
+      SemanticRole role = block.getRole();
+      if (role != null) {
+        appendAttribute(sb, ROLE, text(role));
+      }
+    }
+    if (this.projection.includes(ElementClass.TEXT_BLOCKS, ElementField.CHARACTERS)) {
+      appendCharacterRange(sb, block.getCharacters());
+    }
+    return sb.length() > length ? endCompact(sb, TEXT_BLOCK, null) : new ArrayList<>();
+  }
+
+  /**
+   * Serializes the given paragraph in the compact schema, with the semantic role and the index
+   * range of its characters as attributes and its positions as child elements.
+   *
+   * @param level     The current indentation level.
+   * @param doc       The document to which the paragraph belongs.
+   * @param paragraph The paragraph to serialize.
+   *
+   * @return A list of text lines representing the serialized paragraph.
+   */
+  protected List<String> serializeCompactParagraph(int level, Document doc,
+          Paragraph paragraph) {
+    StringBuilder sb = startCompact(PARAGRAPH, level);
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.ROLE)) {
+      SemanticRole role = paragraph.getRole();
+      if (role != null) {
+        appendAttribute(sb, ROLE, text(role));
+      }
+    }
+
+    // Reference the characters from the first character of the first word to the last character
+    // of the last word, clipped to the serialized characters.
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.CHARACTERS)) {
+      Character first = this.traversal.getFirstIndexedCharacter(paragraph.getWords());
+      Character last = this.traversal.getLastIndexedCharacter(paragraph.getWords());
+      if (first != null && last != null) {
+        appendCharacterRange(sb, first, last);
+      }
+    }
+
+    List<Position> positions = null;
+    if (this.projection.includes(ElementClass.PARAGRAPHS, ElementField.POSITION)) {
+      positions = paragraph.getPositions();
+    }
+    return endCompact(sb, PARAGRAPH, level, positions);
+  }
+
+  /**
+   * Serializes the given figure in the compact schema, as a single line with the position as
+   * attributes.
+   *
+   * @param level  The current indentation level.
+   * @param figure The figure to serialize.
+   *
+   * @return A list with the line representing the serialized figure.
+   */
+  protected List<String> serializeCompactFigure(int level, Figure figure) {
+    StringBuilder sb = startCompact(FIGURE, level);
+    int length = sb.length();
+    if (this.projection.includes(ElementClass.FIGURES, ElementField.POSITION)) {
+      appendPosition(sb, figure.getPosition());
+    }
+    return sb.length() > length ? endCompact(sb, FIGURE, null) : new ArrayList<>();
+  }
+
+  /**
+   * Serializes the given shape in the compact schema, as a single line with the position and the
+   * color as attributes.
+   *
+   * @param level The current indentation level.
+   * @param shape The shape to serialize.
+   *
+   * @return A list with the line representing the serialized shape.
+   */
+  protected List<String> serializeCompactShape(int level, Shape shape) {
+    StringBuilder sb = startCompact(SHAPE, level);
+    int length = sb.length();
+    if (this.projection.includes(ElementClass.SHAPES, ElementField.POSITION)) {
+      appendPosition(sb, shape.getPosition());
+    }
+    if (this.projection.includes(ElementClass.SHAPES, ElementField.COLOR)) {
+      Color color = shape.getColor();
+      if (color != null && color.getId() != null) {
+        appendAttribute(sb, COLOR, this.cache.escapeId(color, color.getId()));
+      }
+    }
+    return sb.length() > length ? endCompact(sb, SHAPE, null) : new ArrayList<>();
+  }
+
+  /**
+   * Serializes the given font in the compact schema, as a single line with its fields as
+   * attributes.
+   *
+   * @param level The current indentation level.
+   * @param font  The font to serialize.
+   *
+   * @return A list with the line representing the serialized font.
+   */
+  protected List<String> serializeCompactFont(int level, Font font) {
+    StringBuilder sb = startCompact(FONT, level);
+    if (font.getId() != null) {
+      appendAttribute(sb, ID, text(font.getId()));
+    }
+    if (font.getName() != null) {
+      appendAttribute(sb, NAME, text(font.getName()));
+    }
+    appendAttribute(sb, IS_BOLD, font.isBold());
+    appendAttribute(sb, IS_ITALIC, font.isItalic());
+    return endCompact(sb, FONT, null);
+  }
+
+  /**
+   * Serializes the given color in the compact schema, as a single line with its id and RGB values
+   * as attributes.
+   *
+   * @param level The current indentation level.
+   * @param color The color to serialize.
+   *
+   * @return A list with the line representing the serialized color.
+   */
+  protected List<String> serializeCompactColor(int level, Color color) {
+    int[] rgb = color.getRgb();
+    if (rgb == null || rgb.length != 3) {
+      return new ArrayList<>();
+    }
+
+    StringBuilder sb = startCompact(COLOR, level);
+    appendAttribute(sb, ID, text(color.getId()));
+    appendAttribute(sb, R, rgb[0]);
+    appendAttribute(sb, G, rgb[1]);
+    appendAttribute(sb, B, rgb[2]);
+    return endCompact(sb, COLOR, null);
   }
 
   /**
-   * Serializes the given figure.
-   * 
-   * @param level  The current indentation level.
-   * @param figure The figure to serialize.
+   * Serializes the metadata of the given page in the compact schema, with the number, the size
+   * and the content hash of the page as attributes and the tile index as child element.
    *
-   * @return A list of text lines representing the serialized figure.
+   * @param level The current indentation level.
+   * @param page  The page to serialize.
+   *
+   * @return A list of text lines representing the serialized page.
    */
-  protected List<String> serializeFigure(int level, Figure figure) {
-    if (figure == null) {
-      return null;
+  protected List<String> serializeCompactPage(int level, Page page) {
+    StringBuilder sb = startCompact(PAGE, level);
+    appendAttribute(sb, ID, page.getPageNumber());
+    appendAttribute(sb, WIDTH, page.getWidth());
+    appendAttribute(sb, HEIGHT, page.getHeight());
+    String hash = this.index != null ? this.index.getPageHash(page.getPageNumber()) : null;
+    if (this.options.isEmbeddingContentHashes() && hash != null) {
+      appendAttribute(sb, HASH, hash);
     }
 
-    List<String> figureLines = new ArrayList<>();
-
-    // Serialize the position.
-    List<String> serialized = serializePosition(level + 1, figure.getPosition());
-    if (serialized != null) {
-      figureLines.addAll(serialized);
+    TileIndex tiles = this.traversal != null ? this.traversal.getTileIndex(page) : null;
+    if (tiles == null) {
+      return endCompact(sb, PAGE, null);
     }
 
     List<String> result = new ArrayList<>();
-    if (figureLines != null && !figureLines.isEmpty()) {
-      result.add(start(FIGURE, level));
-      result.addAll(figureLines);
-      result.add(end(FIGURE, level));
-    }
+    result.add(sb.append('>').toString());
+    result.addAll(serializeCompactTileIndex(level + 1, tiles));
+    result.add(end(PAGE, level));
     return result;
   }
 
-  // ==============================================================================================
-
   /**
-   * Serializes the shapes of the given document.
-   * 
+   * Serializes the given spatial index of a page in the compact schema: the size of the tiles and
+   * the number of columns and rows of the grid as attributes, and per serialized type of elements
+   * the non-empty tiles, each as a single line with its number as attribute and the
+   * (space-separated) indices of the elements as content.
+   *
    * @param level The current indentation level.
-   * @param doc   The document to process.
-   * 
-   * @return A list of text lines representing the text lines of the serialized shapes.
+   * @param tiles The index to serialize.
+   *
+   * @return A list of text lines representing the serialized index.
    */
-  protected List<String> serializeShapes(int level, Document doc) {
-    List<String> result = new ArrayList<>();
+  protected List<String> serializeCompactTileIndex(int level, TileIndex tiles) {
+    Collection<ElementClass> clazzes = this.traversal.getClazzes(this);
 
-    if (doc != null) {
-      result.add(start(SHAPES, level));
-      for (Page page : doc.getPages()) {
-        for (Shape shape : page.getShapes()) {
-          List<String> shapeLines = serializeShape(level + 1, shape);
-          if (shapeLines != null) {
-            result.addAll(shapeLines);
+    List<String> result = new ArrayList<>();
+    StringBuilder sb = startCompact(TILES, level);
+    appendAttribute(sb, TILE_SIZE, tiles.getTileSize());
+    appendAttribute(sb, COLUMNS, tiles.getNumColumns());
+    appendAttribute(sb, ROWS, tiles.getNumRows());
+    result.add(sb.append('>').toString());
+    for (ElementClass clazz : tiles.getElementClasses()) {
+      if (!clazzes.contains(clazz)) {
+        continue;
+      }
+      String name = DocumentSerializerConstants.getSectionName(clazz);
+      result.add(start(name, level + 1));
+      for (Map.Entry<Integer, List<Integer>> tile : tiles.getTiles(clazz).entrySet()) {
+        StringBuilder elements = new StringBuilder();
+        for (Integer elementIndex : tile.getValue()) {
+          if (elements.length() > 0) {
+            elements.append(' ');
           }
+          elements.append(elementIndex);
         }
+        StringBuilder tileSb = startCompact(TILE, level + 2);
+        appendAttribute(tileSb, ID, tile.getKey());
+        result.addAll(endCompact(tileSb, TILE, elements.toString()));
       }
-      result.add(end(SHAPES, level));
+      result.add(end(name, level + 1));
     }
-
+    result.add(end(TILES, level));
     return result;
   }
 
+  // ==============================================================================================
+
   /**
-   * Serializes the given shape.
-   * 
-   * @param level The current indentation level.
-   * @param shape The shape to serialize.
+   * Appends the page and the bounding box of the given position as attributes.
    *
-   * @return A list of text lines representing the serialized shape.
+   * @param sb       The builder of the start tag to append to.
+   * @param position The position.
    */
-  protected List<String> serializeShape(int level, Shape shape) {
-    if (shape == null) {
-      return null;
+  protected void appendPosition(StringBuilder sb, Position position) {
+    if (position == null) {
+      return;
     }
-
-    List<String> shapeLines = new ArrayList<>();
-
-    // Serialize the position of the shape, if there is any.
-    List<String> serialized = serializePosition(level + 1, shape.getPosition());
-    if (serialized != null) {
-      shapeLines.addAll(serialized);
+    int pageNumber = position.getPage().getPageNumber();
+    Rectangle rect = position.getRectangle();
+    if (pageNumber > 0 && rect != null) {
+      appendAttribute(sb, PAGE, pageNumber);
+      appendAttribute(sb, MIN_X, rect.getMinX());
+      appendAttribute(sb, MIN_Y, rect.getMinY());
+      appendAttribute(sb, MAX_X, rect.getMaxX());
+      appendAttribute(sb, MAX_Y, rect.getMaxY());
     }
+  }
 
-    // Serialize the color of the shape, if there is any.
-    Color color = shape.getColor();
-    if (color != null) {
-      String colorId = color.getId();
-      if (colorId != null) {
-        shapeLines.add(start(COLOR, level + 1));
-        shapeLines.add(start(ID, level + 2) + text(colorId) + end(ID));
-        shapeLines.add(end(COLOR, level + 1));
-        this.usedColors.add(color);
+  /**
+   * Appends the id and size of the font and the id of the color of the given character as
+   * attributes, as far as they are included in the field projection.
+   *
+   * @param sb        The builder of the start tag to append to.
+   * @param character The character.
+   */
+  protected void appendFontFaceAndColor(StringBuilder sb, Character character) {
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.FONT)) {
+      FontFace fontFace = character.getFontFace();
+      Font font = fontFace != null ? fontFace.getFont() : null;
+      if (font != null && font.getId() != null && fontFace.getFontSize() > 0) {
+        appendAttribute(sb, FONT, this.cache.escapeId(font, font.getId()));
+        appendAttribute(sb, FONTSIZE, fontFace.getFontSize());
       }
     }
 
-    // Wrap the serialized lines with a tag that describes a shape.
-    List<String> result = new ArrayList<>();
-    if (shapeLines != null && !shapeLines.isEmpty()) {
-      result.add(start(SHAPE, level));
-      result.addAll(shapeLines);
-      result.add(end(SHAPE, level));
+    if (this.projection.includes(ElementClass.CHARACTERS, ElementField.COLOR)) {
+      Color color = character.getColor();
+      if (color != null && color.getId() != null) {
+        appendAttribute(sb, COLOR, this.cache.escapeId(color, color.getId()));
+      }
     }
-    return result;
   }
 
-  // ==============================================================================================
+  /**
+   * Appends the index range of the given characters in the serialized characters as attributes.
+   *
+   * @param sb         The builder of the start tag to append to.
+   * @param characters The characters to reference, in reading order.
+   */
+  protected void appendCharacterRange(StringBuilder sb, List<Character> characters) {
+    if (characters != null && !characters.isEmpty()) {
+      appendCharacterRange(sb, characters.get(0), characters.get(characters.size() - 1));
+    }
+  }
 
   /**
-   * Serializes the given position.
-   * 
-   * @param level    The current indentation level.
-   * @param position The position to serialize.
-   * 
-   * @return A list of text lines representing the serialized position.
+   * Appends the index range spanned by the given first and last character in the serialized
+   * characters as attributes: the index of the first character (inclusive) and the index of the
+   * last character + 1 (exclusive).
+   *
+   * @param sb    The builder of the start tag to append to.
+   * @param first The first character of the range.
+   * @param last  The last character of the range.
    */
-  protected List<String> serializePosition(int level, Position position) {
-    if (position == null) {
-      return null;
+  protected void appendCharacterRange(StringBuilder sb, Character first, Character last) {
+    int from = this.traversal.getCharacterIndex(this, first);
+    int to = this.traversal.getCharacterIndex(this, last);
+    if (from >= 0 && to >= 0) {
+      appendAttribute(sb, FROM, from);
+      appendAttribute(sb, TO, to + 1);
     }
+  }
 
-    List<String> result = new ArrayList<>();
+  /**
+   * Appends an attribute with the given name and (already escaped) value.
+   *
+   * @param sb    The builder of the start tag to append to.
+   * @param name  The name of the attribute.
+   * @param value The value of the attribute.
+   */
+  protected static void appendAttribute(StringBuilder sb, String name, Object value) {
+    sb.append(' ').append(name).append("=\"").append(value).append('"');
+  }
 
-    Page page = position.getPage();
-    int pageNumber = page.getPageNumber();
-    Rectangle rect = position.getRectangle();
+  /**
+   * Starts the (unterminated) start tag of an element in the compact schema.
+   *
+   * @param name  The name of the element.
+   * @param level The indentation level.
+   *
+   * @return The builder of the start tag.
+   */
+  protected static StringBuilder startCompact(String name, int level) {
+    return new StringBuilder(128).append(indent(level)).append('<').append(name);
+  }
 
-    if (pageNumber > 0 && rect != null) {
-      result.add(start(POSITION, level));
-      result.add(start(PAGE, level + 1) + text(pageNumber) + end(PAGE));
-      result.add(start(MIN_X, level + 1) + text(rect.getMinX()) + end(MIN_X));
-      result.add(start(MIN_Y, level + 1) + text(rect.getMinY()) + end(MIN_Y));
-      result.add(start(MAX_X, level + 1) + text(rect.getMaxX()) + end(MAX_X));
-      result.add(start(MAX_Y, level + 1) + text(rect.getMaxY()) + end(MAX_Y));
-      result.add(end(POSITION, level));
+  /**
+   * Ends an element in the compact schema that is written on a single line.
+   *
+   * @param sb      The builder of the start tag of the element.
+   * @param name    The name of the element.
+   * @param content The (already escaped) content of the element, or null if the element has no
+   *                content.
+   *
+   * @return A list with the line representing the element.
+   */
+  protected static List<String> endCompact(StringBuilder sb, String name, String content) {
+    if (content == null) {
+      sb.append("/>");
+    } else {
+      sb.append('>').append(content).append("</").append(name).append('>');
     }
-
+    List<String> result = new ArrayList<>(1);
+    result.add(sb.toString());
     return result;
   }
 
-  // ==============================================================================================
-
   /**
-   * Serializes the given fonts.
+   * Ends an element in the compact schema with the given positions as child elements. The element
+   * is omitted if it has neither attributes nor positions.
    *
-   * @param level The current indentation level.
-   * @param fonts The fonts to serialize.
-   * 
-   * @return A list of text lines representing the serialized fonts.
+   * @param sb        The builder of the start tag of the element.
+   * @param name      The name of the element.
+   * @param level     The indentation level of the element.
+   * @param positions The positions of the element, or null if they are not serialized.
+   *
+   * @return A list of text lines representing the element.
    */
-  protected List<String> serializeFonts(int level, Set<Font> fonts) {
-    List<String> result = new ArrayList<>();
-    if (fonts != null) {
-      for (Font font : fonts) {
-        List<String> fontLines = serializeFont(level, font);
-        if (fontLines != null) {
-          result.addAll(fontLines);
+  protected List<String> endCompact(StringBuilder sb, String name, int level,
+          List<Position> positions) {
+    List<String> positionLines = new ArrayList<>();
+    if (positions != null) {
+      for (Position position : positions) {
+        StringBuilder positionSb = startCompact(POSITION, level + 1);
+        int length = positionSb.length();
+        appendPosition(positionSb, position);
+        if (positionSb.length() > length) {
+          positionLines.addAll(endCompact(positionSb, POSITION, null));
         }
       }
     }
+
+    boolean hasAttributes = sb.length() > indent(level).length() + name.length() + 1;
+    if (positionLines.isEmpty()) {
+      return hasAttributes ? endCompact(sb, name, null) : new ArrayList<>();
+    }
+    List<String> result = new ArrayList<>();
+    result.add(sb.append('>').toString());
+    result.addAll(positionLines);
+    result.add(end(name, level));
     return result;
   }
 
+  // ==============================================================================================
+  // Methods to write the serialization to the output.
+
   /**
-   * Serializes the given font.
+   * Writes the start tag of the given section to the output.
    * 
-   * @param level The current indentation level.
-   * @param font  The font to serialize.
+   * @param name  The name of the section.
+   * @param level The indentation level of the section.
    * 
-   * @return A list of strings representing the serialized font.
+   * @throws IOException If writing to the output failed.
    */
-  protected List<String> serializeFont(int level, Font font) {
-    if (font == null) {
-      return null;
-    }
-    List<String> result = new ArrayList<>();
-
-    result.add(start(FONT, level));
+  protected void startSection(String name, int level) throws IOException {
+    this.section = name;
+    this.sectionOffset = this.offset;
+    this.pageOffset = -1;
+    writeLine(start(name, level));
+  }
 
-    String fontId = font.getId();
-    if (fontId != null) {
-      result.add(start(ID, level + 1) + text(fontId) + end(ID));
+  /**
+   * Writes the lines of the given element to the current section.
+   * 
+   * @param lines The lines of the serialized element.
+   * 
+   * @throws IOException If writing to the output failed.
+   */
+  protected void writeElement(List<String> lines) throws IOException {
+    if (lines == null) {
+      return;
     }
-
-    String fontName = font.getName();
-    if (fontName != null) {
-      result.add(start(NAME, level + 1) + text(fontName) + end(NAME));
+    if (this.pageOffset < 0) {
+      this.pageOffset = this.offset;
+    }
+    for (String line : lines) {
+      writeLine(line);
     }
-
-    boolean isBold = font.isBold();
-    result.add(start(IS_BOLD, level + 1) + text(isBold) + end(IS_BOLD));
-
-    boolean isItalic = font.isItalic();
-    result.add(start(IS_ITALIC, level + 1) + text(isItalic) + end(IS_ITALIC));
-
-    result.add(end(FONT, level));
-
-    return result;
   }
 
-  // ==============================================================================================
-  // Methods to serialize colors.
-
   /**
-   * Serializes the given colors.
+   * Writes the end tag of the given section to the output and records the byte range of the
+   * section in the index.
    * 
-   * @param level  The current indentation level.
-   * @param colors The colors to serialize.
+   * @param name  The name of the section.
+   * @param level The indentation level of the section.
    * 
-   * @return A list of text lines representing the serialized colors.
+   * @throws IOException If writing to the output failed.
    */
-  protected List<String> serializeColors(int level, Set<Color> colors) {
-    List<String> result = new ArrayList<>();
+  protected void endSection(String name, int level) throws IOException {
+    writeLine(end(name, level));
+    this.index.setSectionRange(name, this.sectionOffset, this.offset - this.sectionOffset);
+  }
 
-    if (colors != null) {
-      for (Color color : colors) {
-        if (color != null) {
-          List<String> colorLines = serializeColor(level, color);
-          if (colorLines != null) {
-            result.addAll(colorLines);
-          }
-        }
-      }
-    }
-    return result;
+  /**
+   * Writes a complete section with the given lines.
+   * 
+   * @param name  The name of the section.
+   * @param level The indentation level of the section.
+   * @param lines The lines of the serialized elements of the section.
+   * 
+   * @throws IOException If writing to the output failed.
+   */
+  protected void writeSection(String name, int level, List<String> lines) throws IOException {
+    startSection(name, level);
+    writeElement(lines);
+    endSection(name, level);
   }
 
   /**
-   * Serializes the given color.
+   * Writes a complete section with the given lines and records it as a flight recorder event.
    * 
-   * @param level The current indentation level.
-   * @param color The color to serialize.
+   * @param name        The name of the section.
+   * @param level       The indentation level of the section.
+   * @param lines       The lines of the serialized elements of the section.
+   * @param numElements The number of elements of the section.
    * 
-   * @return A list of text lines representing the serialized color.
+   * @throws IOException If writing to the output failed.
    */
-  protected List<String> serializeColor(int level, Color color) {
-    if (color == null) {
-      return null;
+  protected void writeSection(String name, int level, List<String> lines, int numElements)
+          throws IOException {
+    SectionSerializationEvent event = null;
+    if (SectionSerializationEvent.isRecording()) {
+      event = new SectionSerializationEvent(SerializationFormat.XML.name(), name, this.offset);
+    }
+    writeSection(name, level, lines);
+    if (event != null) {
+      event.finish(numElements, this.offset);
     }
+  }
 
-    List<String> result = new ArrayList<>();
-    int[] rgb = color.getRgb();
+  /**
+   * Marks the start of the elements of a page in the current section.
+   */
+  protected void startPage() {
+    this.pageOffset = -1;
+  }
 
-    if (rgb != null && rgb.length == 3) {
-      result.add(start(COLOR, level));
-      result.add(start(ID, level + 1) + text(color.getId()) + end(ID));
-      result.add(start(R, level + 1) + text(rgb[0]) + end(R));
-      result.add(start(G, level + 1) + text(rgb[1]) + end(G));
-      result.add(start(B, level + 1) + text(rgb[2]) + end(B));
-      result.add(end(COLOR, level));
+  @Override
+  public void endPage(Page page) {
+    this.index.setPageFonts(this.section, page.getPageNumber(), this.traversal.getPageFontIds());
+    this.index.setPageColors(this.section, page.getPageNumber(), this.traversal.getPageColorIds());
+    endPage(page, this.traversal.getNumPageElements());
+  }
+
+  /**
+   * Marks the end of the elements of the given page in the current section and records the byte
+   * range and the number of the elements in the index.
+   * 
+   * @param page        The page.
+   * @param numElements The number of elements of the page.
+   */
+  protected void endPage(Page page, int numElements) {
+    if (this.pageOffset >= 0) {
+      long length = this.offset - this.pageOffset;
+      this.index.setPageRange(this.section, page.getPageNumber(), this.pageOffset, length);
+    }
+    this.index.setPageCount(this.section, page.getPageNumber(), numElements);
+    this.pageOffset = -1;
+    if (this.hasher != null) {
+      this.hasher.endPage();
     }
-    return result;
   }
 
-  // ==============================================================================================
-  // Methods to serialize the page information.
+  @Override
+  public void fragment(byte[] serialization, ByteRange range, String hash)
+          throws IOException {
+    if (this.hasher != null) {
+      this.hasher.fragment(hash);
+    }
+    this.pageOffset = this.offset;
+    write(serialization, (int) range.getOffset(), (int) range.getLength());
+  }
 
   /**
-   * Serializes the metadata of the given pages.
+   * Writes the given line, followed by the line delimiter, to the output.
    * 
-   * @param level The current indentation level.
-   * @param pages The pages to serialize.
+   * @param line The line to write.
    * 
-   * @return A list of text lines representing the serialized pages.
+   * @throws IOException If writing to the output failed.
    */
-  protected List<String> serializePages(int level, List<Page> pages) {
-    List<String> result = new ArrayList<>();
+  protected void writeLine(String line) throws IOException {
+    write(line + LINE_DELIMITER);
+  }
 
-    if (pages != null) {
-      for (Page page : pages) {
-        if (page != null) {
-          List<String> pageLines = serializePage(level, page);
-          if (pageLines != null) {
-            result.addAll(pageLines);
-          }
-        }
-      }
-    }
-    return result;
+  /**
+   * Writes the given string to the output.
+   * 
+   * @param string The string to write.
+   * 
+   * @throws IOException If writing to the output failed.
+   */
+  protected void write(String string) throws IOException {
+    byte[] bytes = string.getBytes(ENCODING);
+    write(bytes, 0, bytes.length);
   }
 
   /**
-   * Serializes the metadata of the given page.
+   * Writes the given bytes to the output and adds them to the content hashes, if any.
    * 
-   * @param level The current indentation level.
-   * @param page  The page to serialize.
+   * @param bytes  The bytes to write.
+   * @param offset The offset of the first byte to write.
+   * @param length The number of bytes to write.
    * 
-   * @return A list of text lines representing the serialized page.
+   * @throws IOException If writing to the output failed.
    */
-  protected List<String> serializePage(int level, Page page) {
-    if (page == null) {
-      return null;
+  protected void write(byte[] bytes, int offset, int length) throws IOException {
+    this.out.write(bytes, offset, length);
+    if (this.hasher != null) {
+      this.hasher.update(bytes, offset, length);
     }
-
-    List<String> result = new ArrayList<>();
-    result.add(start(PAGE, level));
-    result.add(start(ID, level + 1) + text(page.getPageNumber()) + end(ID));
-    result.add(start(WIDTH, level + 1) + text(page.getWidth()) + end(WIDTH));
-    result.add(start(HEIGHT, level + 1) + text(page.getHeight()) + end(HEIGHT));
-    result.add(end(PAGE, level));
-
-    return result;
+    this.offset += length;
   }
 
   // ==============================================================================================
@@ -624,10 +1937,33 @@ public class XmlDocumentSerializer {
    * @return The given text wrapped in an XML start tag, indented by the given indentation level.
    */
   protected String start(String text, int level) {
-    String indent = repeat(" ", level * INDENT_LENGTH);
+    String indent = indent(level);
     return indent + "<" + text + ">";
   }
 
+  /**
+   * Wraps the given lines of the fields of an element in the start and end tag of the element. An
+   * element without fields is written as an empty element, so that each element is written and
+   * the indices of the elements (for example, the character ranges) match the other formats.
+   * 
+   * @param name  The name of the element.
+   * @param level The indentation level.
+   * @param lines The lines of the fields of the element.
+   * 
+   * @return The lines of the element.
+   */
+  protected List<String> element(String name, int level, List<String> lines) {
+    List<String> result = new ArrayList<>(lines.size() + 2);
+    if (lines.isEmpty()) {
+      result.add(indent(level) + "<" + name + "/>");
+      return result;
+    }
+    result.add(start(name, level));
+    result.addAll(lines);
+    result.add(end(name, level));
+    return result;
+  }
+
   /**
    * Wraps the given text in an XML end tag.
    * 
@@ -648,7 +1984,7 @@ public class XmlDocumentSerializer {
    * @return The given text wrapped in an XML end tag, indented by the given indentation level.
    */
   protected String end(String text, int level) {
-    String indent = repeat(" ", level * INDENT_LENGTH);
+    String indent = indent(level);
     return indent + "</" + text + ">";
   }
 
@@ -673,11 +2009,27 @@ public class XmlDocumentSerializer {
    * @return The XML escaped string, indented by the given indentation level.
    */
   protected String text(Object obj, int level) {
-    String indent = repeat(" ", level * INDENT_LENGTH);
-    String text = StringEscapeUtils.escapeXml11(obj.toString());
+    String indent = indent(level);
+    // Numbers don't contain any characters to escape.
+    String text = obj instanceof Number ? obj.toString()
+            : StringEscapeUtils.escapeXml11(obj.toString());
     return indent + text;
   }
 
+  /**
+   * Returns the indentation of the given indentation level.
+   * 
+   * @param level The indentation level.
+   * 
+   * @return The indentation.
+   */
+  protected static String indent(int level) {
+    if (level < INDENTS.length) {
+      return INDENTS[level];
+    }
+    return repeat(" ", level * INDENT_LENGTH);
+  }
+
   // ==============================================================================================
 
   /**
@@ -0,0 +1,254 @@
+package textextraction.serializer.binary;
+
+import textextraction.common.models.ElementClass;
+
+/**
+ * The layout of a document serialized in binary format.
+ *
+ * <p>
+ * A binary serialization consists of a header, a directory of sections and the sections. All
+ * numbers are stored in big-endian byte order. The header consists of the magic number
+ * {@link #MAGIC}, the version {@link #VERSION} and the number of sections. The directory contains
+ * an entry per section (the section kind, the number of records and the offset of the section,
+ * see {@link #DIRECTORY_ENTRY_SIZE}), in the order of the section kinds.
+ *
+ * <p>
+ * Each section (except of the strings section) consists of fixed-size records, so that the i-th
+ * record of a section can be accessed directly at <i>offset + i * record size</i>. References to
+ * other records (fonts, colors, strings, positions, characters) are given as record indices; a
+ * missing reference is given as {@link #NONE}. The elements of the page-based sections are stored
+ * in the order of their pages; each page record contains the index of the first element and the
+ * number of elements of the page per page-based section.
+ *
+ * <p>
+ * The strings section consists of (number of strings + 1) offsets, relative to the end of the
+ * offsets, followed by the UTF-8 encoded strings.
+ *
+ * @author Claudius Korzen
+ */
+public final class BinaryLayout {
+  /**
+   * The magic number that identifies a binary serialization ("TXDB").
+   */
+  public static final int MAGIC = 0x54584442;
+
+  /**
+   * The version of the binary layout.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * The value of a missing reference.
+   */
+  public static final int NONE = -1;
+
+  /**
+   * The size of the header (magic number, version, number of sections).
+   */
+  public static final int HEADER_SIZE = 12;
+
+  /**
+   * The size of an entry of the directory (kind, number of records, offset).
+   */
+  public static final int DIRECTORY_ENTRY_SIZE = 16;
+
+  // ==============================================================================================
+  // The section kinds.
+
+  /** The section of the fonts. */
+  public static final int FONTS = 0;
+  /** The section of the colors. */
+  public static final int COLORS = 1;
+  /** The section of the pages. */
+  public static final int PAGES = 2;
+  /** The section of the positions of words and paragraphs. */
+  public static final int POSITIONS = 3;
+  /** The section of the characters. */
+  public static final int CHARACTERS = 4;
+  /** The section of the words. */
+  public static final int WORDS = 5;
+  /** The section of the text lines. */
+  public static final int TEXT_LINES = 6;
+  /** The section of the text blocks. */
+  public static final int TEXT_BLOCKS = 7;
+  /** The section of the paragraphs. */
+  public static final int PARAGRAPHS = 8;
+  /** The section of the figures. */
+  public static final int FIGURES = 9;
+  /** The section of the shapes. */
+  public static final int SHAPES = 10;
+  /** The section of the strings. */
+  public static final int STRINGS = 11;
+
+  /**
+   * The number of sections.
+   */
+  public static final int NUM_SECTIONS = 12;
+
+  // ==============================================================================================
+  // The record layouts.
+
+  /**
+   * The size of a position record: page number (int), minX, minY, maxX, maxY (float).
+   */
+  public static final int POSITION_SIZE = 20;
+
+  /**
+   * The size of a font record: id (string), name (string), flags (int; 1 = bold, 2 = italic).
+   */
+  public static final int FONT_SIZE = 12;
+
+  /**
+   * The size of a color record: id (string), r, g, b (int).
+   */
+  public static final int COLOR_SIZE = 16;
+
+  /**
+   * The size of a page record: page number (int), width, height (float), followed by the index of
+   * the first element and the number of elements (int, int) per page-based section, in the order
+   * of {@link #PAGE_SECTIONS}.
+   */
+  public static final int PAGE_SIZE = 60;
+
+  /**
+   * The offset of the first (index, count) entry in a page record.
+   */
+  public static final int PAGE_SECTIONS_OFFSET = 12;
+
+  /**
+   * The size of a character record: a position, font (font), font size (float), color (color),
+   * text (string).
+   */
+  public static final int CHARACTER_SIZE = POSITION_SIZE + 16;
+
+  /**
+   * The size of a word record: first position, number of positions, first character (inclusive),
+   * last character (exclusive).
+   */
+  public static final int WORD_SIZE = 16;
+
+  /**
+   * The size of a text line record: a position, first character (inclusive), last character
+   * (exclusive).
+   */
+  public static final int TEXT_LINE_SIZE = POSITION_SIZE + 8;
+
+  /**
+   * The size of a text block record: a position, role (string), first character (inclusive), last
+   * character (exclusive).
+   */
+  public static final int TEXT_BLOCK_SIZE = POSITION_SIZE + 12;
+
+  /**
+   * The size of a paragraph record: first position, number of positions, role (string), first
+   * character (inclusive), last character (exclusive).
+   */
+  public static final int PARAGRAPH_SIZE = 20;
+
+  /**
+   * The size of a figure record: a position.
+   */
+  public static final int FIGURE_SIZE = POSITION_SIZE;
+
+  /**
+   * The size of a shape record: a position, color (color).
+   */
+  public static final int SHAPE_SIZE = POSITION_SIZE + 4;
+
+  /**
+   * The page-based sections, in the order of their entries in a page record.
+   */
+  public static final ElementClass[] PAGE_SECTIONS = { ElementClass.CHARACTERS,
+      ElementClass.WORDS, ElementClass.TEXT_LINES, ElementClass.TEXT_BLOCKS, ElementClass.FIGURES,
+      ElementClass.SHAPES };
+
+  // ==============================================================================================
+
+  /**
+   * Creates a new layout (not instantiable).
+   */
+  private BinaryLayout() {}
+
+  // ==============================================================================================
+
+  /**
+   * Returns the section kind of the given element class.
+   *
+   * @param clazz The element class.
+   *
+   * @return The section kind, or {@link #NONE} if there is no section for the element class.
+   */
+  public static int getSection(ElementClass clazz) {
+    switch (clazz) {
+      case CHARACTERS:
+        return CHARACTERS;
+      case WORDS:
+        return WORDS;
+      case TEXT_LINES:
+        return TEXT_LINES;
+      case TEXT_BLOCKS:
+        return TEXT_BLOCKS;
+      case PARAGRAPHS:
+        return PARAGRAPHS;
+      case FIGURES:
+        return FIGURES;
+      case SHAPES:
+        return SHAPES;
+      default:
+        return NONE;
+    }
+  }
+
+  /**
+   * Returns the size of the records of the given section kind.
+   *
+   * @param section The section kind.
+   *
+   * @return The size of the records, or 1 for the strings section.
+   */
+  public static int getRecordSize(int section) {
+    switch (section) {
+      case FONTS:
+        return FONT_SIZE;
+      case COLORS:
+        return COLOR_SIZE;
+      case PAGES:
+        return PAGE_SIZE;
+      case POSITIONS:
+        return POSITION_SIZE;
+      case CHARACTERS:
+        return CHARACTER_SIZE;
+      case WORDS:
+        return WORD_SIZE;
+      case TEXT_LINES:
+        return TEXT_LINE_SIZE;
+      case TEXT_BLOCKS:
+        return TEXT_BLOCK_SIZE;
+      case PARAGRAPHS:
+        return PARAGRAPH_SIZE;
+      case FIGURES:
+        return FIGURE_SIZE;
+      case SHAPES:
+        return SHAPE_SIZE;
+      default:
+        return 1;
+    }
+  }
+
+  /**
+   * Returns the position of the entry of the given element class in a page record.
+   *
+   * @param clazz The element class.
+   *
+   * @return The position of the entry in {@link #PAGE_SECTIONS}, or {@link #NONE} if the elements
+   *         of the class are not page-based.
+   */
+  public static int getPageSlot(ElementClass clazz) {
+    for (int i = 0; i < PAGE_SECTIONS.length; i++) {
+      if (PAGE_SECTIONS[i] == clazz) {
+        return i;
+      }
+    }
+    return NONE;
+  }
+}
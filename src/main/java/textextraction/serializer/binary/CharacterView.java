@@ -0,0 +1,73 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the characters of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class CharacterView extends PositionView {
+  /**
+   * Creates a new view over the characters of the given document.
+   *
+   * @param document The document.
+   */
+  protected CharacterView(MappedDocument document) {
+    super(document, BinaryLayout.CHARACTERS);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the index of the font of the current character (see {@link FontView}).
+   *
+   * @return The index of the font, or {@link BinaryLayout#NONE} if the character has no font.
+   */
+  public int getFontIndex() {
+    return getInt(BinaryLayout.POSITION_SIZE);
+  }
+
+  /**
+   * Returns the font size of the current character.
+   *
+   * @return The font size.
+   */
+  public float getFontSize() {
+    return getFloat(BinaryLayout.POSITION_SIZE + 4);
+  }
+
+  /**
+   * Returns the index of the color of the current character (see {@link ColorView}).
+   *
+   * @return The index of the color, or {@link BinaryLayout#NONE} if the character has no color.
+   */
+  public int getColorIndex() {
+    return getInt(BinaryLayout.POSITION_SIZE + 8);
+  }
+
+  /**
+   * Returns the index of the text of the current character in the strings.
+   *
+   * @return The index of the text, or {@link BinaryLayout#NONE} if the character has no text.
+   */
+  public int getTextIndex() {
+    return getInt(BinaryLayout.POSITION_SIZE + 12);
+  }
+
+  /**
+   * Decodes the text of the current character.
+   *
+   * @return The text, or null if the character has no text.
+   */
+  public String getText() {
+    return this.document.getString(getTextIndex());
+  }
+
+  /**
+   * Appends the text of the current character to the given builder.
+   *
+   * @param builder The builder to append to.
+   */
+  public void appendText(StringBuilder builder) {
+    this.document.appendString(getTextIndex(), builder);
+  }
+}
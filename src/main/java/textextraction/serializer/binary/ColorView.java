@@ -0,0 +1,55 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the colors of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class ColorView extends ElementView {
+  /**
+   * Creates a new view over the colors of the given document.
+   *
+   * @param document The document.
+   */
+  protected ColorView(MappedDocument document) {
+    super(document, BinaryLayout.COLORS);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Decodes the id of the current color.
+   *
+   * @return The id of the color.
+   */
+  public String getId() {
+    return this.document.getString(getInt(0));
+  }
+
+  /**
+   * Returns the red component of the current color.
+   *
+   * @return The red component.
+   */
+  public int getRed() {
+    return getInt(4);
+  }
+
+  /**
+   * Returns the green component of the current color.
+   *
+   * @return The green component.
+   */
+  public int getGreen() {
+    return getInt(8);
+  }
+
+  /**
+   * Returns the blue component of the current color.
+   *
+   * @return The blue component.
+   */
+  public int getBlue() {
+    return getInt(12);
+  }
+}
@@ -0,0 +1,128 @@
+package textextraction.serializer.binary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A flyweight view over the records of a section of a binary serialization. A view is positioned
+ * at a single record at a time (see {@link #moveTo(int)}) and decodes the fields of the record on
+ * demand from the underlying buffer.
+ *
+ * @author Claudius Korzen
+ */
+public abstract class ElementView {
+  /**
+   * The document to which the viewed records belong.
+   */
+  protected final MappedDocument document;
+
+  /**
+   * The buffer that contains the serialization.
+   */
+  protected final ByteBuffer buffer;
+
+  /**
+   * The offset of the viewed section.
+   */
+  protected final int sectionOffset;
+
+  /**
+   * The size of the records of the viewed section.
+   */
+  protected final int recordSize;
+
+  /**
+   * The number of records of the viewed section.
+   */
+  protected final int size;
+
+  /**
+   * The index of the current record.
+   */
+  protected int index;
+
+  /**
+   * The offset of the current record.
+   */
+  protected int offset;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new view over the given section of the given document.
+   *
+   * @param document The document.
+   * @param section  The section kind.
+   */
+  protected ElementView(MappedDocument document, int section) {
+    this.document = document;
+    this.buffer = document.getBuffer();
+    this.sectionOffset = document.getOffset(section);
+    this.recordSize = BinaryLayout.getRecordSize(section);
+    this.size = document.getCount(section);
+    this.index = -1;
+    this.offset = -1;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Moves this view to the record with the given index.
+   *
+   * @param index The index of the record.
+   *
+   * @return This view.
+   *
+   * @throws IndexOutOfBoundsException If there is no record with the given index.
+   */
+  public ElementView moveTo(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+    }
+    this.index = index;
+    this.offset = this.sectionOffset + index * this.recordSize;
+    return this;
+  }
+
+  /**
+   * Returns the index of the current record.
+   *
+   * @return The index of the current record, or -1 if this view wasn't moved yet.
+   */
+  public int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Returns the number of records of the viewed section.
+   *
+   * @return The number of records.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Reads the int at the given offset of the current record.
+   *
+   * @param fieldOffset The offset of the field in the record.
+   *
+   * @return The int.
+   */
+  protected int getInt(int fieldOffset) {
+    return this.buffer.getInt(this.offset + fieldOffset);
+  }
+
+  /**
+   * Reads the float at the given offset of the current record.
+   *
+   * @param fieldOffset The offset of the field in the record.
+   *
+   * @return The float.
+   */
+  protected float getFloat(int fieldOffset) {
+    return this.buffer.getFloat(this.offset + fieldOffset);
+  }
+}
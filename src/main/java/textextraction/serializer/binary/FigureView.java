@@ -0,0 +1,17 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the figures of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class FigureView extends PositionView {
+  /**
+   * Creates a new view over the figures of the given document.
+   *
+   * @param document The document.
+   */
+  protected FigureView(MappedDocument document) {
+    super(document, BinaryLayout.FIGURES);
+  }
+}
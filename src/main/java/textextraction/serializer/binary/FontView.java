@@ -0,0 +1,55 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the fonts of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class FontView extends ElementView {
+  /**
+   * Creates a new view over the fonts of the given document.
+   *
+   * @param document The document.
+   */
+  protected FontView(MappedDocument document) {
+    super(document, BinaryLayout.FONTS);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Decodes the id of the current font.
+   *
+   * @return The id of the font.
+   */
+  public String getId() {
+    return this.document.getString(getInt(0));
+  }
+
+  /**
+   * Decodes the name of the current font.
+   *
+   * @return The name of the font, or null if the font has no name.
+   */
+  public String getName() {
+    return this.document.getString(getInt(4));
+  }
+
+  /**
+   * Returns true if the current font is a bold font.
+   *
+   * @return True if the font is a bold font; false otherwise.
+   */
+  public boolean isBold() {
+    return (getInt(8) & 1) != 0;
+  }
+
+  /**
+   * Returns true if the current font is an italic font.
+   *
+   * @return True if the font is an italic font; false otherwise.
+   */
+  public boolean isItalic() {
+    return (getInt(8) & 2) != 0;
+  }
+}
@@ -0,0 +1,416 @@
+package textextraction.serializer.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import textextraction.common.models.ElementClass;
+
+/**
+ * A lazy reader of a document serialized in binary format (see {@link BinaryLayout}).
+ *
+ * <p>
+ * The reader doesn't materialize the elements of the document. Instead, it provides flyweight views
+ * (for example, {@link CharacterView}) that can be moved to any record of a section and decode the
+ * fields of the record on demand, directly from the underlying buffer. A single view can be reused
+ * to iterate all records of a section, so that querying even a large serialization requires almost
+ * no heap. The buffer is accessed by absolute reads only, so that several views (for example, in
+ * different threads) can share a reader.
+ *
+ * <p>
+ * Use {@link #open(Path)} to memory-map a serialization from a file. A single buffer is limited to
+ * 2 GB.
+ *
+ * @author Claudius Korzen
+ */
+public class MappedDocument {
+  /**
+   * The encoding of the strings.
+   */
+  protected static final Charset ENCODING = StandardCharsets.UTF_8;
+
+  /**
+   * The buffer that contains the serialization.
+   */
+  protected final ByteBuffer buffer;
+
+  /**
+   * The offsets of the sections, per section kind.
+   */
+  protected final int[] offsets;
+
+  /**
+   * The numbers of records of the sections, per section kind.
+   */
+  protected final int[] counts;
+
+  /**
+   * The offset of the encoded strings (following the string offsets).
+   */
+  protected final int stringsOffset;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new reader of the binary serialization contained in the given buffer.
+   *
+   * @param buffer The buffer that contains the serialization.
+   *
+   * @throws IOException If the buffer doesn't contain a (complete) binary serialization.
+   */
+  public MappedDocument(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.limit() < BinaryLayout.HEADER_SIZE || buffer.getInt(0) != BinaryLayout.MAGIC) {
+      throw new IOException("The buffer doesn't contain a binary serialization.");
+    }
+    int version = buffer.getInt(4);
+    if (version != BinaryLayout.VERSION) {
+      throw new IOException("Unsupported version of the binary serialization: " + version);
+    }
+    int numSections = buffer.getInt(8);
+    if (numSections < BinaryLayout.NUM_SECTIONS) {
+      throw new IOException("The binary serialization is incomplete.");
+    }
+    long directorySize = (long) numSections * BinaryLayout.DIRECTORY_ENTRY_SIZE;
+    if (BinaryLayout.HEADER_SIZE + directorySize > buffer.limit()) {
+      throw new IOException("The directory of the binary serialization is truncated.");
+    }
+
+    this.offsets = new int[BinaryLayout.NUM_SECTIONS];
+    this.counts = new int[BinaryLayout.NUM_SECTIONS];
+    for (int i = 0; i < numSections; i++) {
+      int entry = BinaryLayout.HEADER_SIZE + i * BinaryLayout.DIRECTORY_ENTRY_SIZE;
+      int kind = buffer.getInt(entry);
+      if (kind < 0 || kind >= BinaryLayout.NUM_SECTIONS) {
+        continue;
+      }
+      int count = buffer.getInt(entry + 4);
+      long offset = buffer.getLong(entry + 8);
+      // For the strings section, check the string offsets here and the strings below.
+      int recordSize = kind == BinaryLayout.STRINGS ? 4 : BinaryLayout.getRecordSize(kind);
+      long numRecords = kind == BinaryLayout.STRINGS ? count + 1L : count;
+      if (count < 0 || offset < 0 || offset + numRecords * recordSize > buffer.limit()) {
+        throw new IOException("Section " + kind + " exceeds the binary serialization.");
+      }
+      this.counts[kind] = count;
+      this.offsets[kind] = (int) offset;
+    }
+    int numStrings = this.counts[BinaryLayout.STRINGS];
+    this.stringsOffset = this.offsets[BinaryLayout.STRINGS] + (numStrings + 1) * 4;
+    long stringsSize = buffer.getInt(this.offsets[BinaryLayout.STRINGS] + numStrings * 4);
+    if (stringsSize < 0 || this.stringsOffset + stringsSize > buffer.limit()) {
+      throw new IOException("The strings exceed the binary serialization.");
+    }
+  }
+
+  /**
+   * Memory-maps the binary serialization stored in the given file.
+   *
+   * @param path The path to the file.
+   *
+   * @return The reader of the serialization.
+   *
+   * @throws IOException If the file couldn't be mapped or doesn't contain a binary serialization.
+   */
+  public static MappedDocument open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new MappedDocument(buffer);
+    }
+  }
+
+  // ==============================================================================================
+  // Methods to create views.
+
+  /**
+   * Returns a new view over the pages.
+   *
+   * @return A new view over the pages.
+   */
+  public PageView pages() {
+    return new PageView(this);
+  }
+
+  /**
+   * Returns a new view over the characters.
+   *
+   * @return A new view over the characters.
+   */
+  public CharacterView characters() {
+    return new CharacterView(this);
+  }
+
+  /**
+   * Returns a new view over the words.
+   *
+   * @return A new view over the words.
+   */
+  public WordView words() {
+    return new WordView(this);
+  }
+
+  /**
+   * Returns a new view over the text lines.
+   *
+   * @return A new view over the text lines.
+   */
+  public TextLineView textLines() {
+    return new TextLineView(this);
+  }
+
+  /**
+   * Returns a new view over the text blocks.
+   *
+   * @return A new view over the text blocks.
+   */
+  public TextBlockView textBlocks() {
+    return new TextBlockView(this);
+  }
+
+  /**
+   * Returns a new view over the paragraphs.
+   *
+   * @return A new view over the paragraphs.
+   */
+  public ParagraphView paragraphs() {
+    return new ParagraphView(this);
+  }
+
+  /**
+   * Returns a new view over the figures.
+   *
+   * @return A new view over the figures.
+   */
+  public FigureView figures() {
+    return new FigureView(this);
+  }
+
+  /**
+   * Returns a new view over the shapes.
+   *
+   * @return A new view over the shapes.
+   */
+  public ShapeView shapes() {
+    return new ShapeView(this);
+  }
+
+  /**
+   * Returns a new view over the positions of the words and paragraphs.
+   *
+   * @return A new view over the positions.
+   */
+  public PositionView positions() {
+    return new PositionView(this, BinaryLayout.POSITIONS);
+  }
+
+  /**
+   * Returns a new view over the fonts.
+   *
+   * @return A new view over the fonts.
+   */
+  public FontView fonts() {
+    return new FontView(this);
+  }
+
+  /**
+   * Returns a new view over the colors.
+   *
+   * @return A new view over the colors.
+   */
+  public ColorView colors() {
+    return new ColorView(this);
+  }
+
+  // ==============================================================================================
+  // Queries.
+
+  /**
+   * Returns the number of elements of the given type.
+   *
+   * @param clazz The type of the elements.
+   *
+   * @return The number of elements of the given type.
+   */
+  public int getNumElements(ElementClass clazz) {
+    int section = BinaryLayout.getSection(clazz);
+    return section != BinaryLayout.NONE ? this.counts[section] : 0;
+  }
+
+  /**
+   * Returns the number of pages.
+   *
+   * @return The number of pages.
+   */
+  public int getNumPages() {
+    return this.counts[BinaryLayout.PAGES];
+  }
+
+  /**
+   * Moves the given page view to the page with the given number. The pages are stored in the
+   * order of the document, that is, in ascending order of their page numbers.
+   *
+   * @param view       The page view to move.
+   * @param pageNumber The number of the page.
+   *
+   * @return True if there is a page with the given number; false otherwise.
+   */
+  public boolean findPage(PageView view, int pageNumber) {
+    int low = 0;
+    int high = getNumPages() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      view.moveTo(mid);
+      int number = view.getPageNumber();
+      if (number < pageNumber) {
+        low = mid + 1;
+      } else if (number > pageNumber) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of characters on the page with the given number.
+   *
+   * @param pageNumber The number of the page.
+   *
+   * @return The number of characters on the page, or 0 if there is no such page.
+   */
+  public int countCharacters(int pageNumber) {
+    PageView page = pages();
+    return findPage(page, pageNumber) ? page.getNumElements(ElementClass.CHARACTERS) : 0;
+  }
+
+  /**
+   * Returns the text of the characters on the page with the given number that lie completely
+   * within the given rectangle, in the order of the serialization.
+   *
+   * @param pageNumber The number of the page.
+   * @param minX       The minimum x-coordinate of the rectangle.
+   * @param minY       The minimum y-coordinate of the rectangle.
+   * @param maxX       The maximum x-coordinate of the rectangle.
+   * @param maxY       The maximum y-coordinate of the rectangle.
+   *
+   * @return The text of the characters within the rectangle.
+   */
+  public String getText(int pageNumber, float minX, float minY, float maxX, float maxY) {
+    StringBuilder text = new StringBuilder();
+    PageView page = pages();
+    if (findPage(page, pageNumber)) {
+      CharacterView character = characters();
+      int first = page.getFirstElement(ElementClass.CHARACTERS);
+      int last = first + page.getNumElements(ElementClass.CHARACTERS);
+      for (int i = first; i < last; i++) {
+        character.moveTo(i);
+        if (character.isWithin(minX, minY, maxX, maxY)) {
+          character.appendText(text);
+        }
+      }
+    }
+    return text.toString();
+  }
+
+  // ==============================================================================================
+  // Low-level access, used by the views.
+
+  /**
+   * Returns the buffer that contains the serialization.
+   *
+   * @return The buffer.
+   */
+  protected ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Returns the offset of the given section.
+   *
+   * @param section The section kind.
+   *
+   * @return The offset of the section.
+   */
+  protected int getOffset(int section) {
+    return this.offsets[section];
+  }
+
+  /**
+   * Returns the number of records of the given section.
+   *
+   * @param section The section kind.
+   *
+   * @return The number of records of the section.
+   */
+  protected int getCount(int section) {
+    return this.counts[section];
+  }
+
+  /**
+   * Decodes the string with the given index.
+   *
+   * @param index The index of the string.
+   *
+   * @return The string, or null if the index is {@link BinaryLayout#NONE}.
+   *
+   * @throws IndexOutOfBoundsException If the encoded string exceeds the buffer.
+   */
+  public String getString(int index) {
+    if (index < 0 || index >= this.counts[BinaryLayout.STRINGS]) {
+      return null;
+    }
+    int start = getStringStart(index);
+    int length = getStringStart(index + 1) - start;
+    if (length < 0 || start < this.stringsOffset || start + length > this.buffer.limit()) {
+      throw new IndexOutOfBoundsException("The string " + index + " exceeds the buffer.");
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = this.buffer.get(start + i);
+    }
+    return new String(bytes, ENCODING);
+  }
+
+  /**
+   * Appends the string with the given index to the given builder. Pure ASCII strings are appended
+   * without any intermediate allocation.
+   *
+   * @param index   The index of the string.
+   * @param builder The builder to append to.
+   */
+  public void appendString(int index, StringBuilder builder) {
+    if (index < 0 || index >= this.counts[BinaryLayout.STRINGS]) {
+      return;
+    }
+    int start = getStringStart(index);
+    int end = getStringStart(index + 1);
+    for (int i = start; i < end; i++) {
+      if (this.buffer.get(i) < 0) {
+        // Not ASCII: decode the string as a whole.
+        builder.append(getString(index));
+        return;
+      }
+    }
+    for (int i = start; i < end; i++) {
+      builder.append((char) this.buffer.get(i));
+    }
+  }
+
+  /**
+   * Returns the absolute offset of the encoded string with the given index.
+   *
+   * @param index The index of the string (may be the number of strings, for the end offset).
+   *
+   * @return The absolute offset of the encoded string.
+   */
+  protected int getStringStart(int index) {
+    return this.stringsOffset + this.buffer.getInt(this.offsets[BinaryLayout.STRINGS] + index * 4);
+  }
+}
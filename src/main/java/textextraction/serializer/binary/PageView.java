@@ -0,0 +1,75 @@
+package textextraction.serializer.binary;
+
+import textextraction.common.models.ElementClass;
+
+/**
+ * A flyweight view over the pages of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class PageView extends ElementView {
+  /**
+   * Creates a new view over the pages of the given document.
+   *
+   * @param document The document.
+   */
+  protected PageView(MappedDocument document) {
+    super(document, BinaryLayout.PAGES);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the number of the current page.
+   *
+   * @return The page number.
+   */
+  public int getPageNumber() {
+    return getInt(0);
+  }
+
+  /**
+   * Returns the width of the current page.
+   *
+   * @return The width.
+   */
+  public float getWidth() {
+    return getFloat(4);
+  }
+
+  /**
+   * Returns the height of the current page.
+   *
+   * @return The height.
+   */
+  public float getHeight() {
+    return getFloat(8);
+  }
+
+  /**
+   * Returns the index of the first element of the given type on the current page.
+   *
+   * @param clazz The type of the elements.
+   *
+   * @return The index of the first element, or {@link BinaryLayout#NONE} if the elements of the
+   *         given type are not page-based.
+   */
+  public int getFirstElement(ElementClass clazz) {
+    int slot = BinaryLayout.getPageSlot(clazz);
+    return slot != BinaryLayout.NONE ? getInt(BinaryLayout.PAGE_SECTIONS_OFFSET + slot * 8)
+            : BinaryLayout.NONE;
+  }
+
+  /**
+   * Returns the number of elements of the given type on the current page.
+   *
+   * @param clazz The type of the elements.
+   *
+   * @return The number of elements, or 0 if the elements of the given type are not page-based.
+   */
+  public int getNumElements(ElementClass clazz) {
+    int slot = BinaryLayout.getPageSlot(clazz);
+    return slot != BinaryLayout.NONE ? getInt(BinaryLayout.PAGE_SECTIONS_OFFSET + slot * 8 + 4)
+            : 0;
+  }
+}
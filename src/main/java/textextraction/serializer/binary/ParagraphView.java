@@ -0,0 +1,66 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the paragraphs of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class ParagraphView extends ElementView {
+  /**
+   * Creates a new view over the paragraphs of the given document.
+   *
+   * @param document The document.
+   */
+  protected ParagraphView(MappedDocument document) {
+    super(document, BinaryLayout.PARAGRAPHS);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the index of the first position of the current paragraph (see
+   * {@link MappedDocument#positions()}).
+   *
+   * @return The index of the first position.
+   */
+  public int getFirstPosition() {
+    return getInt(0);
+  }
+
+  /**
+   * Returns the number of positions of the current paragraph (one per page spanned).
+   *
+   * @return The number of positions.
+   */
+  public int getNumPositions() {
+    return getInt(4);
+  }
+
+  /**
+   * Decodes the semantic role of the current paragraph.
+   *
+   * @return The name of the semantic role, or null if the paragraph has no role.
+   */
+  public String getRole() {
+    return this.document.getString(getInt(8));
+  }
+
+  /**
+   * Returns the index of the first character of the current paragraph (see
+   * {@link CharacterView}).
+   *
+   * @return The index of the first character (inclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersFrom() {
+    return getInt(12);
+  }
+
+  /**
+   * Returns the index of the last character + 1 of the current paragraph.
+   *
+   * @return The index of the last character + 1 (exclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersTo() {
+    return getInt(16);
+  }
+}
@@ -0,0 +1,94 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over records that start with a position (the positions of words and
+ * paragraphs, and the characters, text lines, text blocks, figures and shapes).
+ *
+ * @author Claudius Korzen
+ */
+public class PositionView extends ElementView {
+  /**
+   * Creates a new view over the given section of the given document.
+   *
+   * @param document The document.
+   * @param section  The section kind.
+   */
+  protected PositionView(MappedDocument document, int section) {
+    super(document, section);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the number of the page of the current record.
+   *
+   * @return The page number.
+   */
+  public int getPageNumber() {
+    return getInt(0);
+  }
+
+  /**
+   * Returns the minimum x-coordinate of the current record.
+   *
+   * @return The minimum x-coordinate.
+   */
+  public float getMinX() {
+    return getFloat(4);
+  }
+
+  /**
+   * Returns the minimum y-coordinate of the current record.
+   *
+   * @return The minimum y-coordinate.
+   */
+  public float getMinY() {
+    return getFloat(8);
+  }
+
+  /**
+   * Returns the maximum x-coordinate of the current record.
+   *
+   * @return The maximum x-coordinate.
+   */
+  public float getMaxX() {
+    return getFloat(12);
+  }
+
+  /**
+   * Returns the maximum y-coordinate of the current record.
+   *
+   * @return The maximum y-coordinate.
+   */
+  public float getMaxY() {
+    return getFloat(16);
+  }
+
+  /**
+   * Checks if the bounding box of the current record lies completely within the given rectangle.
+   *
+   * @param minX The minimum x-coordinate of the rectangle.
+   * @param minY The minimum y-coordinate of the rectangle.
+   * @param maxX The maximum x-coordinate of the rectangle.
+   * @param maxY The maximum y-coordinate of the rectangle.
+   *
+   * @return True if the bounding box lies within the rectangle; false otherwise.
+   */
+  public boolean isWithin(float minX, float minY, float maxX, float maxY) {
+    return getMinX() >= minX && getMinY() >= minY && getMaxX() <= maxX && getMaxY() <= maxY;
+  }
+
+  /**
+   * Checks if the bounding box of the current record overlaps the given rectangle.
+   *
+   * @param minX The minimum x-coordinate of the rectangle.
+   * @param minY The minimum y-coordinate of the rectangle.
+   * @param maxX The maximum x-coordinate of the rectangle.
+   * @param maxY The maximum y-coordinate of the rectangle.
+   *
+   * @return True if the bounding box overlaps the rectangle; false otherwise.
+   */
+  public boolean overlaps(float minX, float minY, float maxX, float maxY) {
+    return getMinX() <= maxX && getMaxX() >= minX && getMinY() <= maxY && getMaxY() >= minY;
+  }
+}
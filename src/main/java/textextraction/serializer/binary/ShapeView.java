@@ -0,0 +1,28 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the shapes of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class ShapeView extends PositionView {
+  /**
+   * Creates a new view over the shapes of the given document.
+   *
+   * @param document The document.
+   */
+  protected ShapeView(MappedDocument document) {
+    super(document, BinaryLayout.SHAPES);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the index of the color of the current shape (see {@link ColorView}).
+   *
+   * @return The index of the color, or {@link BinaryLayout#NONE} if the shape has no color.
+   */
+  public int getColorIndex() {
+    return getInt(BinaryLayout.POSITION_SIZE);
+  }
+}
@@ -0,0 +1,47 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the text blocks of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class TextBlockView extends PositionView {
+  /**
+   * Creates a new view over the text blocks of the given document.
+   *
+   * @param document The document.
+   */
+  protected TextBlockView(MappedDocument document) {
+    super(document, BinaryLayout.TEXT_BLOCKS);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Decodes the semantic role of the current text block.
+   *
+   * @return The name of the semantic role, or null if the text block has no role.
+   */
+  public String getRole() {
+    return this.document.getString(getInt(BinaryLayout.POSITION_SIZE));
+  }
+
+  /**
+   * Returns the index of the first character of the current text block (see
+   * {@link CharacterView}).
+   *
+   * @return The index of the first character (inclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersFrom() {
+    return getInt(BinaryLayout.POSITION_SIZE + 4);
+  }
+
+  /**
+   * Returns the index of the last character + 1 of the current text block.
+   *
+   * @return The index of the last character + 1 (exclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersTo() {
+    return getInt(BinaryLayout.POSITION_SIZE + 8);
+  }
+}
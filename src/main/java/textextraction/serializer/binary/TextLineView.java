@@ -0,0 +1,38 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the text lines of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class TextLineView extends PositionView {
+  /**
+   * Creates a new view over the text lines of the given document.
+   *
+   * @param document The document.
+   */
+  protected TextLineView(MappedDocument document) {
+    super(document, BinaryLayout.TEXT_LINES);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the index of the first character of the current text line (see
+   * {@link CharacterView}).
+   *
+   * @return The index of the first character (inclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersFrom() {
+    return getInt(BinaryLayout.POSITION_SIZE);
+  }
+
+  /**
+   * Returns the index of the last character + 1 of the current text line.
+   *
+   * @return The index of the last character + 1 (exclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersTo() {
+    return getInt(BinaryLayout.POSITION_SIZE + 4);
+  }
+}
@@ -0,0 +1,57 @@
+package textextraction.serializer.binary;
+
+/**
+ * A flyweight view over the words of a binary serialization.
+ *
+ * @author Claudius Korzen
+ */
+public class WordView extends ElementView {
+  /**
+   * Creates a new view over the words of the given document.
+   *
+   * @param document The document.
+   */
+  protected WordView(MappedDocument document) {
+    super(document, BinaryLayout.WORDS);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the index of the first position of the current word (see
+   * {@link MappedDocument#positions()}).
+   *
+   * @return The index of the first position.
+   */
+  public int getFirstPosition() {
+    return getInt(0);
+  }
+
+  /**
+   * Returns the number of positions of the current word (two, if the word is hyphenated across
+   * two pages).
+   *
+   * @return The number of positions.
+   */
+  public int getNumPositions() {
+    return getInt(4);
+  }
+
+  /**
+   * Returns the index of the first character of the current word (see {@link CharacterView}).
+   *
+   * @return The index of the first character (inclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersFrom() {
+    return getInt(8);
+  }
+
+  /**
+   * Returns the index of the last character + 1 of the current word.
+   *
+   * @return The index of the last character + 1 (exclusive), or {@link BinaryLayout#NONE}.
+   */
+  public int getCharactersTo() {
+    return getInt(12);
+  }
+}
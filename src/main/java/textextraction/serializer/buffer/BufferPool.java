@@ -0,0 +1,184 @@
+package textextraction.serializer.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe pool of fixed-size byte buffers (chunks), to be shared across serializer calls.
+ * The chunks are used by {@link ChunkedByteBuffer} to collect a serialization without growing and
+ * copying a single array. The chunks are allocated either on the heap or off-heap (as direct
+ * buffers); released chunks are kept for reuse, up to a maximum number of pooled chunks.
+ *
+ * @author Claudius Korzen
+ */
+public class BufferPool {
+  /**
+   * The default size of a chunk (64 KB).
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The default maximum number of pooled chunks (1024, that is 64 MB with the default chunk size).
+   */
+  public static final int DEFAULT_MAX_POOLED_CHUNKS = 1024;
+
+  /**
+   * The pool shared by default.
+   */
+  protected static final BufferPool SHARED = new BufferPool();
+
+  // ==============================================================================================
+
+  /**
+   * The size of the chunks.
+   */
+  protected final int chunkSize;
+
+  /**
+   * The maximum number of pooled chunks.
+   */
+  protected final int maxPooledChunks;
+
+  /**
+   * Whether the chunks are allocated off-heap.
+   */
+  protected final boolean isDirect;
+
+  /**
+   * The pooled chunks.
+   */
+  protected final Queue<ByteBuffer> chunks;
+
+  /**
+   * The number of pooled chunks.
+   */
+  protected final AtomicInteger numPooledChunks;
+
+  /**
+   * The number of chunks allocated by this pool so far.
+   */
+  protected final AtomicInteger numAllocatedChunks;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new pool of heap chunks with the default chunk size.
+   */
+  public BufferPool() {
+    this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_POOLED_CHUNKS, false);
+  }
+
+  /**
+   * Creates a new pool.
+   *
+   * @param chunkSize       The size of the chunks.
+   * @param maxPooledChunks The maximum number of chunks to keep for reuse.
+   * @param isDirect        Whether to allocate the chunks off-heap.
+   */
+  public BufferPool(int chunkSize, int maxPooledChunks, boolean isDirect) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("The chunk size must be positive.");
+    }
+    this.chunkSize = chunkSize;
+    this.maxPooledChunks = maxPooledChunks;
+    this.isDirect = isDirect;
+    this.chunks = new ConcurrentLinkedQueue<>();
+    this.numPooledChunks = new AtomicInteger();
+    this.numAllocatedChunks = new AtomicInteger();
+  }
+
+  /**
+   * Returns the pool shared by default (heap chunks with the default chunk size).
+   *
+   * @return The shared pool.
+   */
+  public static BufferPool getShared() {
+    return SHARED;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Takes a chunk from this pool, allocating a new chunk if no pooled chunk is available.
+   *
+   * @return An empty chunk.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer chunk = this.chunks.poll();
+    if (chunk != null) {
+      this.numPooledChunks.decrementAndGet();
+      return chunk;
+    }
+    this.numAllocatedChunks.incrementAndGet();
+    return this.isDirect ? ByteBuffer.allocateDirect(this.chunkSize)
+            : ByteBuffer.allocate(this.chunkSize);
+  }
+
+  /**
+   * Returns the given chunk to this pool. The chunk is dropped if it wasn't acquired from a pool
+   * with the same chunk size and storage, or if the pool is full.
+   *
+   * @param chunk The chunk to return.
+   */
+  public void release(ByteBuffer chunk) {
+    if (chunk == null || chunk.capacity() != this.chunkSize || chunk.isDirect() != this.isDirect) {
+      return;
+    }
+    if (this.numPooledChunks.incrementAndGet() > this.maxPooledChunks) {
+      this.numPooledChunks.decrementAndGet();
+      return;
+    }
+    chunk.clear();
+    this.chunks.offer(chunk);
+  }
+
+  /**
+   * Creates a new buffer that collects its content in chunks of this pool.
+   *
+   * @return A new, empty buffer.
+   */
+  public ChunkedByteBuffer newBuffer() {
+    return new ChunkedByteBuffer(this);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the size of the chunks.
+   *
+   * @return The size of the chunks.
+   */
+  public int getChunkSize() {
+    return this.chunkSize;
+  }
+
+  /**
+   * Returns true if the chunks are allocated off-heap.
+   *
+   * @return True if the chunks are allocated off-heap; false otherwise.
+   */
+  public boolean isDirect() {
+    return this.isDirect;
+  }
+
+  /**
+   * Returns the number of chunks currently kept for reuse.
+   *
+   * @return The number of pooled chunks.
+   */
+  public int getNumPooledChunks() {
+    return this.numPooledChunks.get();
+  }
+
+  /**
+   * Returns the number of chunks allocated by this pool so far (as opposed to reused).
+   *
+   * @return The number of allocated chunks.
+   */
+  public int getNumAllocatedChunks() {
+    return this.numAllocatedChunks.get();
+  }
+}
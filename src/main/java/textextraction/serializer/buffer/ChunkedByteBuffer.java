@@ -0,0 +1,189 @@
+package textextraction.serializer.buffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An output stream that collects the written bytes in a list of fixed-size chunks taken from a
+ * {@link BufferPool}. In contrast to a {@link java.io.ByteArrayOutputStream}, the content is never
+ * copied on growing; it is copied exactly once, on {@link #toByteArray()} or
+ * {@link #writeTo(OutputStream)}. The chunks must be returned to the pool by {@link #release()}
+ * when the content is no longer needed.
+ *
+ * <p>
+ * A buffer is not thread-safe.
+ *
+ * @author Claudius Korzen
+ */
+public class ChunkedByteBuffer extends OutputStream {
+  /**
+   * The pool from which the chunks are taken.
+   */
+  protected final BufferPool pool;
+
+  /**
+   * The chunks, in the order of their content.
+   */
+  protected final List<ByteBuffer> chunks;
+
+  /**
+   * The index of the chunk that is currently written to.
+   */
+  protected int current;
+
+  /**
+   * The number of bytes written.
+   */
+  protected long size;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new, empty buffer that takes its chunks from the given pool.
+   *
+   * @param pool The pool.
+   */
+  public ChunkedByteBuffer(BufferPool pool) {
+    this.pool = pool;
+    this.chunks = new ArrayList<>();
+    this.current = -1;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Takes as many chunks from the pool as needed to hold the given number of bytes, so that the
+   * chunks are acquired at once instead of one by one while writing.
+   *
+   * @param numBytes The (predicted) number of bytes to hold.
+   */
+  public void reserve(long numBytes) {
+    long capacity = (long) this.chunks.size() * this.pool.getChunkSize();
+    while (capacity < numBytes) {
+      this.chunks.add(this.pool.acquire());
+      capacity += this.pool.getChunkSize();
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    nextChunk(1).put((byte) b);
+    this.size++;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    while (length > 0) {
+      ByteBuffer chunk = nextChunk(1);
+      int numBytes = Math.min(length, chunk.remaining());
+      chunk.put(bytes, offset, numBytes);
+      offset += numBytes;
+      length -= numBytes;
+      this.size += numBytes;
+    }
+  }
+
+  /**
+   * Returns the chunk to write to, moving to the next chunk if the current chunk has less than the
+   * given number of bytes remaining.
+   *
+   * @param numBytes The number of bytes to write.
+   *
+   * @return The chunk to write to.
+   */
+  protected ByteBuffer nextChunk(int numBytes) {
+    if (this.current >= 0 && this.chunks.get(this.current).remaining() >= numBytes) {
+      return this.chunks.get(this.current);
+    }
+    this.current++;
+    if (this.current == this.chunks.size()) {
+      this.chunks.add(this.pool.acquire());
+    }
+    return this.chunks.get(this.current);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the number of bytes written.
+   *
+   * @return The number of bytes written.
+   */
+  public long size() {
+    return this.size;
+  }
+
+  /**
+   * Copies the content of this buffer into a new array of exactly the size of the content.
+   *
+   * @return The content of this buffer.
+   */
+  public byte[] toByteArray() {
+    byte[] result = new byte[Math.toIntExact(this.size)];
+    int offset = 0;
+    for (int i = 0; i <= this.current; i++) {
+      ByteBuffer chunk = this.chunks.get(i).duplicate();
+      chunk.flip();
+      int numBytes = chunk.remaining();
+      chunk.get(result, offset, numBytes);
+      offset += numBytes;
+    }
+    return result;
+  }
+
+  /**
+   * Writes the content of this buffer to the given stream.
+   *
+   * @param out The stream to write to.
+   *
+   * @throws IOException If writing to the stream failed.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    byte[] transfer = null;
+    for (int i = 0; i <= this.current; i++) {
+      ByteBuffer chunk = this.chunks.get(i);
+      if (chunk.hasArray()) {
+        out.write(chunk.array(), chunk.arrayOffset(), chunk.position());
+        continue;
+      }
+      // Copy off-heap chunks through a transfer array.
+      if (transfer == null) {
+        transfer = new byte[Math.min(this.pool.getChunkSize(), 8192)];
+      }
+      ByteBuffer content = chunk.duplicate();
+      content.flip();
+      while (content.hasRemaining()) {
+        int numBytes = Math.min(transfer.length, content.remaining());
+        content.get(transfer, 0, numBytes);
+        out.write(transfer, 0, numBytes);
+      }
+    }
+  }
+
+  /**
+   * Discards the content of this buffer, keeping the chunks for writing new content.
+   */
+  public void reset() {
+    for (int i = 0; i <= this.current && i < this.chunks.size(); i++) {
+      this.chunks.get(i).clear();
+    }
+    this.current = -1;
+    this.size = 0;
+  }
+
+  /**
+   * Discards the content of this buffer and returns all chunks to the pool.
+   */
+  public void release() {
+    for (ByteBuffer chunk : this.chunks) {
+      this.pool.release(chunk);
+    }
+    this.chunks.clear();
+    this.current = -1;
+    this.size = 0;
+  }
+}
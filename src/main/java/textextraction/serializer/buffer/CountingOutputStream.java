@@ -0,0 +1,53 @@
+package textextraction.serializer.buffer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A stream that counts the bytes written to the underlying stream, for example to measure the
+ * size of a serialization that is streamed instead of collected.
+ *
+ * @author Claudius Korzen
+ */
+public class CountingOutputStream extends FilterOutputStream {
+  /**
+   * The number of bytes written so far.
+   */
+  protected long numBytes;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new stream.
+   *
+   * @param out The underlying stream.
+   */
+  public CountingOutputStream(OutputStream out) {
+    super(out);
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public void write(int b) throws IOException {
+    this.out.write(b);
+    this.numBytes++;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException {
+    this.out.write(bytes, offset, length);
+    this.numBytes += length;
+  }
+
+  /**
+   * Returns the number of bytes written so far.
+   *
+   * @return The number of bytes.
+   */
+  public long getNumBytes() {
+    return this.numBytes;
+  }
+}
@@ -0,0 +1,199 @@
+package textextraction.serializer.buffer;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Page;
+import textextraction.serializer.model.ElementFilter;
+import textextraction.serializer.model.SerializationFormat;
+
+/**
+ * Predicts the size of a serialization from the number of elements to serialize, using the
+ * average number of bytes per element per format, learned from earlier serializations.
+ *
+ * <p>
+ * The number of elements is counted in O(pages), from the sizes of the element lists of the pages
+ * accepted by the element filter. The average number of bytes per element is maintained as an
+ * exponentially weighted moving average, so that it adapts to the documents currently served. A
+ * predictor is thread-safe and meant to be shared across serializer calls.
+ *
+ * @author Claudius Korzen
+ */
+public class SizePredictor {
+  /**
+   * The weight of a new observation in the moving average.
+   */
+  protected static final double WEIGHT = 0.2;
+
+  /**
+   * The predictor shared by default.
+   */
+  protected static final SizePredictor SHARED = new SizePredictor();
+
+  /**
+   * The average number of bytes per element, per format.
+   */
+  protected final Map<SerializationFormat, Double> bytesPerElement;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new predictor, initialized with rough estimates of the bytes per element.
+   */
+  public SizePredictor() {
+    this.bytesPerElement = new EnumMap<>(SerializationFormat.class);
+    this.bytesPerElement.put(SerializationFormat.JSON, 160.0);
+    this.bytesPerElement.put(SerializationFormat.XML, 360.0);
+    this.bytesPerElement.put(SerializationFormat.BINARY, 40.0);
+    this.bytesPerElement.put(SerializationFormat.TEXT, 1.0);
+  }
+
+  /**
+   * Returns the predictor shared by default.
+   *
+   * @return The shared predictor.
+   */
+  public static SizePredictor getShared() {
+    return SHARED;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Predicts the number of bytes of the serialization of the elements with the given types of the
+   * given document in the given format.
+   *
+   * @param doc     The document.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of the elements to serialize.
+   * @param filter  The filter that restricts the serialization.
+   *
+   * @return The predicted number of bytes.
+   */
+  public long predict(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, ElementFilter filter) {
+    return (long) (countElements(doc, format, clazzes, filter) * getBytesPerElement(format));
+  }
+
+  /**
+   * Records the actual size of a serialization, to refine later predictions.
+   *
+   * @param format      The format of the serialization.
+   * @param numElements The number of serialized elements, as counted by
+   *                    {@link #countElements(Document, SerializationFormat, Collection,
+   *                    ElementFilter)}.
+   * @param numBytes    The actual number of bytes of the serialization.
+   */
+  public synchronized void record(SerializationFormat format, long numElements, long numBytes) {
+    if (numElements <= 0) {
+      return;
+    }
+    double observed = (double) numBytes / numElements;
+    double average = this.bytesPerElement.getOrDefault(format, observed);
+    this.bytesPerElement.put(format, average + WEIGHT * (observed - average));
+  }
+
+  /**
+   * Returns the learned average number of bytes per element of the given format.
+   *
+   * @param format The format.
+   *
+   * @return The average number of bytes per element.
+   */
+  public synchronized double getBytesPerElement(SerializationFormat format) {
+    return this.bytesPerElement.getOrDefault(format, 100.0);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Counts the elements with the given types of the given document on the pages accepted by the
+   * given filter. In format {@link SerializationFormat#TEXT}, the characters are counted
+   * regardless of the given types.
+   *
+   * @param doc     The document.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of the elements to count.
+   * @param filter  The filter that restricts the serialization.
+   *
+   * @return The number of elements.
+   */
+  public long countElements(Document doc, SerializationFormat format,
+          Collection<ElementClass> clazzes, ElementFilter filter) {
+    if (doc == null) {
+      return 0;
+    }
+
+    long count = 0;
+    for (Page page : doc.getPages()) {
+      if (page == null || !filter.accept(page)) {
+        continue;
+      }
+      count += countElements(page, format, clazzes);
+    }
+    if (format != SerializationFormat.TEXT && clazzes.contains(ElementClass.PARAGRAPHS)) {
+      count += size(doc.getParagraphs());
+    }
+    return count;
+  }
+
+  /**
+   * Counts the elements with the given (page-based) types of the given page. In format
+   * {@link SerializationFormat#TEXT}, the characters are counted regardless of the given types.
+   *
+   * @param page    The page.
+   * @param format  The format of the serialization.
+   * @param clazzes The types of the elements to count.
+   *
+   * @return The number of elements.
+   */
+  public long countElements(Page page, SerializationFormat format,
+          Collection<ElementClass> clazzes) {
+    if (format == SerializationFormat.TEXT) {
+      return size(page.getCharacters());
+    }
+
+    long count = 0;
+    for (ElementClass clazz : clazzes) {
+      switch (clazz) {
+        case CHARACTERS:
+          count += size(page.getCharacters());
+          break;
+        case WORDS:
+          count += size(page.getWords());
+          break;
+        case TEXT_LINES:
+          count += size(page.getTextLines());
+          break;
+        case TEXT_BLOCKS:
+          count += size(page.getTextBlocks());
+          break;
+        case FIGURES:
+          count += size(page.getFigures());
+          break;
+        case SHAPES:
+          count += size(page.getShapes());
+          break;
+        default:
+          break;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the size of the given list.
+   *
+   * @param list The list.
+   *
+   * @return The size of the list, or 0 if the list is null.
+   */
+  protected static int size(List<?> list) {
+    return list != null ? list.size() : 0;
+  }
+}
@@ -0,0 +1,32 @@
+package textextraction.serializer.exception;
+
+/**
+ * The exception to throw on any errors while deserializing a file.
+ * 
+ * @author Claudius Korzen
+ */
+public class DeserializerException extends Exception {
+  /**
+   * The serial id.
+   */
+  protected static final long serialVersionUID = 4650135470637390265L;
+
+  /**
+   * Creates a new deserializer exception.
+   * 
+   * @param message The error message to show when the exception was caught.
+   */
+  public DeserializerException(String message) {
+    super(message);
+  }
+
+  /**
+   * Creates a new deserializer exception.
+   * 
+   * @param message The error message to show when the exception was caught.
+   * @param cause   The cause of this exception (this can be used to trace the error).
+   */
+  public DeserializerException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
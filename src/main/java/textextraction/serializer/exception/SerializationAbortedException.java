@@ -0,0 +1,136 @@
+package textextraction.serializer.exception;
+
+import textextraction.common.models.ElementClass;
+
+/**
+ * The exception to throw when a serialization was aborted because it exceeded its deadline, was
+ * cancelled or exceeded its maximum output size. Reports how far the serialization got before it
+ * was aborted.
+ *
+ * @author Claudius Korzen
+ */
+public class SerializationAbortedException extends SerializerException {
+  /**
+   * The serial id.
+   */
+  protected static final long serialVersionUID = 4180923311865730519L;
+
+  /**
+   * The reasons for aborting a serialization.
+   */
+  public enum Reason {
+    /**
+     * The deadline of the serialization passed.
+     */
+    DEADLINE_EXCEEDED,
+
+    /**
+     * The cancellation token of the serialization was cancelled.
+     */
+    CANCELLED,
+
+    /**
+     * The serialization exceeded its maximum output size.
+     */
+    OUTPUT_SIZE_EXCEEDED
+  }
+
+  /**
+   * The reason why the serialization was aborted.
+   */
+  protected final Reason reason;
+
+  /**
+   * The type of the elements of the section that was serialized when the serialization was
+   * aborted, or null if no section was started yet.
+   */
+  protected final ElementClass elementClass;
+
+  /**
+   * The number of the page that was serialized when the serialization was aborted, or -1 if no
+   * page was started yet or the current section isn't page-based.
+   */
+  protected final int pageNumber;
+
+  /**
+   * The number of elements serialized before the serialization was aborted.
+   */
+  protected final long numElements;
+
+  /**
+   * The number of bytes generated before the serialization was aborted.
+   */
+  protected final long numBytes;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new exception.
+   *
+   * @param reason       The reason why the serialization was aborted.
+   * @param elementClass The type of the elements of the section serialized on aborting.
+   * @param pageNumber   The number of the page serialized on aborting.
+   * @param numElements  The number of elements serialized before aborting.
+   * @param numBytes     The number of bytes generated before aborting.
+   */
+  public SerializationAbortedException(Reason reason, ElementClass elementClass, int pageNumber,
+          long numElements, long numBytes) {
+    super(String.format("The serialization was aborted (%s) in section %s on page %d, after %d "
+            + "elements and %d bytes.", reason, elementClass, pageNumber, numElements, numBytes));
+    this.reason = reason;
+    this.elementClass = elementClass;
+    this.pageNumber = pageNumber;
+    this.numElements = numElements;
+    this.numBytes = numBytes;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the reason why the serialization was aborted.
+   *
+   * @return The reason.
+   */
+  public Reason getReason() {
+    return this.reason;
+  }
+
+  /**
+   * Returns the type of the elements of the section that was serialized when the serialization
+   * was aborted.
+   *
+   * @return The type of the elements, or null if no section was started yet.
+   */
+  public ElementClass getElementClass() {
+    return this.elementClass;
+  }
+
+  /**
+   * Returns the number of the page that was serialized when the serialization was aborted.
+   *
+   * @return The page number, or -1 if no page was started yet or the section isn't page-based.
+   */
+  public int getPageNumber() {
+    return this.pageNumber;
+  }
+
+  /**
+   * Returns the number of elements serialized before the serialization was aborted.
+   *
+   * @return The number of elements.
+   */
+  public long getNumElements() {
+    return this.numElements;
+  }
+
+  /**
+   * Returns the number of bytes generated before the serialization was aborted (including the
+   * bytes buffered but not yet written).
+   *
+   * @return The number of bytes.
+   */
+  public long getNumBytes() {
+    return this.numBytes;
+  }
+}
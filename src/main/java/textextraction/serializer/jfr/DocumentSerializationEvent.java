@@ -0,0 +1,106 @@
+package textextraction.serializer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event that records the serialization of a whole document, in one or
+ * more formats at once. Correlated with the GC and I/O events of a recording, it shows how the
+ * latency of a serialization is composed.
+ *
+ * <p>
+ * The event is created only if it is enabled in a running recording (see {@link #isRecording()}),
+ * so that the serialization doesn't allocate or measure anything if no recording is running.
+ *
+ * @author Claudius Korzen
+ */
+@Name(DocumentSerializationEvent.NAME)
+@Label("Document Serialization")
+@Category({ "Text Extraction", "Serialization" })
+@Description("The serialization of a document.")
+@StackTrace(false)
+public class DocumentSerializationEvent extends Event {
+  /**
+   * The name of the event.
+   */
+  public static final String NAME = "textextraction.serializer.DocumentSerialization";
+
+  /**
+   * The type of the event.
+   */
+  protected static final EventType TYPE = EventType.getEventType(DocumentSerializationEvent.class);
+
+  /**
+   * The formats of the serialization, separated by commas.
+   */
+  @Label("Format")
+  @Description("The formats of the serialization, separated by commas.")
+  protected String format;
+
+  /**
+   * The number of pages of the document.
+   */
+  @Label("Pages")
+  protected int numPages;
+
+  /**
+   * The number of serialized elements.
+   */
+  @Label("Elements")
+  @Description("The number of serialized elements (without the fonts, colors and pages).")
+  protected long numElements;
+
+  /**
+   * The number of bytes of the serialization.
+   */
+  @Label("Output Bytes")
+  @DataAmount
+  protected long numBytes;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates and begins a new event.
+   *
+   * @param format   The formats of the serialization, separated by commas.
+   * @param numPages The number of pages of the document.
+   */
+  public DocumentSerializationEvent(String format, int numPages) {
+    this.format = format;
+    this.numPages = numPages;
+    begin();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns true if the event is enabled in a running recording.
+   *
+   * @return True if the event is recorded, false otherwise.
+   */
+  public static boolean isRecording() {
+    return TYPE.isEnabled();
+  }
+
+  /**
+   * Ends the event and commits it if it passes the settings of the recording.
+   *
+   * @param numElements The number of serialized elements.
+   * @param numBytes    The number of bytes of the serialization.
+   */
+  public void finish(long numElements, long numBytes) {
+    end();
+    if (shouldCommit()) {
+      this.numElements = numElements;
+      this.numBytes = numBytes;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package textextraction.serializer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Java Flight Recorder event that records the serialization of the elements of a single page in
+ * a section of a document. By default, only pages that took at least a millisecond are recorded,
+ * so that recordings of documents with many pages stay small; the threshold can be lowered in the
+ * settings of the recording.
+ *
+ * <p>
+ * The event is created only if it is enabled in a running recording (see {@link #isRecording()}).
+ *
+ * @author Claudius Korzen
+ */
+@Name(PageSerializationEvent.NAME)
+@Label("Page Serialization")
+@Category({ "Text Extraction", "Serialization" })
+@Description("The serialization of the elements of a page in a section of a document.")
+@StackTrace(false)
+@Threshold("1 ms")
+public class PageSerializationEvent extends Event {
+  /**
+   * The name of the event.
+   */
+  public static final String NAME = "textextraction.serializer.PageSerialization";
+
+  /**
+   * The type of the event.
+   */
+  protected static final EventType TYPE = EventType.getEventType(PageSerializationEvent.class);
+
+  /**
+   * The formats of the serialization, separated by commas.
+   */
+  @Label("Format")
+  @Description("The formats of the serialization, separated by commas.")
+  protected String format;
+
+  /**
+   * The name of the section.
+   */
+  @Label("Section")
+  protected String section;
+
+  /**
+   * The number of the page.
+   */
+  @Label("Page Number")
+  protected int pageNumber;
+
+  /**
+   * The number of serialized elements of the page.
+   */
+  @Label("Elements")
+  protected long numElements;
+
+  /**
+   * The number of bytes written for the page.
+   */
+  @Label("Output Bytes")
+  @DataAmount
+  protected long numBytes;
+
+  /**
+   * The number of bytes of the serialization at the begin of the event.
+   */
+  protected transient long startNumBytes;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates and begins a new event.
+   *
+   * @param format     The formats of the serialization, separated by commas.
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * @param numBytes   The number of bytes of the serialization before the page.
+   */
+  public PageSerializationEvent(String format, String section, int pageNumber, long numBytes) {
+    this.format = format;
+    this.section = section;
+    this.pageNumber = pageNumber;
+    this.startNumBytes = numBytes;
+    begin();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns true if the event is enabled in a running recording.
+   *
+   * @return True if the event is recorded, false otherwise.
+   */
+  public static boolean isRecording() {
+    return TYPE.isEnabled();
+  }
+
+  /**
+   * Ends the event and commits it if it passes the settings of the recording.
+   *
+   * @param numElements The number of serialized elements of the page.
+   * @param numBytes    The number of bytes of the serialization after the page.
+   */
+  public void finish(long numElements, long numBytes) {
+    end();
+    if (shouldCommit()) {
+      this.numElements = numElements;
+      this.numBytes = numBytes - this.startNumBytes;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package textextraction.serializer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event that records the serialization of a section of a document: of the
+ * elements of one type (characters, words, figures, shapes, ...) or of the fonts, colors or pages.
+ *
+ * <p>
+ * The event is created only if it is enabled in a running recording (see {@link #isRecording()}).
+ *
+ * @author Claudius Korzen
+ */
+@Name(SectionSerializationEvent.NAME)
+@Label("Section Serialization")
+@Category({ "Text Extraction", "Serialization" })
+@Description("The serialization of a section of a document.")
+@StackTrace(false)
+public class SectionSerializationEvent extends Event {
+  /**
+   * The name of the event.
+   */
+  public static final String NAME = "textextraction.serializer.SectionSerialization";
+
+  /**
+   * The type of the event.
+   */
+  protected static final EventType TYPE = EventType.getEventType(SectionSerializationEvent.class);
+
+  /**
+   * The formats of the serialization, separated by commas.
+   */
+  @Label("Format")
+  @Description("The formats of the serialization, separated by commas.")
+  protected String format;
+
+  /**
+   * The name of the section.
+   */
+  @Label("Section")
+  protected String section;
+
+  /**
+   * The number of serialized elements of the section.
+   */
+  @Label("Elements")
+  protected long numElements;
+
+  /**
+   * The number of bytes written for the section.
+   */
+  @Label("Output Bytes")
+  @DataAmount
+  protected long numBytes;
+
+  /**
+   * The number of bytes of the serialization at the begin of the event.
+   */
+  protected transient long startNumBytes;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates and begins a new event.
+   *
+   * @param format   The formats of the serialization, separated by commas.
+   * @param section  The name of the section.
+   * @param numBytes The number of bytes of the serialization before the section.
+   */
+  public SectionSerializationEvent(String format, String section, long numBytes) {
+    this.format = format;
+    this.section = section;
+    this.startNumBytes = numBytes;
+    begin();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns true if the event is enabled in a running recording.
+   *
+   * @return True if the event is recorded, false otherwise.
+   */
+  public static boolean isRecording() {
+    return TYPE.isEnabled();
+  }
+
+  /**
+   * Ends the event and commits it if it passes the settings of the recording.
+   *
+   * @param numElements The number of serialized elements of the section.
+   * @param numBytes    The number of bytes of the serialization after the section.
+   */
+  public void finish(long numElements, long numBytes) {
+    end();
+    if (shouldCommit()) {
+      this.numElements = numElements;
+      this.numBytes = numBytes - this.startNumBytes;
+      commit();
+    }
+  }
+}
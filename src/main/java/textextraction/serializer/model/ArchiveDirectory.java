@@ -0,0 +1,156 @@
+package textextraction.serializer.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The central directory of a document archive, which maps the id of each document in the archive
+ * to the offset, length, format and checksum of its serialization (see
+ * {@link textextraction.serializer.DocumentArchiveWriter}).
+ * 
+ * <p>
+ * The directory is stored in a compact binary form at the end of the archive (see
+ * {@link #write(OutputStream)}), so that a reader can locate any document without scanning the
+ * archive.
+ * 
+ * @author Claudius Korzen
+ */
+public class ArchiveDirectory {
+  /**
+   * The magic number that identifies a serialized directory ("SDIR").
+   */
+  protected static final int MAGIC = 0x53444952;
+
+  /**
+   * The version of the binary layout of a serialized directory.
+   */
+  protected static final int VERSION = 1;
+
+  /**
+   * The entries, per document id, in the order of the documents in the archive.
+   */
+  protected Map<String, ArchiveEntry> entries;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new, empty directory.
+   */
+  public ArchiveDirectory() {
+    this.entries = new LinkedHashMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Adds the given entry to this directory.
+   * 
+   * @param entry The entry to add.
+   * 
+   * @throws IllegalArgumentException If the directory already contains an entry with the id of the
+   *                                  given entry.
+   */
+  public void addEntry(ArchiveEntry entry) {
+    if (this.entries.containsKey(entry.getId())) {
+      throw new IllegalArgumentException("The archive already contains a document with id '"
+              + entry.getId() + "'.");
+    }
+    this.entries.put(entry.getId(), entry);
+  }
+
+  /**
+   * Checks if this directory contains an entry with the given id.
+   * 
+   * @param id The id of the document.
+   * 
+   * @return True if the directory contains an entry with the given id, false otherwise.
+   */
+  public boolean containsEntry(String id) {
+    return this.entries.containsKey(id);
+  }
+
+  /**
+   * Returns the entry with the given id.
+   * 
+   * @param id The id of the document.
+   * 
+   * @return The entry, or null if the directory doesn't contain an entry with the given id.
+   */
+  public ArchiveEntry getEntry(String id) {
+    return this.entries.get(id);
+  }
+
+  /**
+   * Returns all entries of this directory.
+   * 
+   * @return The entries, in the order of the documents in the archive.
+   */
+  public Collection<ArchiveEntry> getEntries() {
+    return Collections.unmodifiableCollection(this.entries.values());
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Writes this directory in a compact binary form to the given stream.
+   * 
+   * @param out The stream to write to.
+   * 
+   * @throws IOException If writing to the stream failed.
+   */
+  public void write(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    data.writeInt(this.entries.size());
+    for (ArchiveEntry entry : this.entries.values()) {
+      data.writeUTF(entry.getId());
+      data.writeUTF(entry.getFormat().getName());
+      data.writeLong(entry.getOffset());
+      data.writeLong(entry.getLength());
+      data.writeInt((int) entry.getChecksum());
+    }
+    data.flush();
+  }
+
+  /**
+   * Reads a directory written by {@link #write(OutputStream)} from the given stream.
+   * 
+   * @param in The stream to read from.
+   * 
+   * @return The directory.
+   * 
+   * @throws IOException If reading from the stream failed or the stream doesn't contain a
+   *                     directory.
+   */
+  public static ArchiveDirectory read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("The stream doesn't contain an archive directory.");
+    }
+    int version = data.readByte();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported version of the archive directory: " + version);
+    }
+
+    ArchiveDirectory directory = new ArchiveDirectory();
+    int numEntries = data.readInt();
+    for (int i = 0; i < numEntries; i++) {
+      String id = data.readUTF();
+      SerializationFormat format = SerializationFormat.fromString(data.readUTF());
+      long offset = data.readLong();
+      long length = data.readLong();
+      long checksum = data.readInt() & 0xFFFFFFFFL;
+      directory.addEntry(new ArchiveEntry(id, format, offset, length, checksum));
+    }
+    return directory;
+  }
+}
@@ -0,0 +1,110 @@
+package textextraction.serializer.model;
+
+/**
+ * An entry of the central directory of a document archive: the location, format and checksum of
+ * the serialization of a single document in the archive.
+ * 
+ * @author Claudius Korzen
+ */
+public class ArchiveEntry {
+  /**
+   * The id of the document.
+   */
+  protected String id;
+
+  /**
+   * The format of the serialization.
+   */
+  protected SerializationFormat format;
+
+  /**
+   * The offset of the serialization in the archive.
+   */
+  protected long offset;
+
+  /**
+   * The number of bytes of the serialization.
+   */
+  protected long length;
+
+  /**
+   * The CRC-32C checksum of the serialization.
+   */
+  protected long checksum;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new entry.
+   * 
+   * @param id       The id of the document.
+   * @param format   The format of the serialization.
+   * @param offset   The offset of the serialization in the archive.
+   * @param length   The number of bytes of the serialization.
+   * @param checksum The CRC-32C checksum of the serialization.
+   */
+  public ArchiveEntry(String id, SerializationFormat format, long offset, long length,
+          long checksum) {
+    this.id = id;
+    this.format = format;
+    this.offset = offset;
+    this.length = length;
+    this.checksum = checksum;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the id of the document.
+   * 
+   * @return The id of the document.
+   */
+  public String getId() {
+    return this.id;
+  }
+
+  /**
+   * Returns the format of the serialization.
+   * 
+   * @return The format of the serialization.
+   */
+  public SerializationFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Returns the offset of the serialization in the archive.
+   * 
+   * @return The offset of the serialization.
+   */
+  public long getOffset() {
+    return this.offset;
+  }
+
+  /**
+   * Returns the number of bytes of the serialization.
+   * 
+   * @return The number of bytes of the serialization.
+   */
+  public long getLength() {
+    return this.length;
+  }
+
+  /**
+   * Returns the CRC-32C checksum of the serialization.
+   * 
+   * @return The checksum of the serialization.
+   */
+  public long getChecksum() {
+    return this.checksum;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public String toString() {
+    return "ArchiveEntry(" + this.id + ", " + this.format + ", " + this.length + " bytes at "
+            + this.offset + ", crc32c " + Long.toHexString(this.checksum) + ")";
+  }
+}
@@ -0,0 +1,82 @@
+package textextraction.serializer.model;
+
+/**
+ * A range of bytes in a serialization, given by its offset and its length.
+ * 
+ * @author Claudius Korzen
+ */
+public class ByteRange {
+  /**
+   * The offset of the first byte of this range.
+   */
+  protected long offset;
+
+  /**
+   * The number of bytes in this range.
+   */
+  protected long length;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new byte range.
+   * 
+   * @param offset The offset of the first byte of the range.
+   * @param length The number of bytes in the range.
+   */
+  public ByteRange(long offset, long length) {
+    this.offset = offset;
+    this.length = length;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the offset of the first byte of this range.
+   * 
+   * @return The offset of the first byte of this range.
+   */
+  public long getOffset() {
+    return this.offset;
+  }
+
+  /**
+   * Returns the number of bytes in this range.
+   * 
+   * @return The number of bytes in this range.
+   */
+  public long getLength() {
+    return this.length;
+  }
+
+  /**
+   * Returns the offset of the first byte after this range.
+   * 
+   * @return The offset of the first byte after this range.
+   */
+  public long getEnd() {
+    return this.offset + this.length;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public String toString() {
+    return "ByteRange(" + this.offset + ", " + this.length + ")";
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof ByteRange)) {
+      return false;
+    }
+    ByteRange range = (ByteRange) other;
+    return this.offset == range.offset && this.length == range.length;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(this.offset) * 31 + Long.hashCode(this.length);
+  }
+}
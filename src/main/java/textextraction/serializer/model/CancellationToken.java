@@ -0,0 +1,34 @@
+package textextraction.serializer.model;
+
+/**
+ * A token by which a running serialization can be cancelled, from any thread. The serialization
+ * checks the token regularly (per page and every few elements) and aborts as soon as it notices
+ * that the token was cancelled. A token can be shared by several serializations, to cancel all of
+ * them at once.
+ *
+ * @author Claudius Korzen
+ */
+public class CancellationToken {
+  /**
+   * Whether this token was cancelled.
+   */
+  protected volatile boolean isCancelled;
+
+  // ==============================================================================================
+
+  /**
+   * Cancels this token. Cancelling a token that was already cancelled has no effect.
+   */
+  public void cancel() {
+    this.isCancelled = true;
+  }
+
+  /**
+   * Returns true if this token was cancelled.
+   *
+   * @return True if this token was cancelled, false otherwise.
+   */
+  public boolean isCancelled() {
+    return this.isCancelled;
+  }
+}
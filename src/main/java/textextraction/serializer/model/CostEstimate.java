@@ -0,0 +1,176 @@
+package textextraction.serializer.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import textextraction.common.models.ElementClass;
+
+/**
+ * The predicted cost of a serialization: the number of bytes and the CPU time, together with the
+ * cost drivers the prediction was computed from (the numbers of pages and elements and the
+ * estimated numbers of fonts and colors).
+ *
+ * @author Claudius Korzen
+ */
+public class CostEstimate {
+  /**
+   * The format of the serialization.
+   */
+  protected SerializationFormat format;
+
+  /**
+   * The number of serialized pages.
+   */
+  protected long numPages;
+
+  /**
+   * The number of serialized elements, per type of elements.
+   */
+  protected Map<ElementClass, Long> numElements;
+
+  /**
+   * The estimated number of serialized fonts.
+   */
+  protected long numFonts;
+
+  /**
+   * The estimated number of serialized colors.
+   */
+  protected long numColors;
+
+  /**
+   * The predicted number of bytes of the serialization.
+   */
+  protected long numBytes;
+
+  /**
+   * The predicted CPU time of the serialization, in nanoseconds.
+   */
+  protected long cpuTime;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new estimate without a prediction, with the given cost drivers.
+   *
+   * @param format      The format of the serialization.
+   * @param numPages    The number of serialized pages.
+   * @param numElements The number of serialized elements, per type of elements.
+   * @param numFonts    The estimated number of serialized fonts.
+   * @param numColors   The estimated number of serialized colors.
+   */
+  public CostEstimate(SerializationFormat format, long numPages,
+          Map<ElementClass, Long> numElements, long numFonts, long numColors) {
+    this.format = format;
+    this.numPages = numPages;
+    this.numElements = new EnumMap<>(ElementClass.class);
+    this.numElements.putAll(numElements);
+    this.numFonts = numFonts;
+    this.numColors = numColors;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the format of the serialization.
+   *
+   * @return The format.
+   */
+  public SerializationFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Returns the number of serialized pages.
+   *
+   * @return The number of pages.
+   */
+  public long getNumPages() {
+    return this.numPages;
+  }
+
+  /**
+   * Returns the number of serialized elements of the given type.
+   *
+   * @param clazz The type of elements.
+   *
+   * @return The number of elements, or 0 if the elements of the given type aren't serialized.
+   */
+  public long getNumElements(ElementClass clazz) {
+    return this.numElements.getOrDefault(clazz, 0L);
+  }
+
+  /**
+   * Returns the number of serialized elements per type of elements.
+   *
+   * @return The number of elements per type.
+   */
+  public Map<ElementClass, Long> getNumElements() {
+    return Collections.unmodifiableMap(this.numElements);
+  }
+
+  /**
+   * Returns the estimated number of serialized fonts.
+   *
+   * @return The number of fonts.
+   */
+  public long getNumFonts() {
+    return this.numFonts;
+  }
+
+  /**
+   * Returns the estimated number of serialized colors.
+   *
+   * @return The number of colors.
+   */
+  public long getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Returns the predicted number of bytes of the serialization.
+   *
+   * @return The number of bytes.
+   */
+  public long getNumBytes() {
+    return this.numBytes;
+  }
+
+  /**
+   * Sets the predicted number of bytes of the serialization.
+   *
+   * @param numBytes The number of bytes.
+   */
+  public void setNumBytes(long numBytes) {
+    this.numBytes = numBytes;
+  }
+
+  /**
+   * Returns the predicted CPU time of the serialization.
+   *
+   * @return The CPU time in nanoseconds.
+   */
+  public long getCpuTime() {
+    return this.cpuTime;
+  }
+
+  /**
+   * Sets the predicted CPU time of the serialization.
+   *
+   * @param cpuTime The CPU time in nanoseconds.
+   */
+  public void setCpuTime(long cpuTime) {
+    this.cpuTime = cpuTime;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public String toString() {
+    return "CostEstimate(format: " + this.format + ", pages: " + this.numPages + ", elements: "
+            + this.numElements + ", fonts: " + this.numFonts + ", colors: " + this.numColors
+            + ", bytes: " + this.numBytes + ", cpu time: " + this.cpuTime / 1000 + " us)";
+  }
+}
@@ -0,0 +1,152 @@
+package textextraction.serializer.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An enumeration of all attributes of document elements that can be serialized.
+ * 
+ * @author Claudius Korzen
+ */
+public enum ElementField {
+  /**
+   * The position(s) of an element.
+   */
+  POSITION("position"),
+
+  /**
+   * The font face (font and font size) of an element.
+   */
+  FONT("font"),
+
+  /**
+   * The color of an element.
+   */
+  COLOR("color"),
+
+  /**
+   * The text of an element.
+   */
+  TEXT("text"),
+
+  /**
+   * The semantic role of an element.
+   */
+  ROLE("role"),
+
+  /**
+   * The references to the characters contained in an element.
+   */
+  CHARACTERS("characters");
+
+  // ==============================================================================================
+
+  /**
+   * The name of this field.
+   */
+  protected String name;
+
+  /**
+   * The fields per name.
+   */
+  protected static final Map<String, ElementField> FIELDS;
+
+  static {
+    FIELDS = new HashMap<>();
+
+    // Fill the map of fields per name.
+    for (ElementField field : values()) {
+      FIELDS.put(field.getName(), field);
+    }
+  }
+
+  /**
+   * Creates a new element field.
+   * 
+   * @param name The name of the field.
+   */
+  private ElementField(String name) {
+    this.name = name;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the name of this field.
+   * 
+   * @return The name of this field.
+   */
+  protected String getName() {
+    return this.name;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the names of all available fields.
+   * 
+   * @return The names of all available fields, as a set.
+   */
+  public static Set<String> getNames() {
+    return FIELDS.keySet();
+  }
+
+  /**
+   * Returns a collection of all available fields.
+   * 
+   * @return A collection of all available fields.
+   */
+  public static Collection<ElementField> getElementFields() {
+    return FIELDS.values();
+  }
+
+  /**
+   * Checks if the given name is a valid name of an existing field.
+   * 
+   * @param name The name to check.
+   *
+   * @return True, if the given name is a valid name of an existing field; false otherwise.
+   */
+  public static boolean isValidElementField(String name) {
+    return FIELDS.containsKey(name.toLowerCase());
+  }
+
+  /**
+   * Returns the fields that are associated with the given names.
+   * 
+   * @param names The names of the fields to fetch.
+   * 
+   * @return A set of the fetched fields.
+   */
+  public static Set<ElementField> fromStrings(String... names) {
+    if (names == null || names.length == 0) {
+      return null;
+    }
+
+    Set<ElementField> fields = new HashSet<>();
+    for (String name : names) {
+      ElementField field = fromString(name);
+      if (field != null) {
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the field that is associated with the given name.
+   * 
+   * @param name The name of the field to fetch.
+   * 
+   * @return The field that is associated with the given name.
+   */
+  public static ElementField fromString(String name) {
+    if (!isValidElementField(name)) {
+      throw new IllegalArgumentException(name + " isn't a valid element field.");
+    }
+    return FIELDS.get(name.toLowerCase());
+  }
+}
@@ -0,0 +1,176 @@
+package textextraction.serializer.model;
+
+import java.util.List;
+
+import textextraction.common.models.Page;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+
+/**
+ * A filter that restricts the serialization to the elements on a given range of pages and,
+ * optionally, to the elements within a given region of the pages.
+ * 
+ * <p>
+ * The filter is applied while traversing the document: pages outside the range are skipped
+ * entirely and elements rejected by the region filter are never serialized.
+ * 
+ * @author Claudius Korzen
+ */
+public class ElementFilter {
+  /**
+   * The number of the first page to serialize (1-based, inclusive).
+   */
+  protected int firstPage;
+
+  /**
+   * The number of the last page to serialize (1-based, inclusive).
+   */
+  protected int lastPage;
+
+  /**
+   * The filter to apply on the bounding boxes of the elements, or null if all elements on the
+   * pages in the range are to be serialized.
+   */
+  protected RegionFilter regionFilter;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new filter that accepts all elements on all pages.
+   */
+  public ElementFilter() {
+    this(1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new filter that accepts all elements on the pages in the given range.
+   * 
+   * @param firstPage The number of the first page to serialize (1-based, inclusive).
+   * @param lastPage  The number of the last page to serialize (1-based, inclusive).
+   */
+  public ElementFilter(int firstPage, int lastPage) {
+    this(firstPage, lastPage, null);
+  }
+
+  /**
+   * Creates a new filter that accepts the elements on the pages in the given range that are
+   * accepted by the given region filter.
+   * 
+   * @param firstPage    The number of the first page to serialize (1-based, inclusive).
+   * @param lastPage     The number of the last page to serialize (1-based, inclusive).
+   * @param regionFilter The filter to apply on the bounding boxes of the elements.
+   */
+  public ElementFilter(int firstPage, int lastPage, RegionFilter regionFilter) {
+    if (firstPage > lastPage) {
+      throw new IllegalArgumentException("Invalid page range: " + firstPage + "-" + lastPage);
+    }
+    this.firstPage = firstPage;
+    this.lastPage = lastPage;
+    this.regionFilter = regionFilter;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the number of the first page to serialize.
+   * 
+   * @return The number of the first page to serialize (1-based, inclusive).
+   */
+  public int getFirstPage() {
+    return this.firstPage;
+  }
+
+  /**
+   * Returns the number of the last page to serialize.
+   * 
+   * @return The number of the last page to serialize (1-based, inclusive).
+   */
+  public int getLastPage() {
+    return this.lastPage;
+  }
+
+  /**
+   * Returns the filter to apply on the bounding boxes of the elements.
+   * 
+   * @return The region filter, or null if there is no such filter.
+   */
+  public RegionFilter getRegionFilter() {
+    return this.regionFilter;
+  }
+
+  /**
+   * Checks if this filter accepts all elements.
+   * 
+   * @return True, if this filter accepts all elements; false otherwise.
+   */
+  public boolean isAcceptingAll() {
+    return this.firstPage <= 1 && this.lastPage == Integer.MAX_VALUE && this.regionFilter == null;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Checks if the given page is to be serialized.
+   * 
+   * @param page The page to check.
+   * 
+   * @return True, if the page is in the page range of this filter; false otherwise.
+   */
+  public boolean accept(Page page) {
+    if (page == null) {
+      return false;
+    }
+    int pageNumber = page.getPageNumber();
+    return pageNumber >= this.firstPage && pageNumber <= this.lastPage;
+  }
+
+  /**
+   * Checks if an element at the given position is to be serialized.
+   * 
+   * @param position The position of the element.
+   * 
+   * @return True, if the position is on a page in the page range of this filter and is accepted
+   *         by the region filter; false otherwise.
+   */
+  public boolean accept(Position position) {
+    if (isAcceptingAll()) {
+      return true;
+    }
+    if (position == null) {
+      return false;
+    }
+    Page page = position.getPage();
+    if (!accept(page)) {
+      return false;
+    }
+    if (this.regionFilter == null) {
+      return true;
+    }
+    Rectangle rect = position.getRectangle();
+    return rect != null && this.regionFilter.accept(page, rect);
+  }
+
+  /**
+   * Checks if an element at the given positions (for example, a paragraph spanning several pages)
+   * is to be serialized.
+   * 
+   * @param positions The positions of the element.
+   * 
+   * @return True, if at least one of the positions is accepted by this filter; false otherwise.
+   */
+  public boolean accept(List<Position> positions) {
+    if (isAcceptingAll()) {
+      return true;
+    }
+    if (positions == null) {
+      return false;
+    }
+    for (Position position : positions) {
+      if (accept(position)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,98 @@
+package textextraction.serializer.model;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import textextraction.common.models.ElementClass;
+
+/**
+ * A projection that defines which fields of the elements of a specific element class are to be
+ * serialized. Fields that are not included in the projection are neither computed nor serialized,
+ * and do not contribute to the fonts and colors sections of the serialization.
+ * 
+ * <p>
+ * An element class for which no fields were defined is serialized with all its fields.
+ * 
+ * @author Claudius Korzen
+ */
+public class FieldProjection {
+  /**
+   * The fields to serialize, per element class.
+   */
+  protected Map<ElementClass, Set<ElementField>> fields;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new projection that includes all fields of all element classes.
+   */
+  public FieldProjection() {
+    this.fields = new EnumMap<>(ElementClass.class);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Defines the fields to serialize for the elements of the given class.
+   * 
+   * @param clazz  The element class.
+   * @param fields The fields to serialize for the elements of the given class.
+   * 
+   * @return This projection (for chaining calls).
+   */
+  public FieldProjection setFields(ElementClass clazz, Collection<ElementField> fields) {
+    if (fields == null || fields.isEmpty()) {
+      this.fields.put(clazz, EnumSet.noneOf(ElementField.class));
+    } else {
+      this.fields.put(clazz, EnumSet.copyOf(fields));
+    }
+    return this;
+  }
+
+  /**
+   * Defines the fields to serialize for the elements of the given class.
+   * 
+   * @param clazz  The element class.
+   * @param fields The fields to serialize for the elements of the given class.
+   * 
+   * @return This projection (for chaining calls).
+   */
+  public FieldProjection setFields(ElementClass clazz, ElementField... fields) {
+    Set<ElementField> set = EnumSet.noneOf(ElementField.class);
+    for (ElementField field : fields) {
+      set.add(field);
+    }
+    this.fields.put(clazz, set);
+    return this;
+  }
+
+  /**
+   * Returns the fields to serialize for the elements of the given class.
+   * 
+   * @param clazz The element class.
+   * 
+   * @return The fields to serialize, or null if all fields are to be serialized.
+   */
+  public Set<ElementField> getFields(ElementClass clazz) {
+    return this.fields.get(clazz);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Checks if the given field is to be serialized for the elements of the given class.
+   * 
+   * @param clazz The element class.
+   * @param field The field to check.
+   * 
+   * @return True, if the given field is to be serialized; false otherwise.
+   */
+  public boolean includes(ElementClass clazz, ElementField field) {
+    Set<ElementField> set = this.fields.get(clazz);
+    return set == null || set.contains(field);
+  }
+}
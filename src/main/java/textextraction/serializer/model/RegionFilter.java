@@ -0,0 +1,56 @@
+package textextraction.serializer.model;
+
+import textextraction.common.models.Page;
+import textextraction.common.models.Rectangle;
+
+/**
+ * A filter that decides, per page, whether an element with a given bounding box is to be
+ * serialized.
+ * 
+ * @author Claudius Korzen
+ */
+public interface RegionFilter {
+  /**
+   * Checks if an element with the given bounding box on the given page is to be serialized.
+   * 
+   * @param page      The page on which the element is located.
+   * @param rectangle The bounding box of the element.
+   * 
+   * @return True, if the element is to be serialized; false otherwise.
+   */
+  boolean accept(Page page, Rectangle rectangle);
+
+  // ==============================================================================================
+
+  /**
+   * Returns a filter that accepts all elements whose bounding box lies completely within the
+   * given region (on any page).
+   * 
+   * @param minX The minimum x-coordinate of the region.
+   * @param minY The minimum y-coordinate of the region.
+   * @param maxX The maximum x-coordinate of the region.
+   * @param maxY The maximum y-coordinate of the region.
+   * 
+   * @return The filter.
+   */
+  static RegionFilter within(float minX, float minY, float maxX, float maxY) {
+    return (page, rect) -> rect.getMinX() >= minX && rect.getMinY() >= minY
+            && rect.getMaxX() <= maxX && rect.getMaxY() <= maxY;
+  }
+
+  /**
+   * Returns a filter that accepts all elements whose bounding box overlaps the given region (on
+   * any page).
+   * 
+   * @param minX The minimum x-coordinate of the region.
+   * @param minY The minimum y-coordinate of the region.
+   * @param maxX The maximum x-coordinate of the region.
+   * @param maxY The maximum y-coordinate of the region.
+   * 
+   * @return The filter.
+   */
+  static RegionFilter overlapping(float minX, float minY, float maxX, float maxY) {
+    return (page, rect) -> rect.getMinX() <= maxX && rect.getMaxX() >= minX
+            && rect.getMinY() <= maxY && rect.getMaxY() >= minY;
+  }
+}
@@ -20,7 +20,18 @@ public enum SerializationFormat {
   /**
    * The serialization format "JSON".
    */
-  JSON("json");
+  JSON("json"),
+
+  /**
+   * The serialization format "BINARY", consisting of fixed-size records that can be queried in
+   * place.
+   */
+  BINARY("binary"),
+
+  /**
+   * The serialization format "TEXT", consisting of the plain text of the characters per page.
+   */
+  TEXT("text");
 
   // ==============================================================================================
 
@@ -0,0 +1,579 @@
+package textextraction.serializer.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An index of the byte ranges of the sections of a serialization, for random access into the
+ * serialization without scanning it.
+ * 
+ * <p>
+ * The index records (1) the byte range of each section (for example, "characters", "fonts" or
+ * "pages") and (2) for each section with page-based elements the byte range of the elements of
+ * each page. The range of a section covers the complete section, including its name (the key of
+ * the section in JSON, the start and end tags of the section in XML). The range of the elements of
+ * a page covers the serialized elements only, separated as within the section (by commas in JSON),
+ * but without the enclosing section. For the sections with page-based elements, the index also
+ * records the number of elements of each page, which allows to compute the index of an element in
+ * its section from the page ranges, and the ids of the fonts and colors referenced by the elements
+ * of each page (for example, to splice re-serialized pages into the serialization without
+ * visiting the elements of the other pages, see
+ * {@link textextraction.serializer.IncrementalDocumentSerializer}). If enabled
+ * in the options, the index also records content hashes of the pages and of the whole document
+ * (see {@link SerializationOptions#setComputingContentHashes(boolean)}).
+ * 
+ * <p>
+ * The index can be stored as a compact binary sidecar next to the serialization by using
+ * {@link #write(OutputStream)} and be read again by using {@link #read(InputStream)}.
+ * 
+ * @author Claudius Korzen
+ */
+public class SerializationIndex {
+  /**
+   * The magic number that identifies a serialized index ("SIDX").
+   */
+  protected static final int MAGIC = 0x53494458;
+
+  /**
+   * The version of the binary layout of a serialized index.
+   */
+  protected static final int VERSION = 1;
+
+  /**
+   * The format of the indexed serialization.
+   */
+  protected SerializationFormat format;
+
+  /**
+   * The byte ranges of the sections, per section name, in the order of the serialization.
+   */
+  protected Map<String, ByteRange> sectionRanges;
+
+  /**
+   * The byte ranges of the elements of each page, per section name and page number.
+   */
+  protected Map<String, Map<Integer, ByteRange>> pageRanges;
+
+  /**
+   * The number of elements of each page, per section name and page number.
+   */
+  protected Map<String, Map<Integer, Integer>> pageCounts;
+
+  /**
+   * The ids of the fonts referenced by the elements of each page, per section name and page
+   * number.
+   */
+  protected Map<String, Map<Integer, List<String>>> pageFonts;
+
+  /**
+   * The ids of the colors referenced by the elements of each page, per section name and page
+   * number.
+   */
+  protected Map<String, Map<Integer, List<String>>> pageColors;
+
+  /**
+   * The content hashes of the pages, per page number.
+   */
+  protected Map<Integer, String> pageHashes;
+
+  /**
+   * The content hashes of the elements of each page, per section name and page number.
+   */
+  protected Map<String, Map<Integer, String>> sectionPageHashes;
+
+  /**
+   * The content hash of the whole document, or null if no hashes were computed.
+   */
+  protected String documentHash;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new, empty index.
+   * 
+   * @param format The format of the indexed serialization.
+   */
+  public SerializationIndex(SerializationFormat format) {
+    this.format = format;
+    this.sectionRanges = new LinkedHashMap<>();
+    this.pageRanges = new LinkedHashMap<>();
+    this.pageCounts = new LinkedHashMap<>();
+    this.pageFonts = new LinkedHashMap<>();
+    this.pageColors = new LinkedHashMap<>();
+    this.pageHashes = new TreeMap<>();
+    this.sectionPageHashes = new LinkedHashMap<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the format of the indexed serialization.
+   * 
+   * @return The format of the indexed serialization.
+   */
+  public SerializationFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Sets the byte range of the given section.
+   * 
+   * @param section The name of the section.
+   * @param offset  The offset of the first byte of the section.
+   * @param length  The number of bytes of the section.
+   */
+  public void setSectionRange(String section, long offset, long length) {
+    this.sectionRanges.put(section, new ByteRange(offset, length));
+  }
+
+  /**
+   * Returns the byte range of the given section.
+   * 
+   * @param section The name of the section.
+   * 
+   * @return The byte range of the section, or null if the serialization has no such section.
+   */
+  public ByteRange getSectionRange(String section) {
+    return this.sectionRanges.get(section);
+  }
+
+  /**
+   * Returns the byte ranges of all sections.
+   * 
+   * @return The byte ranges of all sections, per section name, in the order of the serialization.
+   */
+  public Map<String, ByteRange> getSectionRanges() {
+    return Collections.unmodifiableMap(this.sectionRanges);
+  }
+
+  /**
+   * Sets the byte range of the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * @param offset     The offset of the first byte of the elements of the page.
+   * @param length     The number of bytes of the elements of the page.
+   */
+  public void setPageRange(String section, int pageNumber, long offset, long length) {
+    Map<Integer, ByteRange> ranges = this.pageRanges.get(section);
+    if (ranges == null) {
+      ranges = new TreeMap<>();
+      this.pageRanges.put(section, ranges);
+    }
+    ranges.put(pageNumber, new ByteRange(offset, length));
+  }
+
+  /**
+   * Returns the byte range of the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * 
+   * @return The byte range, or null if the section contains no elements of the page.
+   */
+  public ByteRange getPageRange(String section, int pageNumber) {
+    Map<Integer, ByteRange> ranges = this.pageRanges.get(section);
+    return ranges != null ? ranges.get(pageNumber) : null;
+  }
+
+  /**
+   * Returns the byte ranges of the elements of all pages in the given section.
+   * 
+   * @param section The name of the section.
+   * 
+   * @return The byte ranges, per page number.
+   */
+  public Map<Integer, ByteRange> getPageRanges(String section) {
+    Map<Integer, ByteRange> ranges = this.pageRanges.get(section);
+    return ranges != null ? Collections.unmodifiableMap(ranges) : Collections.emptyMap();
+  }
+
+  /**
+   * Sets the number of elements of the given page in the given section.
+   * 
+   * @param section     The name of the section.
+   * @param pageNumber  The number of the page.
+   * @param numElements The number of elements of the page.
+   */
+  public void setPageCount(String section, int pageNumber, int numElements) {
+    Map<Integer, Integer> counts = this.pageCounts.get(section);
+    if (counts == null) {
+      counts = new TreeMap<>();
+      this.pageCounts.put(section, counts);
+    }
+    counts.put(pageNumber, numElements);
+  }
+
+  /**
+   * Returns the number of elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * 
+   * @return The number of elements, or -1 if the number is unknown.
+   */
+  public int getPageCount(String section, int pageNumber) {
+    Map<Integer, Integer> counts = this.pageCounts.get(section);
+    Integer numElements = counts != null ? counts.get(pageNumber) : null;
+    return numElements != null ? numElements : -1;
+  }
+
+  /**
+   * Sets the ids of the fonts referenced by the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * @param fontIds    The ids of the fonts.
+   */
+  public void setPageFonts(String section, int pageNumber, Collection<String> fontIds) {
+    setPageIds(this.pageFonts, section, pageNumber, fontIds);
+  }
+
+  /**
+   * Returns the ids of the fonts referenced by the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * 
+   * @return The ids of the fonts (empty if no fonts were recorded for the page).
+   */
+  public List<String> getPageFonts(String section, int pageNumber) {
+    return getPageIds(this.pageFonts, section, pageNumber);
+  }
+
+  /**
+   * Sets the ids of the colors referenced by the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * @param colorIds   The ids of the colors.
+   */
+  public void setPageColors(String section, int pageNumber, Collection<String> colorIds) {
+    setPageIds(this.pageColors, section, pageNumber, colorIds);
+  }
+
+  /**
+   * Returns the ids of the colors referenced by the elements of the given page in the given
+   * section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * 
+   * @return The ids of the colors (empty if no colors were recorded for the page).
+   */
+  public List<String> getPageColors(String section, int pageNumber) {
+    return getPageIds(this.pageColors, section, pageNumber);
+  }
+
+  /**
+   * Sets the given ids of the given page in the given section. Empty collections are not stored.
+   * 
+   * @param ids        The ids, per section name and page number.
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * @param pageIds    The ids of the page.
+   */
+  protected static void setPageIds(Map<String, Map<Integer, List<String>>> ids, String section,
+          int pageNumber, Collection<String> pageIds) {
+    if (pageIds == null || pageIds.isEmpty()) {
+      return;
+    }
+    Map<Integer, List<String>> sectionIds = ids.get(section);
+    if (sectionIds == null) {
+      sectionIds = new TreeMap<>();
+      ids.put(section, sectionIds);
+    }
+    sectionIds.put(pageNumber, new ArrayList<>(pageIds));
+  }
+
+  /**
+   * Returns the ids of the given page in the given section.
+   * 
+   * @param ids        The ids, per section name and page number.
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * 
+   * @return The ids of the page.
+   */
+  protected List<String> getPageIds(Map<String, Map<Integer, List<String>>> ids, String section,
+          int pageNumber) {
+    Map<Integer, List<String>> sectionIds = ids.get(section);
+    List<String> pageIds = sectionIds != null ? sectionIds.get(pageNumber) : null;
+    return pageIds != null ? Collections.unmodifiableList(pageIds) : Collections.emptyList();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Sets the content hash of the given page.
+   * 
+   * @param pageNumber The number of the page.
+   * @param hash       The content hash.
+   */
+  public void setPageHash(int pageNumber, String hash) {
+    this.pageHashes.put(pageNumber, hash);
+  }
+
+  /**
+   * Returns the content hash of the given page, computed over the serialized elements of the page
+   * in all sections (see {@link textextraction.serializer.ContentHasher}).
+   * 
+   * @param pageNumber The number of the page.
+   * 
+   * @return The content hash, or null if no hash was computed for the page.
+   */
+  public String getPageHash(int pageNumber) {
+    return this.pageHashes.get(pageNumber);
+  }
+
+  /**
+   * Returns the content hashes of all pages.
+   * 
+   * @return The content hashes, per page number.
+   */
+  public Map<Integer, String> getPageHashes() {
+    return Collections.unmodifiableMap(this.pageHashes);
+  }
+
+  /**
+   * Sets the content hash of the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * @param hash       The content hash.
+   */
+  public void setPageHash(String section, int pageNumber, String hash) {
+    Map<Integer, String> hashes = this.sectionPageHashes.get(section);
+    if (hashes == null) {
+      hashes = new TreeMap<>();
+      this.sectionPageHashes.put(section, hashes);
+    }
+    hashes.put(pageNumber, hash);
+  }
+
+  /**
+   * Returns the content hash of the elements of the given page in the given section.
+   * 
+   * @param section    The name of the section.
+   * @param pageNumber The number of the page.
+   * 
+   * @return The content hash, or null if no hash was computed for the page in the section.
+   */
+  public String getPageHash(String section, int pageNumber) {
+    Map<Integer, String> hashes = this.sectionPageHashes.get(section);
+    return hashes != null ? hashes.get(pageNumber) : null;
+  }
+
+  /**
+   * Sets the content hash of the whole document.
+   * 
+   * @param hash The content hash.
+   */
+  public void setDocumentHash(String hash) {
+    this.documentHash = hash;
+  }
+
+  /**
+   * Returns the content hash of the whole document.
+   * 
+   * @return The content hash, or null if no hashes were computed.
+   */
+  public String getDocumentHash() {
+    return this.documentHash;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Writes this index in a compact binary form to the given stream.
+   * 
+   * @param out The stream to write to.
+   * 
+   * @throws IOException If writing to the stream failed.
+   */
+  public void write(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    data.writeUTF(this.format.getName());
+
+    data.writeInt(this.sectionRanges.size());
+    for (Map.Entry<String, ByteRange> entry : this.sectionRanges.entrySet()) {
+      data.writeUTF(entry.getKey());
+      data.writeLong(entry.getValue().getOffset());
+      data.writeLong(entry.getValue().getLength());
+    }
+
+    data.writeInt(this.pageRanges.size());
+    for (Map.Entry<String, Map<Integer, ByteRange>> entry : this.pageRanges.entrySet()) {
+      data.writeUTF(entry.getKey());
+      data.writeInt(entry.getValue().size());
+      for (Map.Entry<Integer, ByteRange> pageEntry : entry.getValue().entrySet()) {
+        data.writeInt(pageEntry.getKey());
+        data.writeLong(pageEntry.getValue().getOffset());
+        data.writeLong(pageEntry.getValue().getLength());
+      }
+    }
+
+    data.writeInt(this.pageCounts.size());
+    for (Map.Entry<String, Map<Integer, Integer>> entry : this.pageCounts.entrySet()) {
+      data.writeUTF(entry.getKey());
+      data.writeInt(entry.getValue().size());
+      for (Map.Entry<Integer, Integer> pageEntry : entry.getValue().entrySet()) {
+        data.writeInt(pageEntry.getKey());
+        data.writeInt(pageEntry.getValue());
+      }
+    }
+
+    writePageIds(data, this.pageFonts);
+    writePageIds(data, this.pageColors);
+
+    data.writeBoolean(this.documentHash != null);
+    if (this.documentHash != null) {
+      data.writeUTF(this.documentHash);
+    }
+    data.writeInt(this.pageHashes.size());
+    for (Map.Entry<Integer, String> entry : this.pageHashes.entrySet()) {
+      data.writeInt(entry.getKey());
+      data.writeUTF(entry.getValue());
+    }
+    data.writeInt(this.sectionPageHashes.size());
+    for (Map.Entry<String, Map<Integer, String>> entry : this.sectionPageHashes.entrySet()) {
+      data.writeUTF(entry.getKey());
+      data.writeInt(entry.getValue().size());
+      for (Map.Entry<Integer, String> pageEntry : entry.getValue().entrySet()) {
+        data.writeInt(pageEntry.getKey());
+        data.writeUTF(pageEntry.getValue());
+      }
+    }
+    data.flush();
+  }
+
+  /**
+   * Reads an index written by {@link #write(OutputStream)} from the given stream.
+   * 
+   * @param in The stream to read from.
+   * 
+   * @return The index.
+   * 
+   * @throws IOException If reading from the stream failed or the stream doesn't contain an index.
+   */
+  public static SerializationIndex read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("The stream doesn't contain a serialization index.");
+    }
+    int version = data.readByte();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported version of the serialization index: " + version);
+    }
+
+    SerializationFormat format = SerializationFormat.fromString(data.readUTF());
+    SerializationIndex index = new SerializationIndex(format);
+
+    int numSections = data.readInt();
+    for (int i = 0; i < numSections; i++) {
+      index.setSectionRange(data.readUTF(), data.readLong(), data.readLong());
+    }
+
+    int numPageSections = data.readInt();
+    for (int i = 0; i < numPageSections; i++) {
+      String section = data.readUTF();
+      int numPages = data.readInt();
+      for (int j = 0; j < numPages; j++) {
+        index.setPageRange(section, data.readInt(), data.readLong(), data.readLong());
+      }
+    }
+
+    int numCountSections = data.readInt();
+    for (int i = 0; i < numCountSections; i++) {
+      String section = data.readUTF();
+      int numPages = data.readInt();
+      for (int j = 0; j < numPages; j++) {
+        index.setPageCount(section, data.readInt(), data.readInt());
+      }
+    }
+
+    readPageIds(data, index.pageFonts);
+    readPageIds(data, index.pageColors);
+
+    if (data.readBoolean()) {
+      index.setDocumentHash(data.readUTF());
+    }
+    int numPageHashes = data.readInt();
+    for (int i = 0; i < numPageHashes; i++) {
+      index.setPageHash(data.readInt(), data.readUTF());
+    }
+    int numHashSections = data.readInt();
+    for (int i = 0; i < numHashSections; i++) {
+      String section = data.readUTF();
+      int numPages = data.readInt();
+      for (int j = 0; j < numPages; j++) {
+        index.setPageHash(section, data.readInt(), data.readUTF());
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Writes the given ids per section name and page number to the given stream.
+   * 
+   * @param data The stream to write to.
+   * @param ids  The ids, per section name and page number.
+   * 
+   * @throws IOException If writing to the stream failed.
+   */
+  protected static void writePageIds(DataOutputStream data,
+          Map<String, Map<Integer, List<String>>> ids) throws IOException {
+    data.writeInt(ids.size());
+    for (Map.Entry<String, Map<Integer, List<String>>> entry : ids.entrySet()) {
+      data.writeUTF(entry.getKey());
+      data.writeInt(entry.getValue().size());
+      for (Map.Entry<Integer, List<String>> pageEntry : entry.getValue().entrySet()) {
+        data.writeInt(pageEntry.getKey());
+        data.writeInt(pageEntry.getValue().size());
+        for (String id : pageEntry.getValue()) {
+          data.writeUTF(id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads ids per section name and page number written by
+   * {@link #writePageIds(DataOutputStream, Map)} from the given stream.
+   * 
+   * @param data The stream to read from.
+   * @param ids  The map to add the ids to, per section name and page number.
+   * 
+   * @throws IOException If reading from the stream failed.
+   */
+  protected static void readPageIds(DataInputStream data,
+          Map<String, Map<Integer, List<String>>> ids) throws IOException {
+    int numSections = data.readInt();
+    for (int i = 0; i < numSections; i++) {
+      String section = data.readUTF();
+      int numPages = data.readInt();
+      for (int j = 0; j < numPages; j++) {
+        int pageNumber = data.readInt();
+        int numIds = data.readInt();
+        List<String> pageIds = new ArrayList<>(numIds);
+        for (int k = 0; k < numIds; k++) {
+          pageIds.add(data.readUTF());
+        }
+        setPageIds(ids, section, pageNumber, pageIds);
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package textextraction.serializer.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * A manifest of a serialization that was split into several self-contained parts, listing the
+ * parts in the order of their pages.
+ * 
+ * <p>
+ * The manifest can be stored next to the parts as a small JSON object (see
+ * {@link #write(OutputStream)}), for example:
+ * 
+ * <pre>
+ * {"format": "json", "max-part-size": 1048576, "parts": [
+ *   {"part": 1, "first-page": 1, "last-page": 12, "size": 1030023}, ...]}
+ * </pre>
+ * 
+ * @author Claudius Korzen
+ */
+public class SerializationManifest {
+  /**
+   * The format of the parts.
+   */
+  protected SerializationFormat format;
+
+  /**
+   * The maximum number of bytes per part.
+   */
+  protected long maxPartSize;
+
+  /**
+   * The parts, in the order of their pages.
+   */
+  protected List<SerializationPart> parts;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new manifest without any parts.
+   * 
+   * @param format      The format of the parts.
+   * @param maxPartSize The maximum number of bytes per part.
+   */
+  public SerializationManifest(SerializationFormat format, long maxPartSize) {
+    this.format = format;
+    this.maxPartSize = maxPartSize;
+    this.parts = new ArrayList<>();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the format of the parts.
+   * 
+   * @return The format of the parts.
+   */
+  public SerializationFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Returns the maximum number of bytes per part.
+   * 
+   * @return The maximum number of bytes per part.
+   */
+  public long getMaxPartSize() {
+    return this.maxPartSize;
+  }
+
+  /**
+   * Adds the given part to this manifest.
+   * 
+   * @param part The part to add.
+   */
+  public void addPart(SerializationPart part) {
+    this.parts.add(part);
+  }
+
+  /**
+   * Returns the parts.
+   * 
+   * @return The parts, in the order of their pages.
+   */
+  public List<SerializationPart> getParts() {
+    return Collections.unmodifiableList(this.parts);
+  }
+
+  /**
+   * Returns the total number of bytes of all parts.
+   * 
+   * @return The total number of bytes.
+   */
+  public long getTotalSize() {
+    long size = 0;
+    for (SerializationPart part : this.parts) {
+      size += part.getSize();
+    }
+    return size;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Writes this manifest as a JSON object to the given stream.
+   * 
+   * @param out The stream to write to.
+   * 
+   * @throws IOException If writing to the stream failed.
+   */
+  public void write(OutputStream out) throws IOException {
+    JSONArray partsJson = new JSONArray();
+    for (SerializationPart part : this.parts) {
+      JSONObject partJson = new JSONObject();
+      partJson.put("part", part.getNumber());
+      partJson.put("first-page", part.getFirstPage());
+      partJson.put("last-page", part.getLastPage());
+      partJson.put("size", part.getSize());
+      partsJson.put(partJson);
+    }
+
+    JSONObject json = new JSONObject();
+    json.put("format", this.format.getName());
+    json.put("max-part-size", this.maxPartSize);
+    json.put("parts", partsJson);
+
+    out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  /**
+   * Reads a manifest written by {@link #write(OutputStream)} from the given stream.
+   * 
+   * @param in The stream to read from.
+   * 
+   * @return The manifest.
+   * 
+   * @throws IOException If reading from the stream failed or the stream doesn't contain a manifest.
+   */
+  public static SerializationManifest read(InputStream in) throws IOException {
+    try {
+      JSONObject json = new JSONObject(
+              new JSONTokener(new InputStreamReader(in, StandardCharsets.UTF_8)));
+      SerializationFormat format = SerializationFormat.fromString(json.getString("format"));
+      SerializationManifest manifest = new SerializationManifest(format,
+              json.getLong("max-part-size"));
+
+      JSONArray partsJson = json.getJSONArray("parts");
+      for (int i = 0; i < partsJson.length(); i++) {
+        JSONObject partJson = partsJson.getJSONObject(i);
+        manifest.addPart(new SerializationPart(partJson.getInt("part"),
+                partJson.getInt("first-page"), partJson.getInt("last-page"),
+                partJson.getLong("size")));
+      }
+      return manifest;
+    } catch (JSONException e) {
+      throw new IOException("The stream doesn't contain a serialization manifest.", e);
+    }
+  }
+}
@@ -0,0 +1,426 @@
+package textextraction.serializer.model;
+
+import java.time.Instant;
+
+/**
+ * The options that control the serialization of a document.
+ * 
+ * @author Claudius Korzen
+ */
+public class SerializationOptions {
+  /**
+   * The default separator between the pages in the plain-text format (a form feed).
+   */
+  public static final String DEFAULT_PAGE_SEPARATOR = "\f";
+
+  /**
+   * The placeholder in a page separator for the number of the following page.
+   */
+  public static final String PAGE_NUMBER_PLACEHOLDER = "{page}";
+
+  /**
+   * The projection that defines the fields to serialize per element class.
+   */
+  protected FieldProjection projection;
+
+  /**
+   * The filter that restricts the serialization to a range of pages and/or a region of the pages.
+   */
+  protected ElementFilter filter;
+
+  /**
+   * The separator to write between the pages in the plain-text format.
+   */
+  protected String pageSeparator;
+
+  /**
+   * Whether to encode the font faces and colors of the characters as style runs.
+   */
+  protected boolean isEncodingStyleRuns;
+
+  /**
+   * Whether to serialize the elements in the compact schema of the format.
+   */
+  protected boolean isUsingCompactSchema;
+
+  /**
+   * Whether to write the fonts and colors sections before the sections of the elements.
+   */
+  protected boolean isWritingDictionariesFirst;
+
+  /**
+   * The point in time by which the serialization must be finished, or null if there is none.
+   */
+  protected Instant deadline;
+
+  /**
+   * The token by which the serialization can be cancelled, or null if there is none.
+   */
+  protected CancellationToken cancellationToken;
+
+  /**
+   * The maximum number of bytes of the serialization.
+   */
+  protected long maxOutputSize;
+
+  /**
+   * The width and height of the tiles of the spatial index per page, or 0 if no index is built.
+   */
+  protected float tileSize;
+
+  /**
+   * Whether to compute content hashes of the pages and of the document.
+   */
+  protected boolean isComputingContentHashes;
+
+  /**
+   * Whether to embed the content hashes in the serialization.
+   */
+  protected boolean isEmbeddingContentHashes;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates new serialization options with default values.
+   */
+  public SerializationOptions() {
+    this.projection = new FieldProjection();
+    this.filter = new ElementFilter();
+    this.pageSeparator = DEFAULT_PAGE_SEPARATOR;
+    this.maxOutputSize = Long.MAX_VALUE;
+  }
+
+  /**
+   * Creates new serialization options with the values of the given options.
+   * 
+   * @param options The options to copy.
+   */
+  public SerializationOptions(SerializationOptions options) {
+    this.projection = options.projection;
+    this.filter = options.filter;
+    this.pageSeparator = options.pageSeparator;
+    this.isEncodingStyleRuns = options.isEncodingStyleRuns;
+    this.isUsingCompactSchema = options.isUsingCompactSchema;
+    this.isWritingDictionariesFirst = options.isWritingDictionariesFirst;
+    this.deadline = options.deadline;
+    this.cancellationToken = options.cancellationToken;
+    this.maxOutputSize = options.maxOutputSize;
+    this.tileSize = options.tileSize;
+    this.isComputingContentHashes = options.isComputingContentHashes;
+    this.isEmbeddingContentHashes = options.isEmbeddingContentHashes;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the projection that defines the fields to serialize per element class.
+   * 
+   * @return The projection.
+   */
+  public FieldProjection getFieldProjection() {
+    return this.projection;
+  }
+
+  /**
+   * Sets the projection that defines the fields to serialize per element class.
+   * 
+   * @param projection The projection.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setFieldProjection(FieldProjection projection) {
+    this.projection = projection != null ? projection : new FieldProjection();
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the filter that restricts the serialization to a range of pages and/or a region of the
+   * pages.
+   * 
+   * @return The filter.
+   */
+  public ElementFilter getElementFilter() {
+    return this.filter;
+  }
+
+  /**
+   * Sets the filter that restricts the serialization to a range of pages and/or a region of the
+   * pages.
+   * 
+   * @param filter The filter.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setElementFilter(ElementFilter filter) {
+    this.filter = filter != null ? filter : new ElementFilter();
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the separator to write between the pages in the plain-text format.
+   * 
+   * @return The page separator.
+   */
+  public String getPageSeparator() {
+    return this.pageSeparator;
+  }
+
+  /**
+   * Sets the separator to write between the pages in the plain-text format. The separator may
+   * contain the placeholder {@link #PAGE_NUMBER_PLACEHOLDER}, which is replaced by the number of
+   * the page that follows the separator.
+   * 
+   * @param pageSeparator The page separator.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setPageSeparator(String pageSeparator) {
+    this.pageSeparator = pageSeparator != null ? pageSeparator : "";
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns true if the font faces and colors of the characters are encoded as style runs.
+   * 
+   * @return True if the font faces and colors are encoded as style runs, false otherwise.
+   */
+  public boolean isEncodingStyleRuns() {
+    return this.isEncodingStyleRuns;
+  }
+
+  /**
+   * Sets whether to encode the font faces and colors of the characters as style runs (in the JSON
+   * and XML formats). If enabled, the characters carry no font face and color; instead, a style
+   * record with the font face and the color is written to the characters section before each
+   * character whose font face or color differs from the ones of the previous character, and before
+   * the first character of each page. The style records are not counted in the indices by which
+   * words, text lines, text blocks and paragraphs refer to their characters.
+   * 
+   * @param isEncodingStyleRuns Whether to encode the font faces and colors as style runs.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setEncodingStyleRuns(boolean isEncodingStyleRuns) {
+    this.isEncodingStyleRuns = isEncodingStyleRuns;
+    return this;
+  }
+
+  /**
+   * Returns true if the elements are serialized in the compact schema of the format.
+   * 
+   * @return True if the compact schema is used, false otherwise.
+   */
+  public boolean isUsingCompactSchema() {
+    return this.isUsingCompactSchema;
+  }
+
+  /**
+   * Sets whether to serialize the elements in the compact schema of the format instead of the
+   * default schema. In the XML format, the scalar fields of an element (the page and the bounding
+   * box of its position, the id and size of its font, the id of its color, ...) are written as
+   * attributes of the element and the text of a character as its content, for example
+   * {@code <character page="1" minX="..." ... font="f1" font-size="10.0" color="c1">x</character>},
+   * so that each element is written on a single line. In the JSON format, each element is written
+   * as an array of its field values in a fixed order, for example
+   * {@code [1, 10.0, 700.0, 14.0, 712.0, "f1", 10.0, "c1", "x"]}, and the names of the fields per
+   * type of elements are written once, in a schema header. Both schemas are read by the
+   * deserializers.
+   * 
+   * @param isUsingCompactSchema Whether to use the compact schema.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setUsingCompactSchema(boolean isUsingCompactSchema) {
+    this.isUsingCompactSchema = isUsingCompactSchema;
+    return this;
+  }
+
+  /**
+   * Returns true if the fonts and colors sections are written before the sections of the elements.
+   * 
+   * @return True if the fonts and colors are written first, false otherwise.
+   */
+  public boolean isWritingDictionariesFirst() {
+    return this.isWritingDictionariesFirst;
+  }
+
+  /**
+   * Sets whether to write the fonts and colors sections in the JSON and XML formats before the
+   * sections of the elements instead of after them. The used fonts and colors are then collected
+   * in a pre-pass over the characters and shapes of the pages before the first element is written,
+   * which costs an additional iteration over the elements, but no serialization. A consumer that
+   * reads the serialization as a stream can then resolve the fonts and colors of the elements as
+   * they arrive, without buffering the elements until the end of the document.
+   * 
+   * @param isWritingDictionariesFirst Whether to write the fonts and colors first.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setWritingDictionariesFirst(boolean isWritingDictionariesFirst) {
+    this.isWritingDictionariesFirst = isWritingDictionariesFirst;
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the point in time by which the serialization must be finished.
+   * 
+   * @return The deadline, or null if there is none.
+   */
+  public Instant getDeadline() {
+    return this.deadline;
+  }
+
+  /**
+   * Sets the point in time by which the serialization must be finished. If the deadline passes
+   * during the serialization, the serialization is aborted with a
+   * {@link textextraction.serializer.exception.SerializationAbortedException}.
+   * 
+   * @param deadline The deadline, or null if there is none.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setDeadline(Instant deadline) {
+    this.deadline = deadline;
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the token by which the serialization can be cancelled.
+   * 
+   * @return The cancellation token, or null if there is none.
+   */
+  public CancellationToken getCancellationToken() {
+    return this.cancellationToken;
+  }
+
+  /**
+   * Sets the token by which the serialization can be cancelled (from any thread). If the token is
+   * cancelled during the serialization, the serialization is aborted with a
+   * {@link textextraction.serializer.exception.SerializationAbortedException}.
+   * 
+   * @param cancellationToken The cancellation token, or null if there is none.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setCancellationToken(CancellationToken cancellationToken) {
+    this.cancellationToken = cancellationToken;
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the maximum number of bytes of the serialization.
+   * 
+   * @return The maximum output size, or {@link Long#MAX_VALUE} if there is no limit.
+   */
+  public long getMaxOutputSize() {
+    return this.maxOutputSize;
+  }
+
+  /**
+   * Sets the maximum number of bytes of the serialization. If the serialization (including the
+   * bytes buffered but not yet written) grows beyond this size, the serialization is aborted with a
+   * {@link textextraction.serializer.exception.SerializationAbortedException}. When serializing in
+   * several formats at once, the limit applies to the sum of the sizes of all serializations.
+   * 
+   * @param maxOutputSize The maximum output size; a value &lt;= 0 means that there is no limit.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setMaxOutputSize(long maxOutputSize) {
+    this.maxOutputSize = maxOutputSize > 0 ? maxOutputSize : Long.MAX_VALUE;
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the width and height of the tiles of the spatial index built per page.
+   * 
+   * @return The tile size, or 0 if no index is built.
+   */
+  public float getTileSize() {
+    return this.tileSize;
+  }
+
+  /**
+   * Sets the width and height of the tiles of the spatial index to build per page (in the JSON and
+   * XML formats). If set, each page is divided into a grid of tiles of the given size, and the
+   * record of the page lists per tile the indices of the elements (in the sections of their types)
+   * whose bounding boxes overlap the tile (see {@link TileIndex}). Region queries can then be
+   * answered without scanning all elements of a page.
+   * 
+   * @param tileSize The tile size; a value &lt;= 0 means that no index is built.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setTileSize(float tileSize) {
+    this.tileSize = Math.max(0, tileSize);
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns true if content hashes of the pages and of the document are computed.
+   * 
+   * @return True if content hashes are computed, false otherwise.
+   */
+  public boolean isComputingContentHashes() {
+    return this.isComputingContentHashes || this.isEmbeddingContentHashes;
+  }
+
+  /**
+   * Sets whether to compute content hashes of the pages and of the document (in the JSON, XML and
+   * TEXT formats), while the serialization is written. The hash of a page is computed over a
+   * normalized form of the serialized elements of the page in all sections, independent of the
+   * number of the page, of the pages before it and of the ids of the fonts and colors, so that
+   * pages with the same content can be found across documents (see
+   * {@link textextraction.serializer.ContentHasher}). The hash of the document is computed over
+   * the whole serialization (except the pages section and the embedded hashes). The hashes are
+   * recorded in the {@link SerializationIndex} of the serialization.
+   * 
+   * @param isComputingContentHashes Whether to compute content hashes.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setComputingContentHashes(boolean isComputingContentHashes) {
+    this.isComputingContentHashes = isComputingContentHashes;
+    return this;
+  }
+
+  /**
+   * Returns true if the content hashes are embedded in the serialization.
+   * 
+   * @return True if the content hashes are embedded, false otherwise.
+   */
+  public boolean isEmbeddingContentHashes() {
+    return this.isEmbeddingContentHashes;
+  }
+
+  /**
+   * Sets whether to embed the content hashes in the serialization (in the JSON and XML formats):
+   * the hash of each page in the record of the page and the hash of the document after the pages
+   * section. Implies {@link #setComputingContentHashes(boolean)}.
+   * 
+   * @param isEmbeddingContentHashes Whether to embed the content hashes.
+   * 
+   * @return These options (for chaining calls).
+   */
+  public SerializationOptions setEmbeddingContentHashes(boolean isEmbeddingContentHashes) {
+    this.isEmbeddingContentHashes = isEmbeddingContentHashes;
+    return this;
+  }
+}
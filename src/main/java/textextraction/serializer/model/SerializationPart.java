@@ -0,0 +1,93 @@
+package textextraction.serializer.model;
+
+/**
+ * A part of a serialization that was split into several self-contained parts, covering a range of
+ * pages.
+ * 
+ * @author Claudius Korzen
+ */
+public class SerializationPart {
+  /**
+   * The number of this part (1-based).
+   */
+  protected int number;
+
+  /**
+   * The number of the first page of this part (inclusive).
+   */
+  protected int firstPage;
+
+  /**
+   * The number of the last page of this part (inclusive).
+   */
+  protected int lastPage;
+
+  /**
+   * The number of bytes of this part.
+   */
+  protected long size;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new part.
+   * 
+   * @param number    The number of the part (1-based).
+   * @param firstPage The number of the first page of the part (inclusive).
+   * @param lastPage  The number of the last page of the part (inclusive).
+   * @param size      The number of bytes of the part.
+   */
+  public SerializationPart(int number, int firstPage, int lastPage, long size) {
+    this.number = number;
+    this.firstPage = firstPage;
+    this.lastPage = lastPage;
+    this.size = size;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the number of this part.
+   * 
+   * @return The number of this part (1-based).
+   */
+  public int getNumber() {
+    return this.number;
+  }
+
+  /**
+   * Returns the number of the first page of this part.
+   * 
+   * @return The number of the first page of this part (inclusive).
+   */
+  public int getFirstPage() {
+    return this.firstPage;
+  }
+
+  /**
+   * Returns the number of the last page of this part.
+   * 
+   * @return The number of the last page of this part (inclusive).
+   */
+  public int getLastPage() {
+    return this.lastPage;
+  }
+
+  /**
+   * Returns the number of bytes of this part.
+   * 
+   * @return The number of bytes of this part.
+   */
+  public long getSize() {
+    return this.size;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public String toString() {
+    return "SerializationPart(" + this.number + ", pages " + this.firstPage + "-" + this.lastPage
+            + ", " + this.size + " bytes)";
+  }
+}
@@ -0,0 +1,63 @@
+package textextraction.serializer.model;
+
+import java.io.OutputStream;
+
+/**
+ * A target of a serialization: the format in which to serialize a document and the stream to
+ * write the serialization to. Used to serialize a document in several formats at once, by a single
+ * traversal of the document.
+ * 
+ * @author Claudius Korzen
+ */
+public class SerializationTarget {
+  /**
+   * The format of the serialization.
+   */
+  protected SerializationFormat format;
+
+  /**
+   * The stream to write the serialization to.
+   */
+  protected OutputStream out;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new serialization target.
+   * 
+   * @param format The format of the serialization.
+   * @param out    The stream to write the serialization to.
+   */
+  public SerializationTarget(SerializationFormat format, OutputStream out) {
+    this.format = format;
+    this.out = out;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the format of the serialization.
+   * 
+   * @return The format of the serialization.
+   */
+  public SerializationFormat getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Returns the stream to write the serialization to.
+   * 
+   * @return The stream to write the serialization to.
+   */
+  public OutputStream getOutputStream() {
+    return this.out;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public String toString() {
+    return "SerializationTarget(" + this.format + ")";
+  }
+}
@@ -0,0 +1,215 @@
+package textextraction.serializer.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Rectangle;
+
+/**
+ * A spatial index of the elements of a page: the page is divided into a grid of square tiles, and
+ * each element is listed in all tiles its bounding box overlaps. The elements are identified by
+ * their indices in the sections of their types in the serialization.
+ *
+ * <p>
+ * The tiles are numbered row by row, starting with 0 at the tile that contains the origin of the
+ * page; the tile in column c and row r has the number r * {@link #getNumColumns()} + c. Elements
+ * outside of the page are listed in the nearest tiles at the border of the page.
+ *
+ * @author Claudius Korzen
+ */
+public class TileIndex {
+  /**
+   * The width and height of a tile.
+   */
+  protected float tileSize;
+
+  /**
+   * The number of columns of the grid.
+   */
+  protected int numColumns;
+
+  /**
+   * The number of rows of the grid.
+   */
+  protected int numRows;
+
+  /**
+   * The indices of the elements per tile, per type of elements.
+   */
+  protected Map<ElementClass, SortedMap<Integer, List<Integer>>> tiles;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new, empty index of a page with the given size.
+   *
+   * @param tileSize The width and height of a tile.
+   * @param width    The width of the page.
+   * @param height   The height of the page.
+   */
+  public TileIndex(float tileSize, float width, float height) {
+    this.tileSize = tileSize;
+    this.numColumns = Math.max(1, (int) Math.ceil(width / tileSize));
+    this.numRows = Math.max(1, (int) Math.ceil(height / tileSize));
+    this.tiles = new EnumMap<>(ElementClass.class);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Adds the element with the given type and index to all tiles overlapped by the given bounding
+   * box.
+   *
+   * @param clazz        The type of the element.
+   * @param elementIndex The index of the element in the section of its type.
+   * @param rectangle    The bounding box of the element.
+   */
+  public void add(ElementClass clazz, int elementIndex, Rectangle rectangle) {
+    if (rectangle == null) {
+      return;
+    }
+
+    SortedMap<Integer, List<Integer>> clazzTiles = this.tiles.get(clazz);
+    if (clazzTiles == null) {
+      clazzTiles = new TreeMap<>();
+      this.tiles.put(clazz, clazzTiles);
+    }
+
+    int minColumn = getColumn(rectangle.getMinX());
+    int maxColumn = getColumn(rectangle.getMaxX());
+    int minRow = getRow(rectangle.getMinY());
+    int maxRow = getRow(rectangle.getMaxY());
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int column = minColumn; column <= maxColumn; column++) {
+        int tile = row * this.numColumns + column;
+        List<Integer> elementIndices = clazzTiles.get(tile);
+        if (elementIndices == null) {
+          elementIndices = new ArrayList<>();
+          clazzTiles.put(tile, elementIndices);
+        }
+        // An element with several positions may overlap a tile more than once.
+        if (elementIndices.isEmpty()
+                || elementIndices.get(elementIndices.size() - 1) != elementIndex) {
+          elementIndices.add(elementIndex);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the indices of the elements of the given type whose tiles overlap the given region.
+   * The result is a superset of the elements overlapping the region; the positions of the
+   * returned elements must be checked if an exact result is needed.
+   *
+   * @param clazz The type of the elements.
+   * @param minX  The minimum x-coordinate of the region.
+   * @param minY  The minimum y-coordinate of the region.
+   * @param maxX  The maximum x-coordinate of the region.
+   * @param maxY  The maximum y-coordinate of the region.
+   *
+   * @return The indices of the elements, in ascending order.
+   */
+  public SortedSet<Integer> query(ElementClass clazz, float minX, float minY, float maxX,
+          float maxY) {
+    SortedSet<Integer> result = new TreeSet<>();
+    SortedMap<Integer, List<Integer>> clazzTiles = this.tiles.get(clazz);
+    if (clazzTiles == null) {
+      return result;
+    }
+
+    for (int row = getRow(minY); row <= getRow(maxY); row++) {
+      for (int column = getColumn(minX); column <= getColumn(maxX); column++) {
+        List<Integer> elementIndices = clazzTiles.get(row * this.numColumns + column);
+        if (elementIndices != null) {
+          result.addAll(elementIndices);
+        }
+      }
+    }
+    return result;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the types of the indexed elements.
+   *
+   * @return The types of the indexed elements.
+   */
+  public Set<ElementClass> getElementClasses() {
+    return Collections.unmodifiableSet(this.tiles.keySet());
+  }
+
+  /**
+   * Returns the indices of the elements of the given type per (non-empty) tile.
+   *
+   * @param clazz The type of the elements.
+   *
+   * @return The indices of the elements per tile, ordered by the numbers of the tiles.
+   */
+  public SortedMap<Integer, List<Integer>> getTiles(ElementClass clazz) {
+    SortedMap<Integer, List<Integer>> clazzTiles = this.tiles.get(clazz);
+    return clazzTiles != null ? Collections.unmodifiableSortedMap(clazzTiles)
+            : Collections.emptySortedMap();
+  }
+
+  /**
+   * Returns the width and height of a tile.
+   *
+   * @return The tile size.
+   */
+  public float getTileSize() {
+    return this.tileSize;
+  }
+
+  /**
+   * Returns the number of columns of the grid.
+   *
+   * @return The number of columns.
+   */
+  public int getNumColumns() {
+    return this.numColumns;
+  }
+
+  /**
+   * Returns the number of rows of the grid.
+   *
+   * @return The number of rows.
+   */
+  public int getNumRows() {
+    return this.numRows;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the column of the grid that contains the given x-coordinate.
+   *
+   * @param x The x-coordinate.
+   *
+   * @return The column, clamped to the columns of the grid.
+   */
+  protected int getColumn(float x) {
+    return Math.min(this.numColumns - 1, Math.max(0, (int) (x / this.tileSize)));
+  }
+
+  /**
+   * Returns the row of the grid that contains the given y-coordinate.
+   *
+   * @param y The y-coordinate.
+   *
+   * @return The row, clamped to the rows of the grid.
+   */
+  protected int getRow(float y) {
+    return Math.min(this.numRows - 1, Math.max(0, (int) (y / this.tileSize)));
+  }
+}
@@ -0,0 +1,181 @@
+package textextraction.serializer.server;
+
+import textextraction.serializer.model.SerializationFormat;
+
+/**
+ * The metrics of a single request to a {@link SerializationServer}: the formats, the status of the
+ * response, the numbers of bytes read and written and the time spent in each phase of the request.
+ *
+ * @author Claudius Korzen
+ */
+public class RequestMetrics {
+  /**
+   * The id of the request, unique per server.
+   */
+  protected long requestId;
+
+  /**
+   * The format of the serialization in the request, or null if the request was rejected before it
+   * was parsed.
+   */
+  protected SerializationFormat sourceFormat;
+
+  /**
+   * The format of the serialization in the response, or null if the request was rejected before it
+   * was parsed.
+   */
+  protected SerializationFormat targetFormat;
+
+  /**
+   * The HTTP status code of the response.
+   */
+  protected int status;
+
+  /**
+   * The number of bytes read from the body of the request.
+   */
+  protected long numRequestBytes;
+
+  /**
+   * The number of bytes written to the body of the response.
+   */
+  protected long numResponseBytes;
+
+  /**
+   * The time the request waited for a worker, in nanoseconds.
+   */
+  protected long queueTime;
+
+  /**
+   * The time spent on reading and deserializing the request, in nanoseconds.
+   */
+  protected long deserializationTime;
+
+  /**
+   * The time spent on serializing and writing the response, in nanoseconds.
+   */
+  protected long serializationTime;
+
+  /**
+   * Whether the serialization failed after the response was started, so that the response was
+   * truncated.
+   */
+  protected boolean isAborted;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates new metrics of the request with the given id.
+   *
+   * @param requestId The id of the request.
+   */
+  public RequestMetrics(long requestId) {
+    this.requestId = requestId;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the id of the request, unique per server.
+   *
+   * @return The id of the request.
+   */
+  public long getRequestId() {
+    return this.requestId;
+  }
+
+  /**
+   * Returns the format of the serialization in the request.
+   *
+   * @return The format, or null if the request was rejected before it was parsed.
+   */
+  public SerializationFormat getSourceFormat() {
+    return this.sourceFormat;
+  }
+
+  /**
+   * Returns the format of the serialization in the response.
+   *
+   * @return The format, or null if the request was rejected before it was parsed.
+   */
+  public SerializationFormat getTargetFormat() {
+    return this.targetFormat;
+  }
+
+  /**
+   * Returns the HTTP status code of the response.
+   *
+   * @return The status code.
+   */
+  public int getStatus() {
+    return this.status;
+  }
+
+  /**
+   * Returns the number of bytes read from the body of the request.
+   *
+   * @return The number of bytes.
+   */
+  public long getNumRequestBytes() {
+    return this.numRequestBytes;
+  }
+
+  /**
+   * Returns the number of bytes written to the body of the response.
+   *
+   * @return The number of bytes.
+   */
+  public long getNumResponseBytes() {
+    return this.numResponseBytes;
+  }
+
+  /**
+   * Returns the time the request waited for a worker.
+   *
+   * @return The time in nanoseconds.
+   */
+  public long getQueueTime() {
+    return this.queueTime;
+  }
+
+  /**
+   * Returns the time spent on reading and deserializing the request.
+   *
+   * @return The time in nanoseconds.
+   */
+  public long getDeserializationTime() {
+    return this.deserializationTime;
+  }
+
+  /**
+   * Returns the time spent on serializing and writing the response.
+   *
+   * @return The time in nanoseconds.
+   */
+  public long getSerializationTime() {
+    return this.serializationTime;
+  }
+
+  /**
+   * Returns true if the serialization failed after the response was started, so that the response
+   * was truncated.
+   *
+   * @return True if the response was truncated, false otherwise.
+   */
+  public boolean isAborted() {
+    return this.isAborted;
+  }
+
+  // ==============================================================================================
+
+  @Override
+  public String toString() {
+    return "RequestMetrics(id: " + this.requestId + ", " + this.sourceFormat + " -> "
+            + this.targetFormat + ", status: " + this.status + ", aborted: " + this.isAborted
+            + ", in: " + this.numRequestBytes + " bytes, out: " + this.numResponseBytes
+            + " bytes, queue: " + this.queueTime / 1000 + " us, deserialization: "
+            + this.deserializationTime / 1000 + " us, serialization: "
+            + this.serializationTime / 1000 + " us)";
+  }
+}
@@ -0,0 +1,818 @@
+package textextraction.serializer.server;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.serializer.DocumentDeserializer;
+import textextraction.serializer.DocumentSerializer;
+import textextraction.serializer.buffer.CountingOutputStream;
+import textextraction.serializer.exception.DeserializerException;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A small HTTP server, based on the HTTP server of the JDK, that converts serializations of
+ * documents between formats, so that services that don't run on the JVM can use the serializers
+ * without reimplementing them.
+ *
+ * <p>
+ * A request {@code POST /serialize?from=<format>&to=<format>} with a serialization in the format
+ * "from" as its body is answered with the serialization of the deserialized document in the format
+ * "to" (by default, the format "from"). The response is streamed as it is serialized, with chunked
+ * transfer encoding. The further parameters are:
+ * <ul>
+ * <li>{@code clazzes}: the types of elements to serialize, separated by commas (for example,
+ * {@code characters,text_lines}); by default all types.</li>
+ * <li>{@code compact}, {@code styleRuns}, {@code dictionariesFirst}, {@code contentHashes}:
+ * {@code true} to set the respective {@link SerializationOptions}.</li>
+ * </ul>
+ * A request {@code GET /metrics} is answered with the aggregated metrics of the server, as plain
+ * text with a metric per line.
+ *
+ * <p>
+ * The requests are served by a bounded pool of workers. If all workers are busy, a request waits
+ * in a bounded queue; if the queue is full, the request is rejected with status 503, by a single
+ * rejecting thread with a bounded queue of its own (or, if that queue is full as well, by the
+ * dispatching thread of the HTTP server). Each request is limited in size (status 413 if
+ * exceeded) and in time: the serialization is aborted at the request timeout (see
+ * {@link SerializationOptions#setDeadline(Instant)}). An error is sent immediately, with
+ * {@code Connection: close}; afterwards, at most {@link #MAX_DISCARDED_BYTES} of the unread rest
+ * of the request are discarded, so that a client that is still sending a small request receives
+ * the error instead of a reset connection, while a large request costs no more than that. If a
+ * serialization fails after the response was started, the connection is closed without finishing
+ * the chunked response, so that the client can tell a truncated response from a complete one
+ * (such a request is counted as a server error in the metrics). The metrics of each request are
+ * passed to the metrics listener, if any.
+ *
+ * @author Claudius Korzen
+ */
+public class SerializationServer implements Closeable {
+  /**
+   * The path of the serialization endpoint.
+   */
+  public static final String SERIALIZE_PATH = "/serialize";
+
+  /**
+   * The path of the metrics endpoint.
+   */
+  public static final String METRICS_PATH = "/metrics";
+
+  /**
+   * The default port.
+   */
+  public static final int DEFAULT_PORT = 8642;
+
+  /**
+   * The default number of workers.
+   */
+  public static final int DEFAULT_NUM_WORKERS = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * The default maximum number of requests waiting for a worker.
+   */
+  public static final int DEFAULT_MAX_QUEUED_REQUESTS = 64;
+
+  /**
+   * The default maximum size of the body of a request (64 MB).
+   */
+  public static final long DEFAULT_MAX_REQUEST_SIZE = 64L * 1024 * 1024;
+
+  /**
+   * The default timeout of a request.
+   */
+  public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofMinutes(1);
+
+  /**
+   * The maximum number of bytes of the unread rest of a request that are discarded after an error
+   * was sent (64 KB).
+   */
+  public static final int MAX_DISCARDED_BYTES = 64 * 1024;
+
+  /**
+   * The time to wait for running requests on closing the server, in seconds.
+   */
+  protected static final int SHUTDOWN_DELAY = 5;
+
+  /**
+   * The content types of the serializations per format.
+   */
+  protected static final Map<SerializationFormat, String> CONTENT_TYPES = new HashMap<>();
+
+  static {
+    CONTENT_TYPES.put(SerializationFormat.JSON, "application/json; charset=utf-8");
+    CONTENT_TYPES.put(SerializationFormat.XML, "application/xml; charset=utf-8");
+    CONTENT_TYPES.put(SerializationFormat.BINARY, "application/octet-stream");
+    CONTENT_TYPES.put(SerializationFormat.TEXT, "text/plain; charset=utf-8");
+  }
+
+  /**
+   * The task that is currently run by the current worker (or by the rejecting thread).
+   */
+  protected static final ThreadLocal<Task> CURRENT_TASK = new ThreadLocal<>();
+
+  /**
+   * The underlying HTTP server.
+   */
+  protected HttpServer server;
+
+  /**
+   * The workers that serve the requests.
+   */
+  protected ThreadPoolExecutor workers;
+
+  /**
+   * The thread that answers the requests rejected by the workers.
+   */
+  protected ThreadPoolExecutor rejector;
+
+  /**
+   * The serializer.
+   */
+  protected DocumentSerializer serializer;
+
+  /**
+   * The deserializer.
+   */
+  protected DocumentDeserializer deserializer;
+
+  /**
+   * The maximum size of the body of a request.
+   */
+  protected long maxRequestSize;
+
+  /**
+   * The timeout of a request.
+   */
+  protected Duration requestTimeout;
+
+  /**
+   * The listener of the metrics of the requests, or null if there is none.
+   */
+  protected Consumer<RequestMetrics> metricsListener;
+
+  // ==============================================================================================
+  // The aggregated metrics.
+
+  /**
+   * The id of the latest request.
+   */
+  protected AtomicLong lastRequestId = new AtomicLong();
+
+  /**
+   * The number of requests currently served.
+   */
+  protected AtomicInteger numActiveRequests = new AtomicInteger();
+
+  /**
+   * The number of finished requests, per class of status codes (2xx, 4xx, 5xx).
+   */
+  protected AtomicLong[] numRequestsPerStatus = { new AtomicLong(), new AtomicLong(),
+      new AtomicLong() };
+
+  /**
+   * The number of requests rejected because the queue was full.
+   */
+  protected AtomicLong numRejectedRequests = new AtomicLong();
+
+  /**
+   * The number of responses truncated because the serialization failed.
+   */
+  protected AtomicLong numAbortedRequests = new AtomicLong();
+
+  /**
+   * The number of bytes read from the bodies of all requests.
+   */
+  protected AtomicLong numRequestBytes = new AtomicLong();
+
+  /**
+   * The number of bytes written to the bodies of all responses.
+   */
+  protected AtomicLong numResponseBytes = new AtomicLong();
+
+  /**
+   * The total time the requests waited for a worker, in nanoseconds.
+   */
+  protected AtomicLong queueTime = new AtomicLong();
+
+  /**
+   * The total time spent on deserializing the requests, in nanoseconds.
+   */
+  protected AtomicLong deserializationTime = new AtomicLong();
+
+  /**
+   * The total time spent on serializing the responses, in nanoseconds.
+   */
+  protected AtomicLong serializationTime = new AtomicLong();
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new server on the loopback address with the default port, the default number of
+   * workers and the default maximum number of queued requests.
+   *
+   * @throws IOException If the server couldn't be bound to the address.
+   */
+  public SerializationServer() throws IOException {
+    this(new InetSocketAddress(InetAddress.getLoopbackAddress(), DEFAULT_PORT),
+            DEFAULT_NUM_WORKERS, DEFAULT_MAX_QUEUED_REQUESTS);
+  }
+
+  /**
+   * Creates a new server. The server is bound to the given address, but doesn't accept requests
+   * until {@link #start()} is called.
+   *
+   * @param address           The address to bind the server to (port 0 to pick a free port).
+   * @param numWorkers        The number of requests to serve concurrently.
+   * @param maxQueuedRequests The maximum number of requests waiting for a worker.
+   *
+   * @throws IOException If the server couldn't be bound to the address.
+   */
+  public SerializationServer(InetSocketAddress address, int numWorkers, int maxQueuedRequests)
+          throws IOException {
+    if (numWorkers < 1) {
+      throw new IllegalArgumentException("The number of workers must be positive.");
+    }
+    if (maxQueuedRequests < 1) {
+      throw new IllegalArgumentException("The maximum number of queued requests must be positive.");
+    }
+    this.serializer = new DocumentSerializer();
+    this.deserializer = new DocumentDeserializer();
+    this.maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+    this.requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    AtomicInteger numWorkerThreads = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(numWorkers, numWorkers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxQueuedRequests), r -> newThread(r,
+                    "serialization-worker-" + numWorkerThreads.incrementAndGet()));
+    // If the rejecting thread can't keep up either, the dispatching thread answers the requests.
+    this.rejector = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxQueuedRequests),
+            r -> newThread(r, "serialization-rejector"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    this.server = HttpServer.create(address, 0);
+    this.server.setExecutor(this::dispatch);
+    this.server.createContext(SERIALIZE_PATH, this::handleSerialize);
+    this.server.createContext(METRICS_PATH, this::handleMetrics);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Runs a server on the loopback address until the process is terminated.
+   *
+   * @param args The port (optional, {@link #DEFAULT_PORT} by default), the number of workers
+   *             (optional) and the maximum number of queued requests (optional).
+   *
+   * @throws IOException If the server couldn't be started.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    int numWorkers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUM_WORKERS;
+    int maxQueuedRequests = args.length > 2 ? Integer.parseInt(args[2])
+            : DEFAULT_MAX_QUEUED_REQUESTS;
+
+    SerializationServer server = new SerializationServer(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), numWorkers,
+            maxQueuedRequests);
+    server.setMetricsListener(System.out::println);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    server.start();
+    System.out.println("Serving on http://" + server.getAddress().getHostString() + ":"
+            + server.getAddress().getPort() + SERIALIZE_PATH);
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Starts to accept requests.
+   */
+  public void start() {
+    this.server.start();
+  }
+
+  /**
+   * Stops to accept requests, waits up to {@link #SHUTDOWN_DELAY} seconds for the running requests
+   * and stops the workers.
+   */
+  @Override
+  public void close() {
+    this.server.stop(SHUTDOWN_DELAY);
+    this.workers.shutdownNow();
+    this.rejector.shutdownNow();
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Returns the address the server is bound to.
+   *
+   * @return The address.
+   */
+  public InetSocketAddress getAddress() {
+    return this.server.getAddress();
+  }
+
+  /**
+   * Returns the maximum size of the body of a request.
+   *
+   * @return The maximum size in bytes.
+   */
+  public long getMaxRequestSize() {
+    return this.maxRequestSize;
+  }
+
+  /**
+   * Sets the maximum size of the body of a request. Larger requests are rejected with status 413.
+   *
+   * @param maxRequestSize The maximum size in bytes.
+   *
+   * @return This server (for chaining calls).
+   */
+  public SerializationServer setMaxRequestSize(long maxRequestSize) {
+    this.maxRequestSize = maxRequestSize;
+    return this;
+  }
+
+  /**
+   * Returns the timeout of a request.
+   *
+   * @return The timeout.
+   */
+  public Duration getRequestTimeout() {
+    return this.requestTimeout;
+  }
+
+  /**
+   * Sets the timeout of a request, measured from the start of the serialization of the response.
+   * A serialization that exceeds the timeout is aborted.
+   *
+   * @param requestTimeout The timeout.
+   *
+   * @return This server (for chaining calls).
+   */
+  public SerializationServer setRequestTimeout(Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+    return this;
+  }
+
+  /**
+   * Returns the listener of the metrics of the requests.
+   *
+   * @return The listener, or null if there is none.
+   */
+  public Consumer<RequestMetrics> getMetricsListener() {
+    return this.metricsListener;
+  }
+
+  /**
+   * Sets the listener of the metrics of the requests. The listener is called by the workers after
+   * each request (also for rejected and failed requests), so it must be thread-safe and fast.
+   *
+   * @param metricsListener The listener, or null to not pass the metrics to a listener.
+   *
+   * @return This server (for chaining calls).
+   */
+  public SerializationServer setMetricsListener(Consumer<RequestMetrics> metricsListener) {
+    this.metricsListener = metricsListener;
+    return this;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Passes the given exchange of the HTTP server to the workers or, if the queue of the workers is
+   * full, to the rejecting thread (or, if its queue is full as well, runs it on the current
+   * thread), which answers it with status 503.
+   *
+   * @param exchange The exchange (as a runnable of the HTTP server).
+   */
+  protected void dispatch(Runnable exchange) {
+    Task task = new Task(exchange, System.nanoTime());
+    try {
+      this.workers.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.isRejected = true;
+      this.rejector.execute(task);
+    }
+  }
+
+  /**
+   * Handles a request to the serialization endpoint.
+   *
+   * @param exchange The exchange.
+   *
+   * @throws IOException If the serialization failed after the response was started.
+   */
+  protected void handleSerialize(HttpExchange exchange) throws IOException {
+    Task task = CURRENT_TASK.get();
+    RequestMetrics metrics = new RequestMetrics(this.lastRequestId.incrementAndGet());
+    metrics.queueTime = task != null ? task.startTime - task.queueTime : 0;
+    exchange.getResponseHeaders().set("X-Request-Id", String.valueOf(metrics.requestId));
+    this.numActiveRequests.incrementAndGet();
+    try {
+      if (task != null && task.isRejected) {
+        this.numRejectedRequests.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, metrics, 503, "Too many requests are queued.");
+        return;
+      }
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        sendError(exchange, metrics, 405, "Only POST is supported.");
+        return;
+      }
+
+      // Parse the parameters.
+      Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+      List<ElementClass> clazzes;
+      SerializationOptions options;
+      try {
+        String from = params.get("from");
+        if (from == null) {
+          throw new IllegalArgumentException("The parameter 'from' is missing.");
+        }
+        metrics.sourceFormat = SerializationFormat.fromString(from);
+        String to = params.get("to");
+        metrics.targetFormat = to != null ? SerializationFormat.fromString(to)
+                : metrics.sourceFormat;
+        clazzes = parseElementClasses(params.get("clazzes"));
+        options = new SerializationOptions()
+                .setUsingCompactSchema(Boolean.parseBoolean(params.get("compact")))
+                .setEncodingStyleRuns(Boolean.parseBoolean(params.get("styleRuns")))
+                .setWritingDictionariesFirst(Boolean.parseBoolean(params.get("dictionariesFirst")))
+                .setEmbeddingContentHashes(Boolean.parseBoolean(params.get("contentHashes")));
+      } catch (IllegalArgumentException e) {
+        sendError(exchange, metrics, 400, e.getMessage());
+        return;
+      }
+
+      // Read and deserialize the request.
+      long start = System.nanoTime();
+      LimitedInputStream in = new LimitedInputStream(exchange.getRequestBody(),
+              this.maxRequestSize);
+      Document doc;
+      try {
+        doc = this.deserializer.deserialize(in, metrics.sourceFormat);
+      } catch (DeserializerException | RuntimeException e) {
+        // The deserializers may fail on malformed input with unchecked exceptions as well.
+        metrics.numRequestBytes = in.numBytes;
+        metrics.deserializationTime = System.nanoTime() - start;
+        if (in.isLimitExceeded) {
+          sendError(exchange, metrics, 413, "The request exceeds " + this.maxRequestSize
+                  + " bytes.");
+        } else {
+          sendError(exchange, metrics, 400, "The request couldn't be deserialized: "
+                  + e.getMessage());
+        }
+        return;
+      }
+      metrics.numRequestBytes = in.numBytes;
+      metrics.deserializationTime = System.nanoTime() - start;
+
+      // Serialize and stream the response.
+      start = System.nanoTime();
+      options.setDeadline(Instant.now().plus(this.requestTimeout));
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPES.get(metrics.targetFormat));
+      exchange.sendResponseHeaders(200, 0);
+      metrics.status = 200;
+      CountingOutputStream out = new CountingOutputStream(exchange.getResponseBody());
+      try {
+        this.serializer.serialize(doc, metrics.targetFormat, clazzes, options, out);
+        out.close();
+      } catch (SerializerException | IOException | RuntimeException e) {
+        // The status is sent already. Close the connection without finishing the chunked
+        // response, so that the client notices that the response is incomplete.
+        metrics.isAborted = true;
+        throw e instanceof IOException ? (IOException) e
+                : new IOException("The serialization was aborted.", e);
+      } finally {
+        metrics.numResponseBytes = out.getNumBytes();
+        metrics.serializationTime = System.nanoTime() - start;
+      }
+    } finally {
+      this.numActiveRequests.decrementAndGet();
+      if (!metrics.isAborted) {
+        exchange.close();
+      }
+      finish(metrics);
+    }
+  }
+
+  /**
+   * Handles a request to the metrics endpoint.
+   *
+   * @param exchange The exchange.
+   *
+   * @throws IOException If writing the response failed.
+   */
+  protected void handleMetrics(HttpExchange exchange) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    appendMetric(sb, "requests_active", this.numActiveRequests.get());
+    appendMetric(sb, "requests_queued", this.workers.getQueue().size());
+    appendMetric(sb, "requests_2xx_total", this.numRequestsPerStatus[0].get());
+    appendMetric(sb, "requests_4xx_total", this.numRequestsPerStatus[1].get());
+    appendMetric(sb, "requests_5xx_total", this.numRequestsPerStatus[2].get());
+    appendMetric(sb, "requests_rejected_total", this.numRejectedRequests.get());
+    appendMetric(sb, "requests_aborted_total", this.numAbortedRequests.get());
+    appendMetric(sb, "request_bytes_total", this.numRequestBytes.get());
+    appendMetric(sb, "response_bytes_total", this.numResponseBytes.get());
+    appendMetric(sb, "queue_time_nanos_total", this.queueTime.get());
+    appendMetric(sb, "deserialization_time_nanos_total", this.deserializationTime.get());
+    appendMetric(sb, "serialization_time_nanos_total", this.serializationTime.get());
+
+    byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Answers the given exchange with the given status and message and closes the connection
+   * afterwards. The unread rest of the request is discarded up to {@link #MAX_DISCARDED_BYTES}.
+   *
+   * @param exchange The exchange.
+   * @param metrics  The metrics of the request.
+   * @param status   The status code.
+   * @param message  The message.
+   *
+   * @throws IOException If writing the response failed.
+   */
+  protected void sendError(HttpExchange exchange, RequestMetrics metrics, int status,
+          String message) throws IOException {
+    metrics.status = status;
+    byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.getResponseHeaders().set("Connection", "close");
+    exchange.sendResponseHeaders(status, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.flush();
+    discard(exchange.getRequestBody(), MAX_DISCARDED_BYTES);
+  }
+
+  /**
+   * Adds the given metrics of a finished request to the aggregated metrics and passes them to the
+   * metrics listener.
+   *
+   * @param metrics The metrics of the request.
+   */
+  protected void finish(RequestMetrics metrics) {
+    // An aborted serialization is a server error, although the response was started with 200.
+    if (metrics.isAborted || metrics.status >= 500) {
+      this.numRequestsPerStatus[2].incrementAndGet();
+    } else if (metrics.status >= 200 && metrics.status < 300) {
+      this.numRequestsPerStatus[0].incrementAndGet();
+    } else if (metrics.status >= 400 && metrics.status < 500) {
+      this.numRequestsPerStatus[1].incrementAndGet();
+    }
+    if (metrics.isAborted) {
+      this.numAbortedRequests.incrementAndGet();
+    }
+    this.numRequestBytes.addAndGet(metrics.numRequestBytes);
+    this.numResponseBytes.addAndGet(metrics.numResponseBytes);
+    this.queueTime.addAndGet(metrics.queueTime);
+    this.deserializationTime.addAndGet(metrics.deserializationTime);
+    this.serializationTime.addAndGet(metrics.serializationTime);
+
+    Consumer<RequestMetrics> listener = this.metricsListener;
+    if (listener != null) {
+      listener.accept(metrics);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Parses the given query string of a URI.
+   *
+   * @param query The raw (encoded) query string, or null if there is none.
+   *
+   * @return The values of the parameters per name.
+   */
+  protected static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<>();
+    if (query == null || query.isEmpty()) {
+      return params;
+    }
+    for (String param : query.split("&")) {
+      int separator = param.indexOf('=');
+      String name = separator < 0 ? param : param.substring(0, separator);
+      String value = separator < 0 ? "" : param.substring(separator + 1);
+      params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+              URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  /**
+   * Parses the given types of elements.
+   *
+   * @param clazzes The names of the types, separated by commas (for example,
+   *                "characters,text_lines"), or null to select all types.
+   *
+   * @return The types of elements.
+   */
+  protected static List<ElementClass> parseElementClasses(String clazzes) {
+    if (clazzes == null || clazzes.isEmpty()) {
+      return ElementClass.getElementClasses();
+    }
+    List<ElementClass> result = new ArrayList<>();
+    for (String name : clazzes.split(",")) {
+      String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+      try {
+        result.add(ElementClass.valueOf(normalized));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(name + " isn't a valid element class.");
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads and discards up to the given number of bytes from the given stream.
+   *
+   * @param in       The stream.
+   * @param maxBytes The maximum number of bytes to discard.
+   *
+   * @throws IOException If reading the stream failed.
+   */
+  protected static void discard(InputStream in, long maxBytes) throws IOException {
+    byte[] buffer = new byte[8192];
+    long numBytes = 0;
+    int numRead;
+    while (numBytes < maxBytes && (numRead = in.read(buffer)) >= 0) {
+      numBytes += numRead;
+    }
+  }
+
+  /**
+   * Appends the given metric as a line to the given builder.
+   *
+   * @param sb    The builder.
+   * @param name  The name of the metric.
+   * @param value The value of the metric.
+   */
+  protected static void appendMetric(StringBuilder sb, String name, long value) {
+    sb.append(name).append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Creates a daemon thread with the given name that runs the given runnable.
+   *
+   * @param runnable The runnable.
+   * @param name     The name of the thread.
+   *
+   * @return The thread.
+   */
+  protected static Thread newThread(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * An exchange of the HTTP server, with the point in time it was queued.
+   */
+  protected static class Task implements Runnable {
+    /**
+     * The exchange (as a runnable of the HTTP server).
+     */
+    protected Runnable exchange;
+
+    /**
+     * The point in time the exchange was queued, in nanoseconds.
+     */
+    protected long queueTime;
+
+    /**
+     * The point in time a worker started to run the exchange, in nanoseconds.
+     */
+    protected long startTime;
+
+    /**
+     * Whether the exchange was rejected because the queue was full.
+     */
+    protected boolean isRejected;
+
+    /**
+     * Creates a new task.
+     *
+     * @param exchange  The exchange (as a runnable of the HTTP server).
+     * @param queueTime The point in time the exchange was queued, in nanoseconds.
+     */
+    protected Task(Runnable exchange, long queueTime) {
+      this.exchange = exchange;
+      this.queueTime = queueTime;
+    }
+
+    @Override
+    public void run() {
+      this.startTime = System.nanoTime();
+      CURRENT_TASK.set(this);
+      try {
+        this.exchange.run();
+      } finally {
+        CURRENT_TASK.remove();
+      }
+    }
+  }
+
+  /**
+   * A stream that counts the bytes read from the underlying stream and fails if more than a
+   * maximum number of bytes are read.
+   */
+  protected static class LimitedInputStream extends FilterInputStream {
+    /**
+     * The maximum number of bytes to read.
+     */
+    protected long maxBytes;
+
+    /**
+     * The number of bytes read so far.
+     */
+    protected long numBytes;
+
+    /**
+     * Whether more than the maximum number of bytes were read.
+     */
+    protected boolean isLimitExceeded;
+
+    /**
+     * Creates a new stream.
+     *
+     * @param in       The underlying stream.
+     * @param maxBytes The maximum number of bytes to read.
+     */
+    protected LimitedInputStream(InputStream in, long maxBytes) {
+      super(in);
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int numRead = super.read(bytes, offset, length);
+      if (numRead > 0) {
+        count(numRead);
+      }
+      return numRead;
+    }
+
+    /**
+     * Counts the given number of read bytes.
+     *
+     * @param numRead The number of read bytes.
+     *
+     * @throws IOException If more than the maximum number of bytes were read.
+     */
+    protected void count(int numRead) throws IOException {
+      this.numBytes += numRead;
+      if (this.numBytes > this.maxBytes) {
+        this.isLimitExceeded = true;
+        throw new IOException("The request exceeds " + this.maxBytes + " bytes.");
+      }
+    }
+  }
+}
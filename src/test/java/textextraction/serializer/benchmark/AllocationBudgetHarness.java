@@ -0,0 +1,411 @@
+package textextraction.serializer.benchmark;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import textextraction.common.models.Character;
+import textextraction.common.models.Color;
+import textextraction.common.models.Document;
+import textextraction.common.models.ElementClass;
+import textextraction.common.models.Figure;
+import textextraction.common.models.Font;
+import textextraction.common.models.FontFace;
+import textextraction.common.models.Page;
+import textextraction.common.models.Paragraph;
+import textextraction.common.models.Position;
+import textextraction.common.models.Rectangle;
+import textextraction.common.models.SemanticRole;
+import textextraction.common.models.Shape;
+import textextraction.common.models.TextBlock;
+import textextraction.common.models.TextLine;
+import textextraction.common.models.Word;
+import textextraction.serializer.DocumentSerializer;
+import textextraction.serializer.exception.SerializerException;
+import textextraction.serializer.model.SerializationFormat;
+import textextraction.serializer.model.SerializationOptions;
+
+/**
+ * A harness that guards the allocation rate of the serializers against regressions: it serializes
+ * a synthetic reference document in each format, measures the bytes allocated by the serializing
+ * thread (by {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}) and compares
+ * the allocated bytes per serialized element against a budget per format.
+ *
+ * <p>
+ * Each format is serialized {@link #NUM_WARMUP_RUNS} times to warm up the JIT compiler, the
+ * buffer pool and the caches, and then {@link #NUM_MEASURED_RUNS} times; the minimum of the
+ * measured runs is compared against the budget, so that allocations of the JVM itself (for
+ * example, by the JIT compiler on the same thread) don't cause false alarms. The serializations
+ * are written to a null stream, so that the output itself isn't counted.
+ *
+ * <p>
+ * The harness is part of the test sources (so it is not shipped with the serializers) and is run by
+ * its {@link #main(String[])} method from the test classpath (for example, in a CI job). It prints
+ * a report and terminates with exit code 1 if a format exceeded its budget, and with exit code 2
+ * if the JVM doesn't support measuring the allocated bytes per thread. A change that deliberately
+ * increases the allocations must raise the budget in {@link #BUDGETS} in the same commit.
+ *
+ * @author Claudius Korzen
+ */
+public class AllocationBudgetHarness {
+  /**
+   * The maximum number of bytes allocated per serialized element, per format. The budgets are
+   * about 5% above the values measured on JDK 17 (XML: 4706, JSON: 1009, BINARY: 121.3, TEXT:
+   * 2.3), so that a regression is noticed early; a budget of a few bytes is rounded up to whole
+   * bytes. The allocations of XML are dominated by the intermediate strings built per element (the
+   * lines of the nested tags and their indentation).
+   */
+  public static final Map<SerializationFormat, Long> BUDGETS = new EnumMap<>(
+          SerializationFormat.class);
+
+  static {
+    BUDGETS.put(SerializationFormat.JSON, 1060L);
+    BUDGETS.put(SerializationFormat.XML, 4950L);
+    BUDGETS.put(SerializationFormat.BINARY, 128L);
+    BUDGETS.put(SerializationFormat.TEXT, 3L);
+  }
+
+  /**
+   * The types of elements to serialize.
+   */
+  protected static final List<ElementClass> CLAZZES = ElementClass.getElementClasses();
+
+  /**
+   * The number of pages of the reference document.
+   */
+  protected static final int NUM_PAGES = 20;
+
+  /**
+   * The number of characters per page of the reference document.
+   */
+  protected static final int NUM_CHARACTERS_PER_PAGE = 2500;
+
+  /**
+   * The number of characters per text line of the reference document.
+   */
+  protected static final int NUM_CHARACTERS_PER_LINE = 100;
+
+  /**
+   * The number of text lines per text block (and paragraph) of the reference document.
+   */
+  protected static final int NUM_LINES_PER_BLOCK = 5;
+
+  /**
+   * The number of figures and of shapes per page of the reference document.
+   */
+  protected static final int NUM_GRAPHICS_PER_PAGE = 25;
+
+  /**
+   * The number of runs per format before measuring.
+   */
+  protected static final int NUM_WARMUP_RUNS = 10;
+
+  /**
+   * The number of measured runs per format.
+   */
+  protected static final int NUM_MEASURED_RUNS = 5;
+
+  /**
+   * The exit code if a format exceeded its budget.
+   */
+  protected static final int EXIT_OVER_BUDGET = 1;
+
+  /**
+   * The exit code if the allocated bytes can't be measured.
+   */
+  protected static final int EXIT_UNSUPPORTED = 2;
+
+  /**
+   * The bean to measure the allocated bytes of the current thread.
+   */
+  protected com.sun.management.ThreadMXBean threadBean;
+
+  /**
+   * The serializer to measure.
+   */
+  protected DocumentSerializer serializer;
+
+  /**
+   * The options that control the serializations.
+   */
+  protected SerializationOptions options;
+
+  // ==============================================================================================
+  // Constructors.
+
+  /**
+   * Creates a new harness that measures the given serializer.
+   *
+   * @param threadBean The bean to measure the allocated bytes of the current thread.
+   * @param serializer The serializer to measure.
+   * @param options    The options that control the serializations.
+   */
+  public AllocationBudgetHarness(com.sun.management.ThreadMXBean threadBean,
+          DocumentSerializer serializer, SerializationOptions options) {
+    this.threadBean = threadBean;
+    this.serializer = serializer;
+    this.options = options;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Runs the harness on all formats with a budget.
+   *
+   * @param args The command line arguments (not used).
+   *
+   * @throws SerializerException If a serialization failed.
+   */
+  public static void main(String[] args) throws SerializerException {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      System.err.println("The JVM doesn't support measuring the allocated bytes per thread.");
+      System.exit(EXIT_UNSUPPORTED);
+    }
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+    if (!threadBean.isThreadAllocatedMemorySupported()) {
+      System.err.println("The JVM doesn't support measuring the allocated bytes per thread.");
+      System.exit(EXIT_UNSUPPORTED);
+    }
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    AllocationBudgetHarness harness = new AllocationBudgetHarness(threadBean,
+            new DocumentSerializer(), new SerializationOptions());
+    Document doc = createReferenceDocument();
+
+    List<SerializationFormat> overBudget = new ArrayList<>();
+    for (Map.Entry<SerializationFormat, Long> budget : BUDGETS.entrySet()) {
+      SerializationFormat format = budget.getKey();
+      long numElements = countElements(doc, format);
+      long allocatedBytes = harness.measure(doc, format);
+      double bytesPerElement = (double) allocatedBytes / numElements;
+      boolean isOverBudget = bytesPerElement > budget.getValue();
+      System.out.println(String.format("%-6s %10d elements %14d bytes %8.1f bytes/element "
+              + "(budget: %d) %s", format, numElements, allocatedBytes, bytesPerElement,
+              budget.getValue(), isOverBudget ? "OVER BUDGET" : "ok"));
+      if (isOverBudget) {
+        overBudget.add(format);
+      }
+    }
+
+    if (!overBudget.isEmpty()) {
+      System.err.println("The allocation budget was exceeded by: " + overBudget);
+      System.exit(EXIT_OVER_BUDGET);
+    }
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Measures the bytes allocated by the current thread on serializing the given document in the
+   * given format.
+   *
+   * @param doc    The document to serialize.
+   * @param format The format of the serialization.
+   *
+   * @return The minimum number of allocated bytes of the measured runs.
+   *
+   * @throws SerializerException If a serialization failed.
+   */
+  public long measure(Document doc, SerializationFormat format) throws SerializerException {
+    long threadId = Thread.currentThread().getId();
+    OutputStream out = OutputStream.nullOutputStream();
+
+    for (int i = 0; i < NUM_WARMUP_RUNS; i++) {
+      this.serializer.serialize(doc, format, CLAZZES, this.options, out);
+    }
+
+    long minAllocatedBytes = Long.MAX_VALUE;
+    for (int i = 0; i < NUM_MEASURED_RUNS; i++) {
+      long before = this.threadBean.getThreadAllocatedBytes(threadId);
+      this.serializer.serialize(doc, format, CLAZZES, this.options, out);
+      long after = this.threadBean.getThreadAllocatedBytes(threadId);
+      minAllocatedBytes = Math.min(minAllocatedBytes, after - before);
+    }
+    return minAllocatedBytes;
+  }
+
+  // ==============================================================================================
+
+  /**
+   * Creates the synthetic reference document: {@link #NUM_PAGES} pages, each with
+   * {@link #NUM_CHARACTERS_PER_PAGE} characters (in two fonts and two colors) in text lines of
+   * {@link #NUM_CHARACTERS_PER_LINE} characters, split into words at the spaces and grouped into
+   * text blocks and paragraphs of {@link #NUM_LINES_PER_BLOCK} lines, and
+   * {@link #NUM_GRAPHICS_PER_PAGE} figures and shapes.
+   *
+   * @return The reference document.
+   */
+  public static Document createReferenceDocument() {
+    Font regular = createFont("f1", "Times-Roman", false, false);
+    Font bold = createFont("f2", "Times-Bold", true, false);
+    Color black = createColor("c1", 0, 0, 0);
+    Color blue = createColor("c2", 0, 0, 255);
+    String text = "The quick brown fox jumps over the lazy dog & <friends>. ";
+
+    Document doc = new Document();
+    for (int pageNumber = 1; pageNumber <= NUM_PAGES; pageNumber++) {
+      Page page = new Page();
+      page.setPageNumber(pageNumber);
+      page.setWidth(595);
+      page.setHeight(842);
+
+      TextBlock block = null;
+      Paragraph paragraph = null;
+      TextLine line = null;
+      Word word = null;
+      for (int i = 0; i < NUM_CHARACTERS_PER_PAGE; i++) {
+        int lineIndex = i / NUM_CHARACTERS_PER_LINE;
+        int column = i % NUM_CHARACTERS_PER_LINE;
+        float minX = 50 + column * 5;
+        float minY = 790 - lineIndex * 12;
+
+        // Start a new text line per row, and a new text block and paragraph every few lines.
+        if (column == 0) {
+          if (lineIndex % NUM_LINES_PER_BLOCK == 0) {
+            Rectangle rect = new Rectangle(50, minY - (NUM_LINES_PER_BLOCK - 1) * 12,
+                    50 + NUM_CHARACTERS_PER_LINE * 5, minY + 10);
+            SemanticRole role = lineIndex == 0 ? SemanticRole.HEADING : SemanticRole.BODY_TEXT;
+            block = new TextBlock();
+            block.setPosition(new Position(page, rect));
+            block.setRole(role);
+            page.addTextBlock(block);
+            paragraph = new Paragraph();
+            paragraph.addPosition(new Position(page, rect));
+            paragraph.setRole(role);
+            doc.addParagraph(paragraph);
+          }
+          line = new TextLine();
+          line.setPosition(new Position(page, new Rectangle(50, minY,
+                  50 + NUM_CHARACTERS_PER_LINE * 5, minY + 10)));
+          page.addTextLine(line);
+          word = null;
+        }
+
+        Character character = new Character();
+        character.setText(String.valueOf(text.charAt(i % text.length())));
+        character.setPosition(new Position(page, new Rectangle(minX, minY, minX + 4.5f,
+                minY + 10)));
+        // Switch the font and color every few words, as in a document with emphasized text.
+        boolean isEmphasized = (i / 40) % 5 == 4;
+        character.setFontFace(new FontFace(isEmphasized ? bold : regular, 10));
+        character.setColor(isEmphasized ? blue : black);
+        page.addCharacter(character);
+        line.addCharacter(character);
+        block.addCharacter(character);
+
+        // Split the text lines into words at the spaces.
+        if (" ".equals(character.getText())) {
+          word = null;
+        } else {
+          if (word == null) {
+            word = new Word();
+            page.addWord(word);
+            paragraph.addWord(word);
+          }
+          word.addCharacter(character);
+        }
+      }
+
+      for (Word w : page.getWords()) {
+        Rectangle first = w.getCharacters().get(0).getPosition().getRectangle();
+        Rectangle last = w.getCharacters().get(w.getCharacters().size() - 1).getPosition()
+                .getRectangle();
+        w.addPosition(new Position(page, new Rectangle(first.getMinX(), first.getMinY(),
+                last.getMaxX(), last.getMaxY())));
+      }
+
+      for (int i = 0; i < NUM_GRAPHICS_PER_PAGE; i++) {
+        Figure figure = new Figure();
+        figure.setPosition(new Position(page, new Rectangle(50, 20 + i * 4, 300, 22 + i * 4)));
+        page.addFigure(figure);
+
+        Shape shape = new Shape();
+        shape.setPosition(new Position(page, new Rectangle(300, 20 + i * 4, 545, 21 + i * 4)));
+        shape.setColor(i % 2 == 0 ? black : blue);
+        page.addShape(shape);
+      }
+      doc.addPage(page);
+    }
+    return doc;
+  }
+
+  /**
+   * Counts the elements of the given document that are serialized in the given format.
+   *
+   * @param doc    The document.
+   * @param format The format.
+   *
+   * @return The number of serialized elements.
+   */
+  protected static long countElements(Document doc, SerializationFormat format) {
+    Collection<ElementClass> clazzes = format == SerializationFormat.TEXT
+            ? Arrays.asList(ElementClass.CHARACTERS) : CLAZZES;
+    long numElements = 0;
+    if (clazzes.contains(ElementClass.PARAGRAPHS)) {
+      numElements += doc.getParagraphs().size();
+    }
+    for (Page page : doc.getPages()) {
+      if (clazzes.contains(ElementClass.CHARACTERS)) {
+        numElements += page.getCharacters().size();
+      }
+      if (clazzes.contains(ElementClass.WORDS)) {
+        numElements += page.getWords().size();
+      }
+      if (clazzes.contains(ElementClass.TEXT_LINES)) {
+        numElements += page.getTextLines().size();
+      }
+      if (clazzes.contains(ElementClass.TEXT_BLOCKS)) {
+        numElements += page.getTextBlocks().size();
+      }
+      if (clazzes.contains(ElementClass.FIGURES)) {
+        numElements += page.getFigures().size();
+      }
+      if (clazzes.contains(ElementClass.SHAPES)) {
+        numElements += page.getShapes().size();
+      }
+    }
+    return numElements;
+  }
+
+  /**
+   * Creates a font.
+   *
+   * @param id       The id of the font.
+   * @param name     The name of the font.
+   * @param isBold   Whether the font is bold.
+   * @param isItalic Whether the font is italic.
+   *
+   * @return The font.
+   */
+  protected static Font createFont(String id, String name, boolean isBold, boolean isItalic) {
+    Font font = new Font();
+    font.setId(id);
+    font.setName(name);
+    font.setIsBold(isBold);
+    font.setIsItalic(isItalic);
+    return font;
+  }
+
+  /**
+   * Creates a color.
+   *
+   * @param id    The id of the color.
+   * @param red   The red component.
+   * @param green The green component.
+   * @param blue  The blue component.
+   *
+   * @return The color.
+   */
+  protected static Color createColor(String id, int red, int green, int blue) {
+    Color color = new Color();
+    color.setId(id);
+    color.setRgb(new int[] { red, green, blue });
+    return color;
+  }
+}